@@ -22,8 +22,10 @@ package net.sf.hale;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import net.sf.hale.bonus.Stat;
 import net.sf.hale.defaultability.Move;
@@ -33,7 +35,9 @@ import net.sf.hale.entity.Location;
 import net.sf.hale.entity.Path;
 import net.sf.hale.interfacelock.MovementHandler;
 import net.sf.hale.rules.Faction;
+import net.sf.hale.rules.RuleValue;
 import net.sf.hale.util.AreaUtil;
+import net.sf.hale.util.DistanceField;
 import net.sf.hale.util.Point;
 
 /**
@@ -136,6 +140,7 @@ public class AIScriptInterface {
 	public boolean moveTowards(Creature parent, Location location, int distanceAway, boolean provokeAoOs) {
 		Move move = new Move();
 		move.setTruncatePath(false);
+		move.setUseFlowField(true);
 		
 		if (!move.canMove(parent, location, distanceAway)) {
 			return false;
@@ -148,6 +153,7 @@ public class AIScriptInterface {
 		MovementHandler.Mover mover = move.getMover();
 		if (mover == null) return false;
 		
+		Game.scriptExecutor.beginBlocking();
 		try {
 			// wait for the movement to complete
 			synchronized(mover) {
@@ -158,6 +164,8 @@ public class AIScriptInterface {
 		} catch (InterruptedException e) {
 			// thread was interrupted, should exit
 			return false;
+		} finally {
+			Game.scriptExecutor.endBlocking();
 		}
 		
 		return true;
@@ -295,7 +303,8 @@ public class AIScriptInterface {
 	
 	/**
 	 * Finds the creature meeting the specified relationship with the parent creature and being the
-	 * nearest in terms of hex tile distance.  Ties are decided randomly
+	 * nearest in terms of walking distance, ignoring other creatures.  Creatures that cannot be
+	 * reached are only chosen if no creature can be, by hex tile distance.  Ties are decided randomly
 	 * @param parent the parent creature
 	 * @param relationship The faction relationship between parent and the target that is found.
 	 * Must be either "Hostile", "Neutral", or "Friendly"
@@ -309,11 +318,11 @@ public class AIScriptInterface {
 		List<Creature> creatures = getLiveVisibleCreatures(parent, relationship);
 
 		int smallestDistance = Integer.MAX_VALUE;
+		
+		DistanceField field = parent.getLocation().getArea().getUtil().getDistanceField(parent, true);
 
-		//compute the simple distance
 		for (Creature target : creatures) {
-			int distance = AreaUtil.distance(parent.getLocation().getX(), parent.getLocation().getY(),
-					target.getLocation().getX(), target.getLocation().getY());
+			int distance = getWalkingDistance(field, parent, target);
 
 			if (distance < smallestDistance) {
 				closest.clear();
@@ -517,22 +526,49 @@ public class AIScriptInterface {
 		return creatures;
 	}
 	
+	/**
+	 * Sorts the specified list of creatures by walking distance from the parent, closest
+	 * first, in the same way as {@link #findNearestCreature(Creature, String)}
+	 * @param parent the parent creature
+	 * @param creatures the list of creatures to sort
+	 */
+	
 	public void sortCreatureListClosestFirst(Creature parent, List<Creature> creatures) {
-		Collections.sort(creatures, new CreatureSorter(parent));
+		DistanceField field = parent.getLocation().getArea().getUtil().getDistanceField(parent, true);
+		
+		Map<Creature, Integer> distances = new HashMap<Creature, Integer>();
+		for (Creature creature : creatures) {
+			distances.put(creature, getWalkingDistance(field, parent, creature));
+		}
+		
+		Collections.sort(creatures, new CreatureSorter(distances));
+	}
+	
+	/*
+	 * Returns the number of steps from the parent to the target.  Targets that cannot be
+	 * reached are further than all targets that can, and are ordered by hex tile distance
+	 */
+	
+	private static int getWalkingDistance(DistanceField field, Creature parent, Creature target) {
+		int x = target.getLocation().getX();
+		int y = target.getLocation().getY();
+		
+		int distance = field.getDistance(x, y);
+		if (distance != -1) return distance;
+		
+		return Game.ruleset.getValue(RuleValue.MaximumPathLength) + 1 +
+				AreaUtil.distance(parent.getLocation().getX(), parent.getLocation().getY(), x, y);
 	}
 	
 	private class CreatureSorter implements Comparator<Creature> {
-		private Creature parent;
+		private Map<Creature, Integer> distances;
 		
-		private CreatureSorter(Creature parent) {
-			this.parent = parent;
+		private CreatureSorter(Map<Creature, Integer> distances) {
+			this.distances = distances;
 		}
 
 		@Override public int compare(Creature a, Creature b) {
-			return AreaUtil.distance(a.getLocation().getX(), a.getLocation().getY(),
-					parent.getLocation().getX(), parent.getLocation().getY()) -
-					AreaUtil.distance(b.getLocation().getX(), b.getLocation().getY(),
-							parent.getLocation().getX(), parent.getLocation().getY());
+			return distances.get(a) - distances.get(b);
 		}
 	}
 }
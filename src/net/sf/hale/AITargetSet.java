@@ -8,6 +8,7 @@ import java.util.List;
 import net.sf.hale.entity.Creature;
 import net.sf.hale.entity.Path;
 import net.sf.hale.util.AreaUtil;
+import net.sf.hale.util.DistanceField;
 
 /**
  * A class for holding a set of possible targets for the AI to attack.
@@ -20,7 +21,8 @@ public class AITargetSet {
 	private final List<TargetInfo> targets;
 	
 	/**
-	 * Creates a new AITargetSet
+	 * Creates a new AITargetSet.  The paths to all targets are taken from a single
+	 * distance field for the parent, see {@link AreaUtil#getDistanceField(Creature, boolean)}
 	 * @param parent the attacking creature
 	 * @param possibleTargets the list of possible targets for the attacker.  Only some
 	 * (or none) of these could end up in the final set
@@ -30,19 +32,22 @@ public class AITargetSet {
 		targets = new ArrayList<TargetInfo>();
 		
 		int reach = parent.getMainHandWeapon().getTemplate().getMaxRange();
+		boolean melee = parent.getMainHandWeapon().isMelee();
+		
+		// melee attackers must path around creatures, while others only need to see the target
+		DistanceField field = parent.getLocation().getArea().getUtil().getDistanceField(parent, !melee);
 		
 		for (Creature target : possibleTargets) {
 			int distance;
 			Path path = null;
-			if (parent.getMainHandWeapon().isMelee()) {
+			if (melee) {
 				// for melee first check the weapon reach
 				distance = AreaUtil.distance(parent.getLocation().getX(), parent.getLocation().getY(),
 						target.getLocation().getX(), target.getLocation().getY());
 				
 				// if the creature is not in melee range, compute the distance by finding a path
 				if (distance > reach) {
-					path = parent.getLocation().getArea().getUtil().findShortestPath(parent,
-							target.getLocation().toPoint(), reach);
+					path = field.getPathToWithin(target.getLocation().toPoint(), reach);
 					
 					// distance is path length + 1
 					if (path != null) distance = path.length() + 1;
@@ -50,8 +55,7 @@ public class AITargetSet {
 				}
 			} else {
 				// for non melee, compute using shortest path to the target's tile
-				path = parent.getLocation().getArea().getUtil().findShortestPathIgnoreCreatures(parent,
-						target.getLocation().toPoint());
+				path = field.getPath(target.getLocation().getX(), target.getLocation().getY());
 				
 				// distance is path length + 1
 				if (path != null) distance = path.length() + 1;
@@ -35,6 +35,7 @@ import net.sf.hale.entity.PC;
 import net.sf.hale.entity.Encounter;
 import net.sf.hale.entity.Entity;
 import net.sf.hale.entity.Inventory;
+import net.sf.hale.entity.Location;
 import net.sf.hale.entity.Weapon;
 import net.sf.hale.icon.SimpleIcon;
 import net.sf.hale.interfacelock.EntityAttackAnimation;
@@ -66,6 +67,9 @@ public class CombatRunner {
 	
 	private int combatStartRound;
 	
+	// incremented each time a creature's turn begins or combat ends
+	private int turnNumber;
+	
 	/**
 	 * Advances combat to the next round - the next creature in the combat
 	 * queue will have its turn.  If the game is not already in combat mode,
@@ -102,6 +106,8 @@ public class CombatRunner {
 		
 		if (target.stats.isHidden()) return threatens;
 		
+		if (!isThreatened(target)) return threatens;
+		
 		for (Creature current : creatures) {
 			if (current == target) continue;
 			
@@ -117,6 +123,17 @@ public class CombatRunner {
 		return threatens;
 	}
 	
+	/*
+	 * Checks the area threat map, which can quickly rule out any creatures threatening the target
+	 */
+	
+	private boolean isThreatened(Creature target) {
+		Location location = target.getLocation();
+		if (location.getArea() == null) return true;
+		
+		return location.getArea().getThreatMap().getThreatCount(target, location.getX(), location.getY()) > 0;
+	}
+	
 	/**
 	 * Returns the list of creatures currently threatening the specified target at their next position
 	 * assumed to be threatening for the purpose of movement
@@ -131,6 +148,8 @@ public class CombatRunner {
 		
 		if (target.stats.isHidden()) return creatures;
 		
+		if (!isThreatened(target)) return creatures;
+		
 		for (Creature current : this.creatures) {
 			if (current == target) continue;
 			
@@ -731,6 +750,8 @@ public class CombatRunner {
 	 */
 	
 	public void exitCombat() {
+		turnNumber++;
+		
 		for (Creature creature : creatures) {
 			if (creature.isDead()) {
 				creature.abilities.cancelAllEffects();
@@ -803,6 +824,17 @@ public class CombatRunner {
 		creatures.add(activeCreatureIndex + 1, creature);
 	}
 	
+	/**
+	 * Returns a number that changes each time a creature's combat turn begins and
+	 * each time combat ends.  This can be used to determine whether information
+	 * computed earlier is from the current turn
+	 * @return the current turn number
+	 */
+	
+	public int getTurnNumber() {
+		return turnNumber;
+	}
+	
 	/**
 	 * Returns the creature that had its combat turn previous to the current
 	 * creature
@@ -833,6 +865,7 @@ public class CombatRunner {
 	
 	private Creature nextCreatureInQueue() {
 		activeCreatureIndex++;
+		turnNumber++;
 		
 		if (activeCreatureIndex == creatures.size()) {
 			activeCreatureIndex = 0;
@@ -70,6 +70,15 @@ public class Config {
 	private final boolean warningMode;
 	private final int combatDelay;
 	private final long checkForUpdatesInterval;
+	private final int maxScriptEngines;
+	private final long scriptEngineTimeout;
+	private final int prewarmedScriptEngines;
+	private final boolean binarySaveFormat;
+	private final boolean textureCache;
+	private final int maxLoadedAreas;
+	private final int maxLoadedAreaGridPoints;
+	private final int areaPreloadDistance;
+	private final boolean flowFieldMovement;
 	
 	private final String versionID;
 	
@@ -106,6 +115,80 @@ public class Config {
 	
 	public int getCombatDelay() { return combatDelay; }
 	
+	/**
+	 * Returns the maximum number of script engines that will be pooled for running scripts
+	 * @return the maximum number of pooled script engines
+	 */
+	
+	public int getMaxScriptEngines() { return maxScriptEngines; }
+	
+	/**
+	 * Returns the amount of time in milliseconds that a script on a worker thread will wait
+	 * for a pooled script engine to become available.  The main loop thread never waits
+	 * @return the script engine timeout
+	 */
+	
+	public long getScriptEngineTimeout() { return scriptEngineTimeout; }
+	
+	/**
+	 * Returns the number of script engines that are created and prepared with the
+	 * campaign's AI scripts when a campaign is loaded
+	 * @return the number of prewarmed script engines
+	 */
+	
+	public int getPrewarmedScriptEngines() { return prewarmedScriptEngines; }
+	
+	/**
+	 * Returns true if saved games should be written in the compact binary format rather
+	 * than as JSON.  Saves in either format can always be loaded
+	 * @return whether saved games are written in the binary format
+	 */
+	
+	public boolean isBinarySaveFormatEnabled() { return binarySaveFormat; }
+	
+	/**
+	 * Returns true if decoded images should be stored in the texture cache on disk, so that
+	 * they can be loaded without decoding on later launches
+	 * @return whether the texture cache is enabled
+	 */
+	
+	public boolean isTextureCacheEnabled() { return textureCache; }
+	
+	/**
+	 * Returns the maximum number of visited areas that are kept loaded.  Less recently
+	 * used areas beyond this limit are saved to a compact snapshot and unloaded.  A
+	 * value of zero means there is no limit
+	 * @return the maximum number of loaded areas
+	 */
+	
+	public int getMaxLoadedAreas() { return maxLoadedAreas; }
+	
+	/**
+	 * Returns the maximum total size, in grid points, of the visited areas that are kept
+	 * loaded.  A value of zero means there is no limit
+	 * @return the maximum total size of loaded areas
+	 */
+	
+	public int getMaxLoadedAreaGridPoints() { return maxLoadedAreaGridPoints; }
+	
+	/**
+	 * Returns the distance in tiles from a transition at which a party member will cause
+	 * the area on the other side of the transition to be preloaded in the background.
+	 * A value of zero disables preloading
+	 * @return the area preload distance
+	 */
+	
+	public int getAreaPreloadDistance() { return areaPreloadDistance; }
+	
+	/**
+	 * Returns true if party members following a move order and AI creatures moving towards
+	 * a goal should read their paths from a flow field shared by all creatures with the same
+	 * goal, rather than each searching for a path separately
+	 * @return whether flow field movement is enabled
+	 */
+	
+	public boolean isFlowFieldMovementEnabled() { return flowFieldMovement; }
+	
 	/**
 	 * Returns the horizontal display resolution, independant of any scaling factor
 	 * @return the horizontal display resolution
@@ -283,6 +366,15 @@ public class Config {
 		debugMode = parser.get("DebugMode", false);
 		warningMode = parser.get("WarningMode", false);
 		checkForUpdatesInterval = parser.get("CheckForUpdatesInterval", 86400000);
+		maxScriptEngines = parser.get("MaxScriptEngines", 16);
+		scriptEngineTimeout = parser.get("ScriptEngineTimeout", 10);
+		prewarmedScriptEngines = parser.get("PrewarmedScriptEngines", 2);
+		binarySaveFormat = parser.get("BinarySaveFormat", false);
+		textureCache = parser.get("TextureCache", true);
+		maxLoadedAreas = parser.get("MaxLoadedAreas", 8);
+		maxLoadedAreaGridPoints = parser.get("MaxLoadedAreaGridPoints", 0);
+		areaPreloadDistance = parser.get("AreaPreloadDistance", 8);
+		flowFieldMovement = parser.get("FlowFieldMovement", true);
 		
 		if (parser.containsKey("RandomSeed")) {
 			randSeedSet = true;
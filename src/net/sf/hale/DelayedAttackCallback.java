@@ -28,6 +28,7 @@ import net.sf.hale.ability.ScriptFunctionType;
 import net.sf.hale.bonus.Bonus;
 import net.sf.hale.entity.Creature;
 import net.sf.hale.rules.Attack;
+import net.sf.hale.rules.RuleValue;
 
 /**
  * A class that performs an attack after a specified delay
@@ -144,7 +145,7 @@ public class DelayedAttackCallback extends Thread{
 		}
 		
 		// other creatures get a chance to spot a hiding creature when it attacks
-		Game.scriptInterface.performSearchChecksForCreature(attacker, Game.ruleset.getValue("HideAttackPenalty"));
+		Game.scriptInterface.performSearchChecksForCreature(attacker, Game.ruleset.getValue(RuleValue.HideAttackPenalty));
 		
 		Game.mainViewer.updateEntity(attacker);
 		Game.mainViewer.updateEntity(defender);
@@ -31,6 +31,7 @@ import java.util.List;
 
 import javax.imageio.ImageIO;
 
+import net.sf.hale.ability.ScriptExecutor;
 import net.sf.hale.defaultability.MouseActionList;
 import net.sf.hale.entity.Entity;
 import net.sf.hale.entity.EntityManager;
@@ -45,6 +46,7 @@ import net.sf.hale.mainmenu.MainMenu;
 import net.sf.hale.mainmenu.MainMenuAction;
 import net.sf.hale.particle.ParticleManager;
 import net.sf.hale.resource.ResourceManager;
+import net.sf.hale.resource.SpriteBatch;
 import net.sf.hale.resource.SpriteManager;
 import net.sf.hale.rules.Campaign;
 import net.sf.hale.rules.Dice;
@@ -147,6 +149,12 @@ public class Game {
 	
 	public static JSEngineManager scriptEngineManager;
 	
+	/**
+	 * Runs asynchronous and delayed scripts on a bounded pool of worker threads
+	 */
+	
+	public static ScriptExecutor scriptExecutor;
+	
 	/**
 	 * The main view, the root widget.  Also contains the in game main loop.
 	 */
@@ -225,6 +233,12 @@ public class Game {
 	
 	public static AsyncTextureLoader textureLoader;
 	
+	/**
+	 * Used to draw large numbers of sprites with few OpenGL calls
+	 */
+	
+	public static SpriteBatch spriteBatch;
+	
 	private static boolean turnMode = false;
 	
 	/**
@@ -280,6 +294,7 @@ public class Game {
 	private static String partiesBaseDirectory;
 	private static String saveBaseDirectory;
 	private static String logBaseDirectory;
+	private static String cacheBaseDirectory;
 
 	
 	
@@ -322,6 +337,26 @@ public class Game {
 	
 	public static String getLogBaseDirectory() { return logBaseDirectory; }
 	
+	/**
+	 * Returns the directory used to store cached data that can be regenerated, such
+	 * as decoded textures
+	 * @return the cache directory
+	 */
+	
+	public static String getCacheBaseDirectory() { return cacheBaseDirectory; }
+	
+	/**
+	 * Returns the maximum number of pooled script engines.  This is the configured maximum,
+	 * raised if needed so that every script worker kept by {@link #scriptExecutor} can hold
+	 * an engine along with a second engine for a nested script call.  The script executor
+	 * must already be created
+	 * @return the maximum number of pooled script engines
+	 */
+	
+	public static int getScriptEnginePoolSize() {
+		return Math.max(Game.config.getMaxScriptEngines(), 2 * Game.scriptExecutor.getNumCoreWorkers());
+	}
+	
 	/**
 	 * The global main method.  Handles initializing the global variables,
 	 * determining available display modes, creating the display, and parsing any arguments
@@ -352,7 +387,14 @@ public class Game {
 		Game.config = new Config(Game.getConfigBaseDirectory() + "config.json");
 		Game.dice = new Dice();
 		
-		Game.scriptEngineManager = new JSEngineManager();
+		Game.scriptExecutor = new ScriptExecutor();
+		
+		// each worker started in place of a blocked worker may need a temporary engine
+		Game.scriptEngineManager = new JSEngineManager(getScriptEnginePoolSize(),
+				ScriptExecutor.MaxBlockedWorkers, Game.config.getScriptEngineTimeout());
+		
+		// this thread runs the main loop, which should never wait for a script engine
+		Game.scriptEngineManager.reserveEngine(Thread.currentThread());
 		Game.scriptInterface = new ScriptInterface();
 		Game.scriptInterfaceCohesive = new ScriptInterfaceCohesive();		
 		
@@ -366,6 +408,7 @@ public class Game {
 		setDisplayIcon();
 		
 		textureLoader = new AsyncTextureLoader();
+		spriteBatch = new SpriteBatch();
 		
 		try {
 			allDisplayModes = Config.getUsableDisplayModes(false);
@@ -476,6 +519,7 @@ public class Game {
 			Game.partiesBaseDirectory = baseDir + "\\parties\\";
 			Game.saveBaseDirectory = baseDir + "\\saves\\";
 			Game.logBaseDirectory = baseDir + "\\log\\";
+			Game.cacheBaseDirectory = baseDir + "\\cache\\";
 			
 			createTimerAccuracyThread();
 			break;
@@ -485,6 +529,7 @@ public class Game {
 			// use XDG compliant data and configuration directories
 			String xdgDataHome = System.getenv("XDG_DATA_HOME");
 			String xdgConfigHome = System.getenv("XDG_CONFIG_HOME");
+			String xdgCacheHome = System.getenv("XDG_CACHE_HOME");
 			
 			if (xdgDataHome == null || xdgDataHome.length() == 0) {
 				// fallback to XDG default
@@ -496,14 +541,21 @@ public class Game {
 				xdgConfigHome = System.getProperty("user.home") + "/.config";
 			}
 			
+			if (xdgCacheHome == null || xdgCacheHome.length() == 0) {
+				// fallback to XDG default
+				xdgCacheHome = System.getProperty("user.home") + "/.cache";
+			}
+			
 			xdgDataHome = xdgDataHome + "/hale/";
 			xdgConfigHome = xdgConfigHome + "/hale/";
+			xdgCacheHome = xdgCacheHome + "/hale/";
 			
 			Game.configBaseDirectory = xdgConfigHome;
 			Game.charactersBaseDirectory = xdgDataHome + "characters/";
 			Game.partiesBaseDirectory = xdgDataHome + "parties/";
 			Game.saveBaseDirectory = xdgDataHome + "saves/";
 			Game.logBaseDirectory = xdgDataHome + "log/";
+			Game.cacheBaseDirectory = xdgCacheHome;
 			
 			break;
 		}
@@ -513,6 +565,7 @@ public class Game {
 		new File(Game.partiesBaseDirectory).mkdirs();
 		new File(Game.saveBaseDirectory).mkdirs();
 		new File(Game.logBaseDirectory).mkdirs();
+		new File(Game.cacheBaseDirectory).mkdirs();
 	}
 	
 	private static void createTimerAccuracyThread() {
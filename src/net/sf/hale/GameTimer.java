@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import net.sf.hale.util.AreaUtil;
+import net.sf.hale.util.BitGrid;
 import net.sf.hale.util.Point;
 
 /**
@@ -118,15 +119,15 @@ public class GameTimer {
 	/**
 	 * Updates the visibility matrix with any temporary visibility areas being tracked by
 	 * the timer
-	 * @param vis the visibility matrix
+	 * @param vis the visibility grid
 	 */
 	
-	public void getTemporaryVisibilityAreas(boolean[][] vis) {
+	public void getTemporaryVisibilityAreas(BitGrid vis) {
 		for (int i = 0; i < sightAreas.size(); i++) {
 			TemporarySightArea area = sightAreas.get(i);
 			
 			for (Point point : area.points) {
-				vis[point.x][point.y] = true;
+				vis.set(point.x, point.y);
 			}
 		}
 	}
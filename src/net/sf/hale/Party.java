@@ -30,6 +30,7 @@ import net.sf.hale.entity.PC;
 import net.sf.hale.loading.JSONOrderedObject;
 import net.sf.hale.loading.ReferenceHandler;
 import net.sf.hale.loading.Saveable;
+import net.sf.hale.rules.RuleString;
 import net.sf.hale.util.Logger;
 import net.sf.hale.util.SaveGameUtil;
 import net.sf.hale.util.SimpleJSONArrayEntry;
@@ -88,7 +89,7 @@ public class Party implements Iterable<PC>, Saveable {
 			String charID = entry.getString();
 			
 			PC creature = (PC)refHandler.getEntity(charID);
-			creature.setFaction(Game.ruleset.getFaction(Game.ruleset.getString("PlayerFaction")));
+			creature.setFaction(Game.ruleset.getFaction(Game.ruleset.getString(RuleString.PlayerFaction)));
 			party.characters.add(creature);
 		}
 		
@@ -102,7 +103,7 @@ public class Party implements Iterable<PC>, Saveable {
 					// the summon was not found
 					Logger.appendToWarningLog("When loading, summoned creature " + creatureID + " not found.");
 				} else {
-					creature.setFaction(Game.ruleset.getFaction(Game.ruleset.getString("PlayerFaction")));
+					creature.setFaction(Game.ruleset.getFaction(Game.ruleset.getString(RuleString.PlayerFaction)));
 					party.summons.add(creature);
 				}
 			}
@@ -285,7 +286,7 @@ public class Party implements Iterable<PC>, Saveable {
 			if (pc == creature) return;
 		}
 		
-		creature.setFaction(Game.ruleset.getFaction(Game.ruleset.getString("PlayerFaction")));
+		creature.setFaction(Game.ruleset.getFaction(Game.ruleset.getString(RuleString.PlayerFaction)));
 		characters.add(creature);
 		
 		recomputePortraits = true;
@@ -319,7 +320,7 @@ public class Party implements Iterable<PC>, Saveable {
 		
 		recomputePortraits = true;
 		
-		creature.setFaction( Game.ruleset.getFaction(Game.ruleset.getString("DefaultFaction")) );
+		creature.setFaction( Game.ruleset.getFaction(Game.ruleset.getString(RuleString.DefaultFaction)) );
 	}
 	
 	/**
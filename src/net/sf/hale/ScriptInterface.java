@@ -156,6 +156,7 @@ public class ScriptInterface implements HasScriptState {
 	public boolean standardAttack(Creature attacker, Creature defender) {
 		boolean result = false;
 		
+		Game.scriptExecutor.beginBlocking();
 		try {
 			DelayedAttackCallback cb = null;
 			
@@ -191,6 +192,8 @@ public class ScriptInterface implements HasScriptState {
 		} catch (Exception e) {
 			Logger.appendToErrorLog("Error executing standard attack", e);
 			return false;
+		} finally {
+			Game.scriptExecutor.endBlocking();
 		}
 		
 		return result;
@@ -474,18 +477,17 @@ public class ScriptInterface implements HasScriptState {
 	
 	
 	public void sleepStandardDelay(int multiple) {
-		try {
-			Thread.sleep(Game.config.getCombatDelay() * multiple);
-		} catch (InterruptedException e) {
-			return;
-		}
+		sleep(Game.config.getCombatDelay() * multiple);
 	}
 	
 	public void sleep(long millis) {
+		Game.scriptExecutor.beginBlocking();
 		try {
 			Thread.sleep(millis);
 		} catch (InterruptedException e) {
 			return;
+		} finally {
+			Game.scriptExecutor.endBlocking();
 		}
 	}
 	
@@ -145,10 +145,13 @@ public class ScriptInterfaceCohesive {
 	public void runAnimationWait(Animation animation) {
 		Game.particleManager.add(animation);
 		
+		Game.scriptExecutor.beginBlocking();
 		try {
 			Thread.sleep((long) (animation.getSecondsRemaining() * 1000.0f));
 		} catch (InterruptedException e) {
 			return;
+		} finally {
+			Game.scriptExecutor.endBlocking();
 		}
 	}
 	
@@ -160,10 +163,13 @@ public class ScriptInterfaceCohesive {
 	public void runParticleGeneratorWait(ParticleGenerator generator) {
 		Game.particleManager.add(generator);
 		
+		Game.scriptExecutor.beginBlocking();
 		try {
 			Thread.sleep((long) (generator.getTimeLeft() * 1000.0f));
 		} catch (InterruptedException e) {
 			return;
+		} finally {
+			Game.scriptExecutor.endBlocking();
 		}
 	}
 	
@@ -207,6 +213,7 @@ public class ScriptInterfaceCohesive {
 	
 	public boolean rangedTouchAttack(Creature attacker, Creature defender) {
 		boolean success = false;
+		Game.scriptExecutor.beginBlocking();
 		try {
 			DelayedAttackCallback cb = Game.areaListener.getCombatRunner().creatureTouchAttack(attacker, defender, true);
 			
@@ -222,6 +229,8 @@ public class ScriptInterfaceCohesive {
 			}
 		} catch (Exception e) {
 			Logger.appendToErrorLog("Error performing ranged touch attack.", e);
+		} finally {
+			Game.scriptExecutor.endBlocking();
 		}
 		
 		return success;
@@ -230,6 +239,7 @@ public class ScriptInterfaceCohesive {
 	public boolean meleeTouchAttack(Creature attacker, Creature defender) {
 		boolean result = false;
 		
+		Game.scriptExecutor.beginBlocking();
 		try {
 			DelayedAttackCallback cb = Game.areaListener.getCombatRunner().creatureTouchAttack(attacker, defender, false);
 			
@@ -246,6 +256,8 @@ public class ScriptInterfaceCohesive {
 			
 		} catch (Exception e) {
 			Logger.appendToErrorLog("Error performing melee touch attack.", e);
+		} finally {
+			Game.scriptExecutor.endBlocking();
 		}
 		
 		return result;
@@ -264,6 +276,7 @@ public class ScriptInterfaceCohesive {
 	public boolean singleAttackAnimate(Creature attacker, Creature target) {
 		boolean result = false;
 
+		Game.scriptExecutor.beginBlocking();
 		try {
 			DelayedAttackCallback cb = Game.areaListener.getCombatRunner().creatureSingleAttackAnimate(
 					attacker, target, Inventory.Slot.MainHand);
@@ -281,6 +294,8 @@ public class ScriptInterfaceCohesive {
 		} catch (InterruptedException e) {
 			// the attack was interrupted and did not take place
 			result = false;
+		} finally {
+			Game.scriptExecutor.endBlocking();
 		}
 
 		return result;
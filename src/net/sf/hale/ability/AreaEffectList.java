@@ -21,8 +21,9 @@ package net.sf.hale.ability;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -36,6 +37,7 @@ import net.sf.hale.loading.JSONOrderedObject;
 import net.sf.hale.loading.LoadGameException;
 import net.sf.hale.loading.ReferenceHandler;
 import net.sf.hale.loading.Saveable;
+import net.sf.hale.util.BitGrid;
 import net.sf.hale.util.Logger;
 import net.sf.hale.util.Point;
 import net.sf.hale.util.SaveGameUtil;
@@ -47,6 +49,12 @@ import net.sf.hale.util.SimpleJSONObject;
  * Contains the set of all effects that have been applied to a given {@link net.sf.hale.area.Area}.
  * When applied in this manner, each effect will be active in a collection of points.  This class
  * keeps track of which points each effect is applied to.
+ * <p>
+ * For each Bonus Type carried by the effects in this list, the total bonus at each point and
+ * whether any effect at the point has a bonus of that type are kept in a grid.  Grids are
+ * created the first time an effect with a given type is added, and the points an effect covers
+ * are updated whenever it is added, removed, or moved, so bonus queries are array reads.  The
+ * bonuses of an effect must be set before it is added to the list.
  * 
  * @author Jared Stephen
  *
@@ -57,6 +65,11 @@ public class AreaEffectList implements Saveable {
 	
 	private EffectList[][] effectsAtPosition;
 	
+	private final Map<Bonus.Type, BonusGrid> bonusGrids;
+	
+	// scratch space for finding the points an aura enters and leaves when it moves
+	private BitGrid covered;
+	
 	private Area area;
 	
 	public Object save() {
@@ -130,6 +143,8 @@ public class AreaEffectList implements Saveable {
 			
 			effects.put(effect, points);
 		}
+		
+		rebuildBonusGrids();
 	}
 	
 	/**
@@ -146,6 +161,10 @@ public class AreaEffectList implements Saveable {
 		effects = new HashMap<Effect, List<Point>>();
 		
 		effectsAtPosition = new EffectList[area.getWidth()][area.getHeight()];
+		
+		bonusGrids = new EnumMap<Bonus.Type, BonusGrid>(Bonus.Type.class);
+		
+		covered = new BitGrid(area.getWidth(), area.getHeight());
 	}
 	
 	/**
@@ -160,7 +179,8 @@ public class AreaEffectList implements Saveable {
 	
 	/**
 	 * Moves the effect currently in this AreaEffectList from its current set of points to the new
-	 * set of points
+	 * set of points.  Only the points that the aura leaves or enters are updated, and the
+	 * onTargetExit and onTargetEnter scripts are run for the creatures on those points
 	 * 
 	 * @param aura the effect to move
 	 * @param points the new set of positions for the Effect
@@ -178,60 +198,90 @@ public class AreaEffectList implements Saveable {
 		newPoints.trimToSize();
 		List<Point> oldPoints = effects.get(aura);
 		
-		Set<Creature> oldCreatures = new HashSet<Creature>();
-		Set<Creature> newCreatures = new HashSet<Creature>();
+		// find the points that are only covered before or only covered after the move.  Only
+		// the bits that are set here are cleared afterwards, so the scratch grid stays empty
+		List<Point> removedPoints = new ArrayList<Point>();
+		List<Point> addedPoints = new ArrayList<Point>();
+		
+		for (Point p : newPoints) {
+			covered.set(p.x, p.y);
+		}
 		
-		// get the set of creatures previously in the aura
 		for (Point p : oldPoints) {
-			Creature creature = area.getEntities().getCreature(p.x, p.y);
-			
-			// don't add the aura target, which can neither enter or exit the aura
-			if (creature != null && creature != aura.getTarget()) {
-				oldCreatures.add(creature);
-			}
+			if (!covered.get(p.x, p.y)) removedPoints.add(p);
 		}
 		
-		// get the set of creatures now in the aura
 		for (Point p : newPoints) {
-			Creature creature = area.getEntities().getCreature(p.x, p.y);
-			
-			// don't add the aura target, which can neither enter or exit the aura
-			if (creature != null && creature != aura.getTarget()) {
-				newCreatures.add(creature);
-			}
+			covered.set(p.x, p.y, false);
 		}
 		
-		// check for creatures exiting
-		for (Creature creature : oldCreatures) {
-			if (!newCreatures.contains(creature)) {
-				aura.executeFunction(ScriptFunctionType.onTargetExit, creature, aura);
-			}
+		for (Point p : oldPoints) {
+			covered.set(p.x, p.y);
 		}
 		
-		// check for creatures entering
-		for (Creature creature : newCreatures) {
-			if (!oldCreatures.contains(creature)) {
-				aura.executeFunction(ScriptFunctionType.onTargetEnter, creature, aura);
-			}
+		for (Point p : newPoints) {
+			if (!covered.get(p.x, p.y)) addedPoints.add(p);
 		}
 		
-		// remove old points
 		for (Point p : oldPoints) {
+			covered.set(p.x, p.y, false);
+		}
+		
+		if (removedPoints.isEmpty() && addedPoints.isEmpty()) return;
+		
+		// each creature occupies a single point, so the creatures exiting and entering
+		// the aura are exactly those standing on the removed and added points
+		List<Creature> exitingCreatures = getCreaturesAt(removedPoints, aura);
+		List<Creature> enteringCreatures = getCreaturesAt(addedPoints, aura);
+		
+		aura.executeFunctionForEach(ScriptFunctionType.onTargetExit, exitingCreatures, aura);
+		aura.executeFunctionForEach(ScriptFunctionType.onTargetEnter, enteringCreatures, aura);
+		
+		Set<Bonus.Type> types = getBonusTypes(aura);
+		
+		for (Point p : removedPoints) {
 			effectsAtPosition[p.x][p.y].remove(aura);
+			
+			// remove the list if it is empty to conserve memory
+			if (effectsAtPosition[p.x][p.y].isEmpty()) {
+				effectsAtPosition[p.x][p.y] = null;
+			}
+			
+			updateBonusGrids(types, p.x, p.y);
 		}
 		
-		// add new points
-		for (Point p : newPoints) {
+		for (Point p : addedPoints) {
 			if (effectsAtPosition[p.x][p.y] == null) {
 				effectsAtPosition[p.x][p.y] = new EffectList();
 			}
 			
 			effectsAtPosition[p.x][p.y].add(aura);
+			
+			updateBonusGrids(types, p.x, p.y);
 		}
 		
 		effects.put(aura, newPoints);
 	}
 	
+	/*
+	 * Returns the creatures standing on the specified points, other than the target of
+	 * the specified aura, which can neither enter nor exit the aura
+	 */
+	
+	private List<Creature> getCreaturesAt(List<Point> points, Aura aura) {
+		List<Creature> creatures = new ArrayList<Creature>();
+		
+		for (Point p : points) {
+			Creature creature = area.getEntities().getCreature(p.x, p.y);
+			
+			if (creature != null && creature != aura.getTarget()) {
+				creatures.add(creature);
+			}
+		}
+		
+		return creatures;
+	}
+	
 	/**
 	 * Adds the specified Effect to this AreaEffectList at each point in the List of Points.
 	 * 
@@ -254,6 +304,8 @@ public class AreaEffectList implements Saveable {
 		
 		effect.executeFunction(ScriptFunctionType.onApply, effect);
 		
+		Set<Bonus.Type> types = getBonusTypes(effect);
+		
 		// add the effect to each point
 		for (Point p : effects.get(effect)) {
 			// create the list at the specified position if it does not exist
@@ -262,6 +314,7 @@ public class AreaEffectList implements Saveable {
 			}
 			
 			effectsAtPosition[p.x][p.y].add(effect);
+			updateBonusGrids(types, p.x, p.y);
 			
 			// run the onEnter script for each creature in the area
 			Creature creature = area.getEntities().getCreature(p.x, p.y);
@@ -286,6 +339,8 @@ public class AreaEffectList implements Saveable {
 			return;
 		}
 		
+		Set<Bonus.Type> types = getBonusTypes(effect);
+		
 		for (Point p : effects.get(effect)) {
 			effectsAtPosition[p.x][p.y].remove(effect);
 			
@@ -294,6 +349,8 @@ public class AreaEffectList implements Saveable {
 				effectsAtPosition[p.x][p.y] = null;
 			}
 			
+			updateBonusGrids(types, p.x, p.y);
+			
 			// run the onExit script for creatures in the area
 			Creature creature = area.getEntities().getCreature(p.x, p.y);
 			
@@ -374,13 +431,9 @@ public class AreaEffectList implements Saveable {
 	public boolean hasBonusAt(Bonus.Type bonusType, int x, int y) {
 		if (!checkCoordinates(x, y)) return false;
 		
-		if (effectsAtPosition[x][y] == null) return false;
-		
-		for (Effect effect : effectsAtPosition[x][y]) {
-			if (effect.getBonuses().hasBonusOfType(bonusType)) return true;
-		}
+		BonusGrid grid = bonusGrids.get(bonusType);
 		
-		return false;
+		return grid != null && grid.present.get(x, y);
 	}
 	
 	/**
@@ -400,17 +453,85 @@ public class AreaEffectList implements Saveable {
 	public int getBonusAt(Bonus.Type bonusType, int x, int y) {
 		if (!checkCoordinates(x, y)) return 0;
 		
-		if (effectsAtPosition[x][y] == null) return 0;
+		BonusGrid grid = bonusGrids.get(bonusType);
 		
-		BonusStackTypeList list = new BonusStackTypeList();
+		return grid == null ? 0 : grid.totals[x * grid.height + y];
+	}
+	
+	/**
+	 * Returns the net concealment provided by the Effects at the specified grid coordinates,
+	 * which is the Concealment Bonus less the ConcealmentNegation Bonus
+	 * 
+	 * @param x the x grid coordinate
+	 * @param y the y grid coordinate
+	 * @return the net concealment at the specified coordinates
+	 */
+	
+	public int getConcealmentAt(int x, int y) {
+		return getBonusAt(Bonus.Type.Concealment, x, y) - getBonusAt(Bonus.Type.ConcealmentNegation, x, y);
+	}
+	
+	/*
+	 * Returns the set of Bonus Types carried by the specified Effect
+	 */
+	
+	private static Set<Bonus.Type> getBonusTypes(Effect effect) {
+		Set<Bonus.Type> types = EnumSet.noneOf(Bonus.Type.class);
 		
-		for (Effect effect : effectsAtPosition[x][y]) {
-			for (Bonus bonus : effect.getBonuses()) {
-				if (bonus.getType() == bonusType) list.add(bonus);
+		for (Bonus bonus : effect.getBonuses()) {
+			types.add(bonus.getType());
+		}
+		
+		return types;
+	}
+	
+	/*
+	 * Recomputes the total and presence of each of the specified Bonus Types at the
+	 * specified point from the Effects currently at that point
+	 */
+	
+	private void updateBonusGrids(Set<Bonus.Type> types, int x, int y) {
+		for (Bonus.Type type : types) {
+			BonusGrid grid = bonusGrids.get(type);
+			
+			if (grid == null) {
+				grid = new BonusGrid(effectsAtPosition.length, effectsAtPosition[0].length);
+				bonusGrids.put(type, grid);
 			}
+			
+			boolean present = false;
+			BonusStackTypeList list = new BonusStackTypeList();
+			
+			if (effectsAtPosition[x][y] != null) {
+				for (Effect effect : effectsAtPosition[x][y]) {
+					for (Bonus bonus : effect.getBonuses()) {
+						if (bonus.getType() != type) continue;
+						
+						present = true;
+						list.add(bonus);
+					}
+				}
+			}
+			
+			grid.present.set(x, y, present);
+			grid.totals[x * grid.height + y] = list.getCurrentTotal();
 		}
+	}
+	
+	/*
+	 * Recreates all Bonus grids from the Effects in this list
+	 */
+	
+	private void rebuildBonusGrids() {
+		bonusGrids.clear();
 		
-		return list.getCurrentTotal();
+		for (Effect effect : effects.keySet()) {
+			Set<Bonus.Type> types = getBonusTypes(effect);
+			
+			for (Point p : effects.get(effect)) {
+				updateBonusGrids(types, p.x, p.y);
+			}
+		}
 	}
 	
 	/**
@@ -466,6 +587,9 @@ public class AreaEffectList implements Saveable {
 		
 		this.effectsAtPosition = newEffectsAtPosition;
 		this.effects = newEffects;
+		this.covered = new BitGrid(newWidth, newHeight);
+		
+		rebuildBonusGrids();
 	}
 	
 	/**
@@ -477,6 +601,15 @@ public class AreaEffectList implements Saveable {
 		return effects.size();
 	}
 	
+	/**
+	 * Returns the set of all effects in this list.  The returned set cannot be modified
+	 * @return the set of all effects in this list
+	 */
+	
+	public Set<Effect> getEffects() {
+		return Collections.unmodifiableSet(effects.keySet());
+	}
+	
 	/*
 	 * Returns a deep copy of the specified List of Points.
 	 */
@@ -503,6 +636,23 @@ public class AreaEffectList implements Saveable {
 			return true;
 	}
 	
+	/*
+	 * The total of one Bonus Type at each point, indexed by x * height + y, and the
+	 * points where at least one Effect has a Bonus of the Type
+	 */
+	
+	private static class BonusGrid {
+		private final int height;
+		private final int[] totals;
+		private final BitGrid present;
+		
+		private BonusGrid(int width, int height) {
+			this.height = height;
+			this.totals = new int[width * height];
+			this.present = new BitGrid(width, height);
+		}
+	}
+	
 	private class EffectList extends ArrayList<Effect> {
 		private static final long serialVersionUID = 877898924941324323L;
 		
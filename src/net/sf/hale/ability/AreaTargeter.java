@@ -30,6 +30,7 @@ import net.sf.hale.Game;
 import net.sf.hale.defaultability.MouseActionList;
 import net.sf.hale.entity.Creature;
 import net.sf.hale.rules.Faction;
+import net.sf.hale.rules.RuleString;
 import net.sf.hale.util.Point;
 import net.sf.hale.widgets.RightClickMenu;
 
@@ -146,7 +147,7 @@ public abstract class AreaTargeter extends Targeter {
 	
 	protected boolean meetsRelationshipCriterion(Creature creature) {
 		if (this.affectedCreatureRelationship == null) {
-			Faction playerFaction = Game.ruleset.getFaction(Game.ruleset.getString("PlayerFaction"));
+			Faction playerFaction = Game.ruleset.getFaction(Game.ruleset.getString(RuleString.PlayerFaction));
 			
 			
 			// if friendly fire is disabled, hostile spells don't affect friendly PC creatures
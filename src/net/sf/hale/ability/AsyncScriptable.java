@@ -1,12 +1,17 @@
 package net.sf.hale.ability;
 
+import java.util.concurrent.Future;
+
+import net.sf.hale.Game;
+
 /**
  * Wrapper class for {@link Scriptable}.
  * 
  * This object enables Script execution via the Scriptable object
- * to be done asynchronously (in a new Thread).
+ * to be done asynchronously, on one of the worker threads of the
+ * {@link ScriptExecutor}.
  * 
- * Note that calling the start() method of this Object directly
+ * Note that calling the run() method of this Object directly
  * will generate an IllegalStateException.  You need to instead
  * use the executeAsync functions.
  * 
@@ -14,10 +19,11 @@ package net.sf.hale.ability;
  *
  */
 
-public class AsyncScriptable extends Thread {
+public class AsyncScriptable implements Runnable {
 	private Scriptable scriptable;
 	
 	private volatile boolean readyToExecute = false;
+	private volatile Future<?> future;
 	private ScriptFunctionType type;
 	private String function;
 	private Object[] arguments;
@@ -52,12 +58,22 @@ public class AsyncScriptable extends Thread {
 		return scriptable;
 	}
 	
+	/**
+	 * Returns true if this AsyncScriptable has been scheduled with executeAsync and has
+	 * not yet finished executing, false otherwise
+	 * @return whether this AsyncScriptable is waiting to execute or executing
+	 */
+	
+	public boolean isRunning() {
+		return future != null && !future.isDone();
+	}
+	
 	public void executeAsync(String function, Object... arguments) {
 		this.function = function;
 		this.arguments = arguments;
 		this.readyToExecute = true;
 		
-		this.start();
+		this.future = Game.scriptExecutor.schedule(this, delayMillis);
 	}
 	
 	public void executeAsync(ScriptFunctionType type, Object... arguments) {
@@ -65,23 +81,14 @@ public class AsyncScriptable extends Thread {
 		this.arguments = arguments;
 		this.readyToExecute = true;
 		
-		this.start();
+		this.future = Game.scriptExecutor.schedule(this, delayMillis);
 	}
 	
 	@Override public void run() {
 		if (!readyToExecute)
-			throw new IllegalStateException("Cannot use start() method of AsyncScriptable directly.  " +
+			throw new IllegalStateException("Cannot use run() method of AsyncScriptable directly.  " +
 					"Use executeAsync instead.");
 		
-		if (delayMillis != 0l) {
-			try {
-				Thread.sleep(delayMillis);
-			} catch (InterruptedException e) {
-				// thread was interrupted, can exit
-				return;
-			}
-		}
-		
 		if (function != null) {
 			scriptable.executeFunction(function, arguments);
 		} else {
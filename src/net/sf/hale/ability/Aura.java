@@ -27,7 +27,7 @@ import net.sf.hale.Game;
 import net.sf.hale.entity.Entity;
 import net.sf.hale.loading.JSONOrderedObject;
 import net.sf.hale.loading.ReferenceHandler;
-import net.sf.hale.util.AreaUtil;
+import net.sf.hale.util.HexRingMask;
 import net.sf.hale.util.Point;
 import net.sf.hale.util.SimpleJSONObject;
 
@@ -125,7 +125,8 @@ public class Aura extends Effect {
 	/**
 	 * Computes the list of points in the area currently affected by this Aura, based on this
 	 * position of the target.  If there is no target or the target is not
-	 * an entity, then the returned list will be empty
+	 * an entity, then the returned list will be empty.  The points are found from the
+	 * shared {@link HexRingMask} for this Aura's radii
 	 * @return the list of points affected by this Aura
 	 */
 	
@@ -137,20 +138,10 @@ public class Aura extends Effect {
 		int width = Game.curCampaign.curArea.getWidth();
 		Point center = ((Entity)getTarget()).getLocation().toPoint();
 		
-		ArrayList<Point> points = new ArrayList<Point>();
+		HexRingMask mask = HexRingMask.getMask(minRadius, maxRadius);
 		
-		if (minRadius <= 0) points.add(center);
-		
-		for (int r = Math.max(1, minRadius); r <= maxRadius; r++) {
-			for (int i = 0; i < r * 6; i++) {
-				Point current = AreaUtil.convertPolarToGrid(center, r, i);
-				
-				if (current.x < 0 || current.x >= width) continue;
-				if (current.y < 0 || current.y >= height) continue;
-				
-				points.add(current);
-			}
-		}
+		ArrayList<Point> points = new ArrayList<Point>(mask.size());
+		mask.addPoints(center.x, center.y, width, height, points);
 		
 		return points;
 	}
@@ -10,6 +10,7 @@ import net.sf.hale.Game;
 import net.sf.hale.entity.Creature;
 import net.sf.hale.entity.Location;
 import net.sf.hale.util.AreaUtil;
+import net.sf.hale.util.BitGrid;
 import net.sf.hale.util.Point;
 
 /**
@@ -32,7 +33,7 @@ public class ConeTargeter extends AreaTargeter {
 	private double lineAngle;
 	private double lineLength;
 	
-	private boolean[][] visible;
+	private BitGrid visible;
 	
 	private Point gridEnd;
 	private Point screenEnd;
@@ -83,7 +84,7 @@ public class ConeTargeter extends AreaTargeter {
 		this.gridOrigin = origin;
 		this.screenOrigin = AreaUtil.convertGridToScreenAndCenter(origin);
 		
-		visible = Game.curCampaign.curArea.getMatrixOfSize();
+		visible = new BitGrid(Game.curCampaign.curArea.getWidth(), Game.curCampaign.curArea.getHeight());
 		Game.curCampaign.curArea.getUtil().setVisibilityWithRespectToPosition(visible, gridOrigin);
 	}
 	
@@ -207,8 +208,7 @@ public class ConeTargeter extends AreaTargeter {
 	private boolean visibility(Point p) {
 		if (!hasVisibilityCriterion) return true;
 		
-		if (p.x < 0 || p.x >= visible.length || p.y < 0 || p.y >= visible[0].length) return false;
-		return visible[p.x][p.y];
+		return visible.get(p.x, p.y);
 	}
 	
 	@Override protected boolean updateMouseStateOnlyWhenGridPointChanges() {
@@ -22,10 +22,11 @@ package net.sf.hale.ability;
 import java.util.ArrayList;
 import java.util.List;
 
+import net.sf.hale.Game;
 import net.sf.hale.util.Logger;
 
 /**
- * A script callback that starts a new thread with a timer; running a
+ * A script callback that is queued with the {@link ScriptExecutor}; running a
  * script function callback with a specified set of arguments after
  * a specified delay time.
  * 
@@ -35,7 +36,7 @@ import net.sf.hale.util.Logger;
  *
  */
 
-public class DelayedScriptCallback extends Thread {
+public class DelayedScriptCallback implements Runnable {
 	private final Scriptable scriptable;
 	private long delayInMillis;
 	private String callbackFunction;
@@ -90,21 +91,22 @@ public class DelayedScriptCallback extends Thread {
 		}
 	}
 	
+	/**
+	 * Queues this callback to be executed on a script worker thread once the
+	 * specified delay has elapsed
+	 */
+	
+	public void start() {
+		Game.scriptExecutor.schedule(this, delayInMillis);
+	}
+	
 	/**
 	 * Executes the specified callback function with the specified arguments
-	 * after the specified delay.  Should be called via the {@link #start()} method.
+	 * immediately, in the calling thread.  To execute the callback after the
+	 * specified delay, use the {@link #start()} method.
 	 */
 	
 	@Override public void run() {
-		if (delayInMillis != 0l) {
-			try {
-				Thread.sleep(delayInMillis);
-			} catch (InterruptedException e) {
-				//thread was interrupted, can exit
-				return;
-			}
-		}
-		
 		try {
 			scriptable.executeFunction(callbackFunction, arguments.toArray());
 		} catch (Exception e) {
@@ -29,6 +29,7 @@ import net.sf.hale.Game;
 import net.sf.hale.entity.Creature;
 import net.sf.hale.entity.Location;
 import net.sf.hale.util.AreaUtil;
+import net.sf.hale.util.HexLine;
 import net.sf.hale.util.Point;
 
 /**
@@ -54,6 +55,8 @@ public class LineTargeter extends AreaTargeter {
 	private boolean stopLineAtCreature;
 	private boolean stopLineAtImpassable;
 	
+	private final LineWalker lineWalker = new LineWalker();
+	
 	/**
 	 * Create a new LineTargeter with no selection yet made.  By default, there is no
 	 * prespecified Line length.
@@ -194,30 +197,12 @@ public class LineTargeter extends AreaTargeter {
 			yEnd = screenOrigin.y + lineGridLength * Game.TILE_SIZE * Math.cos(lineAngle);
 		}
 		
-		// find set of intersecting hexes for line
-		List<Point> points = AreaUtil.findIntersectingHexes(screenOrigin.x, screenOrigin.y, (int)xEnd, (int)yEnd);
-		gridEnd = gridOrigin;
+		// walk the intersecting hexes for the line
+		lineWalker.affectedPoints = affectedPoints;
+		lineWalker.hasEnd = false;
+		HexLine.walk(screenOrigin.x, screenOrigin.y, (int)xEnd, (int)yEnd, lineWalker);
 		
-		for (Point p : points) {
-			gridEnd = p;
-			// if we have hit a wall in the area
-			if (!Game.curCampaign.curArea.isTransparent(p.x, p.y)) {
-				break;
-			}
-			
-			if (stopLineAtImpassable && !Game.curCampaign.curArea.isPassable(p.x, p.y)) {
-				break;
-			}
-			
-			affectedPoints.add(p);
-			
-			// check to see if there is a creature at the specified point
-			// if the line was stopped by a creature, the creature has already been added
-			// to the list of affected creatures above
-			if (stopLineAtCreature && Game.curCampaign.curArea.getCreatureAtGridPoint(p) != null) {
-				break;
-			}
-		}
+		gridEnd = lineWalker.hasEnd ? new Point(lineWalker.endX, lineWalker.endY) : gridOrigin;
 		
 		// compute the length of the line to draw
 		Point pScreen = AreaUtil.convertGridToScreen(gridEnd);
@@ -239,4 +224,40 @@ public class LineTargeter extends AreaTargeter {
 			setMouseHoverValid(true);
 		}
 	}
+	
+	/*
+	 * Adds the hexes along the line to the affected points until the line is stopped
+	 */
+	
+	private class LineWalker implements HexLine.Visitor {
+		private List<Point> affectedPoints;
+		private boolean hasEnd;
+		private int endX, endY;
+		
+		@Override public boolean visit(int x, int y) {
+			hasEnd = true;
+			endX = x;
+			endY = y;
+			
+			// if we have hit a wall in the area
+			if (!Game.curCampaign.curArea.isTransparent(x, y)) {
+				return false;
+			}
+			
+			if (stopLineAtImpassable && !Game.curCampaign.curArea.isPassable(x, y)) {
+				return false;
+			}
+			
+			affectedPoints.add(new Point(x, y));
+			
+			// check to see if there is a creature at the specified point
+			// if the line was stopped by a creature, the creature has already been added
+			// to the list of affected creatures above
+			if (stopLineAtCreature && Game.curCampaign.curArea.getCreatureAtGridPoint(x, y) != null) {
+				return false;
+			}
+			
+			return true;
+		}
+	}
 }
@@ -0,0 +1,388 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package net.sf.hale.ability;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sf.hale.Game;
+import net.sf.hale.util.Logger;
+
+/**
+ * Runs scripts asynchronously on a bounded pool of worker threads.  Scripts may be
+ * run immediately or after a delay; delayed scripts wait in a queue on a single
+ * timer thread rather than occupying a worker while they wait.  Scripts that are
+ * ready to run while every worker is busy wait in a queue for a free worker.
+ * <p>
+ * Scripts frequently block while waiting for animations, movement, attacks, or the
+ * player.  The methods that block in this way call {@link #beginBlocking()} and
+ * {@link #endBlocking()} around the wait, and while a worker is blocked, one more
+ * worker may be started to run the queued scripts, so that the scripts being waited
+ * on are not stuck behind the blocked ones.  At most {@link #MaxBlockedWorkers} extra
+ * workers are started in this way.  Extra workers exit once they have been idle for
+ * {@link #WorkerKeepAliveMillis}.
+ * <p>
+ * Each worker thread keeps using the same JSEngine whenever it is available (see
+ * {@link net.sf.hale.util.JSEngineManager#getEngine()}), so the number of engines
+ * in regular use is bounded by the number of workers rather than the number of
+ * scripts scheduled at once.
+ * @author Jared Stephen
+ *
+ */
+
+public class ScriptExecutor {
+	/**
+	 * The minimum number of worker threads kept by the default executor
+	 */
+	
+	public static final int MinWorkerThreads = 4;
+	
+	/**
+	 * The maximum number of workers started in addition to the core workers to replace
+	 * workers that are blocked
+	 */
+	
+	public static final int MaxBlockedWorkers = 32;
+	
+	/**
+	 * The time in milliseconds that a worker beyond the core workers may be idle before it exits
+	 */
+	
+	public static final long WorkerKeepAliveMillis = 30000l;
+	
+	private final int numCoreWorkers;
+	private final int maxWorkers;
+	
+	private final ThreadPoolExecutor workers;
+	private final ScheduledThreadPoolExecutor timer;
+	
+	// the number of workers currently blocked in a beginBlocking / endBlocking section
+	private int numBlocked;
+	private int peakBlocked;
+	private boolean blockedLimitLogged;
+	
+	/**
+	 * Creates a new ScriptExecutor with a number of core worker threads based on the
+	 * number of available processors
+	 */
+	
+	public ScriptExecutor() {
+		this(getDefaultNumWorkers());
+	}
+	
+	/**
+	 * Creates a new ScriptExecutor keeping the specified number of worker threads.  Up to
+	 * {@link #MaxBlockedWorkers} more workers are started while workers are blocked
+	 * @param numWorkers the number of core worker threads
+	 */
+	
+	public ScriptExecutor(int numWorkers) {
+		this.numCoreWorkers = numWorkers;
+		this.maxWorkers = numWorkers + MaxBlockedWorkers;
+		
+		// the core size is raised while workers are blocked, up to the maximum
+		this.workers = new ThreadPoolExecutor(numWorkers, maxWorkers, WorkerKeepAliveMillis,
+				TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new WorkerFactory("ScriptWorker-", this));
+		this.timer = new ScheduledThreadPoolExecutor(1, new WorkerFactory("ScriptTimer-", null));
+	}
+	
+	/**
+	 * Returns the number of core worker threads used by the default executor
+	 * @return the default number of worker threads
+	 */
+	
+	public static int getDefaultNumWorkers() {
+		return Math.max(MinWorkerThreads, 2 * Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * Runs the specified task as soon as a worker thread is free
+	 * @param task the task to run
+	 * @return a Future that can be used to check whether the task is complete
+	 */
+	
+	public Future<?> execute(Runnable task) {
+		return schedule(task, 0l);
+	}
+	
+	/**
+	 * Runs the specified task on a worker thread after the specified delay has elapsed.
+	 * Any exceptions thrown by the task are logged
+	 * @param task the task to run
+	 * @param delayMillis the delay in milliseconds
+	 * @return a Future that can be used to check whether the task is complete
+	 */
+	
+	public Future<?> schedule(Runnable task, long delayMillis) {
+		final FutureTask<Object> future = new FutureTask<Object>(new LoggingTask(task), null);
+		
+		if (delayMillis <= 0l) {
+			workers.execute(future);
+		} else {
+			timer.schedule(new Runnable() {
+				@Override public void run() {
+					if (!future.isCancelled()) workers.execute(future);
+				}
+			}, delayMillis, TimeUnit.MILLISECONDS);
+		}
+		
+		return future;
+	}
+	
+	/**
+	 * Marks the calling thread as blocked until the matching call to {@link #endBlocking()}.
+	 * This should be called by methods that wait for animations, movement, attacks or other
+	 * threads, before they begin waiting.  If the calling thread is one of this executor's
+	 * workers, another worker may be started in its place to run queued scripts.  Calls
+	 * from other threads have no effect.  Calls may be nested
+	 */
+	
+	public void beginBlocking() {
+		WorkerThread worker = getCurrentWorker();
+		if (worker == null) return;
+		
+		worker.blockDepth++;
+		if (worker.blockDepth > 1) return;
+		
+		synchronized(this) {
+			numBlocked++;
+			peakBlocked = Math.max(peakBlocked, numBlocked);
+			
+			if (numBlocked > MaxBlockedWorkers && !blockedLimitLogged) {
+				blockedLimitLogged = true;
+				Logger.appendToWarningLog("More than " + MaxBlockedWorkers + " script workers are blocked.  " +
+						"Queued scripts will wait for a blocked worker to finish.");
+			}
+			
+			updateCoreWorkers();
+		}
+	}
+	
+	/**
+	 * Marks the calling thread as no longer blocked.  Each call to {@link #beginBlocking()}
+	 * must be followed by a call to this method, normally in a finally block
+	 */
+	
+	public void endBlocking() {
+		WorkerThread worker = getCurrentWorker();
+		if (worker == null || worker.blockDepth == 0) return;
+		
+		worker.blockDepth--;
+		if (worker.blockDepth > 0) return;
+		
+		synchronized(this) {
+			numBlocked--;
+			updateCoreWorkers();
+		}
+	}
+	
+	private WorkerThread getCurrentWorker() {
+		Thread thread = Thread.currentThread();
+		
+		if (!(thread instanceof WorkerThread)) return null;
+		
+		WorkerThread worker = (WorkerThread)thread;
+		return worker.executor == this ? worker : null;
+	}
+	
+	/*
+	 * Sets the number of workers that are started to the core workers plus one for each blocked
+	 * worker.  Raising the core size starts workers for any queued tasks, while workers beyond a
+	 * lowered core size exit once they have been idle for the keep alive time
+	 */
+	
+	private void updateCoreWorkers() {
+		workers.setCorePoolSize(Math.min(maxWorkers, numCoreWorkers + numBlocked));
+	}
+	
+	/**
+	 * Stops accepting new tasks.  Tasks already scheduled will still be run
+	 */
+	
+	public void shutdown() {
+		timer.shutdown();
+		workers.shutdown();
+	}
+	
+	/**
+	 * Returns the number of delayed tasks waiting for their delay to elapse
+	 * @return the number of tasks waiting for their delay
+	 */
+	
+	public int getQueueDepth() {
+		return timer.getQueue().size();
+	}
+	
+	/**
+	 * Returns the number of tasks that are ready to run and waiting for a free worker
+	 * @return the number of tasks waiting for a worker
+	 */
+	
+	public int getNumWaiting() {
+		return workers.getQueue().size();
+	}
+	
+	/**
+	 * Returns the number of workers currently blocked
+	 * @return the number of blocked workers
+	 */
+	
+	public synchronized int getNumBlocked() {
+		return numBlocked;
+	}
+	
+	/**
+	 * Returns the largest number of workers that have been blocked at once
+	 * @return the peak number of blocked workers
+	 */
+	
+	public synchronized int getPeakNumBlocked() {
+		return peakBlocked;
+	}
+	
+	/**
+	 * Returns the number of worker threads currently running a task
+	 * @return the number of active worker threads
+	 */
+	
+	public int getActiveCount() {
+		return workers.getActiveCount();
+	}
+	
+	/**
+	 * Returns true if no task is currently running or waiting for its delay to elapse.
+	 * As tasks may be scheduled at any time by other threads, this is only approximate
+	 * unless called from the thread that schedules tasks
+	 * @return whether this executor is idle
+	 */
+	
+	public boolean isIdle() {
+		return timer.getQueue().isEmpty() && workers.getQueue().isEmpty() && workers.getActiveCount() == 0;
+	}
+	
+	/**
+	 * Returns the number of worker threads that are currently started
+	 * @return the number of worker threads
+	 */
+	
+	public int getNumWorkers() {
+		return workers.getPoolSize();
+	}
+	
+	/**
+	 * Returns the number of core worker threads.  This many workers are kept even when idle
+	 * @return the number of core worker threads
+	 */
+	
+	public int getNumCoreWorkers() {
+		return numCoreWorkers;
+	}
+	
+	/**
+	 * Returns the largest number of worker threads that have been started at once
+	 * @return the peak number of worker threads
+	 */
+	
+	public int getPeakNumWorkers() {
+		return workers.getLargestPoolSize();
+	}
+	
+	/**
+	 * Returns the approximate number of tasks that have finished running
+	 * @return the number of completed tasks
+	 */
+	
+	public long getCompletedTaskCount() {
+		return workers.getCompletedTaskCount();
+	}
+	
+	/**
+	 * Returns a one line summary of the state of this executor and the script engine pool
+	 * @return a summary of this executor's state
+	 */
+	
+	public String getStatus() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("Script workers: ").append(getActiveCount()).append(" / ").append(getNumWorkers());
+		sb.append(" active (").append(numCoreWorkers).append(" kept, ").append(maxWorkers).append(" max, peak ");
+		sb.append(getPeakNumWorkers()).append("), ").append(getNumBlocked()).append(" blocked (peak ");
+		sb.append(getPeakNumBlocked()).append("), ").append(getNumWaiting()).append(" waiting, ").append(getQueueDepth()).append(" delayed, ");
+		sb.append(getCompletedTaskCount()).append(" completed");
+		
+		if (Game.scriptEngineManager != null) {
+			sb.append("; Engines: ").append(Game.scriptEngineManager.getNumEnginesInUse());
+			sb.append(" / ").append(Game.scriptEngineManager.getNumEngines()).append(" in use");
+		}
+		
+		return sb.toString();
+	}
+	
+	private static class LoggingTask implements Runnable {
+		private final Runnable task;
+		
+		private LoggingTask(Runnable task) {
+			this.task = task;
+		}
+		
+		@Override public void run() {
+			try {
+				task.run();
+			} catch (Exception e) {
+				Logger.appendToErrorLog("Error running asynchronous script", e);
+			}
+		}
+	}
+	
+	private static class WorkerThread extends Thread {
+		// the executor this thread is a worker of, or null for the timer thread
+		private final ScriptExecutor executor;
+		
+		// only accessed by this thread
+		private int blockDepth;
+		
+		private WorkerThread(Runnable runnable, String name, ScriptExecutor executor) {
+			super(runnable, name);
+			this.executor = executor;
+		}
+	}
+	
+	private static class WorkerFactory implements ThreadFactory {
+		private final String prefix;
+		private final ScriptExecutor executor;
+		private final AtomicInteger count = new AtomicInteger();
+		
+		private WorkerFactory(String prefix, ScriptExecutor executor) {
+			this.prefix = prefix;
+			this.executor = executor;
+		}
+		
+		@Override public Thread newThread(Runnable runnable) {
+			Thread thread = new WorkerThread(runnable, prefix + count.incrementAndGet(), executor);
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -20,6 +20,7 @@
 package net.sf.hale.ability;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import javax.script.ScriptException;
@@ -41,6 +42,7 @@ import net.sf.hale.util.Logger;
 public class Scriptable implements Saveable {
 	private final String scriptLocation;
 	private final String script;
+	private final String scriptKey;
 	private final boolean inline;
 	private final Set<ScriptFunctionType> scriptFunctions;
 	
@@ -79,12 +81,13 @@ public class Scriptable implements Saveable {
 		this.script = script;
 		this.scriptLocation = scriptLocation;
 		this.inline = scriptInline;
+		this.scriptKey = script == null ? null : JSEngine.getScriptKey(scriptLocation, script);
 		
 		if (script != null) {
 			JSEngine engine = Game.scriptEngineManager.getEngine();
 			
 			try {
-				engine.eval(script);
+				engine.evalCached(scriptKey, script);
 			} catch (ScriptException e) {
 				Logger.appendToErrorLog("Error preparsing script at " + scriptLocation, e);
 			}
@@ -106,6 +109,7 @@ public class Scriptable implements Saveable {
 	
 	public Scriptable(Scriptable other) {
 		this.script = other.script;
+		this.scriptKey = other.scriptKey;
 		this.scriptLocation = other.scriptLocation;
 		this.inline = other.inline;
 		
@@ -169,6 +173,46 @@ public class Scriptable implements Saveable {
 		}
 	}
 	
+	/**
+	 * Execute the function from this AbstractScriptable's script with the specified function type
+	 * once for each of the specified targets.  Each call is passed Game.scriptInterface, then the
+	 * target, then the specified argument.  A single script engine is used for all of the calls,
+	 * so this is cheaper than calling {@link #executeFunction(ScriptFunctionType, Object...)}
+	 * for each target.  An error in one call is logged and does not prevent the remaining calls
+	 * 
+	 * @param type the function type to execute
+	 * @param targets the list of targets, each passed as the first argument of one call
+	 * @param argument the argument passed after the target in each call
+	 */
+	
+	public void executeFunctionForEach(ScriptFunctionType type, List<?> targets, Object argument) {
+		if (targets.isEmpty() || !hasFunction(type)) return;
+		
+		String function = type.toString();
+		
+		JSEngine engine = Game.scriptEngineManager.getEngine();
+		
+		try {
+			engine.evalCached(scriptKey, script);
+			
+			for (Object target : targets) {
+				try {
+					engine.invokeFunction(function, Scriptable.createArgumentList(target, argument));
+				} catch (ScriptException e) {
+					Logger.appendToErrorLog("Error invoking function " + function +
+							" for script " + scriptLocation, e);
+				} catch (NoSuchMethodException e) {
+					Logger.appendToErrorLog("Error invoking function " + function +
+							" for script " + scriptLocation, e);
+				}
+			}
+		} catch (ScriptException e) {
+			Logger.appendToErrorLog("Error evaluating script " + scriptLocation, e);
+		}
+		
+		engine.release();
+	}
+	
 	/**
 	 * Execute the function from this AbstractScriptable's script with the specified function name.
 	 * The first argument passed to the function will be Game.scriptInterface (see
@@ -225,8 +269,9 @@ public class Scriptable implements Saveable {
 		JSEngine engine = Game.scriptEngineManager.getEngine();
 		
 		try {
-			// script has already been pre-parsed; eval should not return any errors
-			engine.eval(script);
+			// script has already been pre-parsed; eval should not return any errors.
+			// if this engine has run the script before, this only switches to its scope
+			engine.evalCached(scriptKey, script);
 			returnValue = engine.invokeFunction(function, Scriptable.createArgumentList(arguments));
 		} catch (ScriptException e) {
 			Logger.appendToErrorLog("Error invoking function " + function +
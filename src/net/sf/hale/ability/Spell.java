@@ -26,6 +26,7 @@ import de.matthiasmann.twl.Color;
 import net.sf.hale.Game;
 import net.sf.hale.bonus.Bonus;
 import net.sf.hale.entity.Creature;
+import net.sf.hale.rules.RuleValue;
 import net.sf.hale.util.SimpleJSONObject;
 
 /**
@@ -102,7 +103,7 @@ public class Spell extends Ability {
 	@Override public void activate(Creature parent) {
 		super.activate(parent);
 		
-		Game.scriptInterface.performSearchChecksForCreature(parent, Game.ruleset.getValue("HideCastSpellPenalty"));
+		Game.scriptInterface.performSearchChecksForCreature(parent, Game.ruleset.getValue(RuleValue.HideCastSpellPenalty));
 	}
 	
 	@Override public int getCooldown(Creature parent) {
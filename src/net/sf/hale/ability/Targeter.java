@@ -29,6 +29,7 @@ import net.sf.hale.defaultability.MouseActionList;
 import net.sf.hale.entity.Creature;
 import net.sf.hale.entity.Entity;
 import net.sf.hale.entity.Location;
+import net.sf.hale.rules.RuleString;
 import net.sf.hale.util.AreaUtil;
 import net.sf.hale.util.Point;
 import net.sf.hale.util.Logger;
@@ -432,8 +433,8 @@ public abstract class Targeter {
 		targetOK = targetOK && parent.hasVisibilityInCurrentArea(gridPoint.x, gridPoint.y);
 		
 		// player characters can only target explored tiles
-		if ( parent.getFaction() == Game.ruleset.getFaction(Game.ruleset.getString("PlayerFaction")) ) {
-			targetOK = targetOK && Game.curCampaign.curArea.getExplored()[gridPoint.x][gridPoint.y];
+		if ( parent.getFaction() == Game.ruleset.getFaction(Game.ruleset.getString(RuleString.PlayerFaction)) ) {
+			targetOK = targetOK && Game.curCampaign.curArea.getExplored().get(gridPoint.x, gridPoint.y);
 		}
 		
 		// check range conditions
@@ -580,6 +581,7 @@ public abstract class Targeter {
 		
 		Game.mainViewer.updateInterface();
 		
+		Game.scriptExecutor.beginBlocking();
 		try {
 			synchronized(Game.areaListener.getTargeterManager()) {
 				while (Game.areaListener.getTargeterManager().getCurrentTargeter() == this) {
@@ -590,6 +592,8 @@ public abstract class Targeter {
 		} catch (InterruptedException e) {
 			// thread was interrupted, can exit
 			throw new RuntimeException("Thread was interrupted", e);
+		} finally {
+			Game.scriptExecutor.endBlocking();
 		}
 	}
 	
@@ -19,6 +19,7 @@
 
 package net.sf.hale.area;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -47,11 +48,15 @@ import net.sf.hale.entity.Trap;
 import net.sf.hale.loading.JSONOrderedObject;
 import net.sf.hale.loading.LoadGameException;
 import net.sf.hale.loading.ReferenceHandler;
-import net.sf.hale.loading.Saveable;
+import net.sf.hale.loading.SaveSink;
+import net.sf.hale.loading.StreamingSaveable;
+import net.sf.hale.loading.TreeSaveSink;
 import net.sf.hale.resource.ResourceType;
 import net.sf.hale.tileset.AreaElevationGrid;
 import net.sf.hale.tileset.AreaTileGrid;
 import net.sf.hale.util.AreaUtil;
+import net.sf.hale.util.BitGrid;
+import net.sf.hale.util.HexLine;
 import net.sf.hale.util.Logger;
 import net.sf.hale.util.Point;
 import net.sf.hale.util.PointImmutable;
@@ -61,75 +66,83 @@ import net.sf.hale.util.SimpleJSONArrayEntry;
 import net.sf.hale.util.SimpleJSONObject;
 import net.sf.hale.util.SimpleJSONParser;
 
-public class Area implements EffectTarget, Saveable {
+public class Area implements EffectTarget, StreamingSaveable {
 	private final List<String> transitions;
 	private final int width, height;
 	private final int visibilityRadius;
 	private final String tileset;
 	private final boolean[][] passable;
 	private final boolean[][] transparency;
-	private final boolean[][] visibility;
+	private final BitGrid visibility;
 	private final AreaElevationGrid elevation;
 	private final AreaTileGrid tileGrid;
 	private final List<PointImmutable> startLocations;
 	
 	private final AreaEntityList entityList;
 	private final AreaEffectList effects;
+	
+	// reused for every concealment check, which is made for each attack roll
+	private final LineConcealment lineConcealment;
 	private final List<Encounter> encounters;
 	private final Map<String, Trigger> triggers;
 	private final String id, name;
 	private final boolean isExplored;
-	private final boolean[][] explored;
+	private final BitGrid explored;
 	
 	private AreaUtil areaUtil;
 	private Procedural procedural;
 	
 	@Override public Object save() {
-		JSONOrderedObject data = new JSONOrderedObject();
+		return TreeSaveSink.save(this);
+	}
+	
+	@Override public void save(SaveSink out) throws IOException {
+		out.beginObject();
 		
-		data.put("ref", SaveGameUtil.getRef(this));
-		data.put("name", id);
+		out.entry("ref", SaveGameUtil.getRef(this));
+		out.entry("name", id);
 		
 		if (procedural != null) {
 			long seed = procedural.getSeed();
 			String seedStr = Long.toHexString(seed);
-			data.put("generatorSeed", seedStr);
+			out.entry("generatorSeed", seedStr);
 		}
 		
 		// write out the explored matrix
-		List<Object> exp = new ArrayList<Object>();
-		for (int x = 0; x < explored.length; x++) {
-			for (int y = 0; y < explored[0].length; y++) {
-				if (explored[x][y]) {
-					// write this as a JSON formated object, but with multiple
-					// entries per line
-					exp.add(Integer.toString(x) + ',' + Integer.toString(y));
+		out.key("explored");
+		out.beginArray();
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				if (explored.get(x, y)) {
+					out.value(Integer.toString(x) + ',' + Integer.toString(y));
 				}
 			}
 		}
-		data.put("explored", exp.toArray());
+		out.endArray();
 		
-		Object[] encounterData = new Object[encounters.size()];
-		for (int i = 0; i < encounterData.length; i++) {
-			encounterData[i] = encounters.get(i).save();
+		out.key("encounters");
+		out.beginArray();
+		for (Encounter encounter : encounters) {
+			out.value(encounter.save());
 		}
-		data.put("encounters", encounterData);
+		out.endArray();
 		
-		List<Object> triggerData = new ArrayList<Object>();
+		out.key("triggers");
+		out.beginArray();
 		for (String triggerID : triggers.keySet()) {
 			Object trigger = triggers.get(triggerID).save();
 			
 			if (trigger != null)
-				triggerData.add(trigger);
+				out.value(trigger);
 		}
-		data.put("triggers", triggerData.toArray());
+		out.endArray();
 		
 		if (effects.size() > 0)
-			data.put("effects", effects.save());
+			out.entry("effects", effects);
 		
-		data.put("entities", entityList.save());
+		out.entry("entities", entityList);
 		
-		return data;
+		out.endObject();
 	}
 	
 	/**
@@ -285,7 +298,35 @@ public class Area implements EffectTarget, Saveable {
 	 */
 	
 	public static Area load(SimpleJSONObject data, ReferenceHandler refHandler) throws LoadGameException {
-		return new Area(data.get("name", null), data, refHandler);
+		return load(data, refHandler, null);
+	}
+	
+	/**
+	 * Loads an area from the specified saved JSON data, using the specified already parsed
+	 * base resource of the area
+	 * @param data
+	 * @param refHandler
+	 * @param parser the parsed base resource, see {@link #parseResource(String)}, or null
+	 * to parse the base resource now
+	 * @return the newly loaded area
+	 * @throws LoadGameException
+	 */
+	
+	public static Area load(SimpleJSONObject data, ReferenceHandler refHandler, SimpleJSONParser parser)
+			throws LoadGameException {
+		return new Area(data.get("name", null), parser, data, refHandler);
+	}
+	
+	/**
+	 * Parses the base resource file of the area with the specified ID
+	 * ("areas/" + id + ".json").  This does not modify any game state, and so may be
+	 * called from any thread
+	 * @param id the Area id
+	 * @return the parser containing the base resource
+	 */
+	
+	public static SimpleJSONParser parseResource(String id) {
+		return new SimpleJSONParser("areas/" + id + ResourceType.JSON.getExtension());
 	}
 	
 	/**
@@ -296,7 +337,19 @@ public class Area implements EffectTarget, Saveable {
 	 */
 	
 	public Area(String id) throws LoadGameException {
-		this(id, null, null);
+		this(id, null, null, null);
+	}
+	
+	/**
+	 * Creates a new area with the specified ID from the specified already parsed resource
+	 * @param id the Area id and name
+	 * @param parser the parsed base resource, see {@link #parseResource(String)}, or null
+	 * to parse the base resource now
+	 * @throws LoadGameException
+	 */
+	
+	public Area(String id, SimpleJSONParser parser) throws LoadGameException {
+		this(id, parser, null, null);
 	}
 	
 	/*
@@ -304,10 +357,12 @@ public class Area implements EffectTarget, Saveable {
 	 * from the base resource, and then the remainder will be loaded from the save game data
 	 */
 	
-	private Area(String id, SimpleJSONObject loadedData, ReferenceHandler refHandler) throws LoadGameException {
+	private Area(String id, SimpleJSONParser parser, SimpleJSONObject loadedData, ReferenceHandler refHandler)
+			throws LoadGameException {
 		this.id = id;
 		
-		SimpleJSONParser parser = new SimpleJSONParser("areas/" + id + ResourceType.JSON.getExtension());
+		if (parser == null)
+			parser = parseResource(id);
 		
 		if (parser.containsKey("name")) {
 			this.name = parser.get("name", null);
@@ -322,17 +377,18 @@ public class Area implements EffectTarget, Saveable {
 		this.isExplored = parser.get("explored", false);
 		
 		// initialize matrices
-		explored = new boolean[width][height];
+		explored = new BitGrid(width, height);
 		transparency = new boolean[width][height];
 		elevation = new AreaElevationGrid(width, height);
 		entityList = new AreaEntityList(width, height);
 		effects = new AreaEffectList(this);
+		lineConcealment = new LineConcealment();
 		tileGrid = new AreaTileGrid(Game.curCampaign.getTileset(tileset), width, height);
 		passable = new boolean[width][height];
-		visibility = new boolean[width][height];
+		visibility = new BitGrid(width, height);
 		
 		if (parser.get("explored", false)) {
-			AreaUtil.setMatrix(explored, true);
+			explored.setAll();
 		}
 		
 		// parse start locations
@@ -502,7 +558,7 @@ public class Area implements EffectTarget, Saveable {
 				int x = Integer.parseInt(coords[0]);
 				int y = Integer.parseInt(coords[1]);
 				
-				explored[x][y] = true;
+				explored.set(x, y);
 			}
 		}
 		
@@ -668,6 +724,16 @@ public class Area implements EffectTarget, Saveable {
 		return areaUtil;
 	}
 	
+	/**
+	 * Gets the ThreatMap tracking attacks of opportunity in this area.  If the ThreatMap
+	 * does not exist, it is created
+	 * @return the ThreatMap for this area
+	 */
+	
+	public ThreatMap getThreatMap() {
+		return entityList.getThreatMap();
+	}
+	
 	public void runOnAreaLoad(Transition transition) {
 		for (Trigger trigger : triggers.values()) {
 			trigger.checkOnAreaLoad(transition);
@@ -684,6 +750,8 @@ public class Area implements EffectTarget, Saveable {
 		for (Trigger trigger : triggers.values()) {
 			trigger.checkPlayerMoved(entity);
 		}
+		
+		Game.curCampaign.getAreaPreloader().checkNearbyTransitions(this, entity.getLocation());
 	}
 	
 	public void checkEncounterRespawns() {
@@ -707,10 +775,10 @@ public class Area implements EffectTarget, Saveable {
 	
 	public int getVisibilityRadius() { return visibilityRadius; }
 	
-	public boolean[][] getExplored() { return explored; }
+	public BitGrid getExplored() { return explored; }
 	public boolean[][] getTransparency() { return transparency; }
 	public boolean[][] getPassability() { return passable; }
-	public boolean[][] getVisibility() { return visibility; }
+	public BitGrid getVisibility() { return visibility; }
 	
 	public void applyEffect(Effect effect, List<Point> points) {
 		if (! (effect instanceof Aura))
@@ -733,6 +801,48 @@ public class Area implements EffectTarget, Saveable {
 		return effects.getAffectedCreatures(effect, this.entityList);
 	}
 	
+	/**
+	 * Returns true if every effect in this area, including the effects on entities in this
+	 * area, was created by a creature in this area or by no creature at all.  An area
+	 * meeting this condition can be saved and loaded on its own, as none of its effects
+	 * reference ability slots of creatures elsewhere
+	 * @return whether all effects in this area belong to this area
+	 */
+	
+	public boolean isSelfContained() {
+		for (Effect effect : effects.getEffects()) {
+			if (!isOwnedByThisArea(effect)) return false;
+		}
+		
+		synchronized(entityList) {
+			for (Entity entity : entityList) {
+				for (Effect effect : entity.getEffects()) {
+					if (!isOwnedByThisArea(effect)) return false;
+				}
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Returns true if the specified effect was created by a creature in this area
+	 * @param effect the effect
+	 * @return whether the effect was created by a creature in this area
+	 */
+	
+	public boolean isCreatedInThisArea(Effect effect) {
+		if (effect.getSlot() == null || effect.getSlot().getParent() == null) return false;
+		
+		Location location = effect.getSlot().getParent().getLocation();
+		
+		return location != null && location.getArea() == this;
+	}
+	
+	private boolean isOwnedByThisArea(Effect effect) {
+		return effect.getSlot() == null || isCreatedInThisArea(effect);
+	}
+	
 	/**
 	 * Starts any animations on all effects in this area's effect list,
 	 * and also animations on all contained creatures' effects lists
@@ -762,37 +872,36 @@ public class Area implements EffectTarget, Saveable {
 	
 	private int getConcealment(Creature attacker, Creature defender, int x, int y) {
 		int concealment = 0;
-		int obstructionsInPathConcealment = 0;
 		
-		Point from = attacker.getLocation().getCenteredScreenPoint();
-		Point to = AreaUtil.convertGridToScreenAndCenter(x, y);
+		int fromX = attacker.getLocation().getX();
+		int fromY = attacker.getLocation().getY();
 		
-		if (from.x == to.x && from.y == to.y) return 0;
+		if (fromX == x && fromY == y) return 0;
 		
-		// note that this list will include the defender's position but will not include the attacker's position.
-		// So, concealment on the attacker's tile doesn't affect this calculation
-		List<Point> minPath = AreaUtil.findIntersectingHexes(from.x, from.y, to.x, to.y);
+		int lineAreaConcealment, lineObstructions, lineHexes;
+		
+		// note that this line will include the defender's position but will not include the attacker's position.
+		// So, concealment on the attacker's tile doesn't affect this calculation.  Attacks may be
+		// rolled from script threads, so the shared visitor is locked while it is in use
+		synchronized(lineConcealment) {
+			lineConcealment.reset(defender);
+			getUtil().getLineTable().walkBetween(fromX, fromY, x, y, lineConcealment);
+			
+			lineAreaConcealment = lineConcealment.areaConcealment;
+			lineObstructions = lineConcealment.obstructions;
+			lineHexes = lineConcealment.numHexes;
+			
+			lineConcealment.defender = null;
+		}
 		
 		// we compute the average concealment of all the tiles in the path.  However, the straight line
 		// path might cross more tiles than are neccessary, adding too much concealment.
 		// To smooth over this sort of difference, we take the average and multiply it by the distance
 		// between the points rather than the path length.
 		
-		int areaPathConcealment = 0;
-		for (Point p : minPath) {
-			areaPathConcealment += effects.getBonusAt(Bonus.Type.Concealment, p.x, p.y);
-			areaPathConcealment -= effects.getBonusAt(Bonus.Type.ConcealmentNegation, p.x, p.y);
-			
-			if (!this.transparency[p.x][p.y]) obstructionsInPathConcealment += 15;
-			else {
-				Creature c = this.getCreatureAtGridPoint(p);
-				if (c != null && c != defender) obstructionsInPathConcealment += 15;
-			}
-		}
-		
-		obstructionsInPathConcealment = Math.min(obstructionsInPathConcealment, 30);
+		int obstructionsInPathConcealment = Math.min(lineObstructions, 30);
 
-		float areaPathConcealmentAverage = ((float)areaPathConcealment) / ((float)minPath.size());
+		float areaPathConcealmentAverage = ((float)lineAreaConcealment) / ((float)lineHexes);
 		
 		concealment += (areaPathConcealmentAverage * attacker.getLocation().getDistance(x, y));
 		
@@ -816,6 +925,39 @@ public class Area implements EffectTarget, Saveable {
 		return concealment + defenderBonus + obstructionsInPathConcealment;
 	}
 	
+	/*
+	 * Sums the area effect concealment and obstructions along the line of an attack
+	 */
+	
+	private class LineConcealment implements HexLine.Visitor {
+		private Creature defender;
+		
+		private int areaConcealment;
+		private int obstructions;
+		private int numHexes;
+		
+		private void reset(Creature defender) {
+			this.defender = defender;
+			this.areaConcealment = 0;
+			this.obstructions = 0;
+			this.numHexes = 0;
+		}
+		
+		@Override public boolean visit(int x, int y) {
+			numHexes++;
+			
+			areaConcealment += effects.getConcealmentAt(x, y);
+			
+			if (!transparency[x][y]) obstructions += 15;
+			else {
+				Creature c = getCreatureAtGridPoint(x, y);
+				if (c != null && c != defender) obstructions += 15;
+			}
+			
+			return true;
+		}
+	}
+	
 	public int getConcealment(Creature attacker, Point position) {
 		Creature target = this.entityList.getCreature(position.x, position.y);
 		
@@ -923,8 +1065,8 @@ public class Area implements EffectTarget, Saveable {
 		return entityList.getCreature(x, y);
 	}
 	
-	public boolean[][] getEntityPassabilities(Creature mover) {
-		return entityList.getEntityPassabilities(mover);
+	public void getEntityPassabilities(Creature mover, BitGrid impassable) {
+		entityList.getEntityPassabilities(mover, impassable);
 	}
 	
 	public List<Entity> getEntitiesAtGridPoint(Point p) {
@@ -944,17 +1086,11 @@ public class Area implements EffectTarget, Saveable {
 	 */
 	
 	public void setAllTilesExplored() {
-		for (int i = 0; i < explored.length; i++) {
-			for (int j = 0; j < explored[i].length; j++) {
-				explored[i][j] = true;
-			}
-		}
+		explored.setAll();
 	}
 	
 	public final boolean isVisible(int x, int y) {
-		if (x < 0 || x >= width || y < 0 || y >= height) return false;
-		
-		return this.visibility[x][y];
+		return this.visibility.get(x, y);
 	}
 	
 	public final boolean isTransparent(Point p) {
@@ -0,0 +1,376 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2012 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package net.sf.hale.area;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import net.minidev.json.JSONObject;
+import net.sf.hale.Game;
+import net.sf.hale.Party;
+import net.sf.hale.ability.Effect;
+import net.sf.hale.entity.Creature;
+import net.sf.hale.loading.BinarySaveReader;
+import net.sf.hale.loading.BinarySaveSink;
+import net.sf.hale.loading.LoadGameException;
+import net.sf.hale.loading.ReferenceHandler;
+import net.sf.hale.loading.SaveSink;
+import net.sf.hale.loading.StreamingSaveable;
+import net.sf.hale.util.JSEngine;
+import net.sf.hale.util.Logger;
+import net.sf.hale.util.SimpleJSONObject;
+import net.sf.hale.util.SimpleJSONParser;
+
+/**
+ * Holds the areas of a campaign that have been visited.  A limited number of areas
+ * are kept loaded, most recently used first.  When there are more loaded areas than
+ * the limits set in the {@link net.sf.hale.Config}, the least recently used areas are
+ * evicted: each is saved, in the binary save format and compressed, to an in memory
+ * snapshot and the area itself is dropped.  The next time an evicted area is needed,
+ * it is loaded from its snapshot in the same way as an area in a saved game.
+ * <p>
+ * Only areas that can be saved and loaded on their own are evicted.  The current
+ * area and the area just loaded are never evicted, and neither is any area containing
+ * effects created by creatures elsewhere, or any area with creatures that created effects
+ * on the party.  No area is evicted while the {@link net.sf.hale.ability.ScriptExecutor}
+ * has scripts running or waiting to run, or while any script engine is in use, as those
+ * scripts may hold entities of any area.  Eviction is then retried the next time an
+ * area is loaded.
+ * <p>
+ * Other references to entities are dropped when an area is evicted.  The persistent
+ * scopes of every {@link net.sf.hale.util.JSEngine} are discarded, as scripts may have
+ * stored entities in top level variables, and the distance and flow fields cached by
+ * each loaded area, which are keyed by and refer to creatures, are cleared.  Quest and
+ * script state only hold strings, numbers and booleans, so they cannot refer to an
+ * evicted area.
+ * <p>
+ * Snapshots are written out along with the loaded areas when the game is saved.
+ * @author Jared Stephen
+ *
+ */
+
+public class AreaCache {
+	private final LinkedHashMap<String, Area> areas;
+	private final Map<String, Snapshot> snapshots;
+	
+	private int numEvictions;
+	private int numRehydrations;
+	private long totalEvictNanos, maxEvictNanos;
+	private long totalRehydrateNanos, maxRehydrateNanos, lastRehydrateNanos;
+	
+	/**
+	 * Creates a new, empty AreaCache
+	 */
+	
+	public AreaCache() {
+		// access ordered, so iteration begins at the least recently used area
+		this.areas = new LinkedHashMap<String, Area>(16, 0.75f, true);
+		this.snapshots = new LinkedHashMap<String, Snapshot>();
+	}
+	
+	/**
+	 * Returns the loaded area with the specified ID, or null if the area is not
+	 * loaded.  The area is marked as the most recently used area
+	 * @param id the ID of the area
+	 * @return the loaded area
+	 */
+	
+	public Area getLoadedArea(String id) {
+		return areas.get(id);
+	}
+	
+	/**
+	 * Returns true if the area with the specified ID is loaded.  Unlike
+	 * {@link #getLoadedArea(String)}, this does not mark the area as used
+	 * @param id the ID of the area
+	 * @return whether the area is loaded
+	 */
+	
+	public boolean isLoaded(String id) {
+		return areas.containsKey(id);
+	}
+	
+	/**
+	 * Returns true if the area with the specified ID has been evicted and is held as a snapshot
+	 * @param id the ID of the area
+	 * @return whether the area is held as a snapshot
+	 */
+	
+	public boolean hasSnapshot(String id) {
+		return snapshots.containsKey(id);
+	}
+	
+	/**
+	 * Loads the area with the specified ID from its snapshot, and removes the snapshot.
+	 * The area is not added to this cache
+	 * @param id the ID of the area
+	 * @param parser the already parsed base resource of the area, or null to parse it now
+	 * @return the newly loaded area
+	 * @throws LoadGameException if the snapshot cannot be read or loaded
+	 */
+	
+	public Area rehydrate(String id, SimpleJSONParser parser) throws LoadGameException {
+		Snapshot snapshot = snapshots.remove(id);
+		if (snapshot == null)
+			throw new IllegalArgumentException("No snapshot for area " + id);
+		
+		long startTime = System.nanoTime();
+		
+		ReferenceHandler refHandler = new ReferenceHandler();
+		Area area = Area.load(new SimpleJSONObject(snapshot.read(), id), refHandler, parser);
+		refHandler.resolveAllReferences();
+		
+		// encounter respawns are only checked for loaded areas
+		area.checkEncounterRespawns();
+		
+		lastRehydrateNanos = System.nanoTime() - startTime;
+		totalRehydrateNanos += lastRehydrateNanos;
+		maxRehydrateNanos = Math.max(maxRehydrateNanos, lastRehydrateNanos);
+		numRehydrations++;
+		
+		return area;
+	}
+	
+	/**
+	 * Adds the specified area to the set of loaded areas, as the most recently used area
+	 * @param area the area to add
+	 */
+	
+	public void add(Area area) {
+		snapshots.remove(area.getID());
+		areas.put(area.getID(), area);
+	}
+	
+	/**
+	 * Removes the area with the specified ID, whether loaded or held as a snapshot
+	 * @param id the ID of the area
+	 */
+	
+	public void remove(String id) {
+		areas.remove(id);
+		snapshots.remove(id);
+	}
+	
+	/**
+	 * Removes all areas and snapshots from this cache.  Statistics are not reset
+	 */
+	
+	public void clear() {
+		areas.clear();
+		snapshots.clear();
+	}
+	
+	/**
+	 * Returns all currently loaded areas, least recently used first.  The returned
+	 * collection cannot be modified
+	 * @return all loaded areas
+	 */
+	
+	public Collection<Area> getLoadedAreas() {
+		return Collections.unmodifiableCollection(areas.values());
+	}
+	
+	/**
+	 * Returns the save data for all areas in this cache, loaded or not.  Each element
+	 * is either an Area or a snapshot, and can be written to a {@link SaveSink}
+	 * @return the save data for all areas
+	 */
+	
+	public Object[] getSaveData() {
+		List<Object> data = new ArrayList<Object>(areas.size() + snapshots.size());
+		data.addAll(areas.values());
+		data.addAll(snapshots.values());
+		
+		return data.toArray();
+	}
+	
+	/**
+	 * Evicts the least recently used areas until the number and total size of loaded
+	 * areas are within the limits set in the config, or until no more areas can be evicted
+	 * @param current the current area, which is not evicted
+	 * @param loaded the area that has just been loaded and is about to be returned, which
+	 * is not evicted.  This may be the same as the current area
+	 * @param party the party, whose effects are checked for references into evicted areas
+	 */
+	
+	public void evictAreas(Area current, Area loaded, Party party) {
+		if (Game.config == null) return;
+		
+		// queued and running scripts may refer to entities in any area
+		if (Game.scriptExecutor != null && !Game.scriptExecutor.isIdle()) return;
+		
+		// as may a script running on this thread, such as one calling ScriptInterface.getArea
+		if (Game.scriptEngineManager != null && Game.scriptEngineManager.hasEnginesInUse()) return;
+		
+		int maxAreas = Game.config.getMaxLoadedAreas();
+		int maxGridPoints = Game.config.getMaxLoadedAreaGridPoints();
+		
+		int gridPoints = 0;
+		for (Area area : areas.values()) {
+			gridPoints += area.getWidth() * area.getHeight();
+		}
+		
+		boolean evicted = false;
+		
+		Iterator<Area> iter = areas.values().iterator();
+		while (iter.hasNext()) {
+			boolean overCount = maxAreas > 0 && areas.size() > maxAreas;
+			boolean overSize = maxGridPoints > 0 && gridPoints > maxGridPoints;
+			if (!overCount && !overSize) break;
+			
+			Area area = iter.next();
+			if (area == current || area == loaded || !canEvict(area, party)) continue;
+			
+			Snapshot snapshot;
+			try {
+				snapshot = new Snapshot(area);
+			} catch (IOException e) {
+				Logger.appendToErrorLog("Error saving snapshot of area " + area.getID(), e);
+				continue;
+			}
+			
+			iter.remove();
+			snapshots.put(area.getID(), snapshot);
+			gridPoints -= area.getWidth() * area.getHeight();
+			
+			totalEvictNanos += snapshot.saveNanos;
+			maxEvictNanos = Math.max(maxEvictNanos, snapshot.saveNanos);
+			numEvictions++;
+			evicted = true;
+		}
+		
+		if (evicted) {
+			// drop any remaining references to the entities of the evicted areas
+			JSEngine.discardAllScriptScopes();
+			
+			for (Area area : areas.values()) {
+				area.getUtil().clearCachedFields();
+			}
+		}
+	}
+	
+	private boolean canEvict(Area area, Party party) {
+		if (!area.isSelfContained()) return false;
+		
+		Iterator<Creature> partyIter = party.allCreaturesIterator();
+		while (partyIter.hasNext()) {
+			for (Effect effect : partyIter.next().getEffects()) {
+				if (area.isCreatedInThisArea(effect)) return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Returns a summary of the areas held by this cache and the eviction and
+	 * rehydration statistics
+	 * @return a summary of this cache's state
+	 */
+	
+	public String getStats() {
+		int snapshotBytes = 0;
+		for (Snapshot snapshot : snapshots.values()) {
+			snapshotBytes += snapshot.data.length;
+		}
+		
+		StringBuilder sb = new StringBuilder();
+		
+		sb.append("Loaded areas: ").append(areas.size());
+		sb.append(", snapshots: ").append(snapshots.size());
+		sb.append(" (").append(snapshotBytes / 1024).append(" KB)\n");
+		
+		sb.append("Evictions: ").append(numEvictions);
+		sb.append(String.format(", %.2f ms average, %.2f ms max\n",
+				average(totalEvictNanos, numEvictions), maxEvictNanos / 1000000.0));
+		
+		sb.append("Rehydrations: ").append(numRehydrations);
+		sb.append(String.format(", %.2f ms last, %.2f ms average, %.2f ms max",
+				lastRehydrateNanos / 1000000.0, average(totalRehydrateNanos, numRehydrations),
+				maxRehydrateNanos / 1000000.0));
+		
+		return sb.toString();
+	}
+	
+	private static double average(long totalNanos, int count) {
+		return count == 0 ? 0.0 : totalNanos / 1000000.0 / count;
+	}
+	
+	/*
+	 * The compressed binary save data of an evicted area
+	 */
+	
+	private static class Snapshot implements StreamingSaveable {
+		private final byte[] data;
+		private final long saveNanos;
+		
+		private Snapshot(Area area) throws IOException {
+			long startTime = System.nanoTime();
+			
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DeflaterOutputStream deflater = new DeflaterOutputStream(bytes);
+			
+			SaveSink out = new BinarySaveSink(new BufferedOutputStream(deflater));
+			out.value(area);
+			out.flush();
+			deflater.close();
+			
+			this.data = bytes.toByteArray();
+			this.saveNanos = System.nanoTime() - startTime;
+		}
+		
+		private JSONObject read() throws LoadGameException {
+			try {
+				return BinarySaveReader.read(new BufferedInputStream(new InflaterInputStream(
+						new ByteArrayInputStream(data))));
+			} catch (IOException e) {
+				throw new LoadGameException("Error reading area snapshot: " + e.getMessage());
+			}
+		}
+		
+		@Override public Object save() {
+			try {
+				return read();
+			} catch (LoadGameException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		
+		@Override public void save(SaveSink out) throws IOException {
+			try {
+				out.value(read());
+			} catch (LoadGameException e) {
+				throw new IOException(e.getMessage());
+			}
+		}
+	}
+}
@@ -19,13 +19,17 @@
 
 package net.sf.hale.area;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import net.sf.hale.entity.Container;
@@ -38,31 +42,71 @@ import net.sf.hale.entity.NPC;
 import net.sf.hale.entity.PC;
 import net.sf.hale.entity.PCTemplate;
 import net.sf.hale.entity.Trap;
-import net.sf.hale.loading.JSONOrderedObject;
 import net.sf.hale.loading.LoadGameException;
 import net.sf.hale.loading.ReferenceHandler;
-import net.sf.hale.loading.Saveable;
+import net.sf.hale.loading.SaveSink;
+import net.sf.hale.loading.StreamingSaveable;
+import net.sf.hale.loading.TreeSaveSink;
+import net.sf.hale.rules.Faction;
 import net.sf.hale.util.AreaUtil;
-import net.sf.hale.util.Point;
+import net.sf.hale.util.BitGrid;
 import net.sf.hale.util.SimpleJSONArrayEntry;
 import net.sf.hale.util.SimpleJSONObject;
 
-public class AreaEntityList implements Saveable, Iterable<Entity> {
+public class AreaEntityList implements StreamingSaveable, Iterable<Entity> {
+	/**
+	 * The width and height, in grid points, of each bucket in the creature spatial index
+	 */
+	
+	public static final int BucketSize = 8;
+	
 	private EntityList[][] entities;
 	private Set<Entity> entitiesSet;
 	
+	// membership sets for each entity type that is commonly queried
+	private Set<Creature> creaturesSet;
+	private Set<Door> doorsSet;
+	private Set<Container> containersSet;
+	private Set<Trap> trapsSet;
+	
+	// coarse spatial index of creatures, indexed by bucketX * bucketsHigh + bucketY
+	private EntityList[] creatureBuckets;
+	private int bucketsWide, bucketsHigh;
+	
+	// grid points that cannot be moved through due to closed doors
+	private BitGrid doorsImpassable;
+	
+	// grid points that cannot be moved through by creatures of a given faction, due to
+	// closed doors and other creatures.  Grids are created the first time they are requested,
+	// and are discarded when faction relationships change
+	private Map<Faction, BitGrid> entitiesImpassable;
+	private int relationshipsVersion;
+	
+	// kept current as creatures change, once it has been requested
+	private ThreatMap threatMap;
+	
 	@Override public Object save() {
-		JSONOrderedObject data = new JSONOrderedObject();
+		return TreeSaveSink.save(this);
+	}
+	
+	@Override public void save(SaveSink out) throws IOException {
+		// copy the set under the lock, so the entities can be written without holding it
+		Entity[] entitiesToSave;
+		synchronized(this) {
+			entitiesToSave = entitiesSet.toArray(new Entity[entitiesSet.size()]);
+		}
 		
-		JSONOrderedObject[] entitiesData = new JSONOrderedObject[entitiesSet.size()];
-		int i = 0;
-		for (Entity entity : entitiesSet) {
-			entitiesData[i] = entity.save();
-			i++;
+		out.beginObject();
+		
+		// each entity's data is built and written one at a time
+		out.key("entities");
+		out.beginArray();
+		for (Entity entity : entitiesToSave) {
+			out.value(entity.save());
 		}
-		data.put("entities", entitiesData);
+		out.endArray();
 		
-		return data;
+		out.endObject();
 	}
 	
 	private enum ClassType {
@@ -126,6 +170,83 @@ public class AreaEntityList implements Saveable, Iterable<Entity> {
 	public AreaEntityList(int width, int height) {
 		entities = new EntityList[width][height];
 		entitiesSet = new LinkedHashSet<Entity>();
+		
+		creaturesSet = new LinkedHashSet<Creature>();
+		doorsSet = new LinkedHashSet<Door>();
+		containersSet = new LinkedHashSet<Container>();
+		trapsSet = new LinkedHashSet<Trap>();
+		
+		createBuckets(width, height);
+	}
+	
+	private void createBuckets(int width, int height) {
+		bucketsWide = (width + BucketSize - 1) / BucketSize;
+		bucketsHigh = (height + BucketSize - 1) / BucketSize;
+		creatureBuckets = new EntityList[bucketsWide * bucketsHigh];
+		
+		doorsImpassable = new BitGrid(width, height);
+		entitiesImpassable = new HashMap<Faction, BitGrid>();
+	}
+	
+	/*
+	 * Adds the entity to the type sets and spatial index.  Called whenever an entity
+	 * is added to the entitiesSet
+	 */
+	
+	private void addToIndex(Entity entity) {
+		if (entity instanceof Creature) {
+			creaturesSet.add((Creature)entity);
+			addToBucket(entity.getLocation().getX(), entity.getLocation().getY(), entity);
+			updatePassability(entity.getLocation().getX(), entity.getLocation().getY());
+			if (threatMap != null) threatMap.updateCreature((Creature)entity);
+		} else if (entity instanceof Door) {
+			doorsSet.add((Door)entity);
+			updatePassability(entity.getLocation().getX(), entity.getLocation().getY());
+		} else if (entity instanceof Container) {
+			containersSet.add((Container)entity);
+		} else if (entity instanceof Trap) {
+			trapsSet.add((Trap)entity);
+		}
+	}
+	
+	private void removeFromIndex(Entity entity) {
+		if (entity instanceof Creature) {
+			creaturesSet.remove(entity);
+			removeFromBucket(entity.getLocation().getX(), entity.getLocation().getY(), entity);
+			updatePassability(entity.getLocation().getX(), entity.getLocation().getY());
+			if (threatMap != null) threatMap.removeCreature((Creature)entity);
+		} else if (entity instanceof Door) {
+			doorsSet.remove(entity);
+			updatePassability(entity.getLocation().getX(), entity.getLocation().getY());
+		} else if (entity instanceof Container) {
+			containersSet.remove(entity);
+		} else if (entity instanceof Trap) {
+			trapsSet.remove(entity);
+		}
+	}
+	
+	private void addToBucket(int x, int y, Entity entity) {
+		if (x < 0 || x >= entities.length || y < 0 || y >= entities[0].length) return;
+		
+		int index = (x / BucketSize) * bucketsHigh + (y / BucketSize);
+		
+		if (creatureBuckets[index] == null) {
+			creatureBuckets[index] = new EntityList();
+		}
+		
+		creatureBuckets[index].add(entity);
+	}
+	
+	private void removeFromBucket(int x, int y, Entity entity) {
+		if (x < 0 || x >= entities.length || y < 0 || y >= entities[0].length) return;
+		
+		int index = (x / BucketSize) * bucketsHigh + (y / BucketSize);
+		
+		if (creatureBuckets[index] == null) return;
+		
+		creatureBuckets[index].remove(entity);
+		
+		if (creatureBuckets[index].size() == 0) creatureBuckets[index] = null;
 	}
 	
 	/**
@@ -151,6 +272,7 @@ public class AreaEntityList implements Saveable, Iterable<Entity> {
 		addTrapAt(trap.getLocation().getX(), trap.getLocation().getY(), trap);
 		
 		entitiesSet.add(trap);
+		addToIndex(trap);
 	}
 	
 	/**
@@ -164,6 +286,7 @@ public class AreaEntityList implements Saveable, Iterable<Entity> {
 		addContainerAt(container.getLocation().getX(), container.getLocation().getY(), container);
 		
 		entitiesSet.add(container);
+		addToIndex(container);
 	}
 	
 	/**
@@ -179,64 +302,154 @@ public class AreaEntityList implements Saveable, Iterable<Entity> {
 		addAt(entity.getLocation().getX(), entity.getLocation().getY(), entity);
 		
 		entitiesSet.add(entity);
+		addToIndex(entity);
 	}
 	
-	private void setMatrix(boolean[][] matrix, boolean value, int x, int y) {
-		if (x >= 0 && y >= 0 && x < matrix.length && y < matrix[0].length)
-			matrix[x][y] = value;
+	/**
+	 * Sets the specified grid to the impassable points in the map, ignoring creatures.
+	 * Only closed doors are impassable
+	 * @param impassable the grid to copy the impassable points into.  Must be the
+	 * same size as this list
+	 */
+	
+	public synchronized void getDoorPassabilities(BitGrid impassable) {
+		impassable.copy(doorsImpassable);
 	}
 	
 	/**
-	 * Gets the matrix of passabilities for each tile in the map based on the
-	 * specified creature, ignored creatures
+	 * Sets the specified grid to the impassable points in the map for the specified
+	 * creature, based on closed doors and the positions of other creatures
 	 * @param mover the creature who is moving
-	 * @return the matrix of passabilities
+	 * @param impassable the grid to copy the impassable points into.  Must be the
+	 * same size as this list
 	 */
 	
-	public synchronized boolean[][] getDoorPassabilities(Creature mover) {
-		boolean[][] pass = new boolean[entities.length][entities[0].length];
-		AreaUtil.setMatrix(pass, true);
+	public synchronized void getEntityPassabilities(Creature mover, BitGrid impassable) {
+		Faction faction = mover.getFaction();
 		
-		for (Entity entity : entitiesSet) {
-			if (entity instanceof Door) {
-				if ( !((Door)entity).isOpen() )  {
-					setMatrix(pass, false, entity.getLocation().getX(), entity.getLocation().getY());
-				}
+		if (relationshipsVersion != Faction.getRelationshipsVersion()) {
+			relationshipsVersion = Faction.getRelationshipsVersion();
+			entitiesImpassable.clear();
+		}
+		
+		BitGrid grid = entitiesImpassable.get(faction);
+		
+		if (grid == null) {
+			grid = new BitGrid(entities.length, entities[0].length);
+			grid.copy(doorsImpassable);
+			
+			for (Creature creature : creaturesSet) {
+				if (blocksMovement(creature, faction))
+					grid.set(creature.getLocation().getX(), creature.getLocation().getY());
 			}
+			
+			entitiesImpassable.put(faction, grid);
 		}
 		
-		return pass;
+		impassable.copy(grid);
 	}
 	
 	/**
-	 * Gets the matrix of passabilities for each tile in the map based on the
-	 * specified creature
-	 * @param mover the creature who is moving
-	 * @return the matrix of passabilities
+	 * Updates the cached passabilities at the location of the specified door.  This
+	 * must be called whenever the door is opened or closed
+	 * @param door the door that has been opened or closed
 	 */
 	
-	public synchronized boolean[][] getEntityPassabilities(Creature mover) {
-		boolean[][] pass = new boolean[entities.length][entities[0].length];
-		AreaUtil.setMatrix(pass, true);
+	public synchronized void updateDoorPassability(Door door) {
+		if (!doorsSet.contains(door)) return;
 		
-		for (Entity entity : entitiesSet) {
+		updatePassability(door.getLocation().getX(), door.getLocation().getY());
+	}
+	
+	/**
+	 * Updates the cached passabilities at the location of the specified creature.  This
+	 * must be called whenever the creature's helplessness or faction changes
+	 * @param creature the creature that may have started or stopped blocking movement
+	 */
+	
+	public synchronized void updateCreaturePassability(Creature creature) {
+		if (!creaturesSet.contains(creature)) return;
+		
+		updatePassability(creature.getLocation().getX(), creature.getLocation().getY());
+	}
+	
+	/**
+	 * Updates the points threatened by the specified creature in the {@link ThreatMap}.
+	 * This must be called whenever the creature's visibility, weapon, faction, hit points,
+	 * helplessness, or available attacks of opportunity change
+	 * @param creature the creature that may have changed the points it threatens
+	 */
+	
+	public synchronized void updateCreatureThreats(Creature creature) {
+		if (threatMap == null || !creaturesSet.contains(creature)) return;
+		
+		threatMap.updateCreature(creature);
+	}
+	
+	/**
+	 * Returns the ThreatMap tracking attacks of opportunity for the creatures in this
+	 * list, creating it if it does not exist
+	 * @return the ThreatMap
+	 */
+	
+	public synchronized ThreatMap getThreatMap() {
+		if (threatMap == null) {
+			threatMap = new ThreatMap(this, entities.length, entities[0].length);
+		}
+		
+		return threatMap;
+	}
+	
+	/*
+	 * mover can pass through creature unless:
+	 * creature is not friendly and is not helpless
+	 * 
+	 * if movement is interrupted while two creatures overlap, the mover will be pushed
+	 * back to their last position which will prevent the two remaining in the same tile.
+	 */
+	
+	private boolean blocksMovement(Creature creature, Faction moverFaction) {
+		if (creature.stats.isHelpless()) return false;
+		
+		if (moverFaction == null) return true;
+		
+		return creature.getFaction().getRelationship(moverFaction) != Faction.Relationship.Friendly;
+	}
+	
+	private boolean isImpassable(int x, int y, Faction moverFaction) {
+		if (entities[x][y] == null) return false;
+		
+		for (Entity entity : entities[x][y]) {
 			if (entity instanceof Door) {
-				if ( !((Door)entity).isOpen() )  {
-					setMatrix(pass, false, entity.getLocation().getX(), entity.getLocation().getY());
-				}
+				if ( !((Door)entity).isOpen() ) return true;
 			} else if (entity instanceof Creature) {
-				// mover can pass through creature unless:
-				// creature is not friendly and is not helpless
-				
-				// if movement is interrupted while two creatures overlap, the mover will be pushed
-				// back to their last position which will prevent the two remaining in the same tile.
-				
-				if (!entity.getFaction().isFriendly(mover) && !((Creature)entity).stats.isHelpless())
-					setMatrix(pass, false, entity.getLocation().getX(), entity.getLocation().getY());
+				if (blocksMovement((Creature)entity, moverFaction)) return true;
 			}
 		}
 		
-		return pass;
+		return false;
+	}
+	
+	/*
+	 * Recomputes the door and faction passabilities at the specified grid point from
+	 * the entities currently located there
+	 */
+	
+	private void updatePassability(int x, int y) {
+		if (!isInBounds(x, y)) return;
+		
+		boolean doorClosed = false;
+		if (entities[x][y] != null) {
+			for (Entity entity : entities[x][y]) {
+				if (entity instanceof Door && !((Door)entity).isOpen()) doorClosed = true;
+			}
+		}
+		
+		doorsImpassable.set(x, y, doorClosed);
+		
+		for (Map.Entry<Faction, BitGrid> entry : entitiesImpassable.entrySet()) {
+			entry.getValue().set(x, y, isImpassable(x, y, entry.getKey()));
+		}
 	}
 	
 	/**
@@ -260,6 +473,7 @@ public class AreaEntityList implements Saveable, Iterable<Entity> {
 		removeAt(entity.getLocation().getX(), entity.getLocation().getY(), entity);
 		
 		entitiesSet.remove(entity);
+		removeFromIndex(entity);
 		
 		// remove the creature from the encounter that is tracking it, if applicable
 		if (entity instanceof Creature) {
@@ -327,12 +541,29 @@ public class AreaEntityList implements Saveable, Iterable<Entity> {
 		if (entities[x][y].size() == 0) entities[x][y] = null;
 	}
 	
-	public void moveEntity(Entity entity, Location lastLocation) {
+	public synchronized void moveEntity(Entity entity, Location lastLocation) {
 		if (!entitiesSet.contains(entity)) return;
 		
 		removeAt(lastLocation.getX(), lastLocation.getY(), entity);
 		
 		addAt(entity.getLocation().getX(), entity.getLocation().getY(), entity);
+		
+		if (entity instanceof Creature || entity instanceof Door) {
+			updatePassability(lastLocation.getX(), lastLocation.getY());
+			updatePassability(entity.getLocation().getX(), entity.getLocation().getY());
+		}
+		
+		if (entity instanceof Creature) {
+			int lastBucketX = lastLocation.getX() / BucketSize;
+			int lastBucketY = lastLocation.getY() / BucketSize;
+			
+			// only update the spatial index when the creature actually changes buckets
+			if (lastBucketX != entity.getLocation().getX() / BucketSize ||
+					lastBucketY != entity.getLocation().getY() / BucketSize) {
+				removeFromBucket(lastLocation.getX(), lastLocation.getY(), entity);
+				addToBucket(entity.getLocation().getX(), entity.getLocation().getY(), entity);
+			}
+		}
 	}
 	
 	public List<Entity> getEntitiesWithID(String id) {
@@ -432,19 +663,33 @@ public class AreaEntityList implements Saveable, Iterable<Entity> {
 		return entities[x][y];
 	}
 	
+	/**
+	 * Returns the set of all creatures in this list.  This set must not be modified, and
+	 * must only be iterated over while holding the lock on this list
+	 * @return the set of all creatures in this list
+	 */
+	
+	public final Collection<Creature> getCreaturesSet() {
+		return creaturesSet;
+	}
+	
+	/**
+	 * Returns the set of all traps in this list.  This set must not be modified, and
+	 * must only be iterated over while holding the lock on this list
+	 * @return the set of all traps in this list
+	 */
+	
+	public final Collection<Trap> getTrapsSet() {
+		return trapsSet;
+	}
+	
 	/**
 	 * Returns all creatures in this list at any grid position
 	 * @return all creatures in this list
 	 */
 	
-	public final List<Creature> getAllCreatures() {
-		List<Creature> creatures = new ArrayList<Creature>();
-		
-		for (Entity entity : entitiesSet) {
-			if (entity instanceof Creature) creatures.add((Creature)entity);
-		}
-		
-		return creatures;
+	public synchronized final List<Creature> getAllCreatures() {
+		return new ArrayList<Creature>(creaturesSet);
 	}
 	
 	/**
@@ -452,14 +697,8 @@ public class AreaEntityList implements Saveable, Iterable<Entity> {
 	 * @return all containers in this list
 	 */
 	
-	public final List<Container> getAllContainers() {
-		List<Container> containers = new ArrayList<Container>();
-		
-		for (Entity entity : entitiesSet) {
-			if (entity instanceof Container) containers.add((Container)entity);
-		}
-		
-		return containers;
+	public synchronized final List<Container> getAllContainers() {
+		return new ArrayList<Container>(containersSet);
 	}
 	
 	/**
@@ -467,41 +706,47 @@ public class AreaEntityList implements Saveable, Iterable<Entity> {
 	 * @return a list of all doors
 	 */
 	
-	public List<Door> getAllDoors() {
-		List<Door> doors = new ArrayList<Door>();
-		
-		for (Entity entity : entitiesSet) {
-			if (entity instanceof Door) doors.add((Door)entity);
-		}
-		
-		return doors;
+	public synchronized List<Door> getAllDoors() {
+		return new ArrayList<Door>(doorsSet);
 	}
 	
-	public List<Trap> getVisibleTraps(boolean[][] visibility) {
-		List<Trap> traps = new LinkedList<Trap>();
+	/**
+	 * Returns the list of traps located at points set in the specified visibility grid.
+	 * Only the topmost trap at each grid point is included
+	 * @param visibility the grid of visible points
+	 * @return the list of visible traps
+	 */
+	
+	public synchronized List<Trap> getVisibleTraps(BitGrid visibility) {
+		List<Trap> traps = new ArrayList<Trap>();
 		
-		for (int i = 0; i < entities.length; i++) {
-			for (int j = 0; j < entities[0].length; j++) {
-				if (visibility[i][j]) {
-					Trap t = getTrap(i, j);
-					if (t != null) traps.add(t);
-				}
-			}
+		for (Trap trap : trapsSet) {
+			int x = trap.getLocation().getX();
+			int y = trap.getLocation().getY();
+			
+			if (visibility.get(x, y) && isInBounds(x, y) && getTrap(x, y) == trap)
+				traps.add(trap);
 		}
 		
 		return traps;
 	}
 	
-	public List<Creature> getVisibleCreatures(boolean[][] visibility) {
-		List<Creature> creatures = new LinkedList<Creature>();
+	/**
+	 * Returns the list of creatures located at points set in the specified visibility grid.
+	 * Only the first creature at each grid point is included
+	 * @param visibility the grid of visible points
+	 * @return the list of visible creatures
+	 */
+	
+	public synchronized List<Creature> getVisibleCreatures(BitGrid visibility) {
+		List<Creature> creatures = new ArrayList<Creature>();
 		
-		for (int i = 0; i < entities.length; i++) {
-			for (int j = 0; j < entities[0].length; j++) {
-				if (visibility[i][j]) {
-					Creature c = getCreature(i, j);
-					if (c != null) creatures.add(c);
-				}
-			}
+		for (Creature creature : creaturesSet) {
+			int x = creature.getLocation().getX();
+			int y = creature.getLocation().getY();
+			
+			if (visibility.get(x, y) && isInBounds(x, y) && getCreature(x, y) == creature)
+				creatures.add(creature);
 		}
 		
 		return creatures;
@@ -514,46 +759,74 @@ public class AreaEntityList implements Saveable, Iterable<Entity> {
 	 * @return the list of visible creatures
 	 */
 	
-	public List<Creature> getVisibleCreatures(Creature parent) {
+	public synchronized List<Creature> getVisibleCreatures(Creature parent) {
 		List<Creature> creatures = new ArrayList<Creature>();
 		
-		for (int i = 0; i < entities.length; i++) {
-			for (int j = 0; j < entities[0].length; j++) {
-				if (!parent.hasVisibilityInCurrentArea(i, j)) continue;
-				
-				Creature creature = getCreature(i, j);
-				if (creature != null)
-					creatures.add(creature);
-			}
+		for (Creature creature : creaturesSet) {
+			int x = creature.getLocation().getX();
+			int y = creature.getLocation().getY();
+			
+			if (!isInBounds(x, y) || !parent.hasVisibilityInCurrentArea(x, y)) continue;
+			
+			if (getCreature(x, y) == creature)
+				creatures.add(creature);
 		}
 		
 		return creatures;
 	}
 	
-	public List<Creature> getCreaturesWithinRadius(int x, int y, int radius) {
-		List<Creature> creatures = new LinkedList<Creature>();
+	/**
+	 * Returns the list of creatures within the specified distance of the specified
+	 * grid point, sorted so that the closest creatures come first.  Only the
+	 * first creature at each grid point is included
+	 * @param x the x grid coordinate of the center
+	 * @param y the y grid coordinate of the center
+	 * @param radius the maximum grid distance from the center
+	 * @return the list of creatures within the radius
+	 */
+	
+	public synchronized List<Creature> getCreaturesWithinRadius(final int x, final int y, int radius) {
+		List<Creature> creatures = new ArrayList<Creature>();
 		
-		Creature current = getCreature(x, y);
-		if (current != null) creatures.add(current);
+		if (radius < 0) return creatures;
 		
-		for (int r = 1; r <= radius; r++) {
-			for (int i = 0; i < 6 * r; i++) {
-				Point p = AreaUtil.convertPolarToGrid(x, y, r, i);
-				
-				if (p.x < 0 || p.x >= entities.length || p.y < 0 || p.y >= entities[0].length)
-					continue;
-				
-				current = getCreature(p.x, p.y);
+		// a hex at distance r from the center is never more than r grid points away in x or y
+		int minBucketX = Math.max(0, x - radius) / BucketSize;
+		int maxBucketX = Math.min(bucketsWide - 1, Math.max(0, x + radius) / BucketSize);
+		int minBucketY = Math.max(0, y - radius) / BucketSize;
+		int maxBucketY = Math.min(bucketsHigh - 1, Math.max(0, y + radius) / BucketSize);
+		
+		for (int bucketX = minBucketX; bucketX <= maxBucketX; bucketX++) {
+			for (int bucketY = minBucketY; bucketY <= maxBucketY; bucketY++) {
+				EntityList bucket = creatureBuckets[bucketX * bucketsHigh + bucketY];
+				if (bucket == null) continue;
 				
-				if (current != null) {
-					creatures.add(current);
+				for (Entity entity : bucket) {
+					int entityX = entity.getLocation().getX();
+					int entityY = entity.getLocation().getY();
+					
+					if (AreaUtil.distance(x, y, entityX, entityY) > radius) continue;
+					
+					if (getCreature(entityX, entityY) == entity)
+						creatures.add((Creature)entity);
 				}
 			}
 		}
 		
+		Collections.sort(creatures, new Comparator<Creature>() {
+			@Override public int compare(Creature a, Creature b) {
+				return AreaUtil.distance(x, y, a.getLocation().getX(), a.getLocation().getY()) -
+					AreaUtil.distance(x, y, b.getLocation().getX(), b.getLocation().getY());
+			}
+		});
+		
 		return creatures;
 	}
 	
+	private boolean isInBounds(int x, int y) {
+		return x >= 0 && x < entities.length && y >= 0 && y < entities[0].length;
+	}
+	
 	public int getNumberOfCreatures(int x, int y) {
 		if (x < 0 || x >= entities.length || y < 0 || y >= entities[0].length) return 0;
 		
@@ -568,7 +841,7 @@ public class AreaEntityList implements Saveable, Iterable<Entity> {
 		return count;
 	}
 	
-	public void resize(int newWidth, int newHeight) {
+	public synchronized void resize(int newWidth, int newHeight) {
 		EntityList[][] newEntities = new EntityList[newWidth][newHeight];
 		HashSet<Entity> newHash = new HashSet<Entity>();
 		
@@ -585,6 +858,19 @@ public class AreaEntityList implements Saveable, Iterable<Entity> {
 		
 		this.entities = newEntities;
 		this.entitiesSet = newHash;
+		
+		// the threat map is recreated at the new size when next requested
+		threatMap = null;
+		
+		creaturesSet.clear();
+		doorsSet.clear();
+		containersSet.clear();
+		trapsSet.clear();
+		createBuckets(newWidth, newHeight);
+		
+		for (Entity entity : entitiesSet) {
+			addToIndex(entity);
+		}
 	}
 	
 	@Override public Iterator<Entity> iterator() {
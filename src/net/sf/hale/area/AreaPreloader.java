@@ -0,0 +1,248 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2012 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package net.sf.hale.area;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import net.sf.hale.Game;
+import net.sf.hale.entity.Location;
+import net.sf.hale.rules.WorldMapLocation;
+import net.sf.hale.util.AreaUtil;
+import net.sf.hale.util.Logger;
+import net.sf.hale.util.SimpleJSONParser;
+
+/**
+ * Parses the resource files of areas the party is likely to travel to next on a
+ * background thread, so that the transition to one of those areas does not have to
+ * wait for the parsing.  Areas are preloaded when a party member comes within
+ * {@link net.sf.hale.Config#getAreaPreloadDistance()} tiles of a transition, and when
+ * the world map is opened.
+ * <p>
+ * Only the parsing is done in the background.  Building the area from the parsed data
+ * creates entities, spawns encounters, and runs procedural generation, all of which
+ * modify shared game state, so that is still done when the area is needed.
+ * <p>
+ * All preloaders share a single background thread, so replacing the campaign
+ * does not leave the previous campaign's thread behind
+ * @author Jared Stephen
+ *
+ */
+
+public class AreaPreloader {
+	/**
+	 * The maximum number of areas that are preloaded and waiting to be used at once
+	 */
+	
+	public static final int MaxPending = 4;
+	
+	// the background thread shared by every preloader
+	private static final ExecutorService executor = Executors.newSingleThreadExecutor(new PreloaderFactory());
+	
+	private final Map<String, Future<SimpleJSONParser>> pending;
+	
+	private int numPreloads;
+	private int numHits, numMisses;
+	private long totalWaitNanos, maxWaitNanos;
+	
+	/**
+	 * Creates a new AreaPreloader with no preloaded areas
+	 */
+	
+	public AreaPreloader() {
+		this.pending = new LinkedHashMap<String, Future<SimpleJSONParser>>();
+	}
+	
+	/**
+	 * Begins parsing the resource of the area with the specified ID in the background,
+	 * unless the area is already loaded, being preloaded, or the maximum number of
+	 * areas are already preloaded
+	 * @param areaID the ID of the area
+	 */
+	
+	public synchronized void preload(final String areaID) {
+		if (areaID == null || pending.containsKey(areaID) || pending.size() >= MaxPending) return;
+		
+		if (Game.curCampaign.getAreaCache().isLoaded(areaID)) return;
+		
+		pending.put(areaID, executor.submit(new Callable<SimpleJSONParser>() {
+			@Override public SimpleJSONParser call() {
+				return Area.parseResource(areaID);
+			}
+		}));
+		
+		numPreloads++;
+	}
+	
+	/**
+	 * Returns the preloaded resource of the area with the specified ID, waiting for
+	 * the parsing to finish if needed, and removes it from this preloader.  Returns null
+	 * if the area has not been preloaded or if preloading failed
+	 * @param areaID the ID of the area
+	 * @return the parsed area resource, or null
+	 */
+	
+	public SimpleJSONParser take(String areaID) {
+		Future<SimpleJSONParser> future;
+		synchronized(this) {
+			future = pending.remove(areaID);
+			
+			if (future == null) {
+				numMisses++;
+				return null;
+			}
+		}
+		
+		long startTime = System.nanoTime();
+		
+		try {
+			SimpleJSONParser parser = future.get();
+			
+			long waitNanos = System.nanoTime() - startTime;
+			
+			synchronized(this) {
+				numHits++;
+				totalWaitNanos += waitNanos;
+				maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+			}
+			
+			return parser;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			Logger.appendToErrorLog("Error preloading area " + areaID, e.getCause());
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Discards all preloaded areas, and cancels any preloading that has not started
+	 */
+	
+	public synchronized void clear() {
+		for (Future<SimpleJSONParser> future : pending.values()) {
+			future.cancel(false);
+		}
+		
+		pending.clear();
+	}
+	
+	/**
+	 * Preloads the destinations of all activated transitions out of the specified area
+	 * that are within the preload distance of the specified location
+	 * @param area the area containing the location
+	 * @param location the location of a party member
+	 */
+	
+	public void checkNearbyTransitions(Area area, Location location) {
+		if (Game.config == null || area != Game.curCampaign.curArea) return;
+		
+		int maxDistance = Game.config.getAreaPreloadDistance();
+		if (maxDistance <= 0) return;
+		
+		for (String transitionID : area.getTransitions()) {
+			Transition transition = Game.curCampaign.getAreaTransition(transitionID);
+			if (!transition.isActivated()) continue;
+			
+			Transition.EndPoint here = transition.getEndPointInArea(area);
+			if (here == null) continue;
+			
+			if (AreaUtil.distance(here.getX(), here.getY(), location.getX(), location.getY()) > maxDistance)
+				continue;
+			
+			Transition.EndPoint destination = transition.getEndPointForCreaturesInCurrentArea();
+			if (destination == null || destination.isWorldMap()) continue;
+			
+			preload(destination.getAreaID());
+		}
+	}
+	
+	/**
+	 * Preloads the areas reached by travelling on the world map to the revealed locations
+	 * closest to the specified origin
+	 * @param origin the world map location the party is travelling from, or null if
+	 * travel times are not known
+	 */
+	
+	public void preloadWorldMapDestinations(final WorldMapLocation origin) {
+		if (Game.config == null || Game.config.getAreaPreloadDistance() <= 0) return;
+		
+		List<WorldMapLocation> locations = new ArrayList<WorldMapLocation>();
+		for (WorldMapLocation location : Game.curCampaign.worldMapLocations) {
+			if (location != origin && location.isRevealed() && location.getStartingTransition() != null)
+				locations.add(location);
+		}
+		
+		if (origin != null) {
+			Collections.sort(locations, new Comparator<WorldMapLocation>() {
+				@Override public int compare(WorldMapLocation a, WorldMapLocation b) {
+					return origin.getTravelTime(a) - origin.getTravelTime(b);
+				}
+			});
+		}
+		
+		Iterator<WorldMapLocation> iter = locations.iterator();
+		for (int i = 0; i < MaxPending && iter.hasNext(); i++) {
+			Transition transition = Game.curCampaign.getAreaTransition(iter.next().getStartingTransition());
+			
+			Transition.EndPoint destination = transition.getEndPointForWorldMap();
+			if (destination != null)
+				preload(destination.getAreaID());
+		}
+	}
+	
+	/**
+	 * Returns a summary of the areas preloaded and used by this preloader
+	 * @return a summary of this preloader's state
+	 */
+	
+	public synchronized String getStats() {
+		StringBuilder sb = new StringBuilder();
+		
+		sb.append("Preloaded areas: ").append(numPreloads).append(" started, ");
+		sb.append(pending.size()).append(" pending, ").append(numHits).append(" used, ");
+		sb.append(numMisses).append(" not preloaded");
+		sb.append(String.format("; Wait: %.2f ms average, %.2f ms max",
+				numHits == 0 ? 0.0 : totalWaitNanos / 1000000.0 / numHits, maxWaitNanos / 1000000.0));
+		
+		return sb.toString();
+	}
+	
+	private static class PreloaderFactory implements ThreadFactory {
+		@Override public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "AreaPreloader");
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,300 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package net.sf.hale.area;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.sf.hale.entity.Creature;
+import net.sf.hale.entity.WeaponTemplate;
+import net.sf.hale.rules.Faction;
+import net.sf.hale.util.AreaUtil;
+
+/**
+ * Tracks the number of creatures threatening attacks of opportunity at each grid point
+ * of an area, separately for each faction being threatened.
+ * <p>
+ * The ThreatMap is kept current by the {@link AreaEntityList} that owns it.  The threatened
+ * points of a creature are recomputed whenever it is added to or removed from the area,
+ * recomputes its visibility after moving, changes weapons or factions, or starts or stops
+ * threatening due to helplessness, death, or using up its attacks of opportunity.  The
+ * counts for each faction are built the first time they are requested and then adjusted
+ * by the changed creatures only, so queries do not need to check any creatures.  Changes
+ * to faction relationships are found through {@link Faction#getRelationshipsVersion()}, and
+ * cause the counts of every faction to be rebuilt from the stored threatened points.
+ * <p>
+ * All updates are made while holding the lock on the owning AreaEntityList.
+ * <p>
+ * Counts are indexed by x * height + y, matching {@link net.sf.hale.util.PathFinder}
+ * @author Jared Stephen
+ *
+ */
+
+public class ThreatMap {
+	private final int width, height;
+	
+	private final Map<Creature, Threatener> threateners;
+	private final Map<Faction, int[]> factionCounts;
+	private int relationshipsVersion;
+	
+	// incremented each time the threat counts of any faction change
+	private int version;
+	
+	/**
+	 * Creates a new ThreatMap containing the threatened points of each creature
+	 * in the specified entity list.  This must be called while holding the lock on
+	 * the entity list
+	 * @param entities the entity list that will keep this ThreatMap current
+	 * @param width the width of the area
+	 * @param height the height of the area
+	 */
+	
+	ThreatMap(AreaEntityList entities, int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.threateners = new LinkedHashMap<Creature, Threatener>();
+		this.factionCounts = new HashMap<Faction, int[]>();
+		this.relationshipsVersion = Faction.getRelationshipsVersion();
+		
+		for (Creature creature : entities.getCreaturesSet()) {
+			updateCreature(creature);
+		}
+	}
+	
+	/**
+	 * Sets the specified array to the number of creatures that threaten each grid point
+	 * and are able to take a movement attack of opportunity against the specified mover.
+	 * The array is indexed by x * height + y and must be at least width * height long
+	 * @param mover the creature that is moving
+	 * @param counts the array to fill with threat counts
+	 */
+	
+	public synchronized void getThreatCounts(Creature mover, int[] counts) {
+		int[] factionCounts = getFactionCounts(mover.getFaction());
+		
+		if (factionCounts == null) {
+			Arrays.fill(counts, 0, width * height, 0);
+			return;
+		}
+		
+		System.arraycopy(factionCounts, 0, counts, 0, factionCounts.length);
+		
+		// remove creatures that threaten the mover's faction but not the mover specifically
+		for (Threatener threatener : threateners.values()) {
+			if (!threatener.isHostileTo(mover.getFaction())) continue;
+			
+			if (threatener.creature != mover && threatener.creature.canTakeMoveAoOIgnoringLocation(mover))
+				continue;
+			
+			threatener.removeFrom(counts);
+		}
+	}
+	
+	/**
+	 * Returns a number that changes each time the threat counts of any faction change.
+	 * If this returns the same value for two movers of the same faction, the counts
+	 * returned by {@link #getThreatCounts(Creature, int[])} for them differ only in
+	 * which threatening creatures are able to take attacks of opportunity against
+	 * each mover
+	 * @return the current version of the threat counts
+	 */
+	
+	public synchronized int getVersion() {
+		checkRelationships();
+		
+		return version;
+	}
+	
+	/**
+	 * Returns the number of creatures hostile to the specified target that currently
+	 * threaten the specified grid point with attacks of opportunity
+	 * @param target the creature being threatened
+	 * @param x the x grid coordinate
+	 * @param y the y grid coordinate
+	 * @return the number of creatures threatening the point
+	 */
+	
+	public synchronized int getThreatCount(Creature target, int x, int y) {
+		int[] counts = getFactionCounts(target.getFaction());
+		
+		if (counts == null || x < 0 || x >= width || y < 0 || y >= height) return 0;
+		
+		return counts[x * height + y];
+	}
+	
+	/**
+	 * Recomputes the points threatened by the specified creature, which is in the owning
+	 * entity list, and updates the counts of each faction it is hostile to
+	 * @param creature the creature that has changed
+	 */
+	
+	synchronized void updateCreature(Creature creature) {
+		Threatener threatener = threateners.get(creature);
+		
+		if (threatener != null) {
+			for (Map.Entry<Faction, int[]> entry : factionCounts.entrySet()) {
+				if (threatener.isHostileTo(entry.getKey())) threatener.removeFrom(entry.getValue());
+			}
+		}
+		
+		if (!creature.threatensAoOs()) {
+			if (threatener != null) {
+				threateners.remove(creature);
+				version++;
+			}
+			
+			return;
+		}
+		
+		if (threatener == null) {
+			threatener = new Threatener(creature);
+			threateners.put(creature, threatener);
+		}
+		
+		threatener.compute();
+		
+		for (Map.Entry<Faction, int[]> entry : factionCounts.entrySet()) {
+			if (threatener.isHostileTo(entry.getKey())) threatener.addTo(entry.getValue());
+		}
+		
+		version++;
+	}
+	
+	/**
+	 * Removes the points threatened by the specified creature, which has been removed
+	 * from the owning entity list
+	 * @param creature the creature that has been removed
+	 */
+	
+	synchronized void removeCreature(Creature creature) {
+		Threatener threatener = threateners.remove(creature);
+		if (threatener == null) return;
+		
+		for (Map.Entry<Faction, int[]> entry : factionCounts.entrySet()) {
+			if (threatener.isHostileTo(entry.getKey())) threatener.removeFrom(entry.getValue());
+		}
+		
+		version++;
+	}
+	
+	/*
+	 * Returns the counts for the specified faction, building them from the stored threatened
+	 * points if they have not been requested before or relationships have changed since
+	 */
+	
+	private int[] getFactionCounts(Faction faction) {
+		if (faction == null) return null;
+		
+		checkRelationships();
+		
+		int[] counts = factionCounts.get(faction);
+		if (counts == null) {
+			counts = new int[width * height];
+			
+			for (Threatener threatener : threateners.values()) {
+				if (threatener.isHostileTo(faction)) threatener.addTo(counts);
+			}
+			
+			factionCounts.put(faction, counts);
+		}
+		
+		return counts;
+	}
+	
+	private void checkRelationships() {
+		int currentVersion = Faction.getRelationshipsVersion();
+		if (currentVersion == relationshipsVersion) return;
+		
+		relationshipsVersion = currentVersion;
+		factionCounts.clear();
+		
+		for (Threatener threatener : threateners.values()) {
+			threatener.faction = threatener.creature.getFaction();
+		}
+		
+		version++;
+	}
+	
+	/*
+	 * The points threatened by a single creature, and the faction it was counted as
+	 */
+	
+	private class Threatener {
+		private final Creature creature;
+		private Faction faction;
+		
+		private int[] cells;
+		private int numCells;
+		
+		private Threatener(Creature creature) {
+			this.creature = creature;
+			this.cells = new int[6];
+		}
+		
+		private boolean isHostileTo(Faction other) {
+			return faction != null && faction.getRelationship(other) == Faction.Relationship.Hostile;
+		}
+		
+		private void addTo(int[] counts) {
+			for (int i = 0; i < numCells; i++) {
+				counts[cells[i]]++;
+			}
+		}
+		
+		private void removeFrom(int[] counts) {
+			for (int i = 0; i < numCells; i++) {
+				counts[cells[i]]--;
+			}
+		}
+		
+		private void compute() {
+			WeaponTemplate weapon = creature.getMainHandWeapon().getTemplate();
+			
+			int x = creature.getLocation().getX();
+			int y = creature.getLocation().getY();
+			int minRange = weapon.getMinRange();
+			int maxRange = weapon.getMaxRange();
+			
+			faction = creature.getFaction();
+			numCells = 0;
+			
+			int minX = Math.max(0, x - maxRange);
+			int maxX = Math.min(width - 1, x + maxRange);
+			int minY = Math.max(0, y - maxRange);
+			int maxY = Math.min(height - 1, y + maxRange);
+			
+			for (int i = minX; i <= maxX; i++) {
+				for (int j = minY; j <= maxY; j++) {
+					int distance = AreaUtil.distance(x, y, i, j);
+					if (distance > maxRange || distance < minRange) continue;
+					
+					if (!creature.hasVisibilityInCurrentArea(i, j)) continue;
+					
+					if (numCells == cells.length) cells = Arrays.copyOf(cells, cells.length * 2);
+					
+					cells[numCells] = i * height + j;
+					numCells++;
+				}
+			}
+		}
+	}
+}
@@ -28,6 +28,7 @@ import net.sf.hale.Game;
 import net.sf.hale.entity.Creature;
 import net.sf.hale.rules.Damage;
 import net.sf.hale.rules.DamageType;
+import net.sf.hale.rules.RuleString;
 
 public class BonusManager  {
 	private final ProficiencyList weaponProficiencies;
@@ -204,7 +205,7 @@ public class BonusManager  {
 		int dr = get(damageType.getName(), Bonus.Type.DamageReduction);
 		
 		if (damageType.isPhysical()) {
-			return dr + get(Game.ruleset.getString("PhysicalDamageType"), Bonus.Type.DamageReduction);
+			return dr + get(Game.ruleset.getString(RuleString.PhysicalDamageType), Bonus.Type.DamageReduction);
 		} else {
 			return dr;
 		}
@@ -214,7 +215,7 @@ public class BonusManager  {
 		int di = get(damageType.getName(), Bonus.Type.DamageImmunity);
 		
 		if (damageType.isPhysical()) {
-			return di + get(Game.ruleset.getString("PhysicalDamageType"), Bonus.Type.DamageImmunity);
+			return di + get(Game.ruleset.getString(RuleString.PhysicalDamageType), Bonus.Type.DamageImmunity);
 		} else {
 			return di;
 		}
@@ -233,7 +234,7 @@ public class BonusManager  {
 		}
 		
 		if (damageType.isPhysical()) {
-			BonusSuperTypeList physicalList = this.bonusesWithSuperType.get(Game.ruleset.getString("PhysicalDamageType"));
+			BonusSuperTypeList physicalList = this.bonusesWithSuperType.get(Game.ruleset.getString(RuleString.PhysicalDamageType));
 			if (physicalList != null) {
 				reduction += physicalList.getCurrentTotal(Bonus.Type.DamageReduction);
 				immunity += physicalList.getCurrentTotal(Bonus.Type.DamageImmunity);
@@ -0,0 +1,243 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package net.sf.hale.bonus;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import net.sf.hale.entity.EquippableItemTemplate;
+
+/**
+ * The static dependency graph between bonus types and the derived stats
+ * computed by the {@link StatManager}.  Each derived stat belongs to exactly
+ * one Group, which is the unit of recomputation.  When a bonus of a given type
+ * is added or removed, only the groups containing stats that depend on that
+ * type, directly or through other stats, need to be recomputed.
+ * @author Jared Stephen
+ *
+ */
+
+class StatDependencyGraph {
+	/**
+	 * The groups of derived stats that are recomputed together.  Groups are declared
+	 * in dependency order, so recomputing dirty groups in declaration order always
+	 * reads up to date values from the groups they depend on
+	 */
+	
+	enum Group {
+		Attributes(Stat.Str, Stat.Dex, Stat.Con, Stat.Int, Stat.Wis, Stat.Cha),
+		LevelAndMaxHP(Stat.CreatureLevel, Stat.CasterLevel, Stat.LevelAttackBonus, Stat.LevelDamageBonus, Stat.MaxHP),
+		WeightLimit(Stat.WeightLimit),
+		Resistances(Stat.MentalResistance, Stat.PhysicalResistance, Stat.ReflexResistance),
+		ArmorClass(Stat.ArmorClass, Stat.TouchArmorClass, Stat.ArmorPenalty, Stat.MovementBonus,
+				Stat.MovementCost, Stat.InitiativeBonus),
+		AttackBonus(Stat.MainHandAttackBonus, Stat.MainHandDamageBonus, Stat.OffHandAttackBonus,
+				Stat.OffHandDamageBonus, Stat.AttackCost, Stat.TouchAttackBonus, Stat.ShieldAttackPenalty);
+		
+		private final Stat[] stats;
+		
+		private Group(Stat... stats) {
+			this.stats = stats;
+		}
+	}
+	
+	private static final Map<Stat, Group> groupOfStat = new EnumMap<Stat, Group>(Stat.class);
+	
+	// the stats that read each bonus type directly
+	private static final Map<Bonus.Type, Set<Stat>> bonusDependents = new EnumMap<Bonus.Type, Set<Stat>>(Bonus.Type.class);
+	
+	// the stats that read each stat directly
+	private static final Map<Stat, Set<Stat>> statDependents = new EnumMap<Stat, Set<Stat>>(Stat.class);
+	
+	// the groups that must be recomputed, directly or transitively, when a bonus type changes
+	private static final Map<Bonus.Type, Set<Group>> affectedGroups = new EnumMap<Bonus.Type, Set<Group>>(Bonus.Type.class);
+	
+	// the groups that must be recomputed when a group changes, including the group itself
+	private static final Map<Group, Set<Group>> dependentGroups = new EnumMap<Group, Set<Group>>(Group.class);
+	
+	// the groups reading the equipped items of each type, and the groups depending on them
+	private static final Map<EquippableItemTemplate.Type, Set<Group>> equipmentGroups =
+		new EnumMap<EquippableItemTemplate.Type, Set<Group>>(EquippableItemTemplate.Type.class);
+	
+	static {
+		for (Group group : Group.values()) {
+			for (Stat stat : group.stats) {
+				groupOfStat.put(stat, group);
+			}
+		}
+		
+		addBonusDependents(Stat.Str, Bonus.Type.BaseStr, Bonus.Type.Str);
+		addBonusDependents(Stat.Dex, Bonus.Type.BaseDex, Bonus.Type.Dex);
+		addBonusDependents(Stat.Con, Bonus.Type.BaseCon, Bonus.Type.Con);
+		addBonusDependents(Stat.Int, Bonus.Type.BaseInt, Bonus.Type.Int);
+		addBonusDependents(Stat.Wis, Bonus.Type.BaseWis, Bonus.Type.Wis);
+		addBonusDependents(Stat.Cha, Bonus.Type.BaseCha, Bonus.Type.Cha);
+		
+		for (Stat stat : Group.ArmorClass.stats) {
+			addBonusDependents(stat, Bonus.Type.Immobilized, Bonus.Type.UndispellableImmobilized,
+					Bonus.Type.ImmobilizationImmunity, Bonus.Type.Initiative, Bonus.Type.ArmorClass,
+					Bonus.Type.ArmorPenalty, Bonus.Type.ArmorTypeArmorPenalty, Bonus.Type.ArmorTypeMovementPenalty,
+					Bonus.Type.ArmorTypeArmorClass, Bonus.Type.DualWieldArmorClass, Bonus.Type.Movement);
+		}
+		
+		for (Stat stat : Group.AttackBonus.stats) {
+			addBonusDependents(stat, Bonus.Type.Attack, Bonus.Type.Damage, Bonus.Type.AttackCost,
+					Bonus.Type.ShieldAttack, Bonus.Type.CriticalChance, Bonus.Type.CriticalMultiplier,
+					Bonus.Type.MainHandAttack, Bonus.Type.OffHandAttack, Bonus.Type.MainHandDamage,
+					Bonus.Type.OffHandDamage, Bonus.Type.BaseWeaponAttack, Bonus.Type.BaseWeaponDamage,
+					Bonus.Type.BaseWeaponSpeed, Bonus.Type.BaseWeaponCriticalChance,
+					Bonus.Type.BaseWeaponCriticalMultiplier, Bonus.Type.LightMeleeWeaponDamage,
+					Bonus.Type.OneHandedMeleeWeaponDamage, Bonus.Type.TwoHandedMeleeWeaponDamage,
+					Bonus.Type.RangedDamage, Bonus.Type.RangedAttack, Bonus.Type.DualWieldAttack,
+					Bonus.Type.DualWieldStrDamage, Bonus.Type.LightMeleeWeaponAttack,
+					Bonus.Type.OneHandedMeleeWeaponAttack, Bonus.Type.TwoHandedMeleeWeaponAttack);
+		}
+		
+		addStatDependents(Stat.Str, Stat.WeightLimit, Stat.MainHandAttackBonus, Stat.MainHandDamageBonus,
+				Stat.OffHandAttackBonus, Stat.OffHandDamageBonus);
+		addStatDependents(Stat.Dex, Stat.ReflexResistance, Stat.ArmorClass, Stat.TouchArmorClass,
+				Stat.InitiativeBonus, Stat.MainHandAttackBonus, Stat.OffHandAttackBonus, Stat.TouchAttackBonus);
+		addStatDependents(Stat.Con, Stat.MaxHP, Stat.PhysicalResistance);
+		addStatDependents(Stat.Wis, Stat.MentalResistance);
+		addStatDependents(Stat.CreatureLevel, Stat.MaxHP, Stat.MentalResistance, Stat.PhysicalResistance,
+				Stat.ReflexResistance);
+		
+		for (Bonus.Type type : Bonus.Type.values()) {
+			Set<Group> groups = EnumSet.noneOf(Group.class);
+			
+			Set<Stat> direct = bonusDependents.get(type);
+			if (direct != null) {
+				for (Stat stat : direct) {
+					addAffectedGroups(stat, groups);
+				}
+			}
+			
+			affectedGroups.put(type, groups);
+		}
+		
+		for (Group group : Group.values()) {
+			Set<Group> groups = EnumSet.noneOf(Group.class);
+			
+			for (Stat stat : group.stats) {
+				addAffectedGroups(stat, groups);
+			}
+			
+			dependentGroups.put(group, groups);
+		}
+		
+		for (EquippableItemTemplate.Type type : EquippableItemTemplate.Type.values()) {
+			equipmentGroups.put(type, EnumSet.noneOf(Group.class));
+		}
+		
+		// armor class reads the armor slots and the off hand, for either a shield or a dual wielded weapon
+		addEquipmentGroup(Group.ArmorClass, EquippableItemTemplate.Type.Armor, EquippableItemTemplate.Type.Helmet,
+				EquippableItemTemplate.Type.Gloves, EquippableItemTemplate.Type.Boots,
+				EquippableItemTemplate.Type.Shield, EquippableItemTemplate.Type.Weapon);
+		
+		// attack bonus reads the weapons and the shield attack penalty
+		addEquipmentGroup(Group.AttackBonus, EquippableItemTemplate.Type.Weapon, EquippableItemTemplate.Type.Shield);
+	}
+	
+	private static void addEquipmentGroup(Group group, EquippableItemTemplate.Type... types) {
+		for (EquippableItemTemplate.Type type : types) {
+			equipmentGroups.get(type).addAll(dependentGroups.get(group));
+		}
+	}
+	
+	private static void addBonusDependents(Stat stat, Bonus.Type... types) {
+		for (Bonus.Type type : types) {
+			if (!bonusDependents.containsKey(type))
+				bonusDependents.put(type, EnumSet.noneOf(Stat.class));
+			
+			bonusDependents.get(type).add(stat);
+		}
+	}
+	
+	private static void addStatDependents(Stat stat, Stat... dependents) {
+		if (!statDependents.containsKey(stat))
+			statDependents.put(stat, EnumSet.noneOf(Stat.class));
+		
+		for (Stat dependent : dependents) {
+			statDependents.get(stat).add(dependent);
+		}
+	}
+	
+	/*
+	 * Adds the group of the specified stat and the groups of all stats depending on it
+	 */
+	
+	private static void addAffectedGroups(Stat stat, Set<Group> groups) {
+		groups.add(groupOfStat.get(stat));
+		
+		Set<Stat> dependents = statDependents.get(stat);
+		if (dependents == null) return;
+		
+		for (Stat dependent : dependents) {
+			addAffectedGroups(dependent, groups);
+		}
+	}
+	
+	/**
+	 * Returns the set of groups that must be recomputed when a bonus of the specified
+	 * type is added or removed.  The returned set must not be modified
+	 * @param type the bonus type
+	 * @return the set of affected groups, which may be empty
+	 */
+	
+	static Set<Group> getAffectedGroups(Bonus.Type type) {
+		return affectedGroups.get(type);
+	}
+	
+	/**
+	 * Returns the set of groups that must be recomputed when the specified group
+	 * is recomputed, including the group itself.  The returned set must not be modified
+	 * @param group the group that is recomputed
+	 * @return the set of groups depending on the specified group
+	 */
+	
+	static Set<Group> getDependentGroups(Group group) {
+		return dependentGroups.get(group);
+	}
+	
+	/**
+	 * Returns the set of groups that must be recomputed when an item of the specified
+	 * type is equipped or unequipped, regardless of the item's bonuses.  The returned
+	 * set must not be modified
+	 * @param type the type of the item
+	 * @return the set of groups reading equipped items of the type, which may be empty
+	 */
+	
+	static Set<Group> getEquipmentGroups(EquippableItemTemplate.Type type) {
+		return equipmentGroups.get(type);
+	}
+	
+	/**
+	 * Returns the group that the specified stat is computed by, or null if
+	 * the stat is not derived from other stats or bonuses
+	 * @param stat the stat
+	 * @return the group computing the stat
+	 */
+	
+	static Group getGroup(Stat stat) {
+		return groupOfStat.get(stat);
+	}
+}
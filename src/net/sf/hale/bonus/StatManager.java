@@ -20,12 +20,15 @@
 package net.sf.hale.bonus;
 
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import net.sf.hale.Game;
 import net.sf.hale.ability.Effect;
+import net.sf.hale.area.Area;
 import net.sf.hale.entity.Armor;
 import net.sf.hale.entity.Creature;
 import net.sf.hale.entity.EquippableItem;
@@ -35,6 +38,8 @@ import net.sf.hale.entity.Weapon;
 import net.sf.hale.rules.Damage;
 import net.sf.hale.rules.DamageType;
 import net.sf.hale.rules.Role;
+import net.sf.hale.rules.RuleString;
+import net.sf.hale.rules.RuleValue;
 
 public class StatManager {
 	private enum RecomputeMode {
@@ -47,10 +52,15 @@ public class StatManager {
 	
 	private final BonusManager bonuses;
 	
+	// the groups of stats that are out of date and will be recomputed when next read
+	private final Set<StatDependencyGraph.Group> dirtyGroups;
+	private boolean cleaning;
+	
 	public StatManager(Creature parent) {
 		this.parent = parent;
 		this.bonuses = new BonusManager();
 		this.stats = new HashMap<Stat, Integer>();
+		this.dirtyGroups = EnumSet.noneOf(StatDependencyGraph.Group.class);
 	}
 	
 	public StatManager(StatManager other, Creature parent) {
@@ -58,7 +68,11 @@ public class StatManager {
 		
 		this.bonuses = new BonusManager(other.bonuses);
 		
-		this.stats = new HashMap<Stat, Integer>(other.stats);
+		synchronized(other) {
+			this.stats = new HashMap<Stat, Integer>(other.stats);
+			
+			this.dirtyGroups = EnumSet.copyOf(other.dirtyGroups);
+		}
 	}
 	
 	public void removeEffect(String bonusType) {
@@ -139,44 +153,33 @@ public class StatManager {
 		}
 	}
 	
+	/**
+	 * Marks the stats computed from equipped items of the specified type as dirty.  This
+	 * is called whenever an item is equipped or unequipped, including items without any
+	 * bonuses.  The item's bonuses are handled separately when they are added or removed
+	 * @param itemType the type of the item that was equipped or unequipped
+	 */
+	
+	public void changeEquipment(EquippableItemTemplate.Type itemType) {
+		markDirty(StatDependencyGraph.getEquipmentGroups(itemType));
+	}
+	
+	/*
+	 * Marks the stats depending on the specified bonuses as dirty.  They are recomputed
+	 * lazily the next time one of them is read
+	 */
+	
 	private void checkRecompute(BonusList bonuses, RecomputeMode mode, int oldConBonus) {
-		boolean recomputeArmorClass = false;
-		boolean recomputeAttackBonus = false;
-		boolean recompute = false;
+		boolean helplessnessChanged = false;
 		
 		for (Bonus bonus : bonuses) {
+			markDirty(StatDependencyGraph.getAffectedGroups(bonus.getType()));
+			
 			switch (bonus.getType()) {
-			case Immobilized: case Initiative: case ArmorClass: case ArmorPenalty:
-			case ArmorTypeArmorPenalty: case ArmorTypeMovementPenalty: case ArmorTypeArmorClass:
-			case DualWieldArmorClass: case Movement: case ImmobilizationImmunity: case UndispellableImmobilized:
-				recomputeArmorClass = true;
-				break;
-			case Attack: case Damage: case AttackCost: case ShieldAttack: case CriticalChance: case CriticalMultiplier:
-			case MainHandAttack: case OffHandAttack: case MainHandDamage: case OffHandDamage:
-			case BaseWeaponAttack: case BaseWeaponDamage: case BaseWeaponSpeed:
-			case BaseWeaponCriticalChance: case BaseWeaponCriticalMultiplier:
-			case LightMeleeWeaponDamage: case OneHandedMeleeWeaponDamage: case TwoHandedMeleeWeaponDamage:
-			case RangedDamage: case RangedAttack: case DualWieldAttack: case DualWieldStrDamage:
-			case LightMeleeWeaponAttack: case OneHandedMeleeWeaponAttack: case TwoHandedMeleeWeaponAttack:
-				recomputeAttackBonus = true;
-				break;
-			case BaseStr: case Str:
-				recompute = true;
-				break;
-			case BaseDex: case Dex:
-				recompute = true;
-				break;
-			case BaseCon: case Con:
-				recompute = true;
-				break;
-			case BaseInt: case Int:
-				recompute = true;
-				break;
-			case BaseWis: case Wis:
-				recompute = true;
-				break;
-			case BaseCha: case Cha:
-				recompute = true;
+			case Helpless:
+			case UndispellableHelpless:
+			case ImmobilizationImmunity:
+				helplessnessChanged = true;
 				break;
 			case TemporaryHP:
 				switch (mode) {
@@ -192,24 +195,7 @@ public class StatManager {
 			}
 		}
 		
-		if (recompute) {
-			recompute();
-			recompute();
-			recomputeArmorClass = false;
-			recomputeAttackBonus = false;
-		} else if (recompute) {
-			recompute();
-			recomputeAttackBonus = false;
-		} else if (recompute) {
-			recompute();
-			recomputeArmorClass = false;
-			recomputeAttackBonus = false;
-		}
-		
-		recompute();
-		
-		if (recomputeArmorClass) recomputeArmorClass();
-		if (recomputeAttackBonus) recomputeAttackBonus();
+		if (helplessnessChanged) notifyArea();
 		
 		int currentConBonus = this.get(Bonus.Type.Con);
 		
@@ -225,6 +211,20 @@ public class StatManager {
 		}
 	}
 	
+	/*
+	 * Notifies the area containing the parent that the parent may have started or
+	 * stopped blocking the movement of other creatures or threatening attacks of opportunity
+	 */
+	
+	private void notifyArea() {
+		Area area = parent.getLocation().getArea();
+		
+		if (area != null) {
+			area.getEntities().updateCreaturePassability(parent);
+			area.getEntities().updateCreatureThreats(parent);
+		}
+	}
+	
 	public void removeAll(BonusList bonuses) {
 		int oldConBonus = this.get(Bonus.Type.Con);
 		
@@ -282,14 +282,75 @@ public class StatManager {
 		return bonuses.get(type);
 	}
 	
-	public int get(Stat stat) {
-		if (stats.containsKey(stat)) return stats.get(stat);
+	public synchronized int get(Stat stat) {
+		checkClean(stat);
+		
+		Integer value = stats.get(stat);
+		
+		if (value != null) return value;
 		else return 0;
 	}
 	
+	/*
+	 * Recomputes the dirty stats if the specified stat is one of them.  The dirty groups
+	 * are only read and written while holding this StatManager's lock
+	 */
+	
+	private synchronized void checkClean(Stat stat) {
+		StatDependencyGraph.Group group = StatDependencyGraph.getGroup(stat);
+		
+		if (group != null && dirtyGroups.contains(group)) clean();
+	}
+	
+	private synchronized void markDirty(Set<StatDependencyGraph.Group> groups) {
+		dirtyGroups.addAll(groups);
+	}
+	
+	/*
+	 * Marks the specified group and all groups depending on it as dirty and then
+	 * immediately recomputes them
+	 */
+	
+	private void recompute(StatDependencyGraph.Group group) {
+		markDirty(StatDependencyGraph.getDependentGroups(group));
+		
+		clean();
+	}
+	
+	/*
+	 * Recomputes all dirty groups of stats.  Groups are recomputed in dependency order,
+	 * so each group only reads stats that are already up to date.  Stats read by the
+	 * group being recomputed are not cleaned again
+	 */
+	
+	private synchronized void clean() {
+		if (cleaning) return;
+		
+		cleaning = true;
+		
+		try {
+			for (StatDependencyGraph.Group group : StatDependencyGraph.Group.values()) {
+				if (!dirtyGroups.contains(group)) continue;
+				
+				switch (group) {
+				case Attributes: computeAttributes(); break;
+				case LevelAndMaxHP: computeLevelAndMaxHP(); break;
+				case WeightLimit: computeWeightLimit(); break;
+				case Resistances: computeResistances(); break;
+				case ArmorClass: computeArmorClass(); break;
+				case AttackBonus: computeAttackBonus(); break;
+				}
+				
+				dirtyGroups.remove(group);
+			}
+		} finally {
+			cleaning = false;
+		}
+	}
+	
 	public boolean hasProficiency(String baseWeapon, String armorType) {
-		if ( baseWeapon.equals(Game.ruleset.getString("DefaultBaseWeapon")) && 
-			 armorType.equals(Game.ruleset.getString("DefaultArmorType")) ) return true;
+		if ( baseWeapon.equals(Game.ruleset.getString(RuleString.DefaultBaseWeapon)) && 
+			 armorType.equals(Game.ruleset.getString(RuleString.DefaultArmorType)) ) return true;
 		
 		return bonuses.hasProficiency(baseWeapon, armorType);
 		
@@ -320,24 +381,25 @@ public class StatManager {
 	}
 	
 	public void recompute() {
+		markDirty(EnumSet.allOf(StatDependencyGraph.Group.class));
+		
+		clean();
+	}
+	
+	private void computeAttributes() {
 		stats.put(Stat.Str, getBaseStr() + get(Bonus.Type.Str));
 		stats.put(Stat.Dex, getBaseDex() + get(Bonus.Type.Dex));
 		stats.put(Stat.Con, getBaseCon() + get(Bonus.Type.Con));
 		stats.put(Stat.Int, getBaseInt() + get(Bonus.Type.Int));
 		stats.put(Stat.Wis, getBaseWis() + get(Bonus.Type.Wis));
 		stats.put(Stat.Cha, getBaseCha() + get(Bonus.Type.Cha));
-		
-		recomputeWeightLimit();
-		recomputeAttackBonus();
-		recomputeResistances();
-		recomputeArmorClass();
-		recomputeLevelAndMaxHP();
-		
 	}
 	
-	
-	
 	public void recomputeLevelAndMaxHP() {
+		recompute(StatDependencyGraph.Group.LevelAndMaxHP);
+	}
+	
+	private void computeLevelAndMaxHP() {
 		zeroStats(Stat.LevelAttackBonus, Stat.LevelDamageBonus, Stat.MaxHP);
 		
 		stats.put(Stat.CasterLevel, parent.roles.getCasterLevel());
@@ -358,11 +420,13 @@ public class StatManager {
 		}
 		
 		addToStat(Stat.MaxHP, ((getCon() - 10) * get(Stat.CreatureLevel)) / 3);
-		
-		recomputeResistances();
 	}
 	
 	public void recomputeResistances() {
+		recompute(StatDependencyGraph.Group.Resistances);
+	}
+	
+	private void computeResistances() {
 		stats.put(Stat.MentalResistance, (getWis() - 10) * 2 + getCreatureLevel() * 3);
 		stats.put(Stat.PhysicalResistance, (getCon() - 10) * 2 + getCreatureLevel() * 3);
 		stats.put(Stat.ReflexResistance, (getDex() - 10) * 2 + getCreatureLevel() * 3);
@@ -371,11 +435,19 @@ public class StatManager {
 	
 	
 	public void recomputeWeightLimit() {
-		stats.put(Stat.WeightLimit, Game.ruleset.getValue("WeightLimitBase") +
-				(getStr() - 10) * Game.ruleset.getValue("WeightLimitStrengthFactor"));
+		recompute(StatDependencyGraph.Group.WeightLimit);
+	}
+	
+	private void computeWeightLimit() {
+		stats.put(Stat.WeightLimit, Game.ruleset.getValue(RuleValue.WeightLimitBase) +
+				(getStr() - 10) * Game.ruleset.getValue(RuleValue.WeightLimitStrengthFactor));
 	}
 	
 	public void recomputeArmorClass() {
+		recompute(StatDependencyGraph.Group.ArmorClass);
+	}
+	
+	private void computeArmorClass() {
 		float itemsArmorClass = 0.0f;
 		float itemsArmorPenalty = 0.0f;
 		float itemsMovementPenalty = 0.0f;
@@ -463,6 +535,10 @@ public class StatManager {
 	}
 	
 	public void recomputeAttackBonus() {
+		recompute(StatDependencyGraph.Group.AttackBonus);
+	}
+	
+	private void computeAttackBonus() {
 		Weapon mainWeapon = parent.getMainHandWeapon();
 		
 		EquippableItem offItem = parent.inventory.getEquippedItem(Inventory.Slot.OffHand);
@@ -574,6 +650,8 @@ public class StatManager {
 			addAll(item.getBonusList());
 		}
 		
+		notifyArea();
+		
 		recompute();
 	}
 	
@@ -593,6 +671,8 @@ public class StatManager {
 			stats.put(Stat.BaseInt, attributes[3]);
 			stats.put(Stat.BaseWis, attributes[4]);
 			stats.put(Stat.BaseCha, attributes[5]);
+			
+			markDirty(StatDependencyGraph.getDependentGroups(StatDependencyGraph.Group.Attributes));
 		}
 	}
 	
@@ -664,8 +744,8 @@ public class StatManager {
 	
 	public int getAttacksOfOpportunity() { return 1 + get(Bonus.Type.AttacksOfOpportunity); }
 	
-	public int getAttackCost() { return stats.get(Stat.AttackCost); }
-	public int getMovementCost() { return stats.get(Stat.MovementCost); }
+	public int getAttackCost() { return get(Stat.AttackCost); }
+	public int getMovementCost() { return get(Stat.MovementCost); }
 	
 	public boolean getMentalResistanceCheck(int difficulty) {
 		return getCheck(difficulty, getMentalResistance(), new StringBuilder("Mental Resistance Check: "));
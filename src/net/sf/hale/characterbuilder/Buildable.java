@@ -37,6 +37,7 @@ import net.sf.hale.icon.ComposedCreatureIcon;
 import net.sf.hale.icon.SubIcon;
 import net.sf.hale.rules.Race;
 import net.sf.hale.rules.Role;
+import net.sf.hale.rules.RuleString;
 import net.sf.hale.rules.Ruleset;
 import net.sf.hale.rules.Skill;
 import net.sf.hale.rules.SkillSet;
@@ -576,7 +577,7 @@ public class Buildable {
 		if (newCharacter) {
 			// add the default set of clothing
 			if (selectedGender != null) {
-				Item clothes = EntityManager.getItem(Game.ruleset.getString("DefaultClothes"));
+				Item clothes = EntityManager.getItem(Game.ruleset.getString(RuleString.DefaultClothes));
 				workingCopy.inventory.addAndEquip((EquippableItem)clothes);
 			}
 			
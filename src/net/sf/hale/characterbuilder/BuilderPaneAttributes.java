@@ -27,6 +27,8 @@ import net.sf.hale.icon.IconFactory;
 import net.sf.hale.resource.ResourceManager;
 import net.sf.hale.resource.ResourceType;
 import net.sf.hale.rules.Race;
+import net.sf.hale.rules.RuleString;
+import net.sf.hale.rules.RuleValue;
 
 /**
  * The BuilderPane for specifying a character's primary attributes.
@@ -52,21 +54,21 @@ public class BuilderPaneAttributes extends BuilderPane implements PointAllocator
 	public BuilderPaneAttributes(CharacterBuilder builder, Buildable character) {
 		super(builder, "Attributes", character);
 		
-		points = new PointAllocatorModel(Game.ruleset.getValue("StartingAttributePoints"));
+		points = new PointAllocatorModel(Game.ruleset.getValue(RuleValue.StartingAttributePoints));
         points.addListener(this);
 		
-		expBase = Game.ruleset.getValue("AttributePointCostExpBaseNumerator") /
-		(double)Game.ruleset.getValue("AttributePointCostExpBaseDenominator");
+		expBase = Game.ruleset.getValue(RuleValue.AttributePointCostExpBaseNumerator) /
+		(double)Game.ruleset.getValue(RuleValue.AttributePointCostExpBaseDenominator);
         
         setTitleText("Select Attributes");
         
         selectors = new AttributeSelector[6];
-        selectors[0] = new AttributeSelector(Stat.Str, Game.ruleset.getString("StrengthIcon"));
-        selectors[1] = new AttributeSelector(Stat.Dex, Game.ruleset.getString("DexterityIcon"));
-        selectors[2] = new AttributeSelector(Stat.Con, Game.ruleset.getString("ConstitutionIcon"));
-        selectors[3] = new AttributeSelector(Stat.Int, Game.ruleset.getString("IntelligenceIcon"));
-        selectors[4] = new AttributeSelector(Stat.Wis, Game.ruleset.getString("WisdomIcon"));
-        selectors[5] = new AttributeSelector(Stat.Cha, Game.ruleset.getString("CharismaIcon"));
+        selectors[0] = new AttributeSelector(Stat.Str, Game.ruleset.getString(RuleString.StrengthIcon));
+        selectors[1] = new AttributeSelector(Stat.Dex, Game.ruleset.getString(RuleString.DexterityIcon));
+        selectors[2] = new AttributeSelector(Stat.Con, Game.ruleset.getString(RuleString.ConstitutionIcon));
+        selectors[3] = new AttributeSelector(Stat.Int, Game.ruleset.getString(RuleString.IntelligenceIcon));
+        selectors[4] = new AttributeSelector(Stat.Wis, Game.ruleset.getString(RuleString.WisdomIcon));
+        selectors[5] = new AttributeSelector(Stat.Cha, Game.ruleset.getString(RuleString.CharismaIcon));
         
         for (AttributeSelector selector : selectors) {
         	addSelector(selector);
@@ -143,7 +145,7 @@ public class BuilderPaneAttributes extends BuilderPane implements PointAllocator
 	
 	// called when this builder pane is shown
 	@Override public void updateCharacter() {
-		points.setPointsRemaining(Game.ruleset.getValue("StartingAttributePoints"));
+		points.setPointsRemaining(Game.ruleset.getValue(RuleValue.StartingAttributePoints));
 		
 		Race race = getCharacter().getSelectedRace();
 		
@@ -28,6 +28,7 @@ import de.matthiasmann.twl.ScrollPane;
 
 import net.sf.hale.Game;
 import net.sf.hale.entity.PC;
+import net.sf.hale.rules.RuleValue;
 import net.sf.hale.rules.Skill;
 import net.sf.hale.rules.SkillSet;
 import net.sf.hale.util.Logger;
@@ -149,7 +150,7 @@ public class BuilderPaneSkills extends BuilderPane implements PointAllocatorMode
 		SkillSet baseSkills = getCharacter().getSkillSet();
 		SkillSet alreadySelected = getCharacter().getSelectedSkills();
 		
-		int skillLevelMax = Game.ruleset.getValue("SkillsMaxPerLevel") * getCharacter().getCreatureLevel();
+		int skillLevelMax = Game.ruleset.getValue(RuleValue.SkillsMaxPerLevel) * getCharacter().getCreatureLevel();
 		
 		int intelligence = getCharacter().getCurrentIntelligence();
 		
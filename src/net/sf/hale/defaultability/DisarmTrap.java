@@ -26,6 +26,7 @@ import net.sf.hale.entity.Creature;
 import net.sf.hale.entity.Location;
 import net.sf.hale.entity.PC;
 import net.sf.hale.entity.Trap;
+import net.sf.hale.rules.RuleValue;
 
 /**
  * A default ability for disarming a trap in the area.  If the parent is not currently
@@ -44,7 +45,7 @@ public class DisarmTrap implements DefaultAbility {
 	}
 
 	@Override public boolean canActivate(PC parent, Location targetPosition) {
-		if (!parent.timer.canPerformAction("DisarmTrapCost")) return false;
+		if (!parent.timer.canPerformAction(RuleValue.DisarmTrapCost)) return false;
 		
 		if (!parent.stats.has(Bonus.Type.TrapHandling)) return false;
 		
@@ -90,11 +91,11 @@ public class DisarmTrap implements DefaultAbility {
 		
 		if (trap.getLocation().getDistance(parent) > 1) return false;
 		
-		if (!parent.timer.canPerformAction("DisarmTrapCost")) return false;
+		if (!parent.timer.canPerformAction(RuleValue.DisarmTrapCost)) return false;
 		
 		if (!parent.stats.has(Bonus.Type.TrapHandling)) return false;
 		
-		parent.timer.performAction("DisarmTrapCost");
+		parent.timer.performAction(RuleValue.DisarmTrapCost);
 		
 		boolean isDisarmed = trap.attemptDisarm(parent);
 		
@@ -20,8 +20,10 @@
 package net.sf.hale.defaultability;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Set;
 
 import de.matthiasmann.twl.Color;
 import net.sf.hale.Game;
@@ -57,6 +59,8 @@ public class Move implements DefaultAbility {
 	
 	private boolean allowPartyMove = true;
 	
+	private boolean useFlowField = false;
+	
 	/**
 	 * Sets whether this move will attempt a party move.  Outside of combat, moving one PC
 	 * while the game is in party movement mode will move the entire party, by default.
@@ -68,6 +72,19 @@ public class Move implements DefaultAbility {
 		this.allowPartyMove = allowPartyMove;
 	}
 	
+	/**
+	 * Sets whether the path for this move is read from the flow field shared by all creatures
+	 * moving towards the same goal, rather than searched for separately.  This is useful when
+	 * several creatures are likely to move towards the same goal, as with AI creatures closing
+	 * in on a target.  Flow fields are only used if enabled in the config.  By default this is
+	 * set to false
+	 * @param useFlowField whether to use the shared flow field for the path
+	 */
+	
+	public void setUseFlowField(boolean useFlowField) {
+		this.useFlowField = useFlowField;
+	}
+	
 	/**
 	 * Sets whether computed paths will be truncated based on how much AP the mover has left.
 	 * If true, movement paths longer than this max length will return false for canMove.
@@ -130,7 +147,12 @@ public class Move implements DefaultAbility {
 		// if parent is already at targetPosition
 		if (parent.getLocation().equals(targetPosition)) return false;
 		
-		computedPath = parent.findPathTo(targetPosition, distanceAway);
+		if (useFlowField && Game.config.isFlowFieldMovementEnabled()) {
+			computedPath = parent.getLocation().getArea().getUtil().findFlowFieldPath(parent,
+					targetPosition.toPoint(), distanceAway, 0, null);
+		} else {
+			computedPath = parent.findPathTo(targetPosition, distanceAway);
+		}
 		
 		// check to see if a valid path exists up to distanceAway from targetPosition
 		if (computedPath == null) {
@@ -238,8 +260,54 @@ public class Move implements DefaultAbility {
 			
 			if (Game.interfaceLocker.getMovementMode() == MovementHandler.Mode.Party &&
 					allowPartyMove && !Game.isInTurnMode()) {
-				movePartyInFormation(parent);
+				if (Game.config.isFlowFieldMovementEnabled())
+					movePartyAlongFlowField(parent);
+				else
+					movePartyInFormation(parent);
+			}
+		}
+	}
+	
+	/*
+	 * Moves the party members other than main towards the destination of the computed path
+	 * using the shared flow field for that destination.  Each party member follows the field
+	 * from its own position and stops one more step short of the destination than the party
+	 * member before it, so the party trails behind main in a line
+	 */
+	
+	private void movePartyAlongFlowField(Creature main) {
+		Point destination = computedPath.get(0).toPoint();
+		AreaUtil util = main.getLocation().getArea().getUtil();
+		
+		// the points that the main creature and each party member will end up at
+		Set<Point> occupied = new HashSet<Point>();
+		occupied.add(destination);
+		
+		int stopDistance = 1;
+		
+		ListIterator<Creature> partyIter = Game.curCampaign.party.allCreaturesIterator();
+		while (partyIter.hasNext()) {
+			Creature currentCreature = partyIter.next();
+			
+			// don't create a mover for main as it already has one
+			if (currentCreature == main || !checkOverburdened(currentCreature)) continue;
+			
+			Path curPath = util.findFlowFieldPath(currentCreature, destination, 0, stopDistance, occupied);
+			
+			if (curPath == null || curPath.length() == 0) {
+				// if no path was found or the curCreature is already at the right point
+				occupied.add(currentCreature.getLocation().toPoint());
+				continue;
 			}
+			
+			// move the curCreature, make it background so it doesn't update the interface like the
+			// main mover
+			MovementHandler.Mover mover = Game.interfaceLocker.addMove(currentCreature, curPath, true);
+			mover.setBackground(true);
+			
+			// the destination for the current creature will be occupied
+			occupied.add(curPath.get(0).toPoint());
+			stopDistance++;
 		}
 	}
 	
@@ -24,6 +24,7 @@ import net.sf.hale.Game;
 import net.sf.hale.entity.Container;
 import net.sf.hale.entity.Location;
 import net.sf.hale.entity.PC;
+import net.sf.hale.rules.RuleValue;
 
 /**
  * A default ability for opening a container.  Can also move towards a container
@@ -42,7 +43,7 @@ public class OpenContainer implements DefaultAbility {
 	}
 
 	@Override public boolean canActivate(PC parent, Location targetPosition) {
-		if (!parent.timer.canPerformAction("OpenContainerCost")) return false;
+		if (!parent.timer.canPerformAction(RuleValue.OpenContainerCost)) return false;
 		
 		container = targetPosition.getContainer();
 		
@@ -93,8 +94,8 @@ public class OpenContainer implements DefaultAbility {
 	public boolean openContainer(PC parent, Container container) {
 		if (parent.getLocation().getDistance(container) > 1) return false;
 
-		if (container != null && parent.timer.canPerformAction("OpenContainerCost")) {
-			parent.timer.performAction("OpenContainerCost");
+		if (container != null && parent.timer.canPerformAction(RuleValue.OpenContainerCost)) {
+			parent.timer.performAction(RuleValue.OpenContainerCost);
 			
 			container.attemptOpen(parent);
 
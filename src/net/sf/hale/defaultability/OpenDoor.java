@@ -25,6 +25,7 @@ import net.sf.hale.entity.Creature;
 import net.sf.hale.entity.Door;
 import net.sf.hale.entity.Location;
 import net.sf.hale.entity.PC;
+import net.sf.hale.rules.RuleValue;
 
 /**
  * A DefaultAbility for opening a door.  Can also move to the door and
@@ -49,7 +50,7 @@ public class OpenDoor implements DefaultAbility {
 	}
 
 	@Override public boolean canActivate(PC parent, Location targetPosition) {
-		if (!parent.timer.canPerformAction("OpenDoorCost")) return false;
+		if (!parent.timer.canPerformAction(RuleValue.OpenDoorCost)) return false;
 		
 		door = targetPosition.getDoor();
 		
@@ -98,9 +99,9 @@ public class OpenDoor implements DefaultAbility {
 	public boolean toggleDoor(Creature parent, Door door) {
 		if (parent.getLocation().getDistance(door) > 1) return false;
 
-		if (door == null || !parent.timer.canPerformAction("OpenDoorCost")) return false;
+		if (door == null || !parent.timer.canPerformAction(RuleValue.OpenDoorCost)) return false;
 		
-		parent.timer.performAction("OpenDoorCost");
+		parent.timer.performAction(RuleValue.OpenDoorCost);
 		
 		if (door.isOpen()) {
 			Creature creature = door.getLocation().getCreature();
@@ -26,6 +26,7 @@ import net.sf.hale.entity.Creature;
 import net.sf.hale.entity.Location;
 import net.sf.hale.entity.Openable;
 import net.sf.hale.entity.PC;
+import net.sf.hale.rules.RuleValue;
 
 /**
  * A default ability for picking a lock on a door or container.  If the parent is
@@ -43,7 +44,7 @@ public class PickLock implements DefaultAbility {
 	}
 	
 	@Override public boolean canActivate(PC parent, Location targetPosition) {
-		if (!parent.timer.canPerformAction("OpenLockCost")) return false;
+		if (!parent.timer.canPerformAction(RuleValue.OpenLockCost)) return false;
 		
 		if (!parent.stats.has(Bonus.Type.LockPicking)) return false;
 		
@@ -91,11 +92,11 @@ public class PickLock implements DefaultAbility {
 		if (openable.getLocation().getDistance(parent) > 1)
 			return false;
 		
-		if (openable == null || !parent.timer.canPerformAction("OpenLockCost")) return false;
+		if (openable == null || !parent.timer.canPerformAction(RuleValue.OpenLockCost)) return false;
 		
 		if (!parent.stats.has(Bonus.Type.LockPicking)) return false;
 		
-		parent.timer.performAction("OpenLockCost");
+		parent.timer.performAction(RuleValue.OpenLockCost);
 		
 		if (!openable.isLocked()) return false;
 		
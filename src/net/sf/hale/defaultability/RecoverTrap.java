@@ -26,6 +26,7 @@ import net.sf.hale.entity.Creature;
 import net.sf.hale.entity.Location;
 import net.sf.hale.entity.PC;
 import net.sf.hale.entity.Trap;
+import net.sf.hale.rules.RuleValue;
 
 /**
  * A default ability for recovering a trap from the area.  If the parent is not adjacent to
@@ -45,7 +46,7 @@ public class RecoverTrap implements DefaultAbility {
 	}
 
 	@Override public boolean canActivate(PC parent, Location targetPosition) {
-		if (!parent.timer.canPerformAction("RecoverTrapCost")) return false;
+		if (!parent.timer.canPerformAction(RuleValue.RecoverTrapCost)) return false;
 		
 		if (!parent.stats.has(Bonus.Type.TrapHandling)) return false;
 		
@@ -89,11 +90,11 @@ public class RecoverTrap implements DefaultAbility {
 	public boolean recover(Creature parent, Trap trap) {
 		if (parent.getLocation().getDistance(trap) > 1) return false;
 		
-		if (trap == null || !parent.timer.canPerformAction("RecoverTrapCost")) return false;
+		if (trap == null || !parent.timer.canPerformAction(RuleValue.RecoverTrapCost)) return false;
 		
 		if (!parent.stats.has(Bonus.Type.TrapHandling)) return false;
 		
-		parent.timer.performAction("RecoverTrapCost");
+		parent.timer.performAction(RuleValue.RecoverTrapCost);
 		
 		boolean isRecovered = trap.attemptRecover(parent);
 		
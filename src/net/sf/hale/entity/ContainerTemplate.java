@@ -20,6 +20,7 @@
 package net.sf.hale.entity;
 
 import net.sf.hale.Game;
+import net.sf.hale.rules.RuleString;
 import net.sf.hale.util.SimpleJSONObject;
 
 /**
@@ -103,7 +104,7 @@ public class ContainerTemplate extends OpenableTemplate {
 	 */
 	
 	public boolean isTemporary() {
-		return getID().equals(Game.ruleset.getString("TemporaryContainerID"));
+		return getID().equals(Game.ruleset.getString(RuleString.TemporaryContainerID));
 	}
 
 }
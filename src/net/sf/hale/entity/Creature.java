@@ -55,9 +55,12 @@ import net.sf.hale.particle.ParticleGenerator;
 import net.sf.hale.particle.RectParticleGenerator;
 import net.sf.hale.rules.Attack;
 import net.sf.hale.rules.Damage;
+import net.sf.hale.rules.Faction;
 import net.sf.hale.rules.RoleSet;
+import net.sf.hale.rules.RuleValue;
 import net.sf.hale.rules.SkillSet;
 import net.sf.hale.util.AreaUtil;
+import net.sf.hale.util.BitGrid;
 import net.sf.hale.util.Logger;
 import net.sf.hale.util.Point;
 import net.sf.hale.util.SimpleJSONArray;
@@ -87,7 +90,7 @@ public abstract class Creature extends Entity {
 	// for group aspects of the AI
 	private Encounter encounter;
 	
-	private boolean[][] visibility;
+	private BitGrid visibility;
 	
 	private int currentHitPoints, temporaryHitPoints;
 	
@@ -468,6 +471,22 @@ public abstract class Creature extends Entity {
 		this.encounter = encounter;
 	}
 	
+	/*
+	 * Set the faction and then update the passabilities of the area, as the
+	 * creature may now block different movers (non-Javadoc)
+	 * @see net.sf.hale.entity.Entity#setFaction(net.sf.hale.rules.Faction)
+	 */
+	
+	@Override public void setFaction(Faction faction) {
+		super.setFaction(faction);
+		
+		Area area = getLocation().getArea();
+		if (area != null) {
+			area.getEntities().updateCreaturePassability(this);
+			area.getEntities().updateCreatureThreats(this);
+		}
+	}
+	
 	/*
 	 * Set the location and then recompute visibility (non-Javadoc)
 	 * @see net.sf.hale.entity.Entity#setLocation(net.sf.hale.entity.Location)
@@ -582,8 +601,8 @@ public abstract class Creature extends Entity {
 	 */
 	
 	public boolean performSearchCheck(Creature target, int penalty) {
-		int baseDifficulty = Game.ruleset.getValue("SearchCheckCreatureBaseDifficulty");
-		int distanceMultiplier = Game.ruleset.getValue("SearchCheckDistanceMultiplier");
+		int baseDifficulty = Game.ruleset.getValue(RuleValue.SearchCheckCreatureBaseDifficulty);
+		int distanceMultiplier = Game.ruleset.getValue(RuleValue.SearchCheckDistanceMultiplier);
 		
 		int checkPenalty = distanceMultiplier * getLocation().getDistance(target.getLocation()) + baseDifficulty;
 		int concealment = Math.min(100, Game.curCampaign.curArea.getConcealment(this, target));
@@ -628,7 +647,7 @@ public abstract class Creature extends Entity {
 	 */
 	
 	public final boolean hasVisibilityInCurrentArea(int x, int y) {
-		return visibility[x][y];
+		return visibility.get(x, y);
 	}
 	
 	/**
@@ -642,7 +661,7 @@ public abstract class Creature extends Entity {
 		if (location.getArea() != this.getLocation().getArea())
 			return false;
 		
-		return visibility[location.getX()][location.getY()];
+		return visibility.get(location.getX(), location.getY());
 	}
 	
 	/**
@@ -658,32 +677,43 @@ public abstract class Creature extends Entity {
 		int height = location.getArea().getHeight();
 		
 		// recreate the matrix if it is not of the correct size
-		if (visibility == null || visibility.length != width || visibility[0].length != height) {
-			visibility = new boolean[width][height];
+		if (visibility == null || visibility.getWidth() != width || visibility.getHeight() != height) {
+			visibility = new BitGrid(width, height);
 		}
 		
 		location.getArea().getUtil().setVisibilityWithRespectToPosition(visibility,
 				location.getX(), location.getY());
+		
+		// the threatened points are limited by visibility, and this is also called after each move
+		updateThreats();
+	}
+	
+	/**
+	 * Notifies the area containing this creature that the points this creature threatens
+	 * with attacks of opportunity may have changed.  This is called whenever this creature
+	 * moves, changes weapons or factions, or starts or stops threatening
+	 */
+	
+	public void updateThreats() {
+		Area area = getLocation().getArea();
+		
+		if (area != null) area.getEntities().updateCreatureThreats(this);
 	}
 	
 	/**
-	 * Adds the visibility of this creature to the specified matrix.  Points that are already
-	 * visible (true) in the matrix are not affected.  Points that are false will be set to true
+	 * Adds the visibility of this creature to the specified grid.  Points that are already
+	 * visible (true) in the grid are not affected.  Points that are false will be set to true
 	 * if this Creature has visibility on that point.
 	 * 
-	 * Note that passing a matrix that is not of the correct size for this creature location's
+	 * Note that passing a grid that is not of the correct size for this creature location's
 	 * area will result in an exception.  This creature must have a set location before calling
 	 * this function
 	 * 
-	 * @param matrix the matrix to set the visibility of
+	 * @param grid the grid to set the visibility of
 	 */
 	
-	public void addVisibilityToMatrix(boolean[][] matrix) {
-		for (int i = 0; i < matrix.length; i++) {
-			for (int j = 0; j < matrix[i].length; j++) {
-				matrix[i][j] = visibility[i][j] || matrix[i][j];
-			}
-		}
+	public void addVisibilityToMatrix(BitGrid grid) {
+		grid.or(visibility);
 	}
 	
 	/**
@@ -726,6 +756,8 @@ public abstract class Creature extends Entity {
 	
 	public void takeAttackOfOpportunity() {
 		this.attacksOfOpportunityAvailable--;
+		
+		updateThreats();
 	}
 	
 	/**
@@ -812,6 +844,23 @@ public abstract class Creature extends Entity {
 		return threatensPointInCurrentArea(location.getX(), location.getY());
 	}
 	
+	/**
+	 * Returns true if this creature is currently able to threaten attacks of opportunity
+	 * at any location.  This creature must be alive, not helpless, have at least one
+	 * attack of opportunity remaining, and have a weapon that threatens attacks of opportunity
+	 * @return whether this creature currently threatens attacks of opportunity
+	 */
+	
+	public boolean threatensAoOs() {
+		if (this.isDying() || this.isDead()) return false;
+		
+		if (this.attacksOfOpportunityAvailable < 1) return false;
+		
+		if (this.stats.isHelpless()) return false;
+		
+		return getMainHandWeapon().getTemplate().threatensAoOs();
+	}
+	
 	/**
 	 * Returns true if this creature currently threatens the specified point in the area
 	 * that this creature is located in currently.  See {@link #threatensLocation(Location)}
@@ -822,17 +871,12 @@ public abstract class Creature extends Entity {
 	 */
 	
 	public boolean threatensPointInCurrentArea(int x, int y) {
-		if (this.isDying() || this.isDead()) return false;
-		
-		if (this.attacksOfOpportunityAvailable < 1) return false;
-		
-		if (this.stats.isHelpless()) return false;
+		if (!threatensAoOs()) return false;
 		
 		// must be able to see the tile
-		if (!this.visibility[x][y]) return false;
-				
+		if (!this.visibility.get(x, y)) return false;
+		
 		Weapon weapon = getMainHandWeapon();
-		if (!weapon.getTemplate().threatensAoOs()) return false;
 		
 		int thisX = getLocation().getX();
 		int thisY = getLocation().getY();
@@ -861,7 +905,7 @@ public abstract class Creature extends Entity {
 		
 		if (stats.isHelpless()) return false;
 		
-		if (!visibility[location.getX()][location.getY()]) return false;
+		if (!visibility.get(location.getX(), location.getY())) return false;
 		
 		// can only attack on the same elevation
 		if (getLocation().getElevation() != location.getElevation()) return false;
@@ -969,6 +1013,8 @@ public abstract class Creature extends Entity {
 			Game.mainViewer.updateEntity(this);
 		}
 		
+		updateThreats();
+		
 		this.updateListeners();
 	}
 	
@@ -985,6 +1031,8 @@ public abstract class Creature extends Entity {
 		
 		currentHitPoints += amount;
 		
+		updateThreats();
+		
 		Game.mainViewer.addMessage("blue", getTemplate().getName() + " was healed for " + amount + " hit points.");
 		
 		Game.mainViewer.addFadeAway(Integer.toString(amount), getLocation().getX(),
@@ -1005,6 +1053,8 @@ public abstract class Creature extends Entity {
 		this.temporaryHitPoints = 0;
 		this.currentHitPoints = 1;
 		
+		updateThreats();
+		
 		Game.mainViewer.addFadeAway("Raised", getLocation().getX(),
 				getLocation().getY(), new Color(0xFF33CCFF));
 		Game.mainViewer.addMessage("blue", getTemplate().getName() + " was raised.");
@@ -1207,6 +1257,9 @@ public abstract class Creature extends Entity {
 		
 		this.alreadySearchedForHiddenCreatures = false;
 		
+		// attacks of opportunity are restored, and summoned creatures may have expired
+		updateThreats();
+		
 		boolean returnValue = abilities.elapseTime(numRounds);
 		
 		updateListeners();
@@ -1312,10 +1365,13 @@ public abstract class Creature extends Entity {
 	public void runParticleGeneratorWait(ParticleGenerator generator) {
 		Game.particleManager.add(generator);
 		
+		Game.scriptExecutor.beginBlocking();
 		try {
 			Thread.sleep((long) (generator.getTimeLeft() * 1000.0f));
 		} catch (InterruptedException e) {
 			return;
+		} finally {
+			Game.scriptExecutor.endBlocking();
 		}
 	}
 	
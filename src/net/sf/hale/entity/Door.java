@@ -39,6 +39,9 @@ public class Door extends Openable {
 	
 	@Override public void load(SimpleJSONObject data, Area area, ReferenceHandler refHandler) throws LoadGameException {
 		super.load(data, area, refHandler);
+		
+		// the saved open state may differ from the state this door was placed with
+		if (area != null) area.getEntities().updateDoorPassability(this);
 	}
 	
 	@Override public JSONOrderedObject save() {
@@ -76,6 +79,7 @@ public class Door extends Openable {
 		boolean isOpen = super.attemptOpen(opener);
 		
 		getLocation().getArea().getTransparency()[getLocation().getX()][getLocation().getY()] = isOpen();
+		getLocation().getArea().getEntities().updateDoorPassability(this);
 		opener.getLocation().getArea().getUtil().updateVisibility();
 		
 		if (isOpen) {
@@ -89,6 +93,7 @@ public class Door extends Openable {
 		super.close(closer);
 		
 		getLocation().getArea().getTransparency()[getLocation().getX()][getLocation().getY()] = isOpen();
+		getLocation().getArea().getEntities().updateDoorPassability(this);
 		closer.getLocation().getArea().getUtil().updateVisibility();
 		
 	}
@@ -30,6 +30,7 @@ import net.sf.hale.loading.JSONOrderedObject;
 import net.sf.hale.loading.ReferenceHandler;
 import net.sf.hale.rules.Currency;
 import net.sf.hale.rules.Faction;
+import net.sf.hale.rules.RuleValue;
 import net.sf.hale.rules.XP;
 import net.sf.hale.util.Logger;
 import net.sf.hale.util.PointImmutable;
@@ -353,8 +354,8 @@ public class Encounter implements Iterable<Creature> {
 		
 		if (xpToReward != 0) {
 			// modify xp based on encounter length
-			int lengthModifier = 10000 + Math.min(Game.ruleset.getValue("CombatLengthXPFactor") * combatLength,
-					Game.ruleset.getValue("CombatLengthXPMax"));
+			int lengthModifier = 10000 + Math.min(Game.ruleset.getValue(RuleValue.CombatLengthXPFactor) * combatLength,
+					Game.ruleset.getValue(RuleValue.CombatLengthXPMax));
 			xpToReward = xpToReward * lengthModifier / 10000;
 
 			// reward XP
@@ -402,8 +403,8 @@ public class Encounter implements Iterable<Creature> {
 		// now compute XP reward
 		if (template.getChallengeRating() != -1) {
 			// if template has defined challenge, use that to compute XP
-			double EC = (double)template.getChallengeRating() / Game.ruleset.getValue("EncounterChallengeFactor");
-			xpToReward = (int) (EC * Game.ruleset.getValue("EncounterXPFactor"));
+			double EC = (double)template.getChallengeRating() / Game.ruleset.getValue(RuleValue.EncounterChallengeFactor);
+			xpToReward = (int) (EC * Game.ruleset.getValue(RuleValue.EncounterXPFactor));
 		} else {
 			// if template does not have challenge rating, compute one based on the area
 			// creatures and use it to get XP
@@ -413,10 +414,10 @@ public class Encounter implements Iterable<Creature> {
 				averageLevel += ( creature.roles.getTotalLevel() / ((float) creaturesInArea.size()) );
 			}
 			
-			double groupScaleFactor = Game.ruleset.getValue("EncounterGroupChallengeScaleFactor") / 1000.0;
+			double groupScaleFactor = Game.ruleset.getValue(RuleValue.EncounterGroupChallengeScaleFactor) / 1000.0;
 			double EC = Math.log(creaturesInArea.size() + 1) * groupScaleFactor * averageLevel;
 			
-			xpToReward = (int) (EC * Game.ruleset.getValue("EncounterXPFactor"));
+			xpToReward = (int) (EC * Game.ruleset.getValue(RuleValue.EncounterXPFactor));
 		}
 	}
 
@@ -36,6 +36,7 @@ import net.sf.hale.loading.LoadGameException;
 import net.sf.hale.loading.ReferenceHandler;
 import net.sf.hale.loading.Saveable;
 import net.sf.hale.rules.Faction;
+import net.sf.hale.rules.RuleString;
 import net.sf.hale.util.Point;
 import net.sf.hale.util.SaveGameUtil;
 import net.sf.hale.util.SimpleJSONObject;
@@ -82,7 +83,7 @@ public abstract class Entity implements EffectTarget, Saveable, HasScriptState,
 		
 		this.effects = new EntityEffectSet();
 		
-		this.faction = Game.ruleset.getString("DefaultFaction");
+		this.faction = Game.ruleset.getString(RuleString.DefaultFaction);
 		
 		this.location = Location.Inventory;
 		
@@ -360,7 +361,7 @@ public abstract class Entity implements EffectTarget, Saveable, HasScriptState,
 	 */
 	
 	public boolean isPlayerFaction() {
-		return faction.equals(Game.ruleset.getString("PlayerFaction"));
+		return faction.equals(Game.ruleset.getString(RuleString.PlayerFaction));
 	}
 	
 	/**
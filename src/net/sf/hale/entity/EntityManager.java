@@ -28,6 +28,7 @@ import net.sf.hale.Game;
 import net.sf.hale.resource.ResourceManager;
 import net.sf.hale.resource.ResourceType;
 import net.sf.hale.rules.Quality;
+import net.sf.hale.rules.RuleString;
 import net.sf.hale.util.Logger;
 import net.sf.hale.util.SimpleJSONObject;
 import net.sf.hale.util.SimpleJSONParser;
@@ -242,7 +243,7 @@ public class EntityManager {
 	 */
 	
 	public static Container getTemporaryContainer() {
-		return getContainer(Game.ruleset.getString("TemporaryContainerID"));
+		return getContainer(Game.ruleset.getString(RuleString.TemporaryContainerID));
 	}
 	
 	/**
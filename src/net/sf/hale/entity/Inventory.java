@@ -40,6 +40,8 @@ import net.sf.hale.rules.BaseWeapon;
 import net.sf.hale.rules.Currency;
 import net.sf.hale.rules.Quality;
 import net.sf.hale.rules.Merchant;
+import net.sf.hale.rules.RuleString;
+import net.sf.hale.rules.RuleValue;
 import net.sf.hale.rules.Weight;
 import net.sf.hale.util.Logger;
 import net.sf.hale.util.SimpleJSONArrayEntry;
@@ -374,6 +376,7 @@ public class Inventory implements ItemList.Listener, Saveable {
 			
 			parent.stats.changeEquipment(currentlyEquippedItem.getTemplate().getType());
 			parent.stats.removeAll(currentlyEquippedItem.getBonusList());
+			parent.updateThreats();
 			parent.removeSubIcon(currentlyEquippedItem, slot);
 			
 			if (currentlyEquippedItem.getTemplate().hasScript()) {
@@ -400,6 +403,7 @@ public class Inventory implements ItemList.Listener, Saveable {
 		if (modifyParentStats) {
 			parent.stats.changeEquipment(item.getTemplate().getType());
 			parent.stats.addAll(item.getBonusList());
+			parent.updateThreats();
 		}
 		
 		parent.addSubIcon(item, slot);
@@ -906,7 +910,7 @@ public class Inventory implements ItemList.Listener, Saveable {
 		
 		for (Inventory.Slot slot : Inventory.Slot.values()) {
 			if ( equippedItems.get(slot) != null && (slot != Inventory.Slot.Armor ||
-					!equippedItems.get(slot).getTemplate().getID().equals(Game.ruleset.getString("DefaultClothes")) ) ) {
+					!equippedItems.get(slot).getTemplate().getID().equals(Game.ruleset.getString(RuleString.DefaultClothes)) ) ) {
 				return false;
 			}
 		}
@@ -1323,7 +1327,7 @@ public class Inventory implements ItemList.Listener, Saveable {
 		}
 		
 		@Override public void run() {
-			if (!parent.timer.performAction(Game.ruleset.getValue("PickUpAndWieldItemCost")))
+			if (!parent.timer.performAction(Game.ruleset.getValue(RuleValue.PickUpAndWieldItemCost)))
 				return;
 			
 			unequippedItems.add(item);
@@ -1386,7 +1390,7 @@ public class Inventory implements ItemList.Listener, Saveable {
 			ItemList list = container.getCurrentItems();
 			
 			for (ItemList.Entry entry : list) {
-				if (!parent.timer.performAction(Game.ruleset.getValue("PickUpItemCost")))
+				if (!parent.timer.performAction(Game.ruleset.getValue(RuleValue.PickUpItemCost)))
 					return;
 				
 				unequippedItems.add(entry.getID(), entry.getQuality(), entry.getQuantity());
@@ -1412,7 +1416,7 @@ public class Inventory implements ItemList.Listener, Saveable {
 		}
 		
 		@Override public void run() {
-			if (!parent.timer.performAction(Game.ruleset.getValue("GiveItemCost")))
+			if (!parent.timer.performAction(Game.ruleset.getValue(RuleValue.GiveItemCost)))
 				return;
 			
 			EquippableItem item = equippedItems.get(slot);
@@ -1499,7 +1503,7 @@ public class Inventory implements ItemList.Listener, Saveable {
 		}
 
 		@Override public void performItemAction(int quantity) {
-			if (!parent.timer.performAction(Game.ruleset.getValue("GiveItemCost")))
+			if (!parent.timer.performAction(Game.ruleset.getValue(RuleValue.GiveItemCost)))
 				return;
 			
 			unequippedItems.remove(item, quantity);
@@ -1520,7 +1524,7 @@ public class Inventory implements ItemList.Listener, Saveable {
 			//quest items cannot be dropped
 			if (item.getTemplate().isQuest()) return;
 			
-			if (!parent.timer.performAction(Game.ruleset.getValue("DropItemCost")))
+			if (!parent.timer.performAction(Game.ruleset.getValue(RuleValue.DropItemCost)))
 				return;
 			
 			// if the container window is open, drop it in the container,
@@ -1552,7 +1556,7 @@ public class Inventory implements ItemList.Listener, Saveable {
 			
 			if (item.getTemplate().isQuest()) return;
 			
-			if (!parent.timer.performAction(Game.ruleset.getValue("DropItemCost")))
+			if (!parent.timer.performAction(Game.ruleset.getValue(RuleValue.DropItemCost)))
 				return;
 			
 			// if the container window is open, drop it in the container,
@@ -1582,7 +1586,7 @@ public class Inventory implements ItemList.Listener, Saveable {
 		}
 		
 		@Override public void performItemAction(int quantity) {
-			if (!parent.timer.performAction(Game.ruleset.getValue("PickUpItemCost")))
+			if (!parent.timer.performAction(Game.ruleset.getValue(RuleValue.PickUpItemCost)))
 				return;
 			
 			unequippedItems.add(item);
@@ -433,7 +433,7 @@ public class Location implements Saveable {
 		if (area == null)
 			throw new UnsupportedOperationException("isAreaExplored() can only be called on locations within an Area");
 		
-		return area.getExplored()[x][y];
+		return area.getExplored().get(x, y);
 	}
 	
 	/**
@@ -26,6 +26,7 @@ import net.sf.hale.loading.JSONOrderedObject;
 import net.sf.hale.loading.LoadGameException;
 import net.sf.hale.loading.ReferenceHandler;
 import net.sf.hale.quickbar.Quickbar;
+import net.sf.hale.rules.RuleValue;
 import net.sf.hale.util.SimpleJSONObject;
 import net.sf.hale.util.SimpleJSONParser;
 
@@ -217,7 +218,7 @@ public final class PC extends Creature {
 		} else if (!isDead()) {
 			// regenerate HP while not in turn mode
 			if (getCurrentHitPoints() < stats.get(Stat.MaxHP)) {
-				healDamage(numRounds * (1 + stats.get(Stat.MaxHP)/ Game.ruleset.getValue("OutsideCombatHealingFactor")) );
+				healDamage(numRounds * (1 + stats.get(Stat.MaxHP)/ Game.ruleset.getValue(RuleValue.OutsideCombatHealingFactor)) );
 			}
 		}
 		
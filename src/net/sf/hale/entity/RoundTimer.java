@@ -23,6 +23,7 @@ import net.sf.hale.Game;
 import net.sf.hale.ability.Ability;
 import net.sf.hale.bonus.Bonus;
 import net.sf.hale.bonus.Stat;
+import net.sf.hale.rules.RuleValue;
 
 /**
  * A class for keeping track of the number of Action Points (AP).  Note that the
@@ -84,7 +85,7 @@ public class RoundTimer {
 	public void reset() {
 		active = true;
 		
-		maxAP = Math.max(0, Game.ruleset.getValue("BaseActionPoints") + parent.stats.get(Bonus.Type.ActionPoint) * 100);
+		maxAP = Math.max(0, Game.ruleset.getValue(RuleValue.BaseActionPoints) + parent.stats.get(Bonus.Type.ActionPoint) * 100);
 		
 		AP = maxAP;
 		
@@ -198,13 +199,13 @@ public class RoundTimer {
 	
 	/**
 	 * Returns true if the parent has enough AP to perform the action with the
-	 * specified rules string, false otherwise
-	 * @param actionText the rules string defined in the rules data file
+	 * specified rules cost, false otherwise
+	 * @param actionCost the rule defined in the rules data file
 	 * @return whether the parent has enough AP to perform the action
 	 */
 	
-	public boolean canPerformAction(String actionText) {
-		return canPerformAction(Game.ruleset.getValue(actionText));
+	public boolean canPerformAction(RuleValue actionCost) {
+		return canPerformAction(Game.ruleset.getValue(actionCost));
 	}
 	
 	/**
@@ -223,13 +224,13 @@ public class RoundTimer {
 	}
 	
 	/**
-	 * Deducts the amount of AP to perform the action with the specified rules string
-	 * @param actionText the rules string defined in the rules data file
+	 * Deducts the amount of AP to perform the action with the specified rules cost
+	 * @param actionCost the rule defined in the rules data file
 	 * @return whether the parent has enough AP to perform the action
 	 */
 	
-	public boolean performAction(String actionText) {
-		return performAction(Game.ruleset.getValue(actionText));
+	public boolean performAction(RuleValue actionCost) {
+		return performAction(Game.ruleset.getValue(actionCost));
 	}
 	
 	/**
@@ -268,11 +269,11 @@ public class RoundTimer {
 	private int getCostToEquipItem(EquippableItem item) {
 		switch (item.getTemplate().getType()) {
 		case Weapon: case Shield:
-			return Game.ruleset.getValue("EquipItemCost") * (100 - parent.stats.get(Bonus.Type.ActionPointEquipHands)) / 100;
+			return Game.ruleset.getValue(RuleValue.EquipItemCost) * (100 - parent.stats.get(Bonus.Type.ActionPointEquipHands)) / 100;
 		case Armor:
-			return Game.ruleset.getValue("EquipArmorCost");
+			return Game.ruleset.getValue(RuleValue.EquipArmorCost);
 		default:
-			return Game.ruleset.getValue("EquipItemCost");
+			return Game.ruleset.getValue(RuleValue.EquipItemCost);
 		}
 	}
 	
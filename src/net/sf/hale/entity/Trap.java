@@ -27,6 +27,7 @@ import net.sf.hale.bonus.Bonus;
 import net.sf.hale.loading.JSONOrderedObject;
 import net.sf.hale.loading.LoadGameException;
 import net.sf.hale.loading.ReferenceHandler;
+import net.sf.hale.rules.RuleValue;
 import net.sf.hale.util.SimpleJSONObject;
 
 /**
@@ -113,7 +114,7 @@ public class Trap extends Item {
 		int check = parent.skills.getCheck("Traps", difficulty);
 		
 		// other creatures get a chance to spot a hiding creature when it places a trap
-		Game.scriptInterface.performSearchChecksForCreature(parent, Game.ruleset.getValue("HidePlaceTrapPenalty"));
+		Game.scriptInterface.performSearchChecksForCreature(parent, Game.ruleset.getValue(RuleValue.HidePlaceTrapPenalty));
 		
 		if (check >= difficulty) {
 			// the player character can see their own traps
@@ -132,7 +133,7 @@ public class Trap extends Item {
 			Game.mainViewer.addFadeAway("Failed to place trap", parent.getLocation().getX(),
 					parent.getLocation().getY(), Color.RED);
 			
-			if (check < difficulty - Game.ruleset.getValue("TrapCriticalFailureThreshold")) {
+			if (check < difficulty - Game.ruleset.getValue(RuleValue.TrapCriticalFailureThreshold)) {
 				//critical failure
 				fireTrap(parent);
 			}
@@ -156,12 +157,12 @@ public class Trap extends Item {
 		int check = parent.skills.getCheck("Traps", difficulty);
 		
 		// other creatures get a chance to spot a hiding creature when it disarms a trap
-		Game.scriptInterface.performSearchChecksForCreature(parent, Game.ruleset.getValue("HideDisarmTrapPenalty"));
+		Game.scriptInterface.performSearchChecksForCreature(parent, Game.ruleset.getValue(RuleValue.HideDisarmTrapPenalty));
 		
 		if (check >= difficulty) {
 			Game.curCampaign.curArea.removeEntity(this);
 			return true;
-		} else if (check < difficulty - Game.ruleset.getValue("TrapCriticalFailureThreshold")) {
+		} else if (check < difficulty - Game.ruleset.getValue(RuleValue.TrapCriticalFailureThreshold)) {
 			//critical failure
 			fireTrap(parent);
 		}
@@ -184,13 +185,13 @@ public class Trap extends Item {
 		int check = parent.skills.getCheck("Traps", difficulty);
 		
 		// other creatures get a chance to spot a hiding creature when it recovers a trap
-		Game.scriptInterface.performSearchChecksForCreature(parent, Game.ruleset.getValue("HideRecoverTrapPenalty"));
+		Game.scriptInterface.performSearchChecksForCreature(parent, Game.ruleset.getValue(RuleValue.HideRecoverTrapPenalty));
 		
 		if (check >= difficulty) {
 			Game.curCampaign.curArea.removeEntity(this);
 			parent.inventory.getUnequippedItems().add(this);
 			return true;
-		} else if (check < difficulty - Game.ruleset.getValue("TrapCriticalFailureThreshold")) {
+		} else if (check < difficulty - Game.ruleset.getValue(RuleValue.TrapCriticalFailureThreshold)) {
 			//critical failure
 			fireTrap(parent);
 		}
@@ -252,7 +253,7 @@ public class Trap extends Item {
 		}
 		
 		// other creatures get a chance to spot a hiding creature when it springs a trap
-		Game.scriptInterface.performSearchChecksForCreature(target, Game.ruleset.getValue("HideSpringTrapPenalty"));
+		Game.scriptInterface.performSearchChecksForCreature(target, Game.ruleset.getValue(RuleValue.HideSpringTrapPenalty));
 		
 		if ( !target.stats.getReflexResistanceCheck(modifyValueByQuality(template.getReflexDifficulty())) ) {
 			if (template.hasScript())
@@ -278,8 +279,8 @@ public class Trap extends Item {
 	 */
 	
 	public int modifyValueByQuality(int difficulty) {
-		int num = Game.ruleset.getValue("TrapQualityDifficultyNumerator");
-		int den = Game.ruleset.getValue("TrapQualityDifficultyDenominator");
+		int num = Game.ruleset.getValue(RuleValue.TrapQualityDifficultyNumerator);
+		int den = Game.ruleset.getValue(RuleValue.TrapQualityDifficultyDenominator);
 		
 		int qualityBonus = this.getQuality().getModifier();
 		
@@ -21,8 +21,10 @@ package net.sf.hale.icon;
 
 import org.lwjgl.opengl.GL11;
 
+import net.sf.hale.Game;
 import net.sf.hale.loading.JSONOrderedObject;
 import net.sf.hale.resource.Sprite;
+import net.sf.hale.resource.SpriteBatch;
 import net.sf.hale.resource.SpriteManager;
 import net.sf.hale.util.SimpleJSONObject;
 import de.matthiasmann.twl.Color;
@@ -98,15 +100,29 @@ public class SimpleIcon implements Icon {
 	}
 
 	@Override public void draw(int x, int y) {
-		GL11.glColor4ub(color.getR(), color.getG(), color.getB(), color.getA());
-		SpriteManager.getSprite(spriteResourceID).draw(x, y);
+		draw(SpriteManager.getSprite(spriteResourceID), x, y);
 	}
 	
 	@Override public void drawCentered(int x, int y, int width, int height) {
 		Sprite sprite = SpriteManager.getSprite(spriteResourceID);
 		
-		GL11.glColor4ub(color.getR(), color.getG(), color.getB(), color.getA());
-		sprite.draw(x + (width - sprite.getWidth()) / 2, y + (height - sprite.getHeight()) / 2);
+		draw(sprite, x + (width - sprite.getWidth()) / 2, y + (height - sprite.getHeight()) / 2);
+	}
+	
+	/*
+	 * Adds the sprite to the sprite batch if one is in progress.  Otherwise, the sprite is
+	 * drawn directly, as a batch holding a single quad would only add overhead
+	 */
+	
+	private void draw(Sprite sprite, int x, int y) {
+		SpriteBatch batch = Game.spriteBatch;
+		
+		if (batch.isDrawing()) {
+			batch.draw(sprite, x, y, color);
+		} else {
+			GL11.glColor4ub(color.getR(), color.getG(), color.getB(), color.getA());
+			sprite.draw(x, y);
+		}
 	}
 
 	@Override public int getWidth() {
@@ -19,7 +19,9 @@
 
 package net.sf.hale.icon;
 
+import net.sf.hale.Game;
 import net.sf.hale.resource.Sprite;
+import net.sf.hale.resource.SpriteBatch;
 import net.sf.hale.resource.SpriteManager;
 import net.sf.hale.rules.Race;
 import net.sf.hale.rules.Ruleset;
@@ -133,16 +135,30 @@ public class SubIcon implements Comparable<SubIcon> {
 	}
 	
 	public final void draw(int x, int y) {
-		GL11.glColor4ub(color.getR(), color.getG(), color.getB(), color.getA());
+		SpriteBatch batch = Game.spriteBatch;
 		
-		SpriteManager.getSprite(this.icon).draw(x + offset.x, y + offset.y);
+		// outside of a batch, the one or two sprites are drawn directly
+		if (!batch.isDrawing()) {
+			GL11.glColor4ub(color.getR(), color.getG(), color.getB(), color.getA());
+			
+			SpriteManager.getSprite(this.icon).draw(x + offset.x, y + offset.y);
+			
+			Sprite secondarySprite = SpriteManager.getSprite(this.secondaryIcon);
+			if (secondarySprite != null) {
+				GL11.glColor4ub(secondaryColor.getR(), secondaryColor.getG(),
+						secondaryColor.getB(), secondaryColor.getA());
+				
+				secondarySprite.draw(x + offset.x, y + offset.y);
+			}
+			
+			return;
+		}
+		
+		batch.draw(SpriteManager.getSprite(this.icon), x + offset.x, y + offset.y, color);
 		
 		Sprite secondarySprite = SpriteManager.getSprite(this.secondaryIcon);
 		if (secondarySprite != null) {
-			GL11.glColor4ub(secondaryColor.getR(), secondaryColor.getG(),
-					secondaryColor.getB(), secondaryColor.getA());
-			
-			secondarySprite.draw(x + offset.x, y + offset.y);
+			batch.draw(secondarySprite, x + offset.x, y + offset.y, secondaryColor);
 		}
 	}
 	
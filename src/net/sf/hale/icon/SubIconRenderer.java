@@ -25,6 +25,7 @@ import java.util.Iterator;
 import java.util.List;
 
 import net.sf.hale.Game;
+import net.sf.hale.resource.SpriteBatch;
 import net.sf.hale.rules.Race;
 import net.sf.hale.rules.Ruleset;
 import net.sf.hale.util.Point;
@@ -362,10 +363,16 @@ public class SubIconRenderer implements IconRenderer {
 	
 
 	@Override public synchronized void draw(int x, int y) {
+		SpriteBatch batch = Game.spriteBatch;
+		
+		batch.begin();
+		
 		for (SubIcon subIcon : subIcons) {
 			subIcon.draw(x, y);
 		}
 		
+		batch.end();
+		
 		GL11.glColor3f(1.0f, 1.0f, 1.0f);
 	}
 
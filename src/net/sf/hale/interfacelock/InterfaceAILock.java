@@ -53,7 +53,7 @@ public class InterfaceAILock extends InterfaceLock {
 		if (!finishing) {
 			super.setUnlockTime(curTime + 800);
 			
-			if (!runner.isAlive()) finishing = true;
+			if (!runner.isRunning()) finishing = true;
 		}
 	}
 	
@@ -22,7 +22,10 @@ package net.sf.hale.loading;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
 
 import net.sf.hale.resource.Sprite;
 
@@ -35,19 +38,92 @@ import org.lwjgl.opengl.GL11;
  * loading, while the {@link #loadTexture(ByteBuffer, int, int, List)} method can be
  * called from any thread and will eventually set the texture for any sprites once the
  * OpenGL loading is complete
+ * <p>
+ * Each call to update only uploads as many textures as fit in the per frame time and
+ * byte budgets, so that a large number of queued textures does not stall the frame.
+ * Textures are uploaded in the order they were queued, except that textures for sprites
+ * which have been drawn before they were loaded are uploaded first.  Textures larger than
+ * the sub image threshold are uploaded a band of rows at a time, over several frames
+ * if needed.
  * @author Jared Stephen
  *
  */
 
 public class AsyncTextureLoader {
-	private List<TextureSpriteLoadList> loadLists;
+	/**
+	 * The default maximum time spent uploading textures in each call to {@link #update()}
+	 */
+	
+	public static final long DefaultFrameTimeBudgetMillis = 4;
+	
+	/**
+	 * The default maximum number of bytes uploaded in each call to {@link #update()}
+	 */
+	
+	public static final long DefaultFrameByteBudget = 8 * 1024 * 1024;
+	
+	/**
+	 * The default size in bytes above which textures are uploaded a band of rows at a time
+	 */
+	
+	public static final long DefaultSubImageThreshold = 4 * 1024 * 1024;
+	
+	private final PriorityQueue<TextureSpriteLoadList> loadLists;
+	
+	// the pending load list containing each sprite, used to prioritize drawn sprites
+	private final Map<Sprite, TextureSpriteLoadList> pendingSprites;
+	
+	// textures that were partially uploaded when the loader was cleared
+	private final List<Integer> abandonedTextures;
+	
+	private long frameTimeBudgetNanos;
+	private long frameByteBudget;
+	private long subImageThreshold;
+	
+	private long nextSequence;
+	private long pendingBytes;
+	
+	private long numTexturesUploaded;
+	private long numBytesUploaded;
+	private long totalUploadNanos;
+	private long lastUpdateNanos;
+	private long maxUpdateNanos;
 	
 	/**
 	 * Creates an empty AsyncTextureLoader
 	 */
 	
 	public AsyncTextureLoader() {
-		loadLists = new ArrayList<TextureSpriteLoadList>();
+		loadLists = new PriorityQueue<TextureSpriteLoadList>();
+		pendingSprites = new HashMap<Sprite, TextureSpriteLoadList>();
+		abandonedTextures = new ArrayList<Integer>();
+		
+		setFrameBudget(DefaultFrameTimeBudgetMillis, DefaultFrameByteBudget);
+		setSubImageThreshold(DefaultSubImageThreshold);
+	}
+	
+	/**
+	 * Sets the maximum time and number of bytes spent uploading textures in each call
+	 * to {@link #update()}.  At least part of one texture is always uploaded in each call
+	 * if any textures are queued, regardless of the budget
+	 * @param millis the maximum time in milliseconds
+	 * @param bytes the maximum number of bytes
+	 */
+	
+	public synchronized void setFrameBudget(long millis, long bytes) {
+		this.frameTimeBudgetNanos = millis * 1000000l;
+		this.frameByteBudget = bytes;
+	}
+	
+	/**
+	 * Sets the texture size in bytes above which textures are uploaded a band of rows
+	 * at a time rather than all at once.  Use Long.MAX_VALUE to always upload textures
+	 * all at once
+	 * @param bytes the size threshold in bytes
+	 */
+	
+	public synchronized void setSubImageThreshold(long bytes) {
+		this.subImageThreshold = bytes;
 	}
 	
 	/**
@@ -55,30 +131,109 @@ public class AsyncTextureLoader {
 	 * texture memory
 	 */
 	
-	public void clear() {
-		synchronized(loadLists) {
-			loadLists.clear();
+	public synchronized void clear() {
+		for (TextureSpriteLoadList list : loadLists) {
+			list.abandoned = true;
+			if (list.texture != 0) abandonedTextures.add(list.texture);
 		}
+		
+		loadLists.clear();
+		pendingSprites.clear();
+		pendingBytes = 0l;
 	}
 	
 	/**
-	 * This method should only be called by the main OpenGL context owning Thread.  Loads all
-	 * outstanding textures that have been specified by {@link #loadTexture(ByteBuffer, int, int, List)}
+	 * Moves the texture for the specified sprite to the front of the queue, if it is
+	 * waiting to be loaded.  This is called when a sprite is drawn before its texture
+	 * has been loaded
+	 * @param sprite the sprite that is needed
+	 */
+	
+	public synchronized void prioritize(Sprite sprite) {
+		TextureSpriteLoadList list = pendingSprites.get(sprite);
+		if (list == null || list.prioritized) return;
+		
+		loadLists.remove(list);
+		list.prioritized = true;
+		loadLists.add(list);
+	}
+	
+	/**
+	 * This method should only be called by the main OpenGL context owning Thread.  Loads
+	 * outstanding textures that have been specified by {@link #loadTexture(ByteBuffer, int, int, List)},
+	 * up to the per frame budget
 	 */
 	
 	public void update() {
-		synchronized(loadLists) {
-			for (TextureSpriteLoadList list : loadLists) {
-				list.loadTexture();
+		long startTime = System.nanoTime();
+		
+		deleteAbandonedTextures();
+		
+		long bytesUploaded = 0l;
+		
+		while (true) {
+			TextureSpriteLoadList list;
+			long byteBudget;
+			
+			synchronized(this) {
+				list = loadLists.peek();
+				if (list == null) break;
+				
+				if (bytesUploaded > 0l && (bytesUploaded >= frameByteBudget ||
+						System.nanoTime() - startTime >= frameTimeBudgetNanos)) break;
+				
+				byteBudget = Math.max(1l, frameByteBudget - bytesUploaded);
 			}
 			
-			loadLists.clear();
+			// do the upload without holding the lock so other threads can keep queueing
+			long bytes = list.upload(byteBudget);
+			bytesUploaded += bytes;
+			
+			synchronized(this) {
+				numBytesUploaded += bytes;
+				
+				// the list was removed by a call to clear during the upload
+				if (list.abandoned) continue;
+				
+				pendingBytes -= bytes;
+				
+				if (list.isComplete()) {
+					loadLists.remove(list);
+					for (Sprite sprite : list.sprites) {
+						pendingSprites.remove(sprite);
+					}
+					
+					numTexturesUploaded++;
+				}
+			}
+		}
+		
+		if (bytesUploaded == 0l) return;
+		
+		long elapsed = System.nanoTime() - startTime;
+		
+		synchronized(this) {
+			lastUpdateNanos = elapsed;
+			maxUpdateNanos = Math.max(maxUpdateNanos, elapsed);
+			totalUploadNanos += elapsed;
+		}
+	}
+	
+	private void deleteAbandonedTextures() {
+		synchronized(this) {
+			if (abandonedTextures.isEmpty()) return;
+			
+			for (int texture : abandonedTextures) {
+				GL11.glDeleteTextures(texture);
+			}
+			
+			abandonedTextures.clear();
 		}
 	}
 	
 	/**
 	 * Tells the loader to add the specified texture to the queue of textures to be loaded.
-	 * The next time {@link #update()} is called, the specified Sprite will have its
+	 * Once {@link #update()} has loaded the texture, the specified Sprites will have their
 	 * texture set to the value returned from OpenGL by loading the texture
 	 * @param pixels the pixel data to load
 	 * @param width the width of the pixel data
@@ -89,18 +244,92 @@ public class AsyncTextureLoader {
 	public void loadTexture(ByteBuffer pixels, int width, int height, List<Sprite> sprites) {
 		TextureSpriteLoadList list = new TextureSpriteLoadList(pixels, width, height, sprites);
 		
-		synchronized(loadLists) {
+		synchronized(this) {
+			list.sequence = nextSequence;
+			nextSequence++;
+			
+			list.subImage = list.getSize() > subImageThreshold;
+			
 			loadLists.add(list);
+			for (Sprite sprite : sprites) {
+				pendingSprites.put(sprite, list);
+			}
+			
+			pendingBytes += list.getSize();
 		}
 	}
 	
-	private class TextureSpriteLoadList {
+	/**
+	 * Returns the number of textures waiting to be uploaded
+	 * @return the number of queued textures
+	 */
+	
+	public synchronized int getQueueDepth() {
+		return loadLists.size();
+	}
+	
+	/**
+	 * Returns the number of bytes of pixel data waiting to be uploaded
+	 * @return the number of queued bytes
+	 */
+	
+	public synchronized long getQueuedBytes() {
+		return pendingBytes;
+	}
+	
+	/**
+	 * Returns the time in milliseconds spent in the most recent call to {@link #update()}
+	 * that uploaded any textures
+	 * @return the most recent upload time
+	 */
+	
+	public synchronized double getLastUploadMillis() {
+		return lastUpdateNanos / 1000000.0;
+	}
+	
+	/**
+	 * Returns the longest time in milliseconds spent in a single call to {@link #update()}
+	 * @return the maximum upload time
+	 */
+	
+	public synchronized double getMaxUploadMillis() {
+		return maxUpdateNanos / 1000000.0;
+	}
+	
+	/**
+	 * Returns a summary of the state of the queue and the upload time metrics
+	 * @return a summary of this loader's state
+	 */
+	
+	public synchronized String getStats() {
+		StringBuilder sb = new StringBuilder();
+		
+		sb.append("Queued textures: ").append(loadLists.size());
+		sb.append(" (").append(pendingBytes / 1024).append(" KB)\n");
+		sb.append("Uploaded textures: ").append(numTexturesUploaded);
+		sb.append(" (").append(numBytesUploaded / 1024).append(" KB)\n");
+		sb.append(String.format("Upload time: %.2f ms last frame, %.2f ms max, %.1f ms total",
+				lastUpdateNanos / 1000000.0, maxUpdateNanos / 1000000.0, totalUploadNanos / 1000000.0));
+		
+		return sb.toString();
+	}
+	
+	private class TextureSpriteLoadList implements Comparable<TextureSpriteLoadList> {
 		private ByteBuffer pixels;
 		private int width;
 		private int height;
 		
 		private List<Sprite> sprites;
 		
+		private long sequence;
+		private boolean prioritized;
+		private boolean subImage;
+		private boolean abandoned;
+		
+		// the texture and the next row to upload, once the upload has started
+		private int texture;
+		private int nextRow;
+		
 		private TextureSpriteLoadList(ByteBuffer pixels, int width, int height, List<Sprite> sprites) {
 			this.pixels = pixels;
 			this.width = width;
@@ -108,21 +337,85 @@ public class AsyncTextureLoader {
 			this.sprites = sprites;
 		}
 		
-		private void loadTexture() {
-			IntBuffer textures = BufferUtils.createIntBuffer(1);
-
-			// bind a new texture for the image
-			GL11.glGenTextures(textures);
-			GL11.glBindTexture(GL11.GL_TEXTURE_2D, textures.get(0));
-			GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
-			GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
+		private long getSize() {
+			return 4l * width * height;
+		}
+		
+		private boolean isComplete() {
+			return pixels == null;
+		}
+		
+		@Override public int compareTo(TextureSpriteLoadList other) {
+			// textures that have been started must be finished first
+			if ((texture != 0) != (other.texture != 0)) return texture != 0 ? -1 : 1;
 			
-			GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA, width,
-					height, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, pixels);
+			if (prioritized != other.prioritized) return prioritized ? -1 : 1;
 			
+			if (sequence < other.sequence) return -1;
+			else if (sequence > other.sequence) return 1;
+			else return 0;
+		}
+		
+		/*
+		 * Uploads all of this texture, or as many rows as fit in the specified number of
+		 * bytes if it is uploaded as a sub image.  Returns the number of bytes uploaded
+		 */
+		
+		private long upload(long byteBudget) {
+			if (texture == 0) {
+				IntBuffer textures = BufferUtils.createIntBuffer(1);
+				
+				// bind a new texture for the image
+				GL11.glGenTextures(textures);
+				GL11.glBindTexture(GL11.GL_TEXTURE_2D, textures.get(0));
+				GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
+				GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
+				
+				if (!subImage) {
+					GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA, width,
+							height, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, pixels);
+					
+					finish(textures.get(0));
+					return getSize();
+				}
+				
+				// allocate the texture, and then fill it in bands of rows
+				GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA, width,
+						height, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, (ByteBuffer)null);
+				
+				synchronized(AsyncTextureLoader.this) {
+					texture = textures.get(0);
+					
+					if (abandoned) abandonedTextures.add(texture);
+				}
+			} else {
+				GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
+			}
+			
+			int rowBytes = 4 * width;
+			int numRows = (int)Math.max(1l, Math.min(height - nextRow, byteBudget / rowBytes));
+			
+			ByteBuffer rows = pixels.duplicate();
+			rows.position(nextRow * rowBytes);
+			rows.limit((nextRow + numRows) * rowBytes);
+			
+			GL11.glTexSubImage2D(GL11.GL_TEXTURE_2D, 0, 0, nextRow, width, numRows,
+					GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, rows);
+			
+			nextRow += numRows;
+			
+			if (nextRow == height) finish(texture);
+			
+			return (long)numRows * rowBytes;
+		}
+		
+		private void finish(int texture) {
 			for (Sprite sprite : sprites) {
-				sprite.setTexture(textures.get(0));
+				sprite.setTexture(texture);
 			}
+			
+			// release the pixel data
+			pixels = null;
 		}
 	}
 }
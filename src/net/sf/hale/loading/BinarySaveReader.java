@@ -0,0 +1,174 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2012 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package net.sf.hale.loading;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.minidev.json.JSONArray;
+import net.minidev.json.JSONObject;
+
+/**
+ * Reads save data written by a {@link BinarySaveSink} into the tree of JSONObjects
+ * and JSONArrays that the JSON parser would produce for the equivalent JSON save, so
+ * that saves in either format are loaded by the same code.
+ * @author Jared Stephen
+ *
+ */
+
+public class BinarySaveReader {
+	private final DataInputStream in;
+	
+	private final List<String> stringTable;
+	
+	private BinarySaveReader(InputStream in) {
+		this.in = new DataInputStream(in);
+		this.stringTable = new ArrayList<String>();
+	}
+	
+	/**
+	 * Returns true if the data at the current position of the specified stream is
+	 * binary save data.  The stream position is not changed
+	 * @param in the stream, which must support mark and reset
+	 * @return whether the stream contains binary save data
+	 * @throws IOException
+	 */
+	
+	public static boolean isBinarySave(InputStream in) throws IOException {
+		in.mark(1);
+		int first = in.read();
+		in.reset();
+		
+		return first == BinarySaveSink.Magic[0];
+	}
+	
+	/**
+	 * Reads the binary save data from the specified stream
+	 * @param in the stream to read from
+	 * @return the root object of the save data
+	 * @throws IOException if an error occurs reading the stream or the data is
+	 * not valid binary save data
+	 */
+	
+	public static JSONObject read(InputStream in) throws IOException {
+		BinarySaveReader reader = new BinarySaveReader(in);
+		
+		for (byte b : BinarySaveSink.Magic) {
+			if (reader.in.readByte() != b)
+				throw new IOException("Not a binary save file.");
+		}
+		
+		int version = reader.in.readUnsignedByte();
+		if (version != BinarySaveSink.Version)
+			throw new IOException("Unsupported binary save version " + version);
+		
+		Object root = reader.readValue(reader.in.readUnsignedByte());
+		if (!(root instanceof JSONObject))
+			throw new IOException("Binary save data does not contain an object.");
+		
+		return (JSONObject)root;
+	}
+	
+	private long readVarLong() throws IOException {
+		long value = 0L;
+		
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long)(b & 0x7F) << shift;
+			
+			if ((b & 0x80) == 0) return value;
+		}
+		
+		throw new IOException("Invalid variable length integer.");
+	}
+	
+	private String readString(int tag) throws IOException {
+		if (tag == BinarySaveSink.TagStringRef) {
+			int index = (int)readVarLong();
+			if (index < 0 || index >= stringTable.size())
+				throw new IOException("Invalid string reference " + index);
+			
+			return stringTable.get(index);
+		} else if (tag == BinarySaveSink.TagString) {
+			byte[] bytes = new byte[(int)readVarLong()];
+			in.readFully(bytes);
+			
+			String value = new String(bytes, "UTF-8");
+			if (value.length() <= BinarySaveSink.MaxTableStringLength)
+				stringTable.add(value);
+			
+			return value;
+		} else {
+			throw new IOException("Expected string but found tag " + tag);
+		}
+	}
+	
+	private Object readValue(int tag) throws IOException {
+		switch (tag) {
+		case BinarySaveSink.TagNull:
+			return null;
+		case BinarySaveSink.TagFalse:
+			return Boolean.FALSE;
+		case BinarySaveSink.TagTrue:
+			return Boolean.TRUE;
+		case BinarySaveSink.TagInteger:
+			long encoded = readVarLong();
+			long value = (encoded >>> 1) ^ -(encoded & 1L);
+			
+			// the JSON parser produces Integers wherever the value fits
+			if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE)
+				return Integer.valueOf((int)value);
+			else
+				return Long.valueOf(value);
+		case BinarySaveSink.TagDouble:
+			return Double.valueOf(in.readDouble());
+		case BinarySaveSink.TagFloat:
+			// match the value parsed from the float's JSON representation
+			return Double.valueOf(Float.toString(in.readFloat()));
+		case BinarySaveSink.TagString:
+		case BinarySaveSink.TagStringRef:
+			return readString(tag);
+		case BinarySaveSink.TagObject:
+			JSONObject object = new JSONObject();
+			
+			int keyTag;
+			while ((keyTag = in.readUnsignedByte()) != BinarySaveSink.TagEnd) {
+				String key = readString(keyTag);
+				object.put(key, readValue(in.readUnsignedByte()));
+			}
+			
+			return object;
+		case BinarySaveSink.TagArray:
+			JSONArray array = new JSONArray();
+			
+			int valueTag;
+			while ((valueTag = in.readUnsignedByte()) != BinarySaveSink.TagEnd) {
+				array.add(readValue(valueTag));
+			}
+			
+			return array;
+		default:
+			throw new IOException("Invalid tag " + tag + " in binary save data.");
+		}
+	}
+}
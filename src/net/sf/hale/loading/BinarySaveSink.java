@@ -0,0 +1,170 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2012 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package net.sf.hale.loading;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A SaveSink writing a compact binary encoding of the save data.  Each value is
+ * written as a one byte tag followed by its data.  Integers are written as variable
+ * length zig-zag encoded values, and strings that have been written before, such as
+ * keys and references, are written as an index into the table of previous strings.
+ * <p>
+ * Binary saves are read back by {@link BinarySaveReader} into the same tree that
+ * parsing the equivalent JSON would produce.
+ * @author Jared Stephen
+ *
+ */
+
+public class BinarySaveSink extends SaveSink {
+	/**
+	 * The bytes written at the start of binary save data.  The first byte can never
+	 * begin a JSON save
+	 */
+	
+	public static final byte[] Magic = { 0, 'H', 'S', 'B' };
+	
+	/**
+	 * The current version of the binary encoding
+	 */
+	
+	public static final int Version = 1;
+	
+	/**
+	 * Strings longer than this are never added to the string table
+	 */
+	
+	public static final int MaxTableStringLength = 64;
+	
+	static final int TagNull = 0;
+	static final int TagFalse = 1;
+	static final int TagTrue = 2;
+	static final int TagInteger = 3;
+	static final int TagDouble = 4;
+	static final int TagFloat = 5;
+	static final int TagString = 6;
+	static final int TagStringRef = 7;
+	static final int TagObject = 8;
+	static final int TagArray = 9;
+	static final int TagEnd = 10;
+	
+	private final DataOutputStream out;
+	
+	private final Map<String, Integer> stringTable;
+	
+	/**
+	 * Creates a new BinarySaveSink writing to the specified stream, and writes the
+	 * binary save header.  The stream should be buffered
+	 * @param out the stream to write to
+	 * @throws IOException
+	 */
+	
+	public BinarySaveSink(OutputStream out) throws IOException {
+		this.out = new DataOutputStream(out);
+		this.stringTable = new HashMap<String, Integer>();
+		
+		this.out.write(Magic);
+		this.out.write(Version);
+	}
+	
+	private void writeVarLong(long value) throws IOException {
+		while ((value & ~0x7FL) != 0L) {
+			out.write((int)(value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		
+		out.write((int)value);
+	}
+	
+	private void writeString(String value) throws IOException {
+		Integer index = stringTable.get(value);
+		if (index != null) {
+			out.write(TagStringRef);
+			writeVarLong(index);
+			return;
+		}
+		
+		if (value.length() <= MaxTableStringLength)
+			stringTable.put(value, stringTable.size());
+		
+		byte[] bytes = value.getBytes("UTF-8");
+		out.write(TagString);
+		writeVarLong(bytes.length);
+		out.write(bytes);
+	}
+	
+	@Override public void beginObject() throws IOException {
+		out.write(TagObject);
+	}
+	
+	@Override public void endObject() throws IOException {
+		out.write(TagEnd);
+	}
+	
+	@Override public void beginArray() throws IOException {
+		out.write(TagArray);
+	}
+	
+	@Override public void endArray() throws IOException {
+		out.write(TagEnd);
+	}
+	
+	@Override public void key(String key) throws IOException {
+		writeString(key);
+	}
+	
+	@Override public void nullValue() throws IOException {
+		out.write(TagNull);
+	}
+	
+	@Override public void value(String value) throws IOException {
+		writeString(value);
+	}
+	
+	@Override public void value(long value) throws IOException {
+		out.write(TagInteger);
+		writeVarLong((value << 1) ^ (value >> 63));
+	}
+	
+	@Override public void value(double value, boolean singlePrecision) throws IOException {
+		// infinite values are written as null, matching the JSON encoding
+		if (Double.isInfinite(value)) {
+			out.write(TagNull);
+		} else if (singlePrecision) {
+			out.write(TagFloat);
+			out.writeFloat((float)value);
+		} else {
+			out.write(TagDouble);
+			out.writeDouble(value);
+		}
+	}
+	
+	@Override public void value(boolean value) throws IOException {
+		out.write(value ? TagTrue : TagFalse);
+	}
+	
+	@Override public void flush() throws IOException {
+		out.flush();
+	}
+}
@@ -20,6 +20,8 @@
 package net.sf.hale.loading;
 
 import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import net.sf.hale.Game;
 import net.sf.hale.entity.EntityManager;
@@ -29,7 +31,9 @@ import net.sf.hale.resource.SpriteManager;
 import net.sf.hale.rules.Ruleset;
 
 /**
- * A loading task list that performs the initial actions neccesary to load the campaign
+ * A loading task list that performs the initial actions neccesary to load the campaign.
+ * Sprite sheets and the ruleset are loaded on several threads at once; the campaign
+ * file itself is read once everything it refers to is available.
  * @author Jared Stephen
  *
  */
@@ -58,6 +62,7 @@ public class CampaignLoadingTaskList extends LoadingTaskList {
 			
 			spriteTask.addSubTask(new SpriteSheetLoader(resource), 10);
 		}
+		spriteTask.setSubTasksConcurrent(true);
 		
 		Runnable loadAnimations = new Runnable() {
 			@Override public void run() {
@@ -65,11 +70,16 @@ public class CampaignLoadingTaskList extends LoadingTaskList {
 			}
 		};
 		
-		Runnable loadRuleset = new Runnable() {
+		final Ruleset ruleset = new Ruleset();
+		
+		Runnable createRuleset = new Runnable() {
+			@Override public void run() {
+				Game.ruleset = ruleset;
+			}
+		};
+		
+		Runnable clearEntities = new Runnable() {
 			@Override public void run() {
-				Game.ruleset = new Ruleset();
-				Game.ruleset.readData();
-				
 				EntityManager.clear();
 			}
 		};
@@ -83,11 +93,33 @@ public class CampaignLoadingTaskList extends LoadingTaskList {
 			}
 		};
 		
-		addTask(registerCampaign, "Registering Campaign Resources", 1);
-		addTask(spriteTask);
-		addTask(loadAnimations, "Loading Animations", 5);
-		addTask(loadRuleset, "Loading Ruleset", 30);
-		addTask(loadCampaign, "Loading Campaign resources", 30);
+		Runnable prewarmScripts = new Runnable() {
+			@Override public void run() {
+				// evaluate the AI scripts, which are run by nearly every creature, in advance
+				Map<String, String> scripts = new LinkedHashMap<String, String>();
+				for (String resource : ResourceManager.getResourcesInDirectory("scripts/ai")) {
+					String scriptID = ResourceManager.getResourceID(resource, "scripts", ResourceType.JavaScript);
+					if (scriptID == null) continue;
+					
+					scripts.put(scriptID, ResourceManager.getScriptResourceAsString(scriptID));
+				}
+				
+				Game.scriptEngineManager.prewarm(Game.config.getPrewarmedScriptEngines(), scripts);
+			}
+		};
+		
+		LoadingTask registerTask = addTask(registerCampaign, "Registering Campaign Resources", 1);
+		addTask(spriteTask, registerTask);
+		LoadingTask animationsTask = addTask(loadAnimations, "Loading Animations", 5, spriteTask);
+		
+		// rules refer to icons, so they are read once all sprites are available
+		LoadingTask createRulesetTask = addTask(createRuleset, "Loading Ruleset", 1, spriteTask);
+		LoadingTask rulesetTask = ruleset.addLoadingTasks(this, createRulesetTask);
+		LoadingTask entitiesTask = addTask(clearEntities, "Loading Ruleset", 1, rulesetTask);
+		
+		LoadingTask campaignTask = addTask(loadCampaign, "Loading Campaign resources", 30,
+				entitiesTask, animationsTask);
+		addTask(prewarmScripts, "Preparing Scripts", 5, campaignTask);
 	}
 	
 	@Override protected void onError() {
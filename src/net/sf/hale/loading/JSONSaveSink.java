@@ -0,0 +1,168 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2012 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package net.sf.hale.loading;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * A SaveSink writing indented JSON text, in the same layout as {@link SaveWriter},
+ * directly to a Writer as each token is received.  The Writer should be buffered.
+ * @author Jared Stephen
+ *
+ */
+
+public class JSONSaveSink extends SaveSink {
+	private final Writer out;
+	
+	// whether each open container is an object, and whether it has any entries yet
+	private boolean[] isObject;
+	private boolean[] isEmpty;
+	private int depth;
+	
+	private char[] spaces;
+	
+	/**
+	 * Creates a new JSONSaveSink writing to the specified Writer
+	 * @param out the writer to write to
+	 */
+	
+	public JSONSaveSink(Writer out) {
+		this.out = out;
+		this.isObject = new boolean[16];
+		this.isEmpty = new boolean[16];
+		this.spaces = new char[32];
+		Arrays.fill(spaces, ' ');
+	}
+	
+	private void indent(int level) throws IOException {
+		int length = 2 * level;
+		if (length > spaces.length) {
+			spaces = new char[length * 2];
+			Arrays.fill(spaces, ' ');
+		}
+		
+		out.write(spaces, 0, length);
+	}
+	
+	private void push(boolean object) {
+		if (depth == isObject.length) {
+			isObject = Arrays.copyOf(isObject, depth * 2);
+			isEmpty = Arrays.copyOf(isEmpty, depth * 2);
+		}
+		
+		isObject[depth] = object;
+		isEmpty[depth] = true;
+		depth++;
+	}
+	
+	private void beforeValue() throws IOException {
+		// values in objects are preceded by their key, which handles the separator
+		if (depth == 0 || isObject[depth - 1]) return;
+		
+		if (isEmpty[depth - 1]) {
+			out.write('\n');
+			indent(depth);
+			isEmpty[depth - 1] = false;
+		} else {
+			out.write(", ");
+		}
+	}
+	
+	@Override public void beginObject() throws IOException {
+		beforeValue();
+		out.write('{');
+		push(true);
+	}
+	
+	@Override public void endObject() throws IOException {
+		depth--;
+		out.write('\n');
+		indent(depth);
+		out.write('}');
+	}
+	
+	@Override public void beginArray() throws IOException {
+		beforeValue();
+		out.write('[');
+		push(false);
+	}
+	
+	@Override public void endArray() throws IOException {
+		depth--;
+		if (!isEmpty[depth]) {
+			out.write('\n');
+			indent(depth);
+		}
+		out.write(']');
+	}
+	
+	@Override public void key(String key) throws IOException {
+		if (isEmpty[depth - 1]) {
+			isEmpty[depth - 1] = false;
+		} else {
+			out.write(',');
+		}
+		
+		out.write('\n');
+		indent(depth);
+		out.write('"');
+		SaveWriter.escape(key, out);
+		out.write("\" : ");
+	}
+	
+	@Override public void nullValue() throws IOException {
+		beforeValue();
+		out.write("null");
+	}
+	
+	@Override public void value(String value) throws IOException {
+		beforeValue();
+		out.write('"');
+		SaveWriter.escape(value, out);
+		out.write('"');
+	}
+	
+	@Override public void value(long value) throws IOException {
+		beforeValue();
+		out.write(Long.toString(value));
+	}
+	
+	@Override public void value(double value, boolean singlePrecision) throws IOException {
+		beforeValue();
+		
+		if (Double.isInfinite(value))
+			out.write("null");
+		else if (singlePrecision)
+			out.write(Float.toString((float)value));
+		else
+			out.write(Double.toString(value));
+	}
+	
+	@Override public void value(boolean value) throws IOException {
+		beforeValue();
+		out.write(value ? "true" : "false");
+	}
+	
+	@Override public void flush() throws IOException {
+		out.flush();
+	}
+}
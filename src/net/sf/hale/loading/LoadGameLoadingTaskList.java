@@ -19,6 +19,7 @@
 
 package net.sf.hale.loading;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStreamReader;
@@ -82,8 +83,16 @@ public class LoadGameLoadingTaskList extends LoadingTaskList {
 		Runnable parseData = new Runnable() {
 			@Override public void run() {
 				try {
-					Reader reader = new InputStreamReader(gz);
-					parser = new SimpleJSONParser(reader, fileToLoad.getName());
+					BufferedInputStream in = new BufferedInputStream(gz);
+					
+					if (BinarySaveReader.isBinarySave(in)) {
+						parser = new SimpleJSONParser(BinarySaveReader.read(in), fileToLoad.getName());
+						in.close();
+					} else {
+						Reader reader = new InputStreamReader(in);
+						parser = new SimpleJSONParser(reader, fileToLoad.getName());
+					}
+					
 					parser.setWarnOnMissingKeys(false);
 				} catch (Exception e) {
 					Logger.appendToErrorLog("Error parsing saved game: " + fileToLoad.getPath(), e);
@@ -20,6 +20,7 @@
 package net.sf.hale.loading;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -27,6 +28,11 @@ import java.util.NoSuchElementException;
 /**
  * A single task that is performed in the process of loading.  Each task has a
  * different weight and can contain sub tasks.
+ * <p>
+ * A task may depend on other tasks, in which case it is not started until all of
+ * those tasks are complete.  The main task is always run before any sub tasks.  Sub
+ * tasks are run one at a time in order, unless they are marked as concurrent, in
+ * which case they may all run at the same time on different threads.
  * @author Jared Stephen
  *
  */
@@ -40,6 +46,9 @@ public class LoadingTask {
 	private Iterator<SubTask> subTasksIter;
 	private List<SubTask> subTasks;
 	
+	private final List<LoadingTask> dependencies;
+	private boolean subTasksConcurrent;
+	
 	/**
 	 * Creates a new LoadingTask with the default weight of 1 and the specified description
 	 * @param task the Runnable that will execute the task when run()
@@ -47,11 +56,7 @@ public class LoadingTask {
 	 */
 	
 	public LoadingTask(Runnable task, String description) {
-		this.task = task;
-		this.description = description;
-		this.taskWeight = 1;
-		
-		this.subTasks = new ArrayList<SubTask>();
+		this(task, description, 1);
 	}
 	
 	/**
@@ -67,6 +72,45 @@ public class LoadingTask {
 		this.taskWeight = weight;
 		
 		this.subTasks = new ArrayList<SubTask>();
+		this.dependencies = new ArrayList<LoadingTask>();
+	}
+	
+	/**
+	 * Adds a task that must be completed before this task is started
+	 * @param dependency the task that this task depends on
+	 */
+	
+	public void addDependency(LoadingTask dependency) {
+		dependencies.add(dependency);
+	}
+	
+	/**
+	 * Returns the list of tasks that must be completed before this task is started.
+	 * The returned list is unmodifiable
+	 * @return the list of tasks this task depends on
+	 */
+	
+	public List<LoadingTask> getDependencies() {
+		return Collections.unmodifiableList(dependencies);
+	}
+	
+	/**
+	 * Sets whether the sub tasks of this task are independent of each other and can
+	 * be run concurrently.  By default, sub tasks are run one at a time in order
+	 * @param concurrent whether sub tasks can run concurrently
+	 */
+	
+	public void setSubTasksConcurrent(boolean concurrent) {
+		this.subTasksConcurrent = concurrent;
+	}
+	
+	/**
+	 * Returns whether the sub tasks of this task may be run concurrently
+	 * @return whether sub tasks can run concurrently
+	 */
+	
+	public boolean isSubTasksConcurrent() {
+		return subTasksConcurrent;
 	}
 	
 	/**
@@ -118,7 +162,7 @@ public class LoadingTask {
 		if (task != null) {
 			task.run();
 			task = null;
-			return taskWeight;
+			return getMainTaskWeight();
 		} else if (subTasksIter.hasNext()) {
 			SubTask subTask = subTasksIter.next();
 			subTask.task.run();
@@ -139,8 +183,55 @@ public class LoadingTask {
 		return task != null || subTasksIter.hasNext();
 	}
 	
-	private class SubTask {
-		private Runnable task;
-		private int weight;
+	/**
+	 * Returns true if this task has a main task that has not yet been run
+	 * @return whether this task has a main task
+	 */
+	
+	boolean hasMainTask() {
+		return task != null;
+	}
+	
+	/*
+	 * The weight of the main task, not including any sub tasks
+	 */
+	
+	private int getMainTaskWeight() {
+		int weight = taskWeight;
+		for (SubTask subTask : subTasks) {
+			weight -= subTask.weight;
+		}
+		
+		return weight;
+	}
+	
+	/**
+	 * Returns the list of units of work for this task, in order: the main task, if any,
+	 * followed by each sub task
+	 * @return the list of units of work
+	 */
+	
+	List<SubTask> getWorkUnits() {
+		List<SubTask> units = new ArrayList<SubTask>(subTasks.size() + 1);
+		
+		if (task != null) {
+			SubTask main = new SubTask();
+			main.task = task;
+			main.weight = getMainTaskWeight();
+			units.add(main);
+		}
+		
+		units.addAll(subTasks);
+		
+		return units;
+	}
+	
+	/**
+	 * A single unit of work within a LoadingTask
+	 */
+	
+	static class SubTask {
+		Runnable task;
+		int weight;
 	}
 }
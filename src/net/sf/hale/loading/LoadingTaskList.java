@@ -20,13 +20,28 @@
 package net.sf.hale.loading;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import net.sf.hale.util.Logger;
 
 /**
- * A list of LoadingTasks.  Will execute each task in order, updating the
- * GUI as appropriate.  Should be run as a normal thread, with {@link #start()}
+ * A list of LoadingTasks, updating the GUI as appropriate.  Should be run as a
+ * normal thread, with {@link #start()}
+ * <p>
+ * Tasks are run on a pool of worker threads.  A task is started once all of the
+ * tasks it depends on are complete.  Tasks added with {@link #addTask(LoadingTask)}
+ * depend on the task added before them, so a list built only with that method
+ * executes each task in order, as before.  Tasks with explicit dependencies, and
+ * the sub tasks of tasks marked as concurrent, may run at the same time.
  * @author Jared Stephen
  *
  */
@@ -35,10 +50,10 @@ public class LoadingTaskList extends Thread {
 	private List<LoadingTask> tasks;
 	private int totalWeight;
 	
-	private float completedFraction;
-	private String currentDescription;
+	private volatile float completedFraction;
+	private volatile String currentDescription;
 	
-	private boolean success;
+	private volatile boolean success;
 	
 	/**
 	 * Creates a new, empty LoadingTaskList containing no LoadingTasks
@@ -49,11 +64,39 @@ public class LoadingTaskList extends Thread {
 	}
 	
 	/**
-	 * Adds the specified task to the list of tasks to execute.
+	 * Adds the specified task to the list of tasks to execute.  The task will not be
+	 * started until the previously added task, if any, is complete.
 	 * @param task
 	 */
 	
 	public void addTask(LoadingTask task) {
+		if (!tasks.isEmpty()) task.addDependency(tasks.get(tasks.size() - 1));
+		
+		addTaskInternal(task);
+	}
+	
+	/**
+	 * Adds the specified task to the list of tasks to execute.  The task will be started
+	 * once all of the specified tasks are complete, and may run at the same time as any
+	 * other tasks that are not among its dependencies.  Each dependency must already have
+	 * been added to this list.
+	 * @param task the task to add
+	 * @param dependencies the tasks that must be complete before this task is started
+	 */
+	
+	public void addTask(LoadingTask task, LoadingTask... dependencies) {
+		for (LoadingTask dependency : dependencies) {
+			if (!tasks.contains(dependency))
+				throw new IllegalArgumentException("Dependency " + dependency.getDescription() +
+						" has not been added to the task list.");
+			
+			task.addDependency(dependency);
+		}
+		
+		addTaskInternal(task);
+	}
+	
+	private void addTaskInternal(LoadingTask task) {
 		tasks.add(task);
 		totalWeight += task.getWeight();
 		
@@ -65,10 +108,29 @@ public class LoadingTaskList extends Thread {
 	 * @param task the Runnable to execute for the task
 	 * @param description the String description
 	 * @param weight the weight for the task
+	 * @return the LoadingTask that was added
 	 */
 	
-	public void addTask(Runnable task, String description, int weight) {
-		addTask(new LoadingTask(task, description, weight));
+	public LoadingTask addTask(Runnable task, String description, int weight) {
+		LoadingTask loadingTask = new LoadingTask(task, description, weight);
+		addTask(loadingTask);
+		return loadingTask;
+	}
+	
+	/**
+	 * Adds a LoadingTask with the specified parameters.  The task will be started once
+	 * all of the specified tasks are complete.  Convenience method.
+	 * @param task the Runnable to execute for the task
+	 * @param description the String description
+	 * @param weight the weight for the task
+	 * @param dependencies the tasks that must be complete before this task is started
+	 * @return the LoadingTask that was added
+	 */
+	
+	public LoadingTask addTask(Runnable task, String description, int weight, LoadingTask... dependencies) {
+		LoadingTask loadingTask = new LoadingTask(task, description, weight);
+		addTask(loadingTask, dependencies);
+		return loadingTask;
 	}
 	
 	/**
@@ -76,10 +138,11 @@ public class LoadingTaskList extends Thread {
 	 * Convenience method.
 	 * @param task the Runnable to execute for the task
 	 * @param description the String description
+	 * @return the LoadingTask that was added
 	 */
 	
-	public void addTask(Runnable task, String description) {
-		addTask(new LoadingTask(task, description));
+	public LoadingTask addTask(Runnable task, String description) {
+		return addTask(task, description, 1);
 	}
 	
 	/**
@@ -93,7 +156,9 @@ public class LoadingTaskList extends Thread {
 	}
 	
 	/**
-	 * Returns the String description of the task currently being executed
+	 * Returns the String description of the task currently being executed.  If
+	 * several tasks are running, this is the most recently started task that is
+	 * still running
 	 * @return the description of the LoadingTask currently being executed
 	 */
 	
@@ -117,17 +182,11 @@ public class LoadingTaskList extends Thread {
 	protected void onError() { }
 	
 	@Override public void run() {
+		int numThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads, new LoaderThreadFactory());
+		
 		try {
-			int completedWeight = 0;
-
-			for (LoadingTask task : tasks) {
-				currentDescription = task.getDescription();
-
-				while (task.hasNextTask()) {
-					completedWeight += task.executeNextTask();
-					completedFraction = ((float)completedWeight) / ((float)totalWeight);
-				}
-			}
+			new Scheduler(executor).run();
 			
 			// sleep so the user sees the completed progress bar for a moment
 			Thread.sleep(300);
@@ -137,6 +196,207 @@ public class LoadingTaskList extends Thread {
 		} catch (Exception e) {
 			onError();
 			Logger.appendToErrorLog("Exception while loading data", e);
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
+	/*
+	 * Tracks the state of each task and submits units of work to the executor as
+	 * their dependencies are completed.  All state is only accessed from the task
+	 * list thread; workers report back through the completions queue.
+	 */
+	
+	private class Scheduler {
+		private final ExecutorService executor;
+		private final BlockingQueue<Completion> completions;
+		
+		private final Map<LoadingTask, TaskState> states;
+		
+		// the tasks that are currently running, in the order they were started
+		private final LinkedList<LoadingTask> running;
+		
+		private int completedWeight;
+		private int numInFlight;
+		
+		private Scheduler(ExecutorService executor) {
+			this.executor = executor;
+			this.completions = new LinkedBlockingQueue<Completion>();
+			this.states = new HashMap<LoadingTask, TaskState>();
+			this.running = new LinkedList<LoadingTask>();
+			
+			for (LoadingTask task : tasks) {
+				states.put(task, new TaskState(task));
+			}
+		}
+		
+		private void run() throws Exception {
+			int numRemaining = tasks.size();
+			
+			startReadyTasks();
+			
+			Exception error = null;
+			
+			while (numInFlight > 0) {
+				Completion completion = completions.take();
+				numInFlight--;
+				
+				if (completion.error != null) {
+					// stop starting new work, but wait for work already started to finish
+					if (error == null) error = completion.error;
+					continue;
+				}
+				
+				if (error != null) continue;
+				
+				completedWeight += completion.unit.weight;
+				completedFraction = ((float)completedWeight) / ((float)totalWeight);
+				
+				TaskState state = states.get(completion.task);
+				state.numRunning--;
+				
+				if (state.hasNextUnit()) {
+					submitAvailableUnits(state);
+				} else if (state.numRunning == 0) {
+					state.complete = true;
+					numRemaining--;
+					
+					// count any weight not assigned to a unit of work, such as a missing main task
+					completedWeight += state.task.getWeight() - state.unitsWeight;
+					completedFraction = ((float)completedWeight) / ((float)totalWeight);
+					
+					running.remove(state.task);
+					if (!running.isEmpty()) currentDescription = running.getLast().getDescription();
+					
+					startReadyTasks();
+				}
+			}
+			
+			if (error != null) throw error;
+			
+			if (numRemaining > 0)
+				throw new IllegalStateException("Unable to complete loading, " + numRemaining +
+						" tasks have dependencies that can never be completed.");
+		}
+		
+		private void startReadyTasks() {
+			for (LoadingTask task : tasks) {
+				TaskState state = states.get(task);
+				if (state.started || !isReady(task)) continue;
+				
+				state.started = true;
+				running.add(task);
+				currentDescription = task.getDescription();
+				
+				if (state.hasNextUnit()) {
+					submitAvailableUnits(state);
+				} else {
+					// a task with no work is immediately complete
+					completions.add(new Completion(task, new LoadingTask.SubTask(), null));
+					state.numRunning++;
+					numInFlight++;
+				}
+			}
+		}
+		
+		private boolean isReady(LoadingTask task) {
+			for (LoadingTask dependency : task.getDependencies()) {
+				if (!states.get(dependency).complete) return false;
+			}
+			
+			return true;
+		}
+		
+		/*
+		 * Submits the next unit of work for the specified task, or all remaining units
+		 * if they may run concurrently.  The main task always runs on its own first.
+		 */
+		
+		private void submitAvailableUnits(TaskState state) {
+			if (state.numRunning > 0) return;
+			
+			do {
+				submit(state.task, state.nextUnit());
+				state.numRunning++;
+			} while (state.hasNextUnit() && state.task.isSubTasksConcurrent() && state.mainUnitDone());
+		}
+		
+		private void submit(final LoadingTask task, final LoadingTask.SubTask unit) {
+			numInFlight++;
+			
+			executor.execute(new Runnable() {
+				@Override public void run() {
+					try {
+						if (unit.task != null) unit.task.run();
+						
+						completions.add(new Completion(task, unit, null));
+					} catch (Exception e) {
+						completions.add(new Completion(task, unit, e));
+					} catch (Error e) {
+						completions.add(new Completion(task, unit, new RuntimeException(e)));
+					}
+				}
+			});
+		}
+	}
+	
+	private class TaskState {
+		private final LoadingTask task;
+		private final List<LoadingTask.SubTask> units;
+		private final boolean hasMainUnit;
+		private final int unitsWeight;
+		
+		private int nextUnit;
+		private int numRunning;
+		private boolean started;
+		private boolean complete;
+		
+		private TaskState(LoadingTask task) {
+			this.task = task;
+			this.units = task.getWorkUnits();
+			this.hasMainUnit = task.hasMainTask();
+			
+			int weight = 0;
+			for (LoadingTask.SubTask unit : units) {
+				weight += unit.weight;
+			}
+			this.unitsWeight = weight;
+		}
+		
+		private boolean hasNextUnit() {
+			return nextUnit < units.size();
+		}
+		
+		private LoadingTask.SubTask nextUnit() {
+			LoadingTask.SubTask unit = units.get(nextUnit);
+			nextUnit++;
+			return unit;
+		}
+		
+		private boolean mainUnitDone() {
+			return !hasMainUnit || nextUnit > 1;
+		}
+	}
+	
+	private static class Completion {
+		private final LoadingTask task;
+		private final LoadingTask.SubTask unit;
+		private final Exception error;
+		
+		private Completion(LoadingTask task, LoadingTask.SubTask unit, Exception error) {
+			this.task = task;
+			this.unit = unit;
+			this.error = error;
+		}
+	}
+	
+	private static class LoaderThreadFactory implements ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger();
+		
+		@Override public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "Loader-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
 		}
 	}
 }
@@ -0,0 +1,225 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2012 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package net.sf.hale.loading;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * A destination for save game data that is written as a sequence of tokens, rather
+ * than built up as a tree of {@link JSONOrderedObject} and written out all at once.
+ * <p>
+ * Objects and arrays are opened and closed with matching calls.  Within an object,
+ * each value must be preceded by a call to {@link #key(String)}.  {@link #value(Object)}
+ * writes complete JSON style trees, and streams {@link Saveable} objects as they are
+ * reached, so only the data for one object at a time is held in memory.
+ * @author Jared Stephen
+ *
+ */
+
+public abstract class SaveSink {
+	/**
+	 * Begins a new object
+	 * @throws IOException
+	 */
+	
+	public abstract void beginObject() throws IOException;
+	
+	/**
+	 * Ends the most recently begun object
+	 * @throws IOException
+	 */
+	
+	public abstract void endObject() throws IOException;
+	
+	/**
+	 * Begins a new array
+	 * @throws IOException
+	 */
+	
+	public abstract void beginArray() throws IOException;
+	
+	/**
+	 * Ends the most recently begun array
+	 * @throws IOException
+	 */
+	
+	public abstract void endArray() throws IOException;
+	
+	/**
+	 * Writes the key for the next value in the current object
+	 * @param key the key
+	 * @throws IOException
+	 */
+	
+	public abstract void key(String key) throws IOException;
+	
+	/**
+	 * Writes a null value
+	 * @throws IOException
+	 */
+	
+	public abstract void nullValue() throws IOException;
+	
+	/**
+	 * Writes a string value
+	 * @param value the value, which must not be null
+	 * @throws IOException
+	 */
+	
+	public abstract void value(String value) throws IOException;
+	
+	/**
+	 * Writes an integer value
+	 * @param value the value
+	 * @throws IOException
+	 */
+	
+	public abstract void value(long value) throws IOException;
+	
+	/**
+	 * Writes a floating point value.  Single precision values are written so that
+	 * they read back as the same float
+	 * @param value the value
+	 * @param singlePrecision whether the value is a float rather than a double
+	 * @throws IOException
+	 */
+	
+	public abstract void value(double value, boolean singlePrecision) throws IOException;
+	
+	/**
+	 * Writes a boolean value
+	 * @param value the value
+	 * @throws IOException
+	 */
+	
+	public abstract void value(boolean value) throws IOException;
+	
+	/**
+	 * Finishes writing and flushes any buffered output.  The underlying stream is not closed
+	 * @throws IOException
+	 */
+	
+	public abstract void flush() throws IOException;
+	
+	/**
+	 * Writes the specified key and value in the current object
+	 * @param key the key
+	 * @param value the value, see {@link #value(Object)}
+	 * @throws IOException
+	 */
+	
+	public void entry(String key, Object value) throws IOException {
+		key(key);
+		value(value);
+	}
+	
+	/**
+	 * Writes the specified value, which may be null, a String, Number, Boolean, Map,
+	 * Iterable, array, or Saveable.  Maps, Iterables, and arrays are written recursively.
+	 * {@link StreamingSaveable} objects write themselves directly to this sink, while other
+	 * Saveable objects are saved and the result is written and then discarded.  Other
+	 * objects are written as their String representation
+	 * @param value the value to write
+	 * @throws IOException
+	 */
+	
+	@SuppressWarnings("unchecked")
+	public void value(Object value) throws IOException {
+		if (value == null) {
+			nullValue();
+		} else if (value instanceof String) {
+			value((String)value);
+		} else if (value instanceof Double) {
+			value(((Double)value).doubleValue(), false);
+		} else if (value instanceof Float) {
+			value(((Float)value).doubleValue(), true);
+		} else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+			value(((Number)value).longValue());
+		} else if (value instanceof Number) {
+			value(((Number)value).doubleValue(), false);
+		} else if (value instanceof Boolean) {
+			value(((Boolean)value).booleanValue());
+		} else if (value instanceof StreamingSaveable) {
+			((StreamingSaveable)value).save(this);
+		} else if (value instanceof Saveable) {
+			// some Saveables are also Iterable, so these must be checked first
+			value(((Saveable)value).save());
+		} else if (value instanceof Map<?, ?>) {
+			beginObject();
+			for (Map.Entry<String, ? extends Object> entry : ((Map<String, ? extends Object>)value).entrySet()) {
+				entry(entry.getKey(), entry.getValue());
+			}
+			endObject();
+		} else if (value instanceof Iterable<?>) {
+			beginArray();
+			for (Object element : (Iterable<?>)value) {
+				value(element);
+			}
+			endArray();
+		} else if (value.getClass().isArray()) {
+			writeArray(value);
+		} else {
+			value(value.toString());
+		}
+	}
+	
+	private void writeArray(Object array) throws IOException {
+		Class<?> c = array.getClass().getComponentType();
+		
+		beginArray();
+		
+		if (!c.isPrimitive()) {
+			for (Object o : (Object[])array) {
+				value(o);
+			}
+		} else if (c == int.class) {
+			for (int i : (int[])array) {
+				value(i);
+			}
+		} else if (c == short.class) {
+			for (short s : (short[])array) {
+				value(s);
+			}
+		} else if (c == byte.class) {
+			for (byte b : (byte[])array) {
+				value(b);
+			}
+		} else if (c == long.class) {
+			for (long l : (long[])array) {
+				value(l);
+			}
+		} else if (c == float.class) {
+			for (float f : (float[])array) {
+				value(f, true);
+			}
+		} else if (c == double.class) {
+			for (double d : (double[])array) {
+				value(d, false);
+			}
+		} else if (c == boolean.class) {
+			for (boolean b : (boolean[])array) {
+				value(b);
+			}
+		}
+		
+		endArray();
+	}
+}
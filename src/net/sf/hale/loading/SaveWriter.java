@@ -82,6 +82,8 @@ public class SaveWriter {
 			}
 		} else if (value instanceof Boolean) {
 			out.append(value.toString());
+		} else if (value instanceof Saveable) {
+			SaveWriter.writeJSONValue(((Saveable) value).save(), out, indent);
 		} else if (value instanceof Map<?, ?>) {
 			SaveWriter.writeJSON((Map<String, Object>) value, out, indent);
 		} else if (value instanceof Iterable<?>) { // List
@@ -242,7 +244,7 @@ public class SaveWriter {
      * @param out
      */
 
-	private static void escape(String s, Appendable out) {
+	static void escape(String s, Appendable out) {
 		try {
 			for (int i = 0; i < s.length(); i++) {
 				char ch = s.charAt(i);
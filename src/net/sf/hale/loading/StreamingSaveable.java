@@ -0,0 +1,41 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2012 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package net.sf.hale.loading;
+
+import java.io.IOException;
+
+/**
+ * A Saveable that is able to write its data directly to a {@link SaveSink}
+ * without first building a {@link JSONOrderedObject}.  This is implemented by
+ * objects with large amounts of save data, such as areas.  The data written must
+ * be the same as the data returned by {@link #save()}
+ * @author Jared Stephen
+ *
+ */
+
+public interface StreamingSaveable extends Saveable {
+	/**
+	 * Writes all of this object's data, as a single value, to the specified sink
+	 * @param out the sink to write to
+	 * @throws IOException any exception thrown by the sink
+	 */
+	
+	public void save(SaveSink out) throws IOException;
+}
@@ -0,0 +1,139 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2012 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package net.sf.hale.loading;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A SaveSink that builds the tree of JSONOrderedObjects and Lists for the data
+ * written to it.  This allows a {@link StreamingSaveable} to implement {@link Saveable#save()}
+ * using the same code that writes its data to a stream.
+ * @author Jared Stephen
+ *
+ */
+
+public class TreeSaveSink extends SaveSink {
+	private final LinkedList<Object> containers;
+	private String key;
+	private Object result;
+	
+	/**
+	 * Creates a new, empty TreeSaveSink
+	 */
+	
+	public TreeSaveSink() {
+		this.containers = new LinkedList<Object>();
+	}
+	
+	/**
+	 * Returns the save data of the specified object as a tree, see {@link Saveable#save()}
+	 * @param saveable the object to save
+	 * @return the tree of save data
+	 */
+	
+	public static Object save(StreamingSaveable saveable) {
+		TreeSaveSink sink = new TreeSaveSink();
+		
+		try {
+			saveable.save(sink);
+		} catch (IOException e) {
+			// a TreeSaveSink never throws IOExceptions itself
+			throw new IllegalStateException(e);
+		}
+		
+		return sink.getResult();
+	}
+	
+	/**
+	 * Returns the complete value that has been written to this sink
+	 * @return the value that has been written
+	 */
+	
+	public Object getResult() {
+		return result;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void add(Object value) {
+		if (containers.isEmpty()) {
+			result = value;
+		} else if (containers.getLast() instanceof Map<?, ?>) {
+			((Map<String, Object>)containers.getLast()).put(key, value);
+		} else {
+			((List<Object>)containers.getLast()).add(value);
+		}
+	}
+	
+	@Override public void beginObject() {
+		JSONOrderedObject object = new JSONOrderedObject();
+		add(object);
+		containers.addLast(object);
+	}
+	
+	@Override public void endObject() {
+		containers.removeLast();
+	}
+	
+	@Override public void beginArray() {
+		List<Object> array = new ArrayList<Object>();
+		add(array);
+		containers.addLast(array);
+	}
+	
+	@Override public void endArray() {
+		containers.removeLast();
+	}
+	
+	@Override public void key(String key) {
+		this.key = key;
+	}
+	
+	@Override public void nullValue() {
+		add(null);
+	}
+	
+	@Override public void value(String value) {
+		add(value);
+	}
+	
+	@Override public void value(long value) {
+		if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE)
+			add(Integer.valueOf((int)value));
+		else
+			add(Long.valueOf(value));
+	}
+	
+	@Override public void value(double value, boolean singlePrecision) {
+		if (singlePrecision)
+			add(Float.valueOf((float)value));
+		else
+			add(Double.valueOf(value));
+	}
+	
+	@Override public void value(boolean value) {
+		add(Boolean.valueOf(value));
+	}
+	
+	@Override public void flush() { }
+}
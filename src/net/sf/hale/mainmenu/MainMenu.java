@@ -573,6 +573,9 @@ public class MainMenu extends DesktopArea implements LoadGamePopup.Callback {
 	 */
 	
 	public void loadCampaign(String campaignID) {
+		// the preloader thread is shared, so drop anything still queued for the old campaign
+		if (Game.curCampaign != null) Game.curCampaign.getAreaPreloader().clear();
+		
 		Game.curCampaign = new Campaign(campaignID);
 		
 		loader = new CampaignLoadingTaskList();
@@ -104,6 +104,15 @@ public class OptionsPopup extends PopupWindow {
 		data.put("DebugMode", Game.config.isDebugModeEnabled());
 		data.put("WarningMode", Game.config.isWarningModeEnabled());
 		data.put("CheckForUpdatesInterval", Game.config.getCheckForUpdatesInterval());
+		data.put("MaxScriptEngines", Game.config.getMaxScriptEngines());
+		data.put("ScriptEngineTimeout", Game.config.getScriptEngineTimeout());
+		data.put("PrewarmedScriptEngines", Game.config.getPrewarmedScriptEngines());
+		data.put("BinarySaveFormat", Game.config.isBinarySaveFormatEnabled());
+		data.put("TextureCache", Game.config.isTextureCacheEnabled());
+		data.put("MaxLoadedAreas", Game.config.getMaxLoadedAreas());
+		data.put("MaxLoadedAreaGridPoints", Game.config.getMaxLoadedAreaGridPoints());
+		data.put("AreaPreloadDistance", Game.config.getAreaPreloadDistance());
+		data.put("FlowFieldMovement", Game.config.isFlowFieldMovementEnabled());
 		if (Game.config.randSeedSet()) {
 			data.put("RandSeed", Game.config.getRandSeed());
 		}
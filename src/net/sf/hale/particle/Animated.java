@@ -20,6 +20,7 @@
 package net.sf.hale.particle;
 
 import net.sf.hale.loading.Saveable;
+import net.sf.hale.resource.SpriteBatch;
 
 public interface Animated extends Saveable {
 	public void setDuration(float seconds);
@@ -32,7 +33,7 @@ public interface Animated extends Saveable {
 	
 	public boolean initialize();
 	
-	public void draw();
+	public void draw(SpriteBatch batch);
 	
 	public boolean elapseTime(float seconds);
 	
@@ -28,13 +28,11 @@ import net.sf.hale.icon.SimpleIcon;
 import net.sf.hale.loading.JSONOrderedObject;
 import net.sf.hale.loading.LoadGameException;
 import net.sf.hale.resource.Sprite;
+import net.sf.hale.resource.SpriteBatch;
 import net.sf.hale.resource.SpriteManager;
 import net.sf.hale.util.SimpleJSONArrayEntry;
 import net.sf.hale.util.SimpleJSONObject;
 
-import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL14;
-
 import de.matthiasmann.twl.Color;
 
 // TODO support animations replacing / modifying sub icons & icons on the target creature
@@ -314,37 +312,15 @@ public class Animation extends AnimationBase implements Animated {
 		return super.elapseTime(seconds);
 	}
 	
-	public final void draw() {
-		GL11.glColor4f(getR(), getG(), getB(), getA());
-		GL14.glSecondaryColor3f(getR2(), getG2(), getB2());
-		
-		GL11.glPushMatrix();
-		
-		GL11.glTranslatef(getX(), getY(), 0.0f);
-		
-		if (getRotation() != 0.0f) GL11.glRotatef(getRotation(), 0.0f, 0.0f, 1.0f);
+	public final void draw(SpriteBatch batch) {
+		batch.setColor(getR(), getG(), getB(), getA());
+		batch.setSecondaryColor(getR2(), getG2(), getB2());
 		
 		AnimationFrame curFrame = frames.get(currentFrameIndex);
 		
-		GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
-		
-		GL11.glBegin(GL11.GL_QUADS);
-		
-		GL11.glTexCoord2d(curFrame.texCoordStartX, curFrame.texCoordStartY);
-		GL11.glVertex2i(-halfWidth, -halfHeight);
-		
-		GL11.glTexCoord2d(curFrame.texCoordEndX, curFrame.texCoordStartY);
-		GL11.glVertex2i(halfWidth, -halfHeight);
-		
-		GL11.glTexCoord2d(curFrame.texCoordEndX, curFrame.texCoordEndY);
-		GL11.glVertex2i(halfWidth, halfHeight);
-		
-		GL11.glTexCoord2d(curFrame.texCoordStartX, curFrame.texCoordEndY);
-		GL11.glVertex2i(-halfWidth, halfHeight);
-		
-		GL11.glEnd();
-		
-		GL11.glPopMatrix();
+		batch.draw(texture, getX(), getY(), getRotation(), -halfWidth, -halfHeight, halfWidth, halfHeight,
+				(float)curFrame.texCoordStartX, (float)curFrame.texCoordStartY,
+				(float)curFrame.texCoordEndX, (float)curFrame.texCoordEndY);
 	}
 	
 	public void setColor(Color color) {
@@ -251,6 +251,27 @@ public abstract class AnimationBase implements Saveable {
 		this.secondsRemaining = 0.0f;
 	}
 	
+	/**
+	 * Sets the color, position, velocity, rotation, and duration of this animation
+	 * back to zero
+	 */
+	
+	protected final void reset() {
+		r = g = b = a = 0.0f;
+		vr = vg = vb = va = 0.0f;
+		
+		r2 = g2 = b2 = 0.0f;
+		vr2 = vg2 = vb2 = 0.0f;
+		
+		positionX = positionY = 0.0f;
+		velocityX = velocityY = 0.0f;
+		speed = velocityAngle = 0.0f;
+		
+		rotation = rotationSpeed = 0.0f;
+		
+		secondsRemaining = 0.0f;
+	}
+	
 	public final int getHalfWidth() { return halfWidth; }
 	public final int getHalfHeight() { return halfHeight; }
 	public final float getR() { return r; }
@@ -262,6 +283,15 @@ public abstract class AnimationBase implements Saveable {
 	public final float getG2() { return g2; }
 	public final float getB2() { return b2; }
 	
+	public final float getVR() { return vr; }
+	public final float getVG() { return vg; }
+	public final float getVB() { return vb; }
+	public final float getVA() { return va; }
+	
+	public final float getVR2() { return vr2; }
+	public final float getVG2() { return vg2; }
+	public final float getVB2() { return vb2; }
+	
 	public final float getX() { return positionX; }
 	public final float getY() { return positionY; }
 	
@@ -19,85 +19,37 @@
 
 package net.sf.hale.particle;
 
-import net.sf.hale.Game;
-import net.sf.hale.area.Area;
 import net.sf.hale.resource.Sprite;
-import net.sf.hale.util.AreaUtil;
-import net.sf.hale.util.Point;
 
-import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL14;
+/**
+ * The state of a single particle as it is being created by a {@link ParticleGenerator}.
+ * The generator's distributions are applied to a Particle, which is then copied into
+ * the generator's {@link ParticleList}.  A generator reuses the same Particle for each
+ * new particle, calling {@link #reset()} in between.
+ * @author Jared Stephen
+ *
+ */
 
 public class Particle extends AnimationBase {
 	private final Sprite sprite;
-	private boolean stopAtOpaque, drawInOpaque;
 	
 	public Particle(Particle other) {
 		super(other);
 		
 		this.sprite = other.sprite;
-		
-		this.stopAtOpaque = other.stopAtOpaque;
-		this.drawInOpaque = other.drawInOpaque;
 	}
 	
 	public Particle(Sprite sprite) {
 		super(sprite.getWidth() / 2, sprite.getHeight() / 2);
 		this.sprite = sprite;
-		
-		this.stopAtOpaque = false;
-		this.drawInOpaque = false;
 	}
 	
-	public final void setDrawInOpaque(boolean drawInOpaque) {
-		this.drawInOpaque = drawInOpaque;
-	}
-	
-	public final void setStopAtOpaque(boolean stopAtOpaque) {
-		this.stopAtOpaque = stopAtOpaque;
-	}
+	/**
+	 * Returns the sprite drawn for this particle
+	 * @return the sprite for this particle
+	 */
 	
-	public final void draw() {
-		GL11.glColor4f(getR(), getG(), getB(), getA());
-		GL14.glSecondaryColor3f(getR2(), getG2(), getB2());
-		
-		int posX = (int)getX();
-		int posY = (int)getY();
-		
-		Point pos1 = AreaUtil.convertScreenToGrid(posX + getHalfWidth(), posY + getHalfHeight());
-		Point pos2 = AreaUtil.convertScreenToGrid(posX + getHalfWidth(), posY - getHalfHeight());
-		Point pos3 = AreaUtil.convertScreenToGrid(posX - getHalfWidth(), posY + getHalfHeight());
-		Point pos4 = AreaUtil.convertScreenToGrid(posX - getHalfWidth(), posY - getHalfHeight());
-		
-		Area area = Game.curCampaign.curArea;
-		
-		if (!drawInOpaque) {
-			// don't draw effects in opaque tiles regardless of whether the effect stops or not
-			if ((!area.isTransparent(pos1) || !area.isTransparent(pos2) ||
-					!area.isTransparent(pos3) || !area.isTransparent(pos4)) ) {
-				Point pos =  AreaUtil.convertScreenToGrid(posX + getHalfWidth(), posY + getHalfHeight());
-				if (!area.isTransparent(pos) && stopAtOpaque) finish();
-
-				return;
-			}
-		}
-		
-		if (getRotation() != 0.0f) {
-			GL11.glPushMatrix();
-			
-			GL11.glTranslatef(getX(), getY(), 0.0f);
-			
-			GL11.glRotatef(getRotation(), 0.0f, 0.0f, 1.0f);
-			
-			if (area.isVisible(pos1) || area.isVisible(pos2) || area.isVisible(pos3) || area.isVisible(pos4)) {
-				sprite.drawNoTextureBind(-getHalfWidth(), -getHalfHeight());
-			}
-			
-			GL11.glPopMatrix();
-		} else {
-			if (area.isVisible(pos1) || area.isVisible(pos2) || area.isVisible(pos3) || area.isVisible(pos4)) {
-				sprite.drawNoTextureBind((int)getX() - getHalfWidth(), (int)getY() - getHalfHeight());
-			}
-		}
+	public final Sprite getSprite() {
+		return sprite;
 	}
 }
@@ -28,6 +28,7 @@ import net.sf.hale.entity.Location;
 import net.sf.hale.loading.JSONOrderedObject;
 import net.sf.hale.loading.LoadGameException;
 import net.sf.hale.resource.Sprite;
+import net.sf.hale.resource.SpriteBatch;
 import net.sf.hale.resource.SpriteManager;
 import net.sf.hale.util.AreaUtil;
 import net.sf.hale.util.Point;
@@ -35,15 +36,16 @@ import net.sf.hale.util.SaveGameUtil;
 import net.sf.hale.util.SimpleJSONArrayEntry;
 import net.sf.hale.util.SimpleJSONObject;
 
-import org.lwjgl.opengl.GL11;
-
 public class ParticleGenerator implements Animated {
 	public enum Mode {
 		Continuous, Burst,
 	}
 	
 	private Sprite particleSprite;
-	private List<Particle> particles;
+	private final ParticleList particles;
+	
+	// reused to set up the state of each new particle
+	private Particle newParticle;
 	private float speed;
 	
 	private Mode mode;
@@ -243,7 +245,7 @@ public class ParticleGenerator implements Animated {
 	}
 	
 	public ParticleGenerator(ParticleGenerator other) {
-		this.particles = new LinkedList<Particle>();
+		this.particles = new ParticleList(other.particles);
 		this.subGenerators = new LinkedList<SubGenerator>();
 		
 		this.initialized = other.initialized;
@@ -314,10 +316,6 @@ public class ParticleGenerator implements Animated {
 		
 		this.particleSprite = other.particleSprite;
 		this.spriteRef = other.spriteRef;
-		
-		for (Particle particle : other.particles) {
-			this.particles.add(new Particle(particle));
-		}
 	}
 	
 	public ParticleGenerator(Mode mode, String particleSprite, float numParticles) {
@@ -330,7 +328,7 @@ public class ParticleGenerator implements Animated {
 		
 		this.numParticles = numParticles;
 		
-		this.particles = new LinkedList<Particle>();
+		this.particles = new ParticleList();
 		
 		this.subGenerators = new LinkedList<SubGenerator>();
 		
@@ -544,14 +542,7 @@ public class ParticleGenerator implements Animated {
 		
 		offsetPosition(velocityX * seconds, velocityY * seconds);
 		
-		Iterator<Particle> iter = particles.iterator();
-		while (iter.hasNext()) {
-			boolean finished = iter.next().elapseTime(seconds);
-			
-			if (finished) {
-				iter.remove();
-			}
-		}
+		particles.elapseTime(seconds);
 		
 		if (timeLeft > 0.0f) {
 			switch (mode) {
@@ -588,10 +579,15 @@ public class ParticleGenerator implements Animated {
 	}
 	
 	private void addParticles(int num) {
+		if (num <= 0) return;
+		
+		if (newParticle == null || newParticle.getSprite() != particleSprite)
+			newParticle = new Particle(particleSprite);
+		
+		Particle p = newParticle;
+		
 		for (int i = 0; i < num; i++) {
-			Particle p = new Particle(particleSprite);
-			p.setStopAtOpaque(stopAtOpaque);
-			p.setDrawInOpaque(drawInOpaque);
+			p.reset();
 			
 			setParticlePosition(p);
 			
@@ -625,15 +621,8 @@ public class ParticleGenerator implements Animated {
 		}
 	}
 	
-	public void draw() {
-		// it is a big performance improvement to bind the texture only once
-		// this assumes that all particles in this generator use a texture from the same spritesheet
-		
-		GL11.glBindTexture(GL11.GL_TEXTURE_2D, particleSprite.getTextureReference());
-		
-		for (Particle particle : particles) {
-			particle.draw();
-		}
+	public void draw(SpriteBatch batch) {
+		particles.draw(batch, particleSprite, drawInOpaque, stopAtOpaque);
 	}
 	
 	@Override public Animated getCopy() {
@@ -657,10 +646,13 @@ public class ParticleGenerator implements Animated {
 
 	public void runParticleGeneratorWait() {
 		Game.particleManager.add(this);
+		Game.scriptExecutor.beginBlocking();
 		try {
 			Thread.sleep((long) (getTimeLeft() * 1000.0f));
 		} catch (InterruptedException e) {
 			return;
+		} finally {
+			Game.scriptExecutor.endBlocking();
 		}
 	}
 }
@@ -0,0 +1,283 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2012 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package net.sf.hale.particle;
+
+import java.util.Arrays;
+
+import net.sf.hale.Game;
+import net.sf.hale.area.Area;
+import net.sf.hale.resource.Sprite;
+import net.sf.hale.resource.SpriteBatch;
+import net.sf.hale.util.AreaUtil;
+import net.sf.hale.util.Point;
+
+/**
+ * The particles belonging to a {@link ParticleGenerator}, stored as parallel arrays of
+ * primitive values rather than as individual objects.  Particles are added by copying
+ * the state of a {@link Particle} that has been set up by the generator's distributions,
+ * so the same Particle can be reused for every new particle.
+ * <p>
+ * The arrays only ever grow, and finished particles are removed by moving the last
+ * particle into their place, so once a generator reaches its peak number of particles
+ * no further allocation is done.  As a result, particles are not kept in the order
+ * they were added.
+ * @author Jared Stephen
+ *
+ */
+
+final class ParticleList {
+	private static final int InitialCapacity = 16;
+	
+	private int size;
+	
+	private float[] x, y;
+	private float[] vx, vy;
+	
+	private float[] r, g, b, a;
+	private float[] vr, vg, vb, va;
+	
+	private float[] r2, g2, b2;
+	private float[] vr2, vg2, vb2;
+	
+	private float[] rotation, rotationSpeed;
+	private float[] secondsRemaining;
+	
+	// scratch space for converting particle corners to grid coordinates
+	private final Point gridPoint = new Point();
+	
+	/**
+	 * Creates a new, empty ParticleList
+	 */
+	
+	ParticleList() {
+		allocate(InitialCapacity);
+	}
+	
+	/**
+	 * Creates a new ParticleList containing copies of all particles in the specified list
+	 * @param other the list to copy
+	 */
+	
+	ParticleList(ParticleList other) {
+		allocate(Math.max(InitialCapacity, other.size));
+		
+		this.size = other.size;
+		
+		copy(other.x, x); copy(other.y, y);
+		copy(other.vx, vx); copy(other.vy, vy);
+		
+		copy(other.r, r); copy(other.g, g); copy(other.b, b); copy(other.a, a);
+		copy(other.vr, vr); copy(other.vg, vg); copy(other.vb, vb); copy(other.va, va);
+		
+		copy(other.r2, r2); copy(other.g2, g2); copy(other.b2, b2);
+		copy(other.vr2, vr2); copy(other.vg2, vg2); copy(other.vb2, vb2);
+		
+		copy(other.rotation, rotation); copy(other.rotationSpeed, rotationSpeed);
+		copy(other.secondsRemaining, secondsRemaining);
+	}
+	
+	private void copy(float[] from, float[] to) {
+		System.arraycopy(from, 0, to, 0, size);
+	}
+	
+	private void allocate(int capacity) {
+		x = new float[capacity]; y = new float[capacity];
+		vx = new float[capacity]; vy = new float[capacity];
+		
+		r = new float[capacity]; g = new float[capacity]; b = new float[capacity]; a = new float[capacity];
+		vr = new float[capacity]; vg = new float[capacity]; vb = new float[capacity]; va = new float[capacity];
+		
+		r2 = new float[capacity]; g2 = new float[capacity]; b2 = new float[capacity];
+		vr2 = new float[capacity]; vg2 = new float[capacity]; vb2 = new float[capacity];
+		
+		rotation = new float[capacity]; rotationSpeed = new float[capacity];
+		secondsRemaining = new float[capacity];
+	}
+	
+	private void grow() {
+		int capacity = x.length * 2;
+		
+		x = Arrays.copyOf(x, capacity); y = Arrays.copyOf(y, capacity);
+		vx = Arrays.copyOf(vx, capacity); vy = Arrays.copyOf(vy, capacity);
+		
+		r = Arrays.copyOf(r, capacity); g = Arrays.copyOf(g, capacity);
+		b = Arrays.copyOf(b, capacity); a = Arrays.copyOf(a, capacity);
+		vr = Arrays.copyOf(vr, capacity); vg = Arrays.copyOf(vg, capacity);
+		vb = Arrays.copyOf(vb, capacity); va = Arrays.copyOf(va, capacity);
+		
+		r2 = Arrays.copyOf(r2, capacity); g2 = Arrays.copyOf(g2, capacity); b2 = Arrays.copyOf(b2, capacity);
+		vr2 = Arrays.copyOf(vr2, capacity); vg2 = Arrays.copyOf(vg2, capacity); vb2 = Arrays.copyOf(vb2, capacity);
+		
+		rotation = Arrays.copyOf(rotation, capacity);
+		rotationSpeed = Arrays.copyOf(rotationSpeed, capacity);
+		secondsRemaining = Arrays.copyOf(secondsRemaining, capacity);
+	}
+	
+	/**
+	 * Returns the number of particles in this list
+	 * @return the number of particles
+	 */
+	
+	int size() {
+		return size;
+	}
+	
+	/**
+	 * Adds a new particle with the current state of the specified particle to this list
+	 * @param p the particle to copy
+	 */
+	
+	void add(Particle p) {
+		if (size == x.length) grow();
+		
+		int i = size;
+		
+		x[i] = p.getX(); y[i] = p.getY();
+		vx[i] = p.getVX(); vy[i] = p.getVY();
+		
+		r[i] = p.getR(); g[i] = p.getG(); b[i] = p.getB(); a[i] = p.getA();
+		vr[i] = p.getVR(); vg[i] = p.getVG(); vb[i] = p.getVB(); va[i] = p.getVA();
+		
+		r2[i] = p.getR2(); g2[i] = p.getG2(); b2[i] = p.getB2();
+		vr2[i] = p.getVR2(); vg2[i] = p.getVG2(); vb2[i] = p.getVB2();
+		
+		rotation[i] = p.getRotation(); rotationSpeed[i] = p.getRotationSpeed();
+		secondsRemaining[i] = p.getSecondsRemaining();
+		
+		size++;
+	}
+	
+	/*
+	 * Removes the particle at the specified index by moving the last particle into its place
+	 */
+	
+	private void remove(int i) {
+		int last = size - 1;
+		
+		x[i] = x[last]; y[i] = y[last];
+		vx[i] = vx[last]; vy[i] = vy[last];
+		
+		r[i] = r[last]; g[i] = g[last]; b[i] = b[last]; a[i] = a[last];
+		vr[i] = vr[last]; vg[i] = vg[last]; vb[i] = vb[last]; va[i] = va[last];
+		
+		r2[i] = r2[last]; g2[i] = g2[last]; b2[i] = b2[last];
+		vr2[i] = vr2[last]; vg2[i] = vg2[last]; vb2[i] = vb2[last];
+		
+		rotation[i] = rotation[last]; rotationSpeed[i] = rotationSpeed[last];
+		secondsRemaining[i] = secondsRemaining[last];
+		
+		size = last;
+	}
+	
+	/**
+	 * Advances all particles by the specified amount of time, removing any particles
+	 * that have finished
+	 * @param seconds the elapsed time in seconds
+	 */
+	
+	void elapseTime(float seconds) {
+		int i = 0;
+		while (i < size) {
+			secondsRemaining[i] -= seconds;
+			
+			if (secondsRemaining[i] <= 0.0f) {
+				// the particle moved into this index still needs to be updated
+				remove(i);
+				continue;
+			}
+			
+			rotation[i] += rotationSpeed[i] * seconds;
+			
+			x[i] += vx[i] * seconds;
+			y[i] += vy[i] * seconds;
+			
+			r[i] += vr[i] * seconds;
+			g[i] += vg[i] * seconds;
+			b[i] += vb[i] * seconds;
+			a[i] += va[i] * seconds;
+			
+			r2[i] += vr2[i] * seconds;
+			g2[i] += vg2[i] * seconds;
+			b2[i] += vb2[i] * seconds;
+			
+			i++;
+		}
+	}
+	
+	/**
+	 * Adds all particles that can be seen in the current area to the specified batch
+	 * @param batch the batch to draw with
+	 * @param sprite the sprite drawn for each particle
+	 * @param drawInOpaque whether particles are drawn when they overlap opaque grid points
+	 * @param stopAtOpaque whether particles are finished when they reach an opaque grid point.
+	 * This only applies when drawInOpaque is false
+	 */
+	
+	void draw(SpriteBatch batch, Sprite sprite, boolean drawInOpaque, boolean stopAtOpaque) {
+		int halfWidth = sprite.getWidth() / 2;
+		int halfHeight = sprite.getHeight() / 2;
+		
+		Area area = Game.curCampaign.curArea;
+		
+		for (int i = 0; i < size; i++) {
+			int posX = (int)x[i];
+			int posY = (int)y[i];
+			
+			if (!drawInOpaque) {
+				// don't draw effects in opaque tiles regardless of whether the effect stops or not
+				if (!isTransparent(area, posX + halfWidth, posY + halfHeight)) {
+					if (stopAtOpaque) secondsRemaining[i] = 0.0f;
+					
+					continue;
+				}
+				
+				if (!isTransparent(area, posX + halfWidth, posY - halfHeight) ||
+						!isTransparent(area, posX - halfWidth, posY + halfHeight) ||
+						!isTransparent(area, posX - halfWidth, posY - halfHeight)) continue;
+			}
+			
+			if (!isVisible(area, posX + halfWidth, posY + halfHeight) &&
+					!isVisible(area, posX + halfWidth, posY - halfHeight) &&
+					!isVisible(area, posX - halfWidth, posY + halfHeight) &&
+					!isVisible(area, posX - halfWidth, posY - halfHeight)) continue;
+			
+			batch.setColor(r[i], g[i], b[i], a[i]);
+			batch.setSecondaryColor(r2[i], g2[i], b2[i]);
+			
+			if (rotation[i] != 0.0f) {
+				batch.draw(sprite, x[i], y[i], rotation[i], -halfWidth, -halfHeight);
+			} else {
+				batch.draw(sprite, posX - halfWidth, posY - halfHeight);
+			}
+		}
+	}
+	
+	private boolean isTransparent(Area area, int screenX, int screenY) {
+		AreaUtil.convertScreenToGrid(screenX, screenY, gridPoint);
+		
+		return area.isTransparent(gridPoint.x, gridPoint.y);
+	}
+	
+	private boolean isVisible(Area area, int screenX, int screenY) {
+		AreaUtil.convertScreenToGrid(screenX, screenY, gridPoint);
+		
+		return area.isVisible(gridPoint.x, gridPoint.y);
+	}
+}
@@ -32,6 +32,7 @@ import net.sf.hale.Game;
 import net.sf.hale.interfacelock.EntityOffsetAnimation;
 import net.sf.hale.resource.ResourceManager;
 import net.sf.hale.resource.ResourceType;
+import net.sf.hale.resource.SpriteBatch;
 import net.sf.hale.util.JSEngine;
 import net.sf.hale.util.Logger;
 
@@ -226,9 +227,7 @@ public class ParticleManager {
 	public final void drawBelowEntities() {
 		GL11.glEnable(GL11.GL_TEXTURE_2D);
 		
-		for (Animated animation: activeBelowAnimations) {
-			animation.draw();
-		}
+		drawAnimations(activeBelowAnimations);
 		
 		GL11.glColor3f(1.0f, 1.0f, 1.0f);
 		GL14.glSecondaryColor3f(0.0f, 0.0f, 0.0f);
@@ -237,11 +236,29 @@ public class ParticleManager {
 	public final void drawAboveEntities() {
 		GL11.glEnable(GL11.GL_TEXTURE_2D);
 		
-		for (Animated animation: activeAboveAnimations) {
-			animation.draw();
-		}
+		drawAnimations(activeAboveAnimations);
 		
 		GL11.glColor3f(1.0f, 1.0f, 1.0f);
 		GL14.glSecondaryColor3f(0.0f, 0.0f, 0.0f);
 	}
+	
+	/*
+	 * Draws the specified animations as a single sprite batch, or as part of the
+	 * current batch if one is already in progress
+	 */
+	
+	private void drawAnimations(List<Animated> animations) {
+		SpriteBatch batch = Game.spriteBatch;
+		
+		batch.begin();
+		
+		for (Animated animation : animations) {
+			animation.draw(batch);
+		}
+		
+		batch.setColor(1.0f, 1.0f, 1.0f, 1.0f);
+		batch.setSecondaryColor(0.0f, 0.0f, 0.0f);
+		
+		batch.end();
+	}
 }
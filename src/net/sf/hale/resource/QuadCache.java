@@ -0,0 +1,154 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2012 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package net.sf.hale.resource;
+
+import java.util.Arrays;
+
+/**
+ * A list of quads recorded ahead of time in the vertex format used by {@link SpriteBatch},
+ * so that they can be added to a batch later with a single copy rather than recomputing
+ * each quad.  Quads are drawn in white with no secondary color.
+ * <p>
+ * The texture of each sprite is recorded when it is added.  If any of those textures
+ * have not been loaded yet or have since changed, the cache is no longer valid and
+ * should be cleared and recorded again.
+ * @author Jared Stephen
+ *
+ */
+
+public class QuadCache {
+	private static final int FloatsPerQuad = 4 * SpriteBatch.FloatsPerVertex;
+	
+	float[] vertices;
+	int numQuads;
+	
+	// the texture and first quad of each run of quads sharing a texture, along with
+	// a sprite in the run used to check that the texture is still current
+	int[] runTextures;
+	int[] runStarts;
+	private Sprite[] runSprites;
+	int numRuns;
+	
+	/**
+	 * Creates a new, empty QuadCache
+	 */
+	
+	public QuadCache() {
+		vertices = new float[16 * FloatsPerQuad];
+		runTextures = new int[4];
+		runStarts = new int[4];
+		runSprites = new Sprite[4];
+	}
+	
+	/**
+	 * Removes all quads from this cache
+	 */
+	
+	public void clear() {
+		numQuads = 0;
+		numRuns = 0;
+		Arrays.fill(runSprites, null);
+	}
+	
+	/**
+	 * Returns the number of quads in this cache
+	 * @return the number of quads
+	 */
+	
+	public int getNumQuads() {
+		return numQuads;
+	}
+	
+	/**
+	 * Returns true if every texture recorded in this cache is loaded and is still the
+	 * texture used by the sprites that were added
+	 * @return whether this cache can be drawn
+	 */
+	
+	public boolean isValid() {
+		for (int i = 0; i < numRuns; i++) {
+			int texture = runSprites[i].getTextureReference();
+			
+			if (texture == 0 || texture != runTextures[i]) return false;
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Adds the specified sprite at the specified coordinates to the end of this cache
+	 * @param sprite the sprite to add
+	 * @param x the x coordinate
+	 * @param y the y coordinate
+	 */
+	
+	public void add(Sprite sprite, int x, int y) {
+		int texture = sprite.getTextureReference();
+		
+		if (texture == 0) sprite.requestTexture();
+		
+		if (numRuns == 0 || runTextures[numRuns - 1] != texture) {
+			if (numRuns == runTextures.length) {
+				runTextures = Arrays.copyOf(runTextures, numRuns * 2);
+				runStarts = Arrays.copyOf(runStarts, numRuns * 2);
+				runSprites = Arrays.copyOf(runSprites, numRuns * 2);
+			}
+			
+			runTextures[numRuns] = texture;
+			runStarts[numRuns] = numQuads;
+			runSprites[numRuns] = sprite;
+			numRuns++;
+		}
+		
+		if ((numQuads + 1) * FloatsPerQuad > vertices.length)
+			vertices = Arrays.copyOf(vertices, vertices.length * 2);
+		
+		float u0 = (float)sprite.getTexCoordStartX();
+		float v0 = (float)sprite.getTexCoordStartY();
+		float u1 = (float)sprite.getTexCoordEndX();
+		float v1 = (float)sprite.getTexCoordEndY();
+		
+		int index = numQuads * FloatsPerQuad;
+		index = putVertex(index, x, y, u0, v0);
+		index = putVertex(index, x + sprite.getWidth(), y, u1, v0);
+		index = putVertex(index, x + sprite.getWidth(), y + sprite.getHeight(), u1, v1);
+		putVertex(index, x, y + sprite.getHeight(), u0, v1);
+		
+		numQuads++;
+	}
+	
+	private int putVertex(int index, float x, float y, float u, float v) {
+		vertices[index++] = x;
+		vertices[index++] = y;
+		vertices[index++] = u;
+		vertices[index++] = v;
+		
+		// white primary color, black secondary color
+		vertices[index++] = 1.0f;
+		vertices[index++] = 1.0f;
+		vertices[index++] = 1.0f;
+		vertices[index++] = 1.0f;
+		vertices[index++] = 0.0f;
+		vertices[index++] = 0.0f;
+		vertices[index++] = 0.0f;
+		
+		return index;
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2012 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package net.sf.hale.resource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable index of the resources in a list of ResourcePackages.  Each path is
+ * mapped to the first package, in package order, that contains it, so a lookup is a
+ * single hash map access regardless of the number of packages.
+ * <p>
+ * Directories are stored in a trie of path segments.  Each directory node holds the
+ * list of all resources it contains, recursively, in the same order as they would be
+ * found by searching each package in order: resources from earlier packages first,
+ * sorted by path within each package, and without duplicates.
+ * @author Jared Stephen
+ *
+ */
+
+class ResourceIndex {
+	private final Map<String, ResourcePackage> packagesByPath;
+	
+	private final DirectoryNode root;
+	
+	/**
+	 * Creates a new index of the resources in the specified packages.  The
+	 * packages must already be sorted in search order
+	 * @param packages the packages to index
+	 */
+	
+	ResourceIndex(List<ResourcePackage> packages) {
+		this.packagesByPath = new HashMap<String, ResourcePackage>();
+		this.root = new DirectoryNode();
+		
+		for (ResourcePackage resourcePackage : packages) {
+			for (String path : resourcePackage.entries) {
+				if (packagesByPath.containsKey(path)) continue;
+				
+				packagesByPath.put(path, resourcePackage);
+				addToDirectories(path);
+			}
+		}
+	}
+	
+	private void addToDirectories(String path) {
+		DirectoryNode node = root;
+		
+		int start = 0;
+		int end;
+		while ( (end = path.indexOf('/', start)) != -1) {
+			String segment = path.substring(start, end);
+			
+			DirectoryNode child = node.children.get(segment);
+			if (child == null) {
+				child = new DirectoryNode();
+				node.children.put(segment, child);
+			}
+			
+			child.resources.add(path);
+			
+			node = child;
+			start = end + 1;
+		}
+	}
+	
+	/**
+	 * Returns the package that resources with the specified path are read from,
+	 * or null if no package contains the path
+	 * @param path the resource path
+	 * @return the package containing the resource
+	 */
+	
+	ResourcePackage getPackage(String path) {
+		return packagesByPath.get(path);
+	}
+	
+	/**
+	 * Returns all resources contained in the specified directory, recursively.  The
+	 * returned list must not be modified
+	 * @param directory the directory path, without a trailing slash
+	 * @return the list of resources, which is empty if the directory does not exist
+	 */
+	
+	List<String> getResourcesIn(String directory) {
+		DirectoryNode node = root;
+		
+		int start = 0;
+		while (node != null && start <= directory.length()) {
+			int end = directory.indexOf('/', start);
+			if (end == -1) end = directory.length();
+			
+			if (end > start) node = node.children.get(directory.substring(start, end));
+			
+			start = end + 1;
+		}
+		
+		if (node == null || node == root) return Collections.emptyList();
+		
+		return node.resources;
+	}
+	
+	/**
+	 * Returns the number of distinct resource paths in this index
+	 * @return the number of resources
+	 */
+	
+	int size() {
+		return packagesByPath.size();
+	}
+	
+	private static class DirectoryNode {
+		private final Map<String, DirectoryNode> children = new HashMap<String, DirectoryNode>();
+		private final List<String> resources = new ArrayList<String>();
+	}
+}
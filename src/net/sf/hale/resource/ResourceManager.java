@@ -33,6 +33,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.ZipFile;
 
 import net.sf.hale.Game;
@@ -48,15 +49,26 @@ import net.sf.hale.util.Logger;
  * registered package in the ResourcePackages intrinsic order (based on their
  * PackageType) and returns the first resource found.
  * 
+ * Searches use a merged index of all packages, which is rebuilt the next time it
+ * is needed after the set of packages or resources changes.
+ * 
  * @author Jared Stephen
  *
  */
 
 public class ResourceManager {
-	private static Map<String, String> cachedFiles = new HashMap<String, String>();
+	private static Map<String, String> cachedFiles = Collections.synchronizedMap(new HashMap<String, String>());
 	
 	private static List<ResourcePackage> packages = new ArrayList<ResourcePackage>(2);
 	
+	// the index of all packages and of only the core packages, or null if they must be rebuilt
+	private static volatile ResourceIndex index;
+	private static volatile ResourceIndex coreIndex;
+	
+	private static final AtomicLong numLookups = new AtomicLong();
+	private static final AtomicLong numHits = new AtomicLong();
+	private static final AtomicLong numDirectoryListings = new AtomicLong();
+	
 	public static List<ResourcePackage> getPackages() {
 		return packages;
 	}
@@ -75,6 +87,8 @@ public class ResourceManager {
 				break;
 			}
 		}
+		
+		invalidateIndex();
 	}
 	
 	/**
@@ -93,6 +107,114 @@ public class ResourceManager {
 				break;
 			}
 		}
+		
+		invalidateIndex();
+	}
+	
+	private static synchronized void invalidateIndex() {
+		index = null;
+		coreIndex = null;
+	}
+	
+	private static ResourceIndex getIndex() {
+		ResourceIndex current = index;
+		if (current != null) return current;
+		
+		synchronized(ResourceManager.class) {
+			if (index == null) index = new ResourceIndex(packages);
+			
+			return index;
+		}
+	}
+	
+	private static ResourceIndex getCoreIndex() {
+		ResourceIndex current = coreIndex;
+		if (current != null) return current;
+		
+		synchronized(ResourceManager.class) {
+			if (coreIndex == null) {
+				List<ResourcePackage> corePackages = new ArrayList<ResourcePackage>();
+				for (ResourcePackage resourcePackage : packages) {
+					switch (resourcePackage.getType()) {
+					case CoreZip: case CoreDirectory:
+						corePackages.add(resourcePackage);
+						break;
+					default:
+						break;
+					}
+				}
+				
+				coreIndex = new ResourceIndex(corePackages);
+			}
+			
+			return coreIndex;
+		}
+	}
+	
+	/*
+	 * Returns the package that the resource with the specified path is read from,
+	 * counting the lookup
+	 */
+	
+	private static ResourcePackage findPackage(ResourceIndex index, String path) {
+		numLookups.incrementAndGet();
+		
+		ResourcePackage resourcePackage = index.getPackage(path);
+		if (resourcePackage != null) numHits.incrementAndGet();
+		
+		return resourcePackage;
+	}
+	
+	/**
+	 * Returns the number of resource lookups by path since the counters were last reset
+	 * @return the number of resource lookups
+	 */
+	
+	public static long getNumLookups() {
+		return numLookups.get();
+	}
+	
+	/**
+	 * Returns the number of resource lookups by path that found a resource since
+	 * the counters were last reset
+	 * @return the number of successful resource lookups
+	 */
+	
+	public static long getNumHits() {
+		return numHits.get();
+	}
+	
+	/**
+	 * Returns the number of directory listings since the counters were last reset
+	 * @return the number of directory listings
+	 */
+	
+	public static long getNumDirectoryListings() {
+		return numDirectoryListings.get();
+	}
+	
+	/**
+	 * Resets the lookup, hit, and directory listing counters to zero
+	 */
+	
+	public static void resetCounters() {
+		numLookups.set(0l);
+		numHits.set(0l);
+		numDirectoryListings.set(0l);
+	}
+	
+	/**
+	 * Returns a one line summary of the resource index and the lookup counters
+	 * @return a summary of resource traffic
+	 */
+	
+	public static String getStatus() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("Resources: ").append(getIndex().size()).append(" in ").append(packages.size());
+		sb.append(" packages; ").append(getNumLookups()).append(" lookups, ").append(getNumHits());
+		sb.append(" hits, ").append(getNumDirectoryListings()).append(" directory listings");
+		
+		return sb.toString();
 	}
 	
 	/**
@@ -191,6 +313,7 @@ public class ResourceManager {
 		}
 		
 		cachedFiles.clear();
+		invalidateIndex();
 	}
 	
 	/**
@@ -217,6 +340,7 @@ public class ResourceManager {
 		}			
 		
 		cachedFiles.clear();
+		invalidateIndex();
 	}
 	
 	private static void removePackageOfType(PackageType type) {
@@ -251,14 +375,9 @@ public class ResourceManager {
 	 */
 	
 	public static Set<String> getResourcesInDirectory(String directory) {
-		Set<String> resources = new LinkedHashSet<String>();
+		numDirectoryListings.incrementAndGet();
 		
-		for (ResourcePackage resourcePackage : packages) {
-			Set<String> resourcesInPackage = resourcePackage.getResourcesIn(directory);
-			if (resourcesInPackage != null) resources.addAll(resourcesInPackage);
-		}
-		
-		return resources;
+		return new LinkedHashSet<String>(getIndex().getResourcesIn(directory));
 	}
 	
 	/**
@@ -272,22 +391,10 @@ public class ResourceManager {
 	 */
 	
 	public static Set<String> getCoreResourcesInDirectory(String directory) {
-		Set<String> resources = new LinkedHashSet<String>();
-		
-		for (ResourcePackage resourcePackage : packages) {
-			// only use Core ZIP and Core directory packages
-			switch (resourcePackage.getType()) {
-			case CoreZip: case CoreDirectory:
-				break;
-			default:
-				continue;
-			}
-			
-			Set<String> resourcesInPackage = resourcePackage.getResourcesIn(directory);
-			if (resourcesInPackage != null) resources.addAll(resourcesInPackage);
-		}
+		numDirectoryListings.incrementAndGet();
 		
-		return resources;
+		// only use Core ZIP and Core directory packages
+		return new LinkedHashSet<String>(getCoreIndex().getResourcesIn(directory));
 	}
 	
 	/**
@@ -298,13 +405,7 @@ public class ResourceManager {
 	 */
 	
 	public static boolean hasResource(String path) {
-		for (ResourcePackage resourcePackage : packages) {
-			if (resourcePackage.hasResource(path)) {
-				return true;
-			}
-		}
-		
-		return false;
+		return findPackage(getIndex(), path) != null;
 	}
 	
 	/**
@@ -352,13 +453,9 @@ public class ResourceManager {
 	 */
 	
 	public static InputStream getStream(String path) {
-		for (ResourcePackage resourcePackage : packages) {
-			if (resourcePackage.hasResource(path)) {
-				return resourcePackage.getStream(path);
-			}
-		}
+		ResourcePackage resourcePackage = findPackage(getIndex(), path);
 		
-		return null;
+		return resourcePackage == null ? null : resourcePackage.getStream(path);
 	}
 	
 	/**
@@ -394,13 +491,9 @@ public class ResourceManager {
 	 */
 	
 	public static String getPackageIDOfResource(String path) {
-		for (ResourcePackage resourcePackage : packages) {
-			if (resourcePackage.hasResource(path)) {
-				return resourcePackage.getType().toString();
-			}
-		}
+		ResourcePackage resourcePackage = findPackage(getIndex(), path);
 		
-		return null;
+		return resourcePackage == null ? null : resourcePackage.getType().toString();
 	}
 	
 	/**
@@ -413,11 +506,9 @@ public class ResourceManager {
 	 */
 	
 	public static PackageType getPackageTypeOfResource(String path) {
-		for (ResourcePackage resourcePackage : packages) {
-			if (resourcePackage.hasResource(path)) return resourcePackage.getType();
-		}
+		ResourcePackage resourcePackage = findPackage(getIndex(), path);
 		
-		return null;
+		return resourcePackage == null ? null : resourcePackage.getType();
 	}
 	
 	/**
@@ -483,20 +574,10 @@ public class ResourceManager {
 	
 	public static String getCoreResourceAsString(String path) {
 		InputStream in = null;
-		for (ResourcePackage resourcePackage : packages) {
-			// only use Core ZIP and Core directory packages
-			switch (resourcePackage.getType()) {
-			case CoreZip: case CoreDirectory:
-				break;
-			default:
-				continue;
-			}
-			
-			if (resourcePackage.hasResource(path)) {
-				in = resourcePackage.getStream(path);
-				break;
-			}
-		}
+		
+		// only use Core ZIP and Core directory packages
+		ResourcePackage resourcePackage = findPackage(getCoreIndex(), path);
+		if (resourcePackage != null) in = resourcePackage.getStream(path);
 		
 		if (in != null) {
 			return getResourceAsString(in);
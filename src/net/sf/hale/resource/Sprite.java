@@ -19,6 +19,8 @@
 
 package net.sf.hale.resource;
 
+import net.sf.hale.Game;
+
 import org.lwjgl.opengl.GL11;
 
 /**
@@ -137,6 +139,24 @@ public class Sprite {
 	
 	public final int getHeight() { return height; }
 	
+	/*
+	 * Called when this sprite is drawn before its texture has been loaded, so that
+	 * the texture is loaded ahead of textures that are not yet needed
+	 */
+	
+	void requestTexture() {
+		if (Game.textureLoader != null) Game.textureLoader.prioritize(this);
+	}
+	
+	/*
+	 * Draws any quads already added to the sprite batch so that they are drawn
+	 * before this sprite
+	 */
+	
+	private void flushBatch() {
+		if (Game.spriteBatch != null && Game.spriteBatch.isDrawing()) Game.spriteBatch.flush();
+	}
+	
 	/**
 	 * Draws this Sprite, assuming the texture has already been bound previously.  This is 
 	 * a useful optimization when drawing large numbers of sprites from the same texture
@@ -145,6 +165,10 @@ public class Sprite {
 	 */
 	
 	public final void drawNoTextureBind(int x, int y) {
+		flushBatch();
+		
+		if (textureReference == 0) requestTexture();
+		
 		GL11.glBegin(GL11.GL_QUADS);
 		
 		GL11.glTexCoord2d(texCoordStartX, texCoordStartY);
@@ -170,6 +194,10 @@ public class Sprite {
 	 */
 	
 	public final void draw(int x, int y) {
+		flushBatch();
+		
+		if (textureReference == 0) requestTexture();
+		
 		GL11.glBindTexture(GL11.GL_TEXTURE_2D, textureReference);
 		
 		GL11.glBegin(GL11.GL_QUADS);
@@ -199,6 +227,10 @@ public class Sprite {
 	 */
 	
 	public final void draw(int x, int y, int w, int h) {
+		flushBatch();
+		
+		if (textureReference == 0) requestTexture();
+		
 		GL11.glBindTexture(GL11.GL_TEXTURE_2D, textureReference);
 		
 		GL11.glBegin(GL11.GL_QUADS);
@@ -0,0 +1,483 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2012 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package net.sf.hale.resource;
+
+import java.nio.FloatBuffer;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL14;
+
+import de.matthiasmann.twl.Color;
+
+/**
+ * Collects textured, colored quads into a single vertex array and draws them with one
+ * array draw for each run of consecutive quads sharing a texture, rather than one
+ * immediate mode draw per quad.
+ * <p>
+ * Quads are always drawn in the order they were added, so overlapping sprites are
+ * drawn correctly.  Quads are grouped rather than sorted by texture, as most drawing
+ * already proceeds through a single sprite sheet at a time.
+ * <p>
+ * Calls to {@link #begin()} and {@link #end()} may be nested; quads added within a
+ * nested pair become part of the outermost batch, which is drawn when the outermost
+ * call to end is made, when the vertex array is full, or when {@link #flush()} is called.
+ * Any drawing done directly with OpenGL while a batch is in progress must call flush first.
+ * Sprites drawn with {@link Sprite#draw(int, int)} do this automatically.
+ * <p>
+ * The actual drawing is done by a {@link Sink}, which allows the batching to be checked
+ * without an OpenGL context.
+ * @author Jared Stephen
+ *
+ */
+
+public class SpriteBatch {
+	/**
+	 * The number of floats stored for each vertex: position, texture coordinates,
+	 * primary color (RGBA), and secondary color (RGB)
+	 */
+	
+	public static final int FloatsPerVertex = 11;
+	
+	/**
+	 * The default maximum number of quads held before the batch is drawn
+	 */
+	
+	public static final int DefaultCapacity = 2048;
+	
+	private final Sink sink;
+	private final int capacity;
+	private final FloatBuffer vertices;
+	
+	private int depth;
+	private int numQuads;
+	
+	// the texture and first quad of each run of quads sharing a texture
+	private final int[] runTextures;
+	private final int[] runStarts;
+	private int numRuns;
+	
+	private float r, g, b, a;
+	private float r2, g2, b2;
+	
+	private long numQuadsDrawn;
+	private long numDrawCalls;
+	
+	/**
+	 * Creates a new SpriteBatch drawing to the current OpenGL context
+	 */
+	
+	public SpriteBatch() {
+		this(new GLSink(), DefaultCapacity);
+	}
+	
+	/**
+	 * Creates a new SpriteBatch drawing to the specified sink
+	 * @param sink the sink that draws batched quads
+	 * @param capacity the maximum number of quads held before the batch is drawn
+	 */
+	
+	public SpriteBatch(Sink sink, int capacity) {
+		this.sink = sink;
+		this.capacity = capacity;
+		this.vertices = BufferUtils.createFloatBuffer(capacity * 4 * FloatsPerVertex);
+		this.runTextures = new int[capacity];
+		this.runStarts = new int[capacity];
+		
+		setColor(1.0f, 1.0f, 1.0f, 1.0f);
+		setSecondaryColor(0.0f, 0.0f, 0.0f);
+	}
+	
+	/**
+	 * Starts a batch, or continues the current batch if one is already in progress.
+	 * Starting a new batch resets the color to white and the secondary color to black.
+	 * Each call must be matched by a call to {@link #end()}
+	 */
+	
+	public void begin() {
+		if (depth == 0) {
+			setColor(1.0f, 1.0f, 1.0f, 1.0f);
+			setSecondaryColor(0.0f, 0.0f, 0.0f);
+		}
+		
+		depth++;
+	}
+	
+	/**
+	 * Ends the current batch.  If this ends the outermost batch, all quads in the
+	 * batch are drawn
+	 */
+	
+	public void end() {
+		if (depth == 0) throw new IllegalStateException("SpriteBatch.end called without begin");
+		
+		depth--;
+		
+		if (depth == 0) flush();
+	}
+	
+	/**
+	 * Returns true if a batch is currently in progress
+	 * @return whether a batch is in progress
+	 */
+	
+	public boolean isDrawing() {
+		return depth > 0;
+	}
+	
+	/**
+	 * Draws all quads added so far.  The batch remains in progress
+	 */
+	
+	public void flush() {
+		if (numQuads == 0) return;
+		
+		vertices.flip();
+		
+		sink.begin(vertices);
+		
+		for (int i = 0; i < numRuns; i++) {
+			int end = i + 1 < numRuns ? runStarts[i + 1] : numQuads;
+			
+			sink.drawQuads(runTextures[i], runStarts[i], end - runStarts[i]);
+		}
+		
+		sink.end();
+		
+		numDrawCalls += numRuns;
+		
+		vertices.clear();
+		numQuads = 0;
+		numRuns = 0;
+	}
+	
+	/**
+	 * Sets the color that subsequent quads are drawn with
+	 * @param r the red component
+	 * @param g the green component
+	 * @param b the blue component
+	 * @param a the alpha component
+	 */
+	
+	public void setColor(float r, float g, float b, float a) {
+		this.r = r;
+		this.g = g;
+		this.b = b;
+		this.a = a;
+	}
+	
+	/**
+	 * Sets the secondary color that is added to subsequent quads
+	 * @param r the red component
+	 * @param g the green component
+	 * @param b the blue component
+	 */
+	
+	public void setSecondaryColor(float r, float g, float b) {
+		this.r2 = r;
+		this.g2 = g;
+		this.b2 = b;
+	}
+	
+	/**
+	 * Adds the specified sprite to the batch at the specified coordinates, using the
+	 * current color
+	 * @param sprite the sprite to draw
+	 * @param x the x coordinate
+	 * @param y the y coordinate
+	 */
+	
+	public void draw(Sprite sprite, int x, int y) {
+		draw(sprite, x, y, sprite.getWidth(), sprite.getHeight());
+	}
+	
+	/**
+	 * Adds the specified sprite to the batch at the specified coordinates, stretched
+	 * to the specified size, using the current color
+	 * @param sprite the sprite to draw
+	 * @param x the x coordinate
+	 * @param y the y coordinate
+	 * @param w the width to stretch to
+	 * @param h the height to stretch to
+	 */
+	
+	public void draw(Sprite sprite, int x, int y, int w, int h) {
+		addQuad(getTexture(sprite), x, y, x + w, y, x + w, y + h, x, y + h,
+				(float)sprite.getTexCoordStartX(), (float)sprite.getTexCoordStartY(),
+				(float)sprite.getTexCoordEndX(), (float)sprite.getTexCoordEndY());
+	}
+	
+	/**
+	 * Adds the specified sprite to the batch at the specified coordinates, drawn with
+	 * the specified color rather than the current color
+	 * @param sprite the sprite to draw
+	 * @param x the x coordinate
+	 * @param y the y coordinate
+	 * @param color the color to draw the sprite with
+	 */
+	
+	public void draw(Sprite sprite, int x, int y, Color color) {
+		float oldR = r, oldG = g, oldB = b, oldA = a;
+		
+		setColor(color.getRedFloat(), color.getGreenFloat(), color.getBlueFloat(), color.getAlphaFloat());
+		draw(sprite, x, y);
+		setColor(oldR, oldG, oldB, oldA);
+	}
+	
+	/**
+	 * Adds the specified sprite to the batch, positioned relative to the specified origin
+	 * and rotated about that origin, using the current color
+	 * @param sprite the sprite to draw
+	 * @param originX the x coordinate of the origin
+	 * @param originY the y coordinate of the origin
+	 * @param rotation the rotation in degrees
+	 * @param offsetX the x coordinate of the sprite's top left corner relative to the origin
+	 * @param offsetY the y coordinate of the sprite's top left corner relative to the origin
+	 */
+	
+	public void draw(Sprite sprite, float originX, float originY, float rotation, int offsetX, int offsetY) {
+		draw(getTexture(sprite), originX, originY, rotation, offsetX, offsetY,
+				offsetX + sprite.getWidth(), offsetY + sprite.getHeight(),
+				(float)sprite.getTexCoordStartX(), (float)sprite.getTexCoordStartY(),
+				(float)sprite.getTexCoordEndX(), (float)sprite.getTexCoordEndY());
+	}
+	
+	/**
+	 * Adds the specified range of quads from the cache to the batch.  The quads are drawn
+	 * with the colors they were recorded with rather than the current color
+	 * @param cache the cache containing the quads
+	 * @param firstQuad the index of the first quad to add
+	 * @param endQuad the index one past the last quad to add
+	 */
+	
+	public void draw(QuadCache cache, int firstQuad, int endQuad) {
+		if (depth == 0) throw new IllegalStateException("SpriteBatch.begin must be called before drawing");
+		
+		int run = 0;
+		int quad = firstQuad;
+		while (quad < endQuad) {
+			// find the run containing the current quad
+			while (run + 1 < cache.numRuns && cache.runStarts[run + 1] <= quad) {
+				run++;
+			}
+			
+			int runEnd = run + 1 < cache.numRuns ? cache.runStarts[run + 1] : cache.numQuads;
+			
+			if (numQuads == capacity) flush();
+			
+			int count = Math.min(Math.min(endQuad, runEnd) - quad, capacity - numQuads);
+			
+			addRun(cache.runTextures[run]);
+			
+			int floatsPerQuad = 4 * FloatsPerVertex;
+			vertices.put(cache.vertices, quad * floatsPerQuad, count * floatsPerQuad);
+			
+			numQuads += count;
+			numQuadsDrawn += count;
+			quad += count;
+		}
+	}
+	
+	/**
+	 * Adds a quad with the specified texture and texture coordinates to the batch, using
+	 * the current color.  The quad is the rectangle (x0, y0) to (x1, y1) relative to the
+	 * specified origin, rotated about that origin.
+	 * @param texture the OpenGL texture
+	 * @param originX the x coordinate of the origin
+	 * @param originY the y coordinate of the origin
+	 * @param rotation the rotation in degrees, as for glRotatef about the z axis
+	 * @param x0 the left edge relative to the origin
+	 * @param y0 the top edge relative to the origin
+	 * @param x1 the right edge relative to the origin
+	 * @param y1 the bottom edge relative to the origin
+	 * @param u0 the lower x texture coordinate
+	 * @param v0 the lower y texture coordinate
+	 * @param u1 the upper x texture coordinate
+	 * @param v1 the upper y texture coordinate
+	 */
+	
+	public void draw(int texture, float originX, float originY, float rotation,
+			float x0, float y0, float x1, float y1, float u0, float v0, float u1, float v1) {
+		
+		if (rotation == 0.0f) {
+			addQuad(texture, originX + x0, originY + y0, originX + x1, originY + y0,
+					originX + x1, originY + y1, originX + x0, originY + y1, u0, v0, u1, v1);
+			return;
+		}
+		
+		double radians = Math.toRadians(rotation);
+		float cos = (float)Math.cos(radians);
+		float sin = (float)Math.sin(radians);
+		
+		addQuad(texture,
+				originX + x0 * cos - y0 * sin, originY + x0 * sin + y0 * cos,
+				originX + x1 * cos - y0 * sin, originY + x1 * sin + y0 * cos,
+				originX + x1 * cos - y1 * sin, originY + x1 * sin + y1 * cos,
+				originX + x0 * cos - y1 * sin, originY + x0 * sin + y1 * cos,
+				u0, v0, u1, v1);
+	}
+	
+	private int getTexture(Sprite sprite) {
+		int texture = sprite.getTextureReference();
+		
+		if (texture == 0) sprite.requestTexture();
+		
+		return texture;
+	}
+	
+	/*
+	 * Adds a quad with corners in the order top left, top right, bottom right, bottom left
+	 */
+	
+	private void addQuad(int texture, float xa, float ya, float xb, float yb, float xc, float yc,
+			float xd, float yd, float u0, float v0, float u1, float v1) {
+		
+		if (depth == 0) throw new IllegalStateException("SpriteBatch.begin must be called before drawing");
+		
+		if (numQuads == capacity) flush();
+		
+		addRun(texture);
+		
+		putVertex(xa, ya, u0, v0);
+		putVertex(xb, yb, u1, v0);
+		putVertex(xc, yc, u1, v1);
+		putVertex(xd, yd, u0, v1);
+		
+		numQuads++;
+		numQuadsDrawn++;
+	}
+	
+	/*
+	 * Starts a new run with the specified texture at the next quad, unless the
+	 * current run already uses that texture
+	 */
+	
+	private void addRun(int texture) {
+		if (numRuns == 0 || runTextures[numRuns - 1] != texture) {
+			runTextures[numRuns] = texture;
+			runStarts[numRuns] = numQuads;
+			numRuns++;
+		}
+	}
+	
+	private void putVertex(float x, float y, float u, float v) {
+		vertices.put(x).put(y).put(u).put(v);
+		vertices.put(r).put(g).put(b).put(a);
+		vertices.put(r2).put(g2).put(b2);
+	}
+	
+	/**
+	 * Returns the total number of quads added to this batch since the counts were reset
+	 * @return the number of quads drawn
+	 */
+	
+	public long getNumQuadsDrawn() {
+		return numQuadsDrawn;
+	}
+	
+	/**
+	 * Returns the total number of array draws made by this batch since the counts
+	 * were reset
+	 * @return the number of draw calls
+	 */
+	
+	public long getNumDrawCalls() {
+		return numDrawCalls;
+	}
+	
+	/**
+	 * Resets the quad and draw call counts to zero
+	 */
+	
+	public void resetCounts() {
+		numQuadsDrawn = 0l;
+		numDrawCalls = 0l;
+	}
+	
+	/**
+	 * The interface used by a SpriteBatch to draw the quads it has collected
+	 * @author Jared Stephen
+	 *
+	 */
+	
+	public interface Sink {
+		/**
+		 * Called before any quads are drawn with the vertex data for all quads.  Each
+		 * quad is four consecutive vertices of {@link SpriteBatch#FloatsPerVertex} floats
+		 * @param vertices the vertex data
+		 */
+		
+		public void begin(FloatBuffer vertices);
+		
+		/**
+		 * Draws a run of consecutive quads sharing the same texture
+		 * @param texture the OpenGL texture
+		 * @param firstQuad the index of the first quad in the vertex data
+		 * @param numQuads the number of quads to draw
+		 */
+		
+		public void drawQuads(int texture, int firstQuad, int numQuads);
+		
+		/**
+		 * Called once all quads have been drawn
+		 */
+		
+		public void end();
+	}
+	
+	/**
+	 * A Sink drawing with OpenGL vertex arrays.  The current color and client array
+	 * state are saved and restored, so immediate mode drawing is unaffected
+	 */
+	
+	public static class GLSink implements Sink {
+		private static final int Stride = FloatsPerVertex * 4;
+		
+		@Override public void begin(FloatBuffer vertices) {
+			GL11.glPushAttrib(GL11.GL_CURRENT_BIT);
+			GL11.glPushClientAttrib(GL11.GL_CLIENT_VERTEX_ARRAY_BIT);
+			
+			GL11.glEnableClientState(GL11.GL_VERTEX_ARRAY);
+			GL11.glEnableClientState(GL11.GL_TEXTURE_COORD_ARRAY);
+			GL11.glEnableClientState(GL11.GL_COLOR_ARRAY);
+			GL11.glEnableClientState(GL14.GL_SECONDARY_COLOR_ARRAY);
+			
+			vertices.position(0);
+			GL11.glVertexPointer(2, Stride, vertices);
+			vertices.position(2);
+			GL11.glTexCoordPointer(2, Stride, vertices);
+			vertices.position(4);
+			GL11.glColorPointer(4, Stride, vertices);
+			vertices.position(8);
+			GL14.glSecondaryColorPointer(3, Stride, vertices);
+			vertices.position(0);
+		}
+		
+		@Override public void drawQuads(int texture, int firstQuad, int numQuads) {
+			GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
+			GL11.glDrawArrays(GL11.GL_QUADS, firstQuad * 4, numQuads * 4);
+		}
+		
+		@Override public void end() {
+			GL11.glPopClientAttrib();
+			GL11.glPopAttrib();
+		}
+	}
+}
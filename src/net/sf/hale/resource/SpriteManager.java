@@ -20,14 +20,20 @@
 package net.sf.hale.resource;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -59,6 +65,8 @@ public class SpriteManager {
 	
 	private static boolean saveSourceImages = false;
 	
+	private static TextureCache textureCache;
+	
 	/**
 	 * Sets whether the buffered images that are read in to create spritesheets are saved or discarded.  if false,
 	 * these images are discarded once the spritesheets have been loaded into an openGL context.  if true, the
@@ -102,7 +110,8 @@ public class SpriteManager {
 	/**
 	 * Reads the SpriteSheet at the specified location.  All sprites specified in the SpriteSheet
 	 * are loaded into texture memory and become available via {@link #getImage(String)} and
-	 * similar methods.
+	 * similar methods.  Several sprite sheets may be read at the same time from different
+	 * threads.
 	 * @param resource the resource ID of the SpriteSheet to load
 	 * @return a List of all Sprite resource IDs contained within the SpriteSheet which are loaded
 	 * into texture memory
@@ -128,6 +137,8 @@ public class SpriteManager {
 		
 		SimpleJSONObject imagesIn = parser.getObject("images");
 		
+		Map<String, Sprite> sheetSprites = new LinkedHashMap<String, Sprite>();
+		
 		for (String imageID : imagesIn.keySet()) {
 			SimpleJSONArray imageIn = imagesIn.getArray(imageID);
 			
@@ -161,11 +172,8 @@ public class SpriteManager {
 			Sprite sprite = new Sprite(spriteSheet.getTextureReference(), w, h,
 					texCoordStartX, texCoordStartY, texCoordEndX, texCoordEndY);
 			images.add(mapping + "/" + imageID);
-
-			if (sprites.containsKey(reference)) {
-				Logger.appendToWarningLog("Warning, overwriting sprite " + reference);				
-			}
-			sprites.put(reference, sprite);
+			
+			sheetSprites.put(reference, sprite);
 
 			spritesToLoad.add(sprite);
 		}
@@ -177,11 +185,20 @@ public class SpriteManager {
 		Game.textureLoader.loadTexture(pixelData.pixels, pixelData.width,
 				pixelData.height, spritesToLoad);
 		
-		if (spriteSheets.containsKey(reference)) {
-			Logger.appendToWarningLog("Warning, SpriteSheet " + reference +
-					" is being overwritten.  This is a texture memory leak.");
+		synchronized(SpriteManager.class) {
+			for (String spriteRef : sheetSprites.keySet()) {
+				if (sprites.containsKey(spriteRef)) {
+					Logger.appendToWarningLog("Warning, overwriting sprite " + spriteRef);
+				}
+				sprites.put(spriteRef, sheetSprites.get(spriteRef));
+			}
+			
+			if (spriteSheets.containsKey(reference)) {
+				Logger.appendToWarningLog("Warning, SpriteSheet " + reference +
+						" is being overwritten.  This is a texture memory leak.");
+			}
+			spriteSheets.put(reference, spriteSheet);
 		}
-		spriteSheets.put(reference, spriteSheet);
 		
 		return images;
 	}
@@ -194,7 +211,7 @@ public class SpriteManager {
 	 * @return the saved image or null if no such image exists
 	 */
 	
-	public static BufferedImage getSourceImage(String id) {
+	public static synchronized BufferedImage getSourceImage(String id) {
 		return sourceImages.get(id);
 	}
 	
@@ -237,7 +254,7 @@ public class SpriteManager {
 	 * @return true if and only if the specified Sprite is found
 	 */
 	
-	public static final boolean hasSprite(String ref) {
+	public static final synchronized boolean hasSprite(String ref) {
 		if (ref.endsWith(ResourceType.PNG.getExtension())) return sprites.containsKey(ref);
 		else return sprites.containsKey("images/" + ref + ResourceType.PNG.getExtension());
 	}
@@ -300,7 +317,7 @@ public class SpriteManager {
 	 * @return the Sprite at the specified ID
 	 */
 	
-	public static final Sprite getImage(String ref) {
+	public static final synchronized Sprite getImage(String ref) {
 		if (!sprites.containsKey(ref)) {
 			if (ResourceManager.hasResource(ref)) {
 				sprites.put(ref, SpriteManager.loadImage(ref));
@@ -310,40 +327,150 @@ public class SpriteManager {
 		return sprites.get(ref);
 	}
 	
+	/*
+	 * Returns the texture cache, creating it if needed, or null if the cache is disabled
+	 */
+	
+	private static synchronized TextureCache getTextureCache() {
+		// the editor keeps the decoded source images, so there is no benefit to the cache
+		if (saveSourceImages || Game.config == null || !Game.config.isTextureCacheEnabled()) return null;
+		
+		if (Game.getCacheBaseDirectory() == null) return null;
+		
+		if (textureCache == null) {
+			textureCache = new TextureCache(new File(Game.getCacheBaseDirectory(), "textures"));
+		}
+		
+		return textureCache;
+	}
+	
+	/**
+	 * Removes all images from the on disk texture cache.  They will be decoded and
+	 * cached again the next time they are loaded
+	 */
+	
+	public static void clearTextureCache() {
+		TextureCache cache = getTextureCache();
+		
+		if (cache != null) cache.clear();
+	}
+	
 	private static final ByteBufferSized loadPixels(String ref) {
+		byte[] data;
+		try {
+			data = readResource(ref);
+		} catch (IOException e) {
+			Logger.appendToErrorLog("Failed to load image: " + ref, e);
+			throw new IllegalArgumentException("Image does not exist at " + ref);
+		}
+		
+		// use the previously decoded image if it is up to date
+		TextureCache cache = getTextureCache();
+		byte[] digest = null;
+		if (cache != null) {
+			digest = TextureCache.computeDigest(data);
+			
+			ByteBufferSized cached = cache.get(ref, digest);
+			if (cached != null) return cached;
+		}
+		
 		BufferedImage sourceImage = null;
 		// read the image
 		try {
-			sourceImage = ImageIO.read(ResourceManager.getStream(ref));
+			sourceImage = ImageIO.read(new ByteArrayInputStream(data));
 			
 		} catch (IOException e) {
 			Logger.appendToErrorLog("Failed to load image: " + ref, e);
 			throw new IllegalArgumentException("Image does not exist at " + ref);
 		}
 		
+		if (sourceImage == null) throw new IllegalArgumentException("Unable to decode image at " + ref);
+		
 		if (saveSourceImages) {
-			sourceImages.put(ref, sourceImage);
+			synchronized(SpriteManager.class) {
+				sourceImages.put(ref, sourceImage);
+			}
 		}
 		
-		// get the rgb color data from the read image
-		int[] rgb = new int[sourceImage.getWidth() * sourceImage.getHeight()];
-		sourceImage.getRGB(0, 0, sourceImage.getWidth(), sourceImage.getHeight(), rgb, 0, sourceImage.getWidth());
-		
-		// convert the rgb data to the appropriate format for OpenGL use
-		byte[] src = new byte[rgb.length * 4];
-		for (int i = 0; i < rgb.length; i++) {
-			src[4 * i + 3] = (byte) (rgb[i] >>> 24);
-			src[4 * i + 0] = (byte) (rgb[i] >>> 16);
-			src[4 * i + 1] = (byte) (rgb[i] >>> 8);
-			src[4 * i + 2] = (byte) rgb[i];
-		}
+		ByteBufferSized buffer = new ByteBufferSized(getRGBAPixels(sourceImage),
+				sourceImage.getWidth(), sourceImage.getHeight());
 		
-		ByteBuffer pixels = (ByteBuffer)BufferUtils.createByteBuffer(src.length).put(src).flip();
+		if (cache != null) cache.put(ref, digest, buffer);
 		
-		ByteBufferSized buffer = new ByteBufferSized(pixels, sourceImage.getWidth(), sourceImage.getHeight());
 		return buffer;
 	}
 	
+	private static byte[] readResource(String ref) throws IOException {
+		InputStream in = ResourceManager.getStream(ref);
+		if (in == null) throw new FileNotFoundException(ref);
+		
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			
+			int numRead;
+			while ((numRead = in.read(buffer)) != -1) {
+				out.write(buffer, 0, numRead);
+			}
+			
+			return out.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+	
+	/*
+	 * Converts the specified image to RGBA pixel data suitable for OpenGL use, written
+	 * directly into a new direct buffer.  Images with a byte based raster, which
+	 * includes most PNGs, are read straight from the raster; other images are converted
+	 * a row at a time
+	 */
+	
+	private static ByteBuffer getRGBAPixels(BufferedImage image) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		
+		ByteBuffer pixels = BufferUtils.createByteBuffer(width * height * 4);
+		
+		switch (image.getType()) {
+		case BufferedImage.TYPE_4BYTE_ABGR:
+			byte[] abgr = ((DataBufferByte)image.getRaster().getDataBuffer()).getData();
+			for (int i = 0; i < abgr.length; i += 4) {
+				pixels.put(abgr[i + 3]);
+				pixels.put(abgr[i + 2]);
+				pixels.put(abgr[i + 1]);
+				pixels.put(abgr[i]);
+			}
+			break;
+		case BufferedImage.TYPE_3BYTE_BGR:
+			byte[] bgr = ((DataBufferByte)image.getRaster().getDataBuffer()).getData();
+			for (int i = 0; i < bgr.length; i += 3) {
+				pixels.put(bgr[i + 2]);
+				pixels.put(bgr[i + 1]);
+				pixels.put(bgr[i]);
+				pixels.put((byte)0xff);
+			}
+			break;
+		default:
+			int[] row = new int[width];
+			for (int y = 0; y < height; y++) {
+				image.getRGB(0, y, width, 1, row, 0, width);
+				
+				for (int x = 0; x < width; x++) {
+					int argb = row[x];
+					pixels.put((byte) (argb >>> 16));
+					pixels.put((byte) (argb >>> 8));
+					pixels.put((byte) argb);
+					pixels.put((byte) (argb >>> 24));
+				}
+			}
+		}
+		
+		pixels.flip();
+		
+		return pixels;
+	}
+	
 	private static final Sprite loadImage(String ref) {
 		ByteBufferSized buffer = SpriteManager.loadPixels(ref);
 		
@@ -361,7 +488,7 @@ public class SpriteManager {
 	 * be empty.
 	 */
 	
-	public static void clear() {
+	public static synchronized void clear() {
 		Set<Integer> deletedTextures = new HashSet<Integer>();
 		
 		// free up all texture memory
@@ -395,7 +522,7 @@ public class SpriteManager {
 	 * @param spriteToDelete the Sprite who's texture is to be deleted
 	 */
 	
-	public static void freeTexture(Sprite spriteToDelete) {
+	public static synchronized void freeTexture(Sprite spriteToDelete) {
 		int texture = spriteToDelete.getTextureReference();
 		GL11.glDeleteTextures(texture);
 		
@@ -424,7 +551,7 @@ public class SpriteManager {
 	 * @return the total amount of texture memory used by the SpriteManager in bytes
 	 */
 	
-	public static long getTextureMemoryUsage() {
+	public static synchronized long getTextureMemoryUsage() {
 		long total = 0;
 		
 		Set<Integer> texturesAlreadyCounted = new HashSet<Integer>();
@@ -458,11 +585,15 @@ public class SpriteManager {
 		return total;
 	}
 	
-	private static class ByteBufferSized {
-		private ByteBuffer pixels;
-		private int width, height;
+	/**
+	 * RGBA pixel data along with the width and height of the image it represents
+	 */
+	
+	static class ByteBufferSized {
+		final ByteBuffer pixels;
+		final int width, height;
 		
-		private ByteBufferSized(ByteBuffer pixels, int width, int height) {
+		ByteBufferSized(ByteBuffer pixels, int width, int height) {
 			this.pixels = pixels;
 			this.width = width;
 			this.height = height;
@@ -0,0 +1,231 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2012 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package net.sf.hale.resource;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import net.sf.hale.util.Logger;
+
+/**
+ * An on disk cache of decoded images, stored as raw RGBA pixel data ready to be
+ * handed to OpenGL.  Cached images are memory mapped rather than read, so loading
+ * an image from the cache requires no decoding and no copies on the Java heap.
+ * <p>
+ * Each image is stored in its own file, named by a hash of its resource path.  The
+ * file header records a hash of the contents of the source image, so when the source
+ * image changes, the cached copy no longer matches and is replaced.
+ * <p>
+ * Images for different resources may be read and written from several threads at once.
+ * @author Jared Stephen
+ *
+ */
+
+class TextureCache {
+	// "HTC" followed by the format version
+	private static final int Magic = 0x48544301;
+	
+	private static final int DigestLength = 16;
+	
+	// magic, digest, width, height
+	private static final int HeaderLength = 4 + DigestLength + 4 + 4;
+	
+	private static final String Extension = ".rgba";
+	
+	private final File directory;
+	
+	/**
+	 * Creates a new TextureCache storing images in the specified directory.  The
+	 * directory is created if it does not exist
+	 * @param directory the directory for cached images
+	 */
+	
+	TextureCache(File directory) {
+		this.directory = directory;
+		
+		directory.mkdirs();
+	}
+	
+	/**
+	 * Computes the hash of the specified image contents used to check whether
+	 * a cached image is up to date
+	 * @param data the contents of the source image file
+	 * @return the hash of the contents
+	 */
+	
+	static byte[] computeDigest(byte[] data) {
+		return getMessageDigest().digest(data);
+	}
+	
+	/**
+	 * Returns the cached pixel data for the image at the specified resource path, if
+	 * it is present and was created from source data with the specified hash.  The
+	 * returned buffer is a read only memory mapped view of the cache file
+	 * @param path the resource path of the image
+	 * @param digest the hash of the current contents of the source image
+	 * @return the cached pixel data, or null if there is no up to date cached image
+	 */
+	
+	SpriteManager.ByteBufferSized get(String path, byte[] digest) {
+		File file = getFile(path);
+		if (!file.isFile()) return null;
+		
+		RandomAccessFile in = null;
+		try {
+			in = new RandomAccessFile(file, "r");
+			
+			if (in.length() < HeaderLength || in.readInt() != Magic) return null;
+			
+			byte[] cachedDigest = new byte[DigestLength];
+			in.readFully(cachedDigest);
+			if (!Arrays.equals(digest, cachedDigest)) return null;
+			
+			int width = in.readInt();
+			int height = in.readInt();
+			
+			long size = 4l * width * height;
+			if (width <= 0 || height <= 0 || in.length() != HeaderLength + size) return null;
+			
+			// the mapping remains valid after the file is closed
+			ByteBuffer pixels = in.getChannel().map(FileChannel.MapMode.READ_ONLY, HeaderLength, size);
+			
+			return new SpriteManager.ByteBufferSized(pixels, width, height);
+			
+		} catch (IOException e) {
+			Logger.appendToWarningLog("Unable to read cached texture for " + path + ": " + e.getMessage());
+			return null;
+		} finally {
+			close(in, file);
+		}
+	}
+	
+	/**
+	 * Stores the specified pixel data for the image at the specified resource path,
+	 * replacing any existing cached image for that path.  Failures are logged but
+	 * otherwise ignored, as the image can always be decoded again
+	 * @param path the resource path of the image
+	 * @param digest the hash of the contents of the source image
+	 * @param image the decoded RGBA pixel data
+	 */
+	
+	void put(String path, byte[] digest, SpriteManager.ByteBufferSized image) {
+		File file = getFile(path);
+		File temp = null;
+		RandomAccessFile out = null;
+		
+		try {
+			// write to a temporary file first so a partially written file is never read
+			temp = File.createTempFile("texture", Extension, directory);
+			out = new RandomAccessFile(temp, "rw");
+			
+			ByteBuffer header = ByteBuffer.allocate(HeaderLength);
+			header.putInt(Magic);
+			header.put(digest);
+			header.putInt(image.width);
+			header.putInt(image.height);
+			header.flip();
+			
+			FileChannel channel = out.getChannel();
+			
+			while (header.hasRemaining()) {
+				channel.write(header);
+			}
+			
+			ByteBuffer pixels = image.pixels.duplicate();
+			pixels.rewind();
+			while (pixels.hasRemaining()) {
+				channel.write(pixels);
+			}
+			
+			out.close();
+			out = null;
+			
+			file.delete();
+			if (!temp.renameTo(file)) {
+				throw new IOException("Unable to replace " + file.getPath());
+			}
+			
+			temp = null;
+			
+		} catch (IOException e) {
+			Logger.appendToWarningLog("Unable to cache texture for " + path + ": " + e.getMessage());
+		} finally {
+			close(out, file);
+			
+			if (temp != null) temp.delete();
+		}
+	}
+	
+	/**
+	 * Removes all cached images from the cache directory
+	 */
+	
+	void clear() {
+		File[] files = directory.listFiles();
+		if (files == null) return;
+		
+		for (File file : files) {
+			if (file.getName().endsWith(Extension)) file.delete();
+		}
+	}
+	
+	private File getFile(String path) {
+		byte[] hash;
+		try {
+			hash = getMessageDigest().digest(path.getBytes("UTF-8"));
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		
+		StringBuilder name = new StringBuilder(2 * hash.length + Extension.length());
+		for (byte b : hash) {
+			name.append(Character.forDigit((b >> 4) & 0xf, 16));
+			name.append(Character.forDigit(b & 0xf, 16));
+		}
+		name.append(Extension);
+		
+		return new File(directory, name.toString());
+	}
+	
+	private static MessageDigest getMessageDigest() {
+		try {
+			return MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			// all Java platforms are required to support MD5
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	private static void close(RandomAccessFile file, File location) {
+		if (file == null) return;
+		
+		try {
+			file.close();
+		} catch (IOException e) {
+			Logger.appendToErrorLog("Error closing file " + location.getPath(), e);
+		}
+	}
+}
@@ -34,6 +34,8 @@ import net.sf.hale.ScriptState;
 import net.sf.hale.ability.AbilitySlot;
 import net.sf.hale.ability.ScriptFunctionType;
 import net.sf.hale.area.Area;
+import net.sf.hale.area.AreaCache;
+import net.sf.hale.area.AreaPreloader;
 import net.sf.hale.area.Transition;
 import net.sf.hale.entity.CreatedItem;
 import net.sf.hale.entity.Creature;
@@ -81,7 +83,8 @@ public class Campaign {
 	private final List<Faction.CustomRelationship> customRelationships;
 	private final Map<String, Merchant> merchants;
 	private final Map<String, Transition> transitions;
-	private final Map<String, Area> areas;
+	private final AreaCache areas;
+	private final AreaPreloader areaPreloader;
 	
 	public Party party;
 	public final Currency partyCurrency;
@@ -93,7 +96,9 @@ public class Campaign {
 	private String currentDifficulty;
 	
 	/**
-	 * Gets a JSONObject with all of the save game data from this campaign
+	 * Gets a JSONObject with all of the save game data from this campaign.  The party,
+	 * areas, and other large objects are stored as the Saveable objects themselves, and
+	 * are saved as they are written out by a {@link net.sf.hale.loading.SaveSink}
 	 * @return the JSONObject
 	 */
 	
@@ -109,21 +114,16 @@ public class Campaign {
 		
 		data.put("currentArea", SaveGameUtil.getRef(curArea));
 		
-		data.put("party", party.save());
+		data.put("party", party);
 		
-		Object[] areasData = new Object[areas.size()];
-		int i = 0;
-		for (String areaID : areas.keySet()) {
-			areasData[i] = areas.get(areaID).save();
-			i++;
-		}
-		data.put("loadedAreas", areasData);
+		data.put("loadedAreas", areas.getSaveData());
 		
+		int i;
 		if (createdItems.size() > 0) {
 			Object[] createdItemsData = new Object[createdItems.size()];
 			i = 0;
 			for (CreatedItem createdItem : createdItems.values()) {
-				createdItemsData[i] = createdItem.save();
+				createdItemsData[i] = createdItem;
 				i++;
 			}
 			
@@ -142,12 +142,12 @@ public class Campaign {
 		Object[] merchantData = new Object[merchants.size()];
 		i = 0;
 		for (String merchantID : merchants.keySet()) {
-			merchantData[i] = merchants.get(merchantID).save();
+			merchantData[i] = merchants.get(merchantID);
 			i++;
 		}
 		data.put("merchants", merchantData);
 		
-		data.put("questEntries", questEntries.save());
+		data.put("questEntries", questEntries);
 		
 		List<Object> locationData = new ArrayList<Object>();
 		for (WorldMapLocation location : worldMapLocations) {
@@ -197,13 +197,14 @@ public class Campaign {
 			}
 		}
 		
+		areaPreloader.clear();
 		areas.clear();
 		SimpleJSONArray loadedAreas = data.getArray("loadedAreas");
 		for (SimpleJSONArrayEntry entry : loadedAreas) {
 			SimpleJSONObject areaData = entry.getObject();
 			
 			Area area = Area.load(areaData, refHandler);
-			areas.put(area.getID(), area);
+			areas.add(area);
 		}
 		
 		this.party = Party.load(data.getObject("party"), refHandler);
@@ -331,7 +332,8 @@ public class Campaign {
 	public Campaign(String id) {
 		this.id = id;
 		name = "";
-		areas = new HashMap<String, Area>();
+		areas = new AreaCache();
+		areaPreloader = new AreaPreloader();
 		transitions = new HashMap<String, Transition>();
 		party = new Party();
 		encounterTemplates = new HashMap<String, EncounterTemplate>();
@@ -450,7 +452,8 @@ public class Campaign {
 	}
 	
 	public void checkEncounterRespawns() {
-		for (Area area : areas.values()) {
+		// areas that are not loaded check for respawns when they are next loaded
+		for (Area area : areas.getLoadedAreas()) {
 			area.checkEncounterRespawns();
 		}
 	}
@@ -506,6 +509,9 @@ public class Campaign {
 		
 		// now we switch over to the new area
 		curArea = getArea(endPoint.getAreaID());
+		
+		// areas preloaded for the previous area are unlikely to be needed now
+		areaPreloader.clear();
 		curArea.runOnAreaLoad(transition);
 		
 		Iterator<PointImmutable> destinationPositionsIter = endPoint.getPartyPositionsIterator();
@@ -588,13 +594,32 @@ public class Campaign {
 		areas.remove(id);
 	}
 	
+	/**
+	 * Returns the area with the specified ID.  If the area is not currently loaded,
+	 * it is loaded from its snapshot if it has been visited before, or from its resource
+	 * file otherwise, using the parsed resource from the {@link AreaPreloader} if it
+	 * has been preloaded.  Loading an area may cause other, less recently used areas to be
+	 * unloaded, see {@link AreaCache}
+	 * @param ref the ID of the area
+	 * @return the area, or null if the area could not be loaded
+	 */
+	
 	public Area getArea(String ref) {
-		Area area = areas.get(ref);
+		Area area = areas.getLoadedArea(ref);
 		
 		if (area == null) {
 			try {
-				area = new Area(ref);
-				areas.put(ref, area);
+				SimpleJSONParser parser = areaPreloader.take(ref);
+				
+				if (areas.hasSnapshot(ref))
+					area = areas.rehydrate(ref, parser);
+				else
+					area = new Area(ref, parser);
+				
+				areas.add(area);
+				
+				// the area being returned is not yet the current area, so it must be kept as well
+				areas.evictAreas(curArea, area, party);
 			} catch (Exception e) {
 				Logger.appendToErrorLog("Error loading area " + ref, e);
 			}
@@ -603,6 +628,24 @@ public class Campaign {
 		return area;
 	}
 	
+	/**
+	 * Returns the cache holding all areas that have been visited in this campaign
+	 * @return the area cache
+	 */
+	
+	public AreaCache getAreaCache() {
+		return areas;
+	}
+	
+	/**
+	 * Returns the preloader used to parse areas the party is likely to travel to
+	 * @return the area preloader
+	 */
+	
+	public AreaPreloader getAreaPreloader() {
+		return areaPreloader;
+	}
+	
 	public void loadAreaTransitions() {
 		transitions.clear();
 		
@@ -123,7 +123,7 @@ public class Damage {
 		
 		for (Entry entry : entries) {
 			int baseDamageOfType = entry.damage;
-			if (parent.getFaction() == Game.ruleset.getFaction(Game.ruleset.getString("PlayerFaction"))) {
+			if (parent.getFaction() == Game.ruleset.getFaction(Game.ruleset.getString(RuleString.PlayerFaction))) {
 				// apply difficulty settings to PCs
 				baseDamageOfType = baseDamageOfType * diffManager.getDamageFactorOnPCs() / 100;
 			}
@@ -40,6 +40,9 @@ public class Faction {
 		Friendly, Neutral, Hostile
 	};
 	
+	// incremented each time the relationship between any two factions is set
+	private static int relationshipsVersion;
+	
 	private String name;
 	private Map<String, Relationship> relationships;
 	
@@ -86,11 +89,28 @@ public class Faction {
 	}
 	
 	public void setRelationship(Faction other, Relationship relationship) {
-		relationships.put(other.getName(), relationship);
+		setRelationship(other.getName(), relationship);
 	}
 	
 	public void setRelationship(String otherName, Relationship relationship) {
 		relationships.put(otherName, relationship);
+		
+		incrementRelationshipsVersion();
+	}
+	
+	private static synchronized void incrementRelationshipsVersion() {
+		relationshipsVersion++;
+	}
+	
+	/**
+	 * Returns a number that changes each time the relationship between any two
+	 * factions is set.  Caches that depend on faction relationships can compare this
+	 * against the value they were computed with to find out if they are out of date
+	 * @return the current version of the faction relationships
+	 */
+	
+	public static synchronized int getRelationshipsVersion() {
+		return relationshipsVersion;
 	}
 	
 	public String getName() { return name; }
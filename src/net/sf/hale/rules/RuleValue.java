@@ -0,0 +1,73 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2012 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package net.sf.hale.rules;
+
+/**
+ * The integer rules from the "rules" resource that are used by the engine.  Each
+ * of these rules must be present in the resource as an integer; the ruleset will fail to
+ * load otherwise.  Values are looked up with {@link Ruleset#getValue(RuleValue)}, which
+ * is a single array read.  Other rules, such as those only used by scripts, can still be
+ * looked up by name.
+ * @author Jared Stephen
+ *
+ */
+
+public enum RuleValue {
+	MaximumPathLength,
+	BaseActionPoints,
+	OutsideCombatHealingFactor,
+	PickUpAndWieldItemCost,
+	DropItemCost,
+	PickUpItemCost,
+	GiveItemCost,
+	EquipItemCost,
+	EquipArmorCost,
+	OpenLockCost,
+	DisarmTrapCost,
+	RecoverTrapCost,
+	OpenContainerCost,
+	OpenDoorCost,
+	TrapCriticalFailureThreshold,
+	SearchCheckCreatureBaseDifficulty,
+	SearchCheckDistanceMultiplier,
+	HideAttackPenalty,
+	HideSpringTrapPenalty,
+	HidePlaceTrapPenalty,
+	HideRecoverTrapPenalty,
+	HideDisarmTrapPenalty,
+	HideCastSpellPenalty,
+	StartingAttributePoints,
+	WeightLimitBase,
+	WeightLimitStrengthFactor,
+	XPLevelMultFactor,
+	XPLevelExpBaseInv,
+	EncounterChallengeFactor,
+	EncounterXPFactor,
+	EncounterGroupChallengeScaleFactor,
+	SkillsMaxPerLevel,
+	BuySellGapSpeechExpFactor,
+	AttributePointCostExpBaseNumerator,
+	AttributePointCostExpBaseDenominator,
+	TrapQualityDifficultyNumerator,
+	TrapQualityDifficultyDenominator,
+	RecipeVisibleSkillThreshold,
+	CombatLengthXPFactor,
+	CombatLengthXPMax;
+}
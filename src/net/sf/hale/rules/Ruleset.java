@@ -32,6 +32,8 @@ import net.sf.hale.DifficultyManager;
 import net.sf.hale.ability.Ability;
 import net.sf.hale.ability.AbilitySelectionList;
 import net.sf.hale.entity.SavedItemList;
+import net.sf.hale.loading.LoadingTask;
+import net.sf.hale.loading.LoadingTaskList;
 import net.sf.hale.quickbar.QuickbarGroup;
 import net.sf.hale.resource.ResourceManager;
 import net.sf.hale.resource.ResourceType;
@@ -72,12 +74,21 @@ public class Ruleset {
 	private final Map<String, Integer> ruleValues;
 	private final Map<String, String> ruleStrings;
 	
+	// the rules used by the engine, indexed by ordinal
+	private final int[] ruleValueArray;
+	private final String[] ruleStringArray;
+	
 	private final Map<String, Cutscene> cutscenes;
 	
 	private DifficultyManager difficultyManager;
 	
 	private final Map<String, QuickbarGroup> quickbarGroups;
 	
+	// the number of groups that abilities are split into when loaded in parallel
+	private static final int AbilityLoadingGroups = 8;
+	
+	private List<String> abilityResources;
+	
 	/**
 	 * Creates a new empty Ruleset.  The readData method must be called after this
 	 * to initialize all the rules.  This should not be done until both the
@@ -103,6 +114,8 @@ public class Ruleset {
 		
 		ruleValues = new HashMap<String, Integer>();
 		ruleStrings = new HashMap<String, String>();
+		ruleValueArray = new int[RuleValue.values().length];
+		ruleStringArray = new String[RuleString.values().length];
 		
 		itemQualities = new HashMap<String, Quality>();
 		
@@ -128,6 +141,80 @@ public class Ruleset {
 		readRacialTypes();
 		
 		readAbilities();
+		
+		readCutscenes();
+		
+		readDependentData();
+	}
+	
+	/**
+	 * Adds tasks to the specified list that read in all data for this Ruleset, in
+	 * the same way as {@link #readData()}.  Abilities and cutscenes, which make up most
+	 * of the ruleset, are read on several threads at once.  The tasks will not be
+	 * started until all of the specified dependencies are complete
+	 * @param list the list to add the tasks to
+	 * @param dependencies the tasks that must be complete before the ruleset is read
+	 * @return the final task, which is complete once all data for this Ruleset is read
+	 */
+	
+	public LoadingTask addLoadingTasks(LoadingTaskList list, LoadingTask... dependencies) {
+		LoadingTask basics = list.addTask(new Runnable() {
+			@Override public void run() {
+				readRuleValuesAndStrings();
+				
+				readItemQualities();
+				
+				readFactions();
+				readDamageTypes();
+				readBaseWeapons();
+				readArmorTypes();
+				
+				readRacialTypes();
+			}
+		}, "Loading Rules", 4, dependencies);
+		
+		LoadingTask abilitiesTask = new LoadingTask(new Runnable() {
+			@Override public void run() {
+				abilities.clear();
+				abilityResources = new ArrayList<String>(ResourceManager.getResourcesInDirectory("abilities"));
+			}
+		}, "Loading Abilities", 1);
+		
+		for (int i = 0; i < AbilityLoadingGroups; i++) {
+			final int group = i;
+			
+			abilitiesTask.addSubTask(new Runnable() {
+				@Override public void run() {
+					for (int index = group; index < abilityResources.size(); index += AbilityLoadingGroups) {
+						readAbility(abilityResources.get(index));
+					}
+				}
+			}, 2);
+		}
+		
+		abilitiesTask.setSubTasksConcurrent(true);
+		list.addTask(abilitiesTask, basics);
+		
+		LoadingTask cutscenesTask = list.addTask(new Runnable() {
+			@Override public void run() {
+				readCutscenes();
+			}
+		}, "Loading Cutscenes", 2, dependencies);
+		
+		return list.addTask(new Runnable() {
+			@Override public void run() {
+				abilityResources = null;
+				
+				readDependentData();
+			}
+		}, "Loading Races and Roles", 8, abilitiesTask, cutscenesTask);
+	}
+	
+	/*
+	 * Reads the data that depends on abilities and the basic rules
+	 */
+	
+	private void readDependentData() {
 		readAbilitySelectionLists();
 		readQuickbarGroups();
 		
@@ -137,8 +224,6 @@ public class Ruleset {
 		
 		readItemLists();
 		
-		readCutscenes();
-		
 		XP.initXPTable();
 		
 		difficultyManager = new DifficultyManager();
@@ -249,10 +334,23 @@ public class Ruleset {
 		abilities.clear();
 		
 		for (String resource : ResourceManager.getResourcesInDirectory("abilities")) {
-			String id = ResourceManager.getResourceIDNoPath(resource, ResourceType.JSON);
-			if (id == null) continue;
-			
-			abilities.put(id, Ability.createAbilityFromResource(id, resource));
+			readAbility(resource);
+		}
+	}
+	
+	/*
+	 * Loads the ability at the specified resource.  This may be called from several
+	 * threads at once
+	 */
+	
+	private void readAbility(String resource) {
+		String id = ResourceManager.getResourceIDNoPath(resource, ResourceType.JSON);
+		if (id == null) return;
+		
+		Ability ability = Ability.createAbilityFromResource(id, resource);
+		
+		synchronized(abilities) {
+			abilities.put(id, ability);
 		}
 	}
 	
@@ -341,7 +439,8 @@ public class Ruleset {
 	}
 	
 	/*
-	 * Loads miscellaneous rules from the "rules.txt" resource
+	 * Loads miscellaneous rules from the "rules.txt" resource.  Throws an
+	 * IllegalStateException if any of the rules used by the engine are missing
 	 */
 	
 	private void readRuleValuesAndStrings() {
@@ -359,6 +458,25 @@ public class Ruleset {
 		}
 		
 		parser.warnOnUnusedKeys();
+		
+		List<String> missing = new ArrayList<String>();
+		
+		for (RuleValue rule : RuleValue.values()) {
+			Integer value = ruleValues.get(rule.name());
+			
+			if (value == null) missing.add(rule.name());
+			else ruleValueArray[rule.ordinal()] = value;
+		}
+		
+		for (RuleString rule : RuleString.values()) {
+			String value = ruleStrings.get(rule.name());
+			
+			if (value == null) missing.add(rule.name());
+			else ruleStringArray[rule.ordinal()] = value;
+		}
+		
+		if (!missing.isEmpty())
+			throw new IllegalStateException("Required rules missing or of the wrong type: " + missing);
 	}
 	
 	/**
@@ -473,17 +591,45 @@ public class Ruleset {
 	}
 	
 	/**
-	 * Returns the integer value with the specified rule id from the rules.txt resource
+	 * Returns the integer value of the specified rule from the rules.txt resource
+	 * @param rule the rule
+	 * @return the integer value of the rule
+	 */
+	
+	public int getValue(RuleValue rule) {
+		return ruleValueArray[rule.ordinal()];
+	}
+	
+	/**
+	 * Returns the string value of the specified rule from the rules.txt resource
+	 * @param rule the rule
+	 * @return the string value of the rule
+	 */
+	
+	public String getString(RuleString rule) {
+		return ruleStringArray[rule.ordinal()];
+	}
+	
+	/**
+	 * Returns the integer value with the specified rule id from the rules.txt resource.
+	 * Engine code should use {@link #getValue(RuleValue)} instead; this is for rules
+	 * that are only used by scripts
 	 * @param rule the rule ID
 	 * @return the integer value corresponding to the specified rule ID
 	 */
 	
 	public int getValue(String rule) {
-		return ruleValues.get(rule);
+		Integer value = ruleValues.get(rule);
+		
+		if (value == null) throw new IllegalArgumentException("No integer rule " + rule + " found");
+		
+		return value;
 	}
 	
 	/**
-	 * Returns the string value with the specified rule ID from the rules.txt resource
+	 * Returns the string value with the specified rule ID from the rules.txt resource.
+	 * Engine code should use {@link #getString(RuleString)} instead; this is for rules
+	 * that are only used by scripts
 	 * @param rule the rule ID
 	 * @return the string value
 	 */
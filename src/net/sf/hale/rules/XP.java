@@ -44,8 +44,8 @@ public class XP {
 	 */
 	
 	public static void initXPTable() {
-		int levelMultFactor = Game.ruleset.getValue("XPLevelMultFactor");
-		int levelExpBaseInv = Game.ruleset.getValue("XPLevelExpBaseInv");
+		int levelMultFactor = Game.ruleset.getValue(RuleValue.XPLevelMultFactor);
+		int levelExpBaseInv = Game.ruleset.getValue(RuleValue.XPLevelExpBaseInv);
 		double levelExpBase = 1.0 + 1.0 / ((double)levelExpBaseInv);
 		
 		XP.pointsForLevel = new int[MAX_LEVEL + 2];
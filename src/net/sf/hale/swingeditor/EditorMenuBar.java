@@ -39,7 +39,6 @@ import net.sf.hale.area.Area;
 import net.sf.hale.loading.SaveWriter;
 import net.sf.hale.resource.ResourceType;
 import net.sf.hale.resource.SpriteManager;
-import net.sf.hale.util.AreaUtil;
 import net.sf.hale.util.FileUtil;
 import net.sf.hale.util.Logger;
 
@@ -236,7 +235,7 @@ public class EditorMenuBar extends JMenuBar {
 			SpriteManager.setSaveSourceImages(true);
 			
 			Area area = Game.curCampaign.getArea(areaID);
-			AreaUtil.setMatrix(area.getExplored(), true);
+			area.getExplored().setAll();
 			
 			AreaRenderer viewer = new AreaRenderer(area, frame.getOpenGLCanvas());
 			frame.setAreaViewer(viewer);
@@ -30,8 +30,10 @@ import javax.swing.SwingUtilities;
 
 import net.sf.hale.Config;
 import net.sf.hale.Game;
+import net.sf.hale.ability.ScriptExecutor;
 import net.sf.hale.loading.AsyncTextureLoader;
 import net.sf.hale.resource.ResourceManager;
+import net.sf.hale.resource.SpriteBatch;
 import net.sf.hale.rules.Dice;
 import net.sf.hale.rules.Ruleset;
 import net.sf.hale.util.JSEngineManager;
@@ -63,8 +65,11 @@ public class SwingEditor extends JFrame implements ComponentListener {
 		
 		// create the basic objects used by the campaign editor
 		Game.textureLoader = new AsyncTextureLoader();
+		Game.spriteBatch = new SpriteBatch();
 		Game.config = new Config(Game.getConfigBaseDirectory() + "config.json");
-		Game.scriptEngineManager = new JSEngineManager();
+		Game.scriptExecutor = new ScriptExecutor();
+		Game.scriptEngineManager = new JSEngineManager(Game.getScriptEnginePoolSize(),
+				ScriptExecutor.MaxBlockedWorkers, Game.config.getScriptEngineTimeout());
 		Game.dice = new Dice();
 		
 		ResourceManager.registerCorePackage();
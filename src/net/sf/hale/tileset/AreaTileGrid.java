@@ -28,6 +28,7 @@ import de.matthiasmann.twl.AnimationState;
 import net.sf.hale.Game;
 import net.sf.hale.area.Area;
 import net.sf.hale.loading.JSONOrderedObject;
+import net.sf.hale.resource.SpriteBatch;
 import net.sf.hale.util.AreaUtil;
 import net.sf.hale.util.Point;
 
@@ -270,25 +271,38 @@ public class AreaTileGrid {
 		
 		// TODO draw transitions within the layer like entities
 		
+		// the batch is ended around anything drawn outside of it, so that drawing
+		// is done in the correct order
+		SpriteBatch batch = Game.spriteBatch;
+		batch.begin();
+		
 		for (String layerID : tileset.getLayerIDs()) {
 			if (layerID.equals(entityLayerID)) {
+				batch.end();
+				
 				if (Game.particleManager != null)
 					Game.particleManager.drawBelowEntities();
 				
 				renderer.drawTransitions();
 				
-				tiles.get(layerID).draw(screenCoordinates, renderer, topLeft, bottomRight);
+				tiles.get(layerID).draw(batch, screenCoordinates, renderer, topLeft, bottomRight);
 				
 				if (Game.particleManager != null)
 					Game.particleManager.drawAboveEntities();
 				
+				batch.begin();
 			} else if (layerID.equals(interfaceLayerID)) {
-				tiles.get(layerID).draw(screenCoordinates, topLeft, bottomRight);
+				tiles.get(layerID).draw(batch, screenCoordinates, topLeft, bottomRight);
+				
+				batch.end();
 				renderer.drawInterface(as);
+				batch.begin();
 			} else {
-				tiles.get(layerID).draw(screenCoordinates, topLeft, bottomRight);
+				tiles.get(layerID).draw(batch, screenCoordinates, topLeft, bottomRight);
 			}
 		}
+		
+		batch.end();
 	}
 	
 	/**
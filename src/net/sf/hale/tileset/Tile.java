@@ -20,7 +20,9 @@
 package net.sf.hale.tileset;
 
 import net.sf.hale.Game;
+import net.sf.hale.resource.QuadCache;
 import net.sf.hale.resource.Sprite;
+import net.sf.hale.resource.SpriteBatch;
 import net.sf.hale.resource.SpriteManager;
 
 /**
@@ -70,6 +72,28 @@ public class Tile {
 		sprite.draw(screenX + offsetX, screenY + offsetY);
 	}
 	
+	/**
+	 * Adds this tile to the specified sprite batch at the specified screen coordinates
+	 * @param batch the batch to draw with
+	 * @param screenX the x coordinate
+	 * @param screenY the y coordinate
+	 */
+	
+	public final void draw(SpriteBatch batch, int screenX, int screenY) {
+		batch.draw(sprite, screenX + offsetX, screenY + offsetY);
+	}
+	
+	/**
+	 * Adds this tile to the specified cache at the specified screen coordinates
+	 * @param cache the cache to add to
+	 * @param screenX the x coordinate
+	 * @param screenY the y coordinate
+	 */
+	
+	public final void addToCache(QuadCache cache, int screenX, int screenY) {
+		cache.add(sprite, screenX + offsetX, screenY + offsetY);
+	}
+	
 	/**
 	 * Returns the Tile ID for this Tile
 	 * @return the Tile ID for this Tile
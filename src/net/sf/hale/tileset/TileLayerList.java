@@ -36,6 +36,9 @@ import net.sf.hale.entity.Door;
 import net.sf.hale.entity.Entity;
 import net.sf.hale.entity.Trap;
 import net.sf.hale.loading.JSONOrderedObject;
+import net.sf.hale.resource.QuadCache;
+import net.sf.hale.resource.SpriteBatch;
+import net.sf.hale.util.BitGrid;
 import net.sf.hale.util.Point;
 
 /**
@@ -45,11 +48,20 @@ import net.sf.hale.util.Point;
  */
 
 public class TileLayerList {
+	/**
+	 * The width and height in grid points of each chunk of cached tile geometry
+	 */
+	
+	public static final int ChunkSize = 16;
+	
 	private TileList[][] tiles;
 	
+	// cached tile geometry, indexed by chunk coordinates.  null chunks are built when drawn
+	private Chunk[][] chunks;
+	
 	// helpers for drawing entity tiles
-	private boolean[][] explored;
-	private boolean[][] visibility;
+	private BitGrid explored;
+	private BitGrid visibility;
 	private Area area;
 	
 	/**
@@ -106,6 +118,8 @@ public class TileLayerList {
 				tiles[x][y] = new TileList();
 			}
 		}
+		
+		clearChunks();
 	}
 	
 	/**
@@ -137,6 +151,8 @@ public class TileLayerList {
 		}
 		
 		this.tiles = newTiles;
+		
+		clearChunks();
 	}
 	
 	/**
@@ -161,6 +177,27 @@ public class TileLayerList {
 				tiles[x][y].cacheSprites();
 			}
 		}
+		
+		clearChunks();
+	}
+	
+	/*
+	 * Removes all cached tile geometry, so that it is rebuilt as it is drawn
+	 */
+	
+	private void clearChunks() {
+		int width = tiles.length;
+		int height = width == 0 ? 0 : tiles[0].length;
+		
+		chunks = new Chunk[(width + ChunkSize - 1) / ChunkSize][(height + ChunkSize - 1) / ChunkSize];
+	}
+	
+	/*
+	 * Removes the cached tile geometry containing the specified grid point
+	 */
+	
+	private void invalidateChunk(int x, int y) {
+		chunks[x / ChunkSize][y / ChunkSize] = null;
 	}
 	
 	/**
@@ -194,6 +231,7 @@ public class TileLayerList {
 		}
 		
 		tiles[x][y].add(tile);
+		invalidateChunk(x, y);
 		
 		return tile;
 	}
@@ -213,6 +251,8 @@ public class TileLayerList {
 				iter.remove();
 			}
 		}
+		
+		invalidateChunk(x, y);
 	}
 	
 	/**
@@ -230,6 +270,8 @@ public class TileLayerList {
 				iter.remove();
 			}
 		}
+		
+		invalidateChunk(x, y);
 	}
 	
 	/**
@@ -247,6 +289,8 @@ public class TileLayerList {
 				iter.remove();
 			}
 		}
+		
+		invalidateChunk(x, y);
 	}
 	
 	/**
@@ -257,10 +301,15 @@ public class TileLayerList {
 	
 	public void removeTiles(int x, int y) {
 		tiles[x][y].clear();
+		invalidateChunk(x, y);
 	}
 	
 	/**
-	 * Draws all tiles in this TileLayerList
+	 * Draws all tiles in this TileLayerList.  The tiles are drawn from cached chunks
+	 * of geometry, so whole chunks are drawn horizontally even where they extend past
+	 * the drawing bounds.  Tiles are drawn in the same order as if they were drawn
+	 * individually: row by row, with the even columns of each row before the odd columns.
+	 * @param batch the batch to add tiles to
 	 * @param screenCoordinates the array of screen coordinates for the set
 	 * of grid points in this layer
 	 * @param topLeft the top left grid point drawing bound, this point must be within the
@@ -269,30 +318,92 @@ public class TileLayerList {
 	 * bounds of the tile grid
 	 */
 	
-	protected void draw(Point[][] screenCoordinates, Point topLeft, Point bottomRight) {
+	protected void draw(SpriteBatch batch, Point[][] screenCoordinates, Point topLeft, Point bottomRight) {
+		int firstChunkX = topLeft.x / ChunkSize;
+		int lastChunkX = bottomRight.x / ChunkSize;
+		int firstChunkY = topLeft.y / ChunkSize;
+		int lastChunkY = bottomRight.y / ChunkSize;
+		
+		// rebuild any chunks that have changed
+		for (int chunkX = firstChunkX; chunkX <= lastChunkX; chunkX++) {
+			for (int chunkY = firstChunkY; chunkY <= lastChunkY; chunkY++) {
+				Chunk chunk = chunks[chunkX][chunkY];
+				
+				if (chunk == null || !chunk.quads.isValid()) buildChunk(chunkX, chunkY, screenCoordinates);
+			}
+		}
+		
 		for (int y = topLeft.y; y <= bottomRight.y; y++) {
-			for (int x = topLeft.x; x <= bottomRight.x; x += 2) {
-				draw(x, y, screenCoordinates[x][y].x, screenCoordinates[x][y].y);
+			int row = 2 * (y % ChunkSize);
+			
+			for (int chunkX = firstChunkX; chunkX <= lastChunkX; chunkX++) {
+				Chunk chunk = chunks[chunkX][y / ChunkSize];
+				batch.draw(chunk.quads, chunk.rowOffsets[row], chunk.rowOffsets[row + 1]);
 			}
 			
-			for (int x = topLeft.x + 1; x <= bottomRight.x; x += 2) {
-				draw(x, y, screenCoordinates[x][y].x, screenCoordinates[x][y].y);
+			for (int chunkX = firstChunkX; chunkX <= lastChunkX; chunkX++) {
+				Chunk chunk = chunks[chunkX][y / ChunkSize];
+				batch.draw(chunk.quads, chunk.rowOffsets[row + 1], chunk.rowOffsets[row + 2]);
 			}
 		}
 	}
 	
-	private final void drawEntityTile(int x, int y, Point screen) {
-		draw(x, y, screen.x, screen.y);
+	private void buildChunk(int chunkX, int chunkY, Point[][] screenCoordinates) {
+		Chunk chunk = chunks[chunkX][chunkY];
+		if (chunk == null) {
+			chunk = new Chunk();
+			chunks[chunkX][chunkY] = chunk;
+		}
+		
+		chunk.quads.clear();
+		
+		int startX = chunkX * ChunkSize;
+		int endX = Math.min(startX + ChunkSize, tiles.length);
+		int startY = chunkY * ChunkSize;
+		int endY = Math.min(startY + ChunkSize, tiles[0].length);
+		
+		for (int row = 0; row < ChunkSize; row++) {
+			int y = startY + row;
+			
+			chunk.rowOffsets[2 * row] = chunk.quads.getNumQuads();
+			if (y < endY) {
+				for (int x = startX; x < endX; x += 2) {
+					addToCache(chunk.quads, x, y, screenCoordinates[x][y]);
+				}
+			}
+			
+			chunk.rowOffsets[2 * row + 1] = chunk.quads.getNumQuads();
+			if (y < endY) {
+				for (int x = startX + 1; x < endX; x += 2) {
+					addToCache(chunk.quads, x, y, screenCoordinates[x][y]);
+				}
+			}
+		}
+		
+		chunk.rowOffsets[2 * ChunkSize] = chunk.quads.getNumQuads();
+	}
+	
+	private void addToCache(QuadCache cache, int gridX, int gridY, Point screen) {
+		for (Tile tile : tiles[gridX][gridY]) {
+			tile.addToCache(cache, screen.x, screen.y);
+		}
+	}
+	
+	private final void drawEntityTile(SpriteBatch batch, int x, int y, Point screen) {
+		draw(batch, x, y, screen.x, screen.y);
 		
 		// dont draw entities in unexplored tiles
-		if (!explored[x][y]) return;
+		if (!explored.get(x, y)) return;
 		
 		Collection<Entity> entities = area.getEntities().getEntitiesSet(x, y);
 		if (entities == null) return;
 		
+		// entities are drawn outside of the batch, so the tiles beneath them must be drawn first
+		batch.end();
+		
 		for (Entity entity : entities) {
 			// don't draw doors or hostiles that can't be seen
-			if (!visibility[x][y]) {
+			if (!visibility.get(x, y)) {
 				if (entity instanceof Door) continue;
 				if (!entity.isPlayerFaction() && entity instanceof Creature) continue;
 			}
@@ -304,10 +415,13 @@ public class TileLayerList {
 		}
 		
 		GL11.glColor3f(1.0f, 1.0f, 1.0f);
+		
+		batch.begin();
 	}
 	
 	/**
 	 * Draws all tiles in this layer, also drawing entities within the layer
+	 * @param batch the batch to add tiles to
 	 * @param screenCoordinates the array of screen coordinates for the set
 	 * of grid points in this layer
 	 * @param renderer the renderer for the area being drawn
@@ -317,28 +431,44 @@ public class TileLayerList {
 	 * bounds of the tile grid
 	 */
 	
-	protected void draw(Point[][] screenCoordinates, AreaTileGrid.AreaRenderer renderer, Point topLeft, Point bottomRight) {
+	protected void draw(SpriteBatch batch, Point[][] screenCoordinates, AreaTileGrid.AreaRenderer renderer,
+			Point topLeft, Point bottomRight) {
 		area = renderer.getArea();
 		visibility = area.getVisibility();
 		explored = area.getExplored();
 		
+		batch.begin();
+		
 		for (int y = topLeft.y; y <= bottomRight.y; y++) {
 			for (int x = topLeft.x; x <= bottomRight.x; x += 2) {
-				drawEntityTile(x, y, screenCoordinates[x][y]);
+				drawEntityTile(batch, x, y, screenCoordinates[x][y]);
 			}
 			
 			for (int x = topLeft.x + 1; x <= bottomRight.x; x += 2) {
-				drawEntityTile(x, y, screenCoordinates[x][y]);
+				drawEntityTile(batch, x, y, screenCoordinates[x][y]);
 			}
 		}
+		
+		batch.end();
 	}
 	
-	private final void draw(int gridX, int gridY, int screenX, int screenY) {
+	private final void draw(SpriteBatch batch, int gridX, int gridY, int screenX, int screenY) {
 		for (Tile tile : tiles[gridX][gridY]) {
-			tile.draw(screenX, screenY);
+			tile.draw(batch, screenX, screenY);
 		}
 	}
 	
+	/*
+	 * The cached geometry for a square of grid points.  For each row, the quads for
+	 * the even columns start at rowOffsets[2 * row] and the quads for the odd columns
+	 * start at rowOffsets[2 * row + 1]
+	 */
+	
+	private static class Chunk {
+		private final QuadCache quads = new QuadCache();
+		private final int[] rowOffsets = new int[2 * ChunkSize + 1];
+	}
+	
 	private class TileList extends ArrayList<Tile> {
 		private static final long serialVersionUID = 1L;
 
@@ -21,7 +21,10 @@ package net.sf.hale.util;
 
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import net.sf.hale.Game;
 import net.sf.hale.area.Area;
@@ -46,6 +49,29 @@ public class AreaUtil {
 	
 	private PathFinder.Data pathFindData;
 	
+	/**
+	 * The maximum number of movers whose distance fields are kept
+	 */
+	
+	public static final int MaxCachedDistanceFields = 16;
+	
+	// the most recently computed distance fields, for movers and for movers ignoring creatures
+	private final Map<Creature, DistanceField> distanceFields;
+	private final Map<Creature, DistanceField> distanceFieldsIgnoreCreatures;
+	
+	/**
+	 * The maximum number of goals whose flow fields are kept
+	 */
+	
+	public static final int MaxCachedFlowFields = 8;
+	
+	// the most recently used flow fields, keyed by goal
+	private final Map<Long, FlowField> flowFields;
+	
+	private final HexFieldOfView fieldOfView;
+	
+	private final HexLine lineTable;
+	
 	public enum Turn {
 		LEFT, RIGHT, STRAIGHT
 	};
@@ -66,6 +92,13 @@ public class AreaUtil {
 		}
 		
 		pathFindData = new PathFinder.Data(area);
+		
+		distanceFields = new DistanceFieldCache();
+		distanceFieldsIgnoreCreatures = new DistanceFieldCache();
+		flowFields = new FlowFieldCache();
+		
+		fieldOfView = new HexFieldOfView(area.getVisibilityRadius());
+		lineTable = HexLine.getLineTable(area.getVisibilityRadius());
 	}
 	
 	public static List<Creature> getVisibleCreatures(Creature activeCreature, Faction.Relationship rel) {
@@ -97,16 +130,6 @@ public class AreaUtil {
 		data[x][y] = value;
 	}
 	
-	private static final void orMatrix(boolean[][] source, boolean[][] dest) {
-		if (source.length != dest.length || source[0].length != dest[0].length) return;
-		
-		for (int i = 0; i < source.length; i++) {
-			for (int j = 0; j < source[i].length; j++) {
-				dest[i][j] = source[i][j] || dest[i][j];
-			}
-		}
-	}
-	
 	public void updateVisibility() {
 		updateTransparency(area.getTransparency());
 		for (Creature c : Game.curCampaign.party) {
@@ -116,10 +139,10 @@ public class AreaUtil {
 	}
 	
 	public void setPartyVisibility() {
-		boolean[][] visible = area.getVisibility();
-		boolean[][] explored = area.getExplored();
+		BitGrid visible = area.getVisibility();
+		BitGrid explored = area.getExplored();
 		
-		setMatrix(visible, false);
+		visible.clear();
 		
 		for (Creature creature : Game.curCampaign.party) {
 			if (creature instanceof PC)
@@ -128,23 +151,33 @@ public class AreaUtil {
 
 		Game.timer.getTemporaryVisibilityAreas(visible);
 		
-		orMatrix(visible, explored);
+		explored.or(visible);
 	}
 	
 	public void updateTransparency(boolean[][] transparent) {
 		this.transparent = transparent;
 	}
 	
-	public void setVisibilityWithRespectToPosition(boolean[][] visible, Point center) {
+	public void setVisibilityWithRespectToPosition(BitGrid visible, Point center) {
 		setVisibilityWithRespectToPosition(visible, center.x, center.y);
 	}
 	
-	public void setVisibilityWithRespectToPosition(boolean[][] visible, int centerX, int centerY) {
-		setMatrix(visible, false);
+	public void setVisibilityWithRespectToPosition(BitGrid visible, int centerX, int centerY) {
+		visible.clear();
 		
-		if (visible.length != width || visible[0].length != height) return;
+		if (visible.getWidth() != width || visible.getHeight() != height) return;
 		
-		getVisibility(visible, centerX, centerY);
+		fieldOfView.compute(visible, centerX, centerY, transparent, area.getElevationGrid());
+	}
+	
+	/**
+	 * Returns the table of lines between hex centers for this area, covering lines up to
+	 * the visibility radius of the area
+	 * @return the line table for this area
+	 */
+	
+	public HexLine getLineTable() {
+		return lineTable;
 	}
 	
 	public static void setMatrix(boolean[][] data, boolean val) {
@@ -155,116 +188,6 @@ public class AreaUtil {
 		}
 	}
 	
-	private final boolean isValidCoordinates(Point p) {
-		return p.x >= 0 && p.y >= 0 && p.x < width && p.y < height;
-	}
-	
-	private boolean[][] getVisibility(boolean[][] visible, int centerX, int centerY) {
-		if (centerX < 0 || centerY < 0 || centerX >= visible.length || centerY >= visible[0].length) return visible; 
-		
-		byte centerElev = this.area.getElevationGrid().getElevation(centerX, centerY);
-		
-		visible[centerX][centerY] = true;
-		
-		LOSCone cone = new LOSCone(0, new Point(Game.TILE_SIZE / 2, 0), 1, new Point(Game.TILE_SIZE, Game.TILE_SIZE / 2));
-		cone.next = new LOSCone(2, new Point(Game.TILE_SIZE, Game.TILE_SIZE / 2), 3, new Point(Game.TILE_SIZE / 2, Game.TILE_SIZE));
-		cone.next.next = new LOSCone(3, new Point(Game.TILE_SIZE / 2, Game.TILE_SIZE), 4, new Point(0, Game.TILE_SIZE / 2));
-		cone.next.next.next = new LOSCone(5, new Point(0, Game.TILE_SIZE / 2), 6, new Point(Game.TILE_SIZE / 2, 0));
-		
-		int radius = 1;
-		while (radius <= this.area.getVisibilityRadius()) {
-
-			//System.out.println("At radius " + radius);
-			
-			LOSCone previousCone = cone;
-			LOSCone currentCone = cone;
-			boolean closeCurrentCone = false;
-
-			while (currentCone != null) {
-				//Point s = new Point(currentCone.getStartArmX(), currentCone.getStartArmY());
-				//Point e = new Point(currentCone.getEndArmX(), currentCone.getEndArmY());
-				
-				//System.out.println("  Cone with arms: " + s + "; " + e);
-				//System.out.println("    With coords: " + currentCone.getStartI() + ", " + currentCone.getEndI());
-				
-				int i = 0;
-				for (i = currentCone.getStartI(); i <= currentCone.getEndI(); i++) {
-					Point currentTile = AreaUtil.convertPolarToGrid(centerX, centerY, currentCone.getR(), i);
-
-					byte curElev = 0;
-					
-					if (isValidCoordinates(currentTile)) {
-						visible[currentTile.x][currentTile.y] = true;
-						
-						curElev = area.getElevationGrid().getElevation(currentTile.x, currentTile.y);
-					}
-					
-					if (!isValidCoordinates(currentTile) || !transparent[currentTile.x][currentTile.y] || curElev > centerElev) {
-						//System.out.println("    Found opaque tile at " + currentTile);
-						if (currentCone.getStartI() == currentCone.getEndI()) { // This cone has ended, close it out
-							//System.out.println("      Closing cone at " + i + ".");
-							closeCurrentCone = true;
-						} else if (currentCone.getStartI() == i) {
-							//System.out.println("      Contracting start arm at " + i + ".");
-							currentCone.contractStartArm(i);
-							//System.out.println("      New coords: " + currentCone.getStartI() + ", " + currentCone.getEndI());
-							//System.out.println("      New start arm: " + currentCone.getStartArmX() + ", " + currentCone.getStartArmY());
-						} else if (currentCone.getEndI() == i) {
-							//System.out.println("      Contracting end arm at " + i + ".");
-							currentCone.contractEndArm(i);
-							//System.out.println("      New coords: " + currentCone.getStartI() + ", " + currentCone.getEndI());
-							//System.out.println("      New end arm: " + currentCone.getEndArmX() + ", " + currentCone.getEndArmY());
-						} else {
-							//System.out.println("      Splitting cone at " + i + ".");
-							LOSCone nextCone = currentCone.split(i);
-							//System.out.println("      First cone coords: " + currentCone.getStartI() + ", " + currentCone.getEndI());
-							//System.out.println("      Second cone coords: " + nextCone.getStartI() + ", " + nextCone.getEndI());
-
-							nextCone.next = currentCone.next;
-							currentCone.next = nextCone;
-						}
-					}
-				}
-
-				if (closeCurrentCone == true) {
-					if (currentCone == cone) {
-						cone = currentCone.next;
-						currentCone = currentCone.next;
-						if (currentCone != null) previousCone = currentCone.next;
-					}
-					else {
-						previousCone.next = currentCone.next;
-						currentCone = currentCone.next;
-					}
-
-					closeCurrentCone = false;
-				} else {
-					previousCone = currentCone;
-					currentCone = currentCone.next;
-				}
-			}
-
-			//System.out.println("  Expanding.");
-			
-			currentCone = cone;
-			while (currentCone != null) {
-				//System.out.println("    Cone");
-				//System.out.println("      Old Coords: " + currentCone.getStartI() + ", " + currentCone.getEndI());
-				//System.out.println("      Old Start arm: " + currentCone.getStartArmX() + ", " + currentCone.getStartArmY());
-				//System.out.println("      Old End arm: " + currentCone.getEndArmX() + ", " + currentCone.getEndArmY());
-				currentCone.expand();
-				//System.out.println("      New Coords: " + currentCone.getStartI() + ", " + currentCone.getEndI());
-				//System.out.println("      New Start arm: " + currentCone.getStartArmX() + ", " + currentCone.getStartArmY());
-				//System.out.println("      New End arm: " + currentCone.getEndArmX() + ", " + currentCone.getEndArmY());
-				currentCone = currentCone.next;
-			}
-
-			radius++;
-		}
-		
-		return visible;
-	}
-	
 	/**
 	 * Finds the shortest possible path from the position of the mover to the end point,
 	 * ignoring the positions of all creatures
@@ -275,10 +198,8 @@ public class AreaUtil {
 	 */
 	
 	public Path findShortestPathIgnoreCreatures(Creature mover, Point end) {
-		boolean[][] entityPass = area.getEntities().getDoorPassabilities(mover);
-		
 		synchronized(pathFindData) {
-			pathFindData.setEntityPassabilities(entityPass);
+			area.getEntities().getDoorPassabilities(pathFindData.getEntityPassabilities());
 			return PathFinder.findPathIgnoreCreatures(mover, end, pathFindData);
 		}
 	}
@@ -324,15 +245,117 @@ public class AreaUtil {
 			}
 		}
 		
-		boolean[][] entityPass = Game.curCampaign.curArea.getEntityPassabilities(mover);
-		
 		synchronized(pathFindData) {
-			pathFindData.setEntityPassabilities(entityPass);
+			Game.curCampaign.curArea.getEntityPassabilities(mover, pathFindData.getEntityPassabilities());
 		
 			return PathFinder.findPath(mover, end, goals, pathFindData);
 		}
 	}
 	
+	/**
+	 * Returns the distance field holding the cheapest paths from the mover to every point
+	 * in the area.  The field is computed once and then reused until the mover moves,
+	 * the entity passabilities change, or the next combat turn begins
+	 * @param mover the creature that is moving
+	 * @param ignoreCreatures true to ignore the positions of all creatures, as with
+	 * {@link #findShortestPathIgnoreCreatures(Creature, Point)}, false to use the entity
+	 * passabilities for the mover, as with {@link #findShortestPath(Creature, Point, int)}
+	 * @return the distance field for the mover
+	 */
+	
+	public DistanceField getDistanceField(Creature mover, boolean ignoreCreatures) {
+		int turnNumber = Game.areaListener == null ? 0 : Game.areaListener.getCombatRunner().getTurnNumber();
+		
+		synchronized(pathFindData) {
+			BitGrid impassable = pathFindData.getEntityPassabilities();
+			
+			if (ignoreCreatures)
+				area.getEntities().getDoorPassabilities(impassable);
+			else
+				area.getEntityPassabilities(mover, impassable);
+			
+			Map<Creature, DistanceField> fields = ignoreCreatures ? distanceFieldsIgnoreCreatures : distanceFields;
+			
+			DistanceField field = fields.get(mover);
+			if (field != null && field.isCurrent(mover, ignoreCreatures, impassable, turnNumber))
+				return field;
+			
+			if (field == null) {
+				field = new DistanceField(area);
+				fields.put(mover, field);
+			}
+			
+			PathFinder.computeDistanceField(mover, pathFindData, field);
+			field.ignoreCreatures = ignoreCreatures;
+			field.turnNumber = turnNumber;
+			
+			return field;
+		}
+	}
+	
+	/**
+	 * Discards all cached distance fields and flow fields.  They are computed again the
+	 * next time they are needed
+	 */
+	
+	public void clearCachedFields() {
+		synchronized(pathFindData) {
+			distanceFields.clear();
+			distanceFieldsIgnoreCreatures.clear();
+			flowFields.clear();
+		}
+	}
+	
+	/**
+	 * Finds the path from the position of the mover towards the specified end point by following
+	 * the flow field for that end point.  The flow field is shared by all creatures moving towards
+	 * the same end point, and is brought up to date for this mover's movement costs and entity
+	 * passabilities, recomputing only the parts of the field that have changed.  Without a stop
+	 * distance, this finds the same cost path as {@link #findShortestPath(Creature, Point, int)}
+	 * @param mover the creature that is moving
+	 * @param end the destination point or center of the destination points
+	 * @param distanceAway the distance away from the end point of the destination points, or
+	 * 0 to use the end point itself
+	 * @param stopDistance the number of steps short of the destination points to stop at, or 0
+	 * to move all the way to the destination.  Party members following a move order use this
+	 * to trail behind the lead mover
+	 * @param occupied the points the path may not end at, or null.  If the path would end at one of
+	 * these points, it is shortened until it does not.  If this is not null, destination points
+	 * occupied by party members are not excluded, as with
+	 * {@link #findShortestPathIgnoreParty(Creature, Point, boolean[][])}
+	 * @return the path for the mover, or null if no path exists
+	 */
+	
+	public Path findFlowFieldPath(Creature mover, Point end, int distanceAway, int stopDistance, Set<Point> occupied) {
+		boolean ignoreParty = occupied != null;
+		
+		long key = ((long)distanceAway << 33) | (ignoreParty ? 1l << 32 : 0l) | (end.x * height + end.y);
+		
+		synchronized(pathFindData) {
+			area.getEntityPassabilities(mover, pathFindData.getEntityPassabilities());
+			
+			FlowField field = flowFields.get(key);
+			if (field == null) {
+				List<Point> goals = new ArrayList<Point>();
+				
+				if (distanceAway == 0) {
+					goals.add(end);
+				} else {
+					for (int i = 0; i < distanceAway * 6; i++) {
+						goals.add( AreaUtil.convertPolarToGrid(end, distanceAway, i) );
+					}
+				}
+				
+				field = new FlowField(area, goals, ignoreParty);
+				flowFields.put(key, field);
+			}
+			
+			PathFinder.updateFlowField(mover, pathFindData, field);
+			
+			return field.getPath(mover.getLocation().getX(), mover.getLocation().getY(), stopDistance, occupied);
+		}
+	}
+	
 	public static Point[] getAdjacentTiles(Point grid) {
 		return getAdjacentTiles(grid.x, grid.y);
 	}
@@ -403,6 +426,19 @@ public class AreaUtil {
 	}
 	
 	public static final Point convertScreenToGrid(int screenX, int screenY) {
+		return convertScreenToGrid(screenX, screenY, new Point());
+	}
+	
+	/**
+	 * Converts the specified screen coordinates to grid coordinates, storing the
+	 * result in the specified point rather than allocating a new one
+	 * @param screenX the x screen coordinate
+	 * @param screenY the y screen coordinate
+	 * @param result the point to store the grid coordinates in
+	 * @return the result point
+	 */
+	
+	public static final Point convertScreenToGrid(int screenX, int screenY, Point result) {
 		// this function does not work for negative results
 		
 		int xBase = (screenX / (Game.TILE_WIDTH * 2)) * 2;
@@ -438,7 +474,10 @@ public class AreaUtil {
 			}
 		}
 
-		return new Point(xBase + xOffset, yBase + yOffset);
+		result.x = xBase + xOffset;
+		result.y = yBase + yOffset;
+		
+		return result;
 	}
 	
 	public static final Point convertPolarToGridCenter0(int r, int i) {
@@ -578,129 +617,37 @@ public class AreaUtil {
 		return new Point(px, py);
 	}
 	
+	/**
+	 * Returns the list of hexes crossed by the straight line between the specified screen
+	 * points, as found by {@link HexLine#walk(int, int, int, int, HexLine.Visitor)}.  Callers
+	 * that only need to examine each hex should use HexLine directly, which does not
+	 * create a list
+	 * @param x0 the x screen coordinate of the start point
+	 * @param y0 the y screen coordinate of the start point
+	 * @param x1 the x screen coordinate of the end point
+	 * @param y1 the y screen coordinate of the end point
+	 * @return the list of hexes crossed by the line, not including the start hex
+	 */
+	
 	public static ArrayList<Point> findIntersectingHexes(int x0, int y0, int x1, int y1) {
-		ArrayList<Point> hexes = new ArrayList<Point>();
-		
-		Point previous = AreaUtil.convertScreenToGrid(x0, y0);
-		Point end = AreaUtil.convertScreenToGrid(x1, y1);
-		Point[] adjacentToEnd = AreaUtil.getAdjacentTiles(end);
-		
-		Point current = new Point(-1, -1);
-		int previousSide = -1;
-		
-		int i = 0;
-		
-//		System.out.println("Finding...");
+		final ArrayList<Point> hexes = new ArrayList<Point>();
 		
-		while (i < 24 && !current.equals(end)) {
-			Point previousScreen = AreaUtil.convertGridToScreen(previous);
-			
-			previousSide = getLineIntersectSide(previousSide, previousScreen.x, previousScreen.y, x0, y0, x1, y1);
-			
-//			System.out.println("   previous is " + previous + " side is " + previousSide + " end is " + end);
-			
-			if (previousSide == 0) {
-				// North
-				current.x = previous.x;
-				current.y = previous.y - 1;
-
-			} else if (previousSide == 1) {
-				// North East
-				current.x = previous.x + 1;
-				current.y = previous.y - ((previous.x + 1) % 2); // If x is even, subtract one, if x is odd, no change
-
-			} else if (previousSide == 2) {
-				// South East
-				current.x = previous.x + 1;
-				current.y = previous.y + (previous.x % 2); // If x is even, no change, if x is odd, add one
-
-			} else if (previousSide == 3) {
-				// South
-				current.x = previous.x;
-				current.y = previous.y + 1;
-
-			} else if (previousSide == 4) {
-				// South West
-				current.x = previous.x - 1;
-				current.y = previous.y + (previous.x % 2); // If x is even, no change, if x is odd, add one
-
-			} else if (previousSide == 5) {
-				// North West
-				current.x = previous.x - 1;
-				current.y = previous.y - ((previous.x + 1) % 2); // If x is even, subtract one, if x is odd, no change
+		HexLine.walk(x0, y0, x1, y1, new HexLine.Visitor() {
+			@Override public boolean visit(int x, int y) {
+				hexes.add(new Point(x, y));
+				return true;
 			}
-			
-			hexes.add(new Point(current));
-			
-			// check to see if we have reached a tile adjacent to the end
-			if (contains(adjacentToEnd, current)) {
-				hexes.add(end);
-				break;
-			}
-			
-			previous.x = current.x;
-			previous.y = current.y;
-			
-			i++;
-		}
+		});
 		
 		return hexes;
 	}
 	
-	private static final boolean contains(Point[] points, Point pointToCheck) {
-		for (Point point : points) {
-			if (point.x == pointToCheck.x && point.y == pointToCheck.y) return true;
-		}
-		
-		return false;
-	}
-	
 	public static final Turn turns(int x0, int y0, int x1, int y1, int x2, int y2) {
 		int cross = (x1 - x0) * (y2 - y0) - (x2 - x0) * (y1 - y0);
 		
 		return((cross > 0) ? Turn.LEFT : ((cross == 0) ? Turn.STRAIGHT : Turn.RIGHT));
 	}
 	
-	private static final int getLineIntersectSide(int previousSide, int hexX, int hexY, int x3, int y3, int x4, int y4) {
-		int[] x = { hexX + Game.TILE_SIZE / 4, hexX + Game.TILE_WIDTH, hexX + Game.TILE_SIZE,
-				    hexX + Game.TILE_WIDTH, hexX + Game.TILE_SIZE / 4, hexX, hexX + Game.TILE_SIZE / 4 };
-		int[] y = { hexY, hexY, hexY + Game.TILE_SIZE / 2, hexY + Game.TILE_SIZE,
-				    hexY + Game.TILE_SIZE, hexY + Game.TILE_SIZE / 2, hexY};
-		
-		int noCheckSide = (previousSide + 3) % 6;
-		if (previousSide == -1) noCheckSide = -1;
-		
-//		System.out.println("     no check side is " + noCheckSide + ", hex = (" + hexX + ", " + hexY + ") p3 = (" + x3 + ", " + y3 + ") p4 = (" + x4 + ", " + y4 + ")");
-		
-		int bestChoice = -1;
-		double bestVal = -100.0;
-		
-		for (int i = 0; i < 6; i++) {
-
-			if (i == noCheckSide) continue;
-			
-			double uanum = (x4 - x3) * (y[i] - y3) - (y4 - y3) * (x[i] - x3);
-			double ubnum = (x[i + 1] - x[i]) * (y[i] - y3) - (y[i + 1] - y[i]) * (x[i] - x3);
-			double den = (y4 - y3) * (x[i + 1] - x[i]) - (x4 - x3) * (y[i + 1] - y[i]);
-			
-			double ua = uanum / den;
-			double ub = ubnum / den;
-
-//			System.out.println("      " + i + ": " + "ua = " + ua + ", ub = " + ub);
-			
-			if (ua >= 0.0 && ua < 1.0 && ub >= 0.0 && ub < 1.0) {
-				double curVal = ua + ub;
-				if (curVal > bestVal) {
-					bestChoice = i;
-					bestVal = curVal;
-				}
-			}
-
-		}
-		
-		return bestChoice;
-	}
-	
 	public static final boolean lineSegmentIntersectsHex(int hexX, int hexY, int x0, int y0, int x1, int y1) {
 		if (turns(hexX, hexY + Game.TILE_SIZE / 2, hexX + Game.TILE_SIZE / 4, hexY, x0, y0) == Turn.RIGHT &&
 			turns(hexX, hexY + Game.TILE_SIZE / 2, hexX + Game.TILE_SIZE / 4, hexY, x1, y1) == Turn.RIGHT) return false;
@@ -783,4 +730,32 @@ public class AreaUtil {
 			else return Math.PI + Math.atan(dx / dy);
 		}
 	}
+	
+	/*
+	 * Keeps the distance fields of the most recently used movers
+	 */
+	
+	private static class DistanceFieldCache extends LinkedHashMap<Creature, DistanceField> {
+		private static final long serialVersionUID = -3862305418744391217L;
+		
+		private DistanceFieldCache() {
+			super(16, 0.75f, true);
+		}
+		
+		@Override protected boolean removeEldestEntry(Map.Entry<Creature, DistanceField> eldest) {
+			return size() > MaxCachedDistanceFields;
+		}
+	}
+	
+	private static class FlowFieldCache extends LinkedHashMap<Long, FlowField> {
+		private static final long serialVersionUID = 5208157623145009417L;
+		
+		private FlowFieldCache() {
+			super(16, 0.75f, true);
+		}
+		
+		@Override protected boolean removeEldestEntry(Map.Entry<Long, FlowField> eldest) {
+			return size() > MaxCachedFlowFields;
+		}
+	}
 }
@@ -0,0 +1,181 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package net.sf.hale.util;
+
+import java.util.Arrays;
+
+/**
+ * A fixed size grid of boolean values packed into a long array, one bit
+ * per grid point.  This is used in place of boolean matrices where grids are
+ * frequently cleared or combined, as those operations work on 64 points at once.
+ * @author Jared Stephen
+ *
+ */
+
+public class BitGrid {
+	private final int width;
+	private final int height;
+	private final long[] words;
+	
+	/**
+	 * Creates a new BitGrid of the specified size with all points false
+	 * @param width the width of the grid
+	 * @param height the height of the grid
+	 */
+	
+	public BitGrid(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.words = new long[(width * height + 63) >> 6];
+	}
+	
+	/**
+	 * Returns the width of this grid
+	 * @return the width of this grid
+	 */
+	
+	public int getWidth() { return width; }
+	
+	/**
+	 * Returns the height of this grid
+	 * @return the height of this grid
+	 */
+	
+	public int getHeight() { return height; }
+	
+	/**
+	 * Returns true if the specified point is set in this grid.  Points outside
+	 * the grid bounds are never set
+	 * @param x the x grid coordinate
+	 * @param y the y grid coordinate
+	 * @return whether the specified point is set
+	 */
+	
+	public boolean get(int x, int y) {
+		if (x < 0 || x >= width || y < 0 || y >= height) return false;
+		
+		int index = x * height + y;
+		return (words[index >> 6] & (1L << index)) != 0;
+	}
+	
+	/**
+	 * Sets the specified point in this grid.  Points outside the grid
+	 * bounds are ignored
+	 * @param x the x grid coordinate
+	 * @param y the y grid coordinate
+	 */
+	
+	public void set(int x, int y) {
+		if (x < 0 || x >= width || y < 0 || y >= height) return;
+		
+		int index = x * height + y;
+		words[index >> 6] |= (1L << index);
+	}
+	
+	/**
+	 * Sets the specified point in this grid to the specified value.  Points outside
+	 * the grid bounds are ignored
+	 * @param x the x grid coordinate
+	 * @param y the y grid coordinate
+	 * @param value the value for the point
+	 */
+	
+	public void set(int x, int y, boolean value) {
+		if (x < 0 || x >= width || y < 0 || y >= height) return;
+		
+		int index = x * height + y;
+		if (value)
+			words[index >> 6] |= (1L << index);
+		else
+			words[index >> 6] &= ~(1L << index);
+	}
+	
+	/**
+	 * Sets all points in this grid to false
+	 */
+	
+	public void clear() {
+		Arrays.fill(words, 0L);
+	}
+	
+	/**
+	 * Sets all points in this grid to true
+	 */
+	
+	public void setAll() {
+		Arrays.fill(words, -1L);
+		
+		// keep the unused bits past the end of the grid clear
+		int extra = words.length * 64 - width * height;
+		if (extra > 0) words[words.length - 1] >>>= extra;
+	}
+	
+	/**
+	 * Sets every point in this grid that is set in the specified grid.  Both
+	 * grids must be the same size
+	 * @param other the grid to combine into this grid
+	 */
+	
+	public void or(BitGrid other) {
+		checkSize(other);
+		
+		for (int i = 0; i < words.length; i++) {
+			words[i] |= other.words[i];
+		}
+	}
+	
+	/**
+	 * Sets this grid to be a copy of the specified grid.  Both grids must be the
+	 * same size
+	 * @param other the grid to copy
+	 */
+	
+	public void copy(BitGrid other) {
+		checkSize(other);
+		
+		System.arraycopy(other.words, 0, words, 0, words.length);
+	}
+	
+	/**
+	 * Returns true if the specified object is a BitGrid of the same size as this grid
+	 * with the same points set
+	 * @param other the object to compare with
+	 * @return whether the object is an equal grid
+	 */
+	
+	@Override public boolean equals(Object other) {
+		if (this == other) return true;
+		if (!(other instanceof BitGrid)) return false;
+		
+		BitGrid grid = (BitGrid)other;
+		
+		return grid.width == width && grid.height == height && Arrays.equals(grid.words, words);
+	}
+	
+	@Override public int hashCode() {
+		return Arrays.hashCode(words);
+	}
+	
+	private void checkSize(BitGrid other) {
+		if (other.width != width || other.height != height)
+			throw new IllegalArgumentException("Grid of size " + other.width + "x" + other.height +
+					" does not match size " + width + "x" + height);
+	}
+}
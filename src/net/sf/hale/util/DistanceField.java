@@ -0,0 +1,215 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2012 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package net.sf.hale.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.sf.hale.area.Area;
+import net.sf.hale.entity.Creature;
+import net.sf.hale.entity.Path;
+
+/**
+ * The cost of the cheapest path from a creature's position to every point of an area,
+ * along with the previous point on each of those paths.  A field is computed in a single
+ * search by {@link PathFinder#computeDistanceField(Creature, PathFinder.Data, DistanceField)},
+ * using the same movement costs as the single path searches, and the path to any point
+ * can then be extracted without searching again.  This is used when the paths to many
+ * different points are needed at once, such as when the AI evaluates all possible targets.
+ * <p>
+ * Fields are obtained from {@link AreaUtil#getDistanceField(Creature, boolean)}, which
+ * keeps the most recently computed field for each mover.  Fields are not synchronized
+ * @author Jared Stephen
+ *
+ */
+
+public class DistanceField {
+	private final Area area;
+	private final int width, height;
+	
+	// the cost, number of steps, and previous point on the path, indexed by x * height + y.
+	// unreachable points have a cost of -1
+	final int[] cost;
+	final int[] steps;
+	final int[] parent;
+	
+	// the state the field was computed from
+	final BitGrid impassable;
+	Creature mover;
+	int startX, startY;
+	int turnNumber;
+	boolean ignoreCreatures;
+	
+	// creatures that may take attacks of opportunity against the mover along a path
+	List<Creature> threateningCreatures;
+	
+	/**
+	 * Creates a new, empty distance field for the specified area
+	 * @param area the area
+	 */
+	
+	public DistanceField(Area area) {
+		this.area = area;
+		this.width = area.getWidth();
+		this.height = area.getHeight();
+		
+		int size = width * height;
+		
+		cost = new int[size];
+		steps = new int[size];
+		parent = new int[size];
+		impassable = new BitGrid(width, height);
+		
+		Arrays.fill(cost, -1);
+	}
+	
+	/*
+	 * Returns true if this field was computed for the specified mover from the specified
+	 * state and is still valid
+	 */
+	
+	boolean isCurrent(Creature mover, boolean ignoreCreatures, BitGrid impassable, int turnNumber) {
+		return this.mover == mover && this.ignoreCreatures == ignoreCreatures &&
+			this.turnNumber == turnNumber && startX == mover.getLocation().getX() &&
+			startY == mover.getLocation().getY() && this.impassable.equals(impassable);
+	}
+	
+	private int id(int x, int y) {
+		if (x < 0 || x >= width || y < 0 || y >= height) return -1;
+		
+		return x * height + y;
+	}
+	
+	/**
+	 * Returns true if there is a path from the mover to the specified point
+	 * @param x the x grid coordinate
+	 * @param y the y grid coordinate
+	 * @return whether the point can be reached
+	 */
+	
+	public boolean isReachable(int x, int y) {
+		int id = id(x, y);
+		
+		return id != -1 && cost[id] != -1;
+	}
+	
+	/**
+	 * Returns the number of steps on the cheapest path from the mover to the specified point,
+	 * or -1 if the point cannot be reached
+	 * @param x the x grid coordinate
+	 * @param y the y grid coordinate
+	 * @return the path length to the point
+	 */
+	
+	public int getDistance(int x, int y) {
+		return isReachable(x, y) ? steps[id(x, y)] : -1;
+	}
+	
+	/**
+	 * Returns the cost of the cheapest path from the mover to the specified point,
+	 * including penalties for threatened points and traps, or -1 if the point cannot
+	 * be reached
+	 * @param x the x grid coordinate
+	 * @param y the y grid coordinate
+	 * @return the path cost to the point
+	 */
+	
+	public int getCost(int x, int y) {
+		return isReachable(x, y) ? cost[id(x, y)] : -1;
+	}
+	
+	/**
+	 * Returns the cheapest path from the mover to the specified point, or null if the point
+	 * cannot be reached.  This is the path that {@link AreaUtil#findShortestPath(Creature, Point, int)}
+	 * or {@link AreaUtil#findShortestPathIgnoreCreatures(Creature, Point)} would find
+	 * @param x the x grid coordinate
+	 * @param y the y grid coordinate
+	 * @return the path to the point
+	 */
+	
+	public Path getPath(int x, int y) {
+		if (!isReachable(x, y)) return null;
+		
+		List<Creature> attacksOfOpportunity = new ArrayList<Creature>();
+		List<Point> path = new ArrayList<Point>();
+		
+		int start = id(startX, startY);
+		int cur = id(x, y);
+		
+		while (cur != start) {
+			path.add(new Point(cur / height, cur % height));
+			cur = parent[cur];
+			
+			// as with PathFinder, AoOs are provoked when moving out of each point
+			// other than the goal point
+			int curX = cur / height;
+			int curY = cur % height;
+			for (Creature creature : threateningCreatures) {
+				if (creature.threatensPointInCurrentArea(curX, curY)) {
+					attacksOfOpportunity.add(creature);
+				}
+			}
+		}
+		
+		return new Path(area, path, attacksOfOpportunity);
+	}
+	
+	/**
+	 * Returns the cheapest path from the mover to any of the points the specified distance
+	 * away from the specified center point, or null if none of those points can be reached.
+	 * Unless this field ignores creatures, points occupied by creatures are not considered.
+	 * This is the path that {@link AreaUtil#findShortestPath(Creature, Point, int)} would find
+	 * @param center the center point
+	 * @param distanceAway the distance from the center, or 0 for the center point itself
+	 * @return the path to the nearest of the points
+	 */
+	
+	public Path getPathToWithin(Point center, int distanceAway) {
+		if (distanceAway == 0) return getPathIfFree(center.x, center.y);
+		
+		int bestCost = Integer.MAX_VALUE;
+		Point best = null;
+		
+		for (int i = 0; i < distanceAway * 6; i++) {
+			Point goal = AreaUtil.convertPolarToGrid(center, distanceAway, i);
+			
+			if (goal.x == startX && goal.y == startY) return new Path(area);
+			
+			int goalCost = getCost(goal.x, goal.y);
+			if (goalCost == -1 || goalCost >= bestCost) continue;
+			
+			if (!ignoreCreatures && area.getCreatureAtGridPoint(goal.x, goal.y) != null) continue;
+			
+			bestCost = goalCost;
+			best = goal;
+		}
+		
+		return best == null ? null : getPath(best.x, best.y);
+	}
+	
+	private Path getPathIfFree(int x, int y) {
+		if (x == startX && y == startY) return new Path(area);
+		
+		if (!ignoreCreatures && area.getCreatureAtGridPoint(x, y) != null) return null;
+		
+		return getPath(x, y);
+	}
+}
@@ -0,0 +1,179 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2012 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package net.sf.hale.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import net.sf.hale.area.Area;
+import net.sf.hale.entity.Creature;
+import net.sf.hale.entity.Path;
+import net.sf.hale.rules.Faction;
+
+/**
+ * The cost of the cheapest path from every point of an area to a goal, along with the
+ * next point on each of those paths.  This is the reverse of a {@link DistanceField}: the
+ * field is rooted at the goal rather than at the mover, so a single field serves every
+ * creature moving towards the same goal.  Each mover finds its path by following the next
+ * points from its position, without searching.
+ * <p>
+ * The field stores the movement cost of each point and the entity passabilities that it
+ * was computed from.  When a field is reused for another mover, or after creatures have
+ * moved, only the points whose cost or passability changed and the points whose paths
+ * pass through them are recomputed, by
+ * {@link PathFinder#updateFlowField(Creature, PathFinder.Data, FlowField)}.  The field
+ * also keeps the inputs those costs were computed from, so that when no creature, door,
+ * threat or trap has changed since the last update, the update is skipped without
+ * looking at every point
+ * <p>
+ * Fields are obtained through {@link AreaUtil#findFlowFieldPath(Creature, Point, int, int, Set)},
+ * which updates the field for the mover and reads the path while holding the area's
+ * path finding lock
+ * @author Jared Stephen
+ *
+ */
+
+class FlowField {
+	private final Area area;
+	private final int width, height;
+	
+	// the goal points that paths may end at
+	final List<Point> goals;
+	final boolean ignoreParty;
+	
+	// the cost and number of steps to the goal and the next point on the path, indexed
+	// by x * height + y.  Goal points are their own next point.  Unreachable points have
+	// a cost of -1
+	final int[] cost;
+	final int[] steps;
+	final int[] next;
+	
+	// the state the field was computed from: the cost of moving into each point, the points
+	// that may not be moved into, and the goal points that paths may end at
+	final int[] entryCost;
+	final BitGrid impassable;
+	final BitGrid endPoints;
+	boolean computed;
+	
+	// the inputs of the most recent update: the entity passabilities, the version and faction
+	// of the threat counts, and the points with spotted hostile traps
+	final BitGrid entityImpassable;
+	int threatVersion;
+	Faction threatFaction;
+	int[] trapPoints;
+	int numTrapPoints;
+	
+	// creatures that may take attacks of opportunity against the most recent mover
+	List<Creature> threateningCreatures;
+	
+	/**
+	 * Creates a new, empty flow field towards the specified goal points
+	 * @param area the area
+	 * @param goals the points that paths end at
+	 * @param ignoreParty whether goal points occupied by party members may still be
+	 * used as end points, as with {@link AreaUtil#findShortestPathIgnoreParty(Creature, Point, boolean[][])}
+	 */
+	
+	FlowField(Area area, List<Point> goals, boolean ignoreParty) {
+		this.area = area;
+		this.width = area.getWidth();
+		this.height = area.getHeight();
+		this.goals = goals;
+		this.ignoreParty = ignoreParty;
+		
+		int size = width * height;
+		
+		cost = new int[size];
+		steps = new int[size];
+		next = new int[size];
+		entryCost = new int[size];
+		impassable = new BitGrid(width, height);
+		endPoints = new BitGrid(width, height);
+		
+		entityImpassable = new BitGrid(width, height);
+		threatVersion = -1;
+		trapPoints = new int[4];
+		
+		threateningCreatures = Collections.emptyList();
+	}
+	
+	private int id(int x, int y) {
+		if (x < 0 || x >= width || y < 0 || y >= height) return -1;
+		
+		return x * height + y;
+	}
+	
+	/**
+	 * Returns the path from the specified point along this field, stopping once the path
+	 * is the specified number of steps from the goal.  If the point where the path stops is
+	 * one of the occupied points, the path is shortened until it stops at a point that is not
+	 * occupied.  Returns null if the goal cannot be reached from the point
+	 * @param x the x grid coordinate of the start point
+	 * @param y the y grid coordinate of the start point
+	 * @param stopDistance the number of steps from the goal to stop at, or 0 to move all the
+	 * way to the goal
+	 * @param occupied the points that the path may not end at, or null
+	 * @return the path from the start point
+	 */
+	
+	Path getPath(int x, int y, int stopDistance, Set<Point> occupied) {
+		Point start = new Point(x, y);
+		
+		// as with PathFinder, a mover already at one of the goals has an empty path
+		if (goals.contains(start)) return new Path(area);
+		
+		int startID = id(x, y);
+		if (startID == -1 || cost[startID] == -1) return null;
+		
+		List<Point> points = new ArrayList<Point>();
+		
+		int cur = startID;
+		while (steps[cur] > stopDistance) {
+			cur = next[cur];
+			points.add(new Point(cur / height, cur % height));
+		}
+		
+		if (occupied != null) {
+			while (!points.isEmpty() && occupied.contains(points.get(points.size() - 1))) {
+				points.remove(points.size() - 1);
+			}
+		}
+		
+		// AoOs are provoked when moving out of the start point and each point
+		// other than the last
+		List<Creature> attacksOfOpportunity = new ArrayList<Creature>();
+		for (int i = -1; i < points.size() - 1; i++) {
+			Point point = i == -1 ? start : points.get(i);
+			
+			for (Creature creature : threateningCreatures) {
+				if (creature.threatensPointInCurrentArea(point.x, point.y)) {
+					attacksOfOpportunity.add(creature);
+				}
+			}
+		}
+		
+		// paths are stored from the destination back to the first step
+		Collections.reverse(points);
+		
+		return new Path(area, points, attacksOfOpportunity);
+	}
+}
@@ -0,0 +1,241 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2011 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package net.sf.hale.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.hale.tileset.AreaElevationGrid;
+
+/**
+ * Computes the set of hexes visible from a given point using a precomputed ray table.
+ * <p>
+ * For a given visibility radius, the ray table lists every hex within the radius in
+ * order of increasing distance from the center, along with the one or two hexes that
+ * come immediately before it on the straight line from the center.  When the line passes
+ * exactly between two hexes, both are recorded.  A hex is visible if any of its
+ * predecessors is visible and lets light through, so a single pass over the table
+ * computes the visibility for the whole radius without any allocation.
+ * <p>
+ * Ray tables are shared between all areas with the same visibility radius.  Each
+ * HexFieldOfView holds its own scratch space and is synchronized.
+ * @author Jared Stephen
+ *
+ */
+
+public class HexFieldOfView {
+	private static final Map<Integer, RayTable> rayTables = new HashMap<Integer, RayTable>();
+	
+	private final RayTable table;
+	
+	// scratch space: whether each hex in the ray table is visible and lets light through
+	private final boolean[] transmits;
+	
+	/**
+	 * Creates a new field of view calculator for the specified visibility radius
+	 * @param radius the maximum distance that can be seen
+	 */
+	
+	public HexFieldOfView(int radius) {
+		this.table = getRayTable(radius);
+		this.transmits = new boolean[table.size];
+	}
+	
+	private static synchronized RayTable getRayTable(int radius) {
+		RayTable table = rayTables.get(radius);
+		
+		if (table == null) {
+			table = new RayTable(radius);
+			rayTables.put(radius, table);
+		}
+		
+		return table;
+	}
+	
+	/**
+	 * Returns the visibility radius used by this calculator
+	 * @return the visibility radius
+	 */
+	
+	public int getRadius() {
+		return table.radius;
+	}
+	
+	/**
+	 * Computes the hexes visible from the specified center point and sets them in the
+	 * specified grid.  The grid is not cleared first.  Hexes that do not let light
+	 * through (non transparent or higher than the center) are themselves visible but
+	 * block visibility of the hexes behind them.
+	 * @param visible the grid to set visible hexes in
+	 * @param centerX the x grid coordinate of the viewer
+	 * @param centerY the y grid coordinate of the viewer
+	 * @param transparent the transparency of each grid point
+	 * @param elevation the elevation of each grid point
+	 */
+	
+	public synchronized void compute(BitGrid visible, int centerX, int centerY, boolean[][] transparent,
+			AreaElevationGrid elevation) {
+		int width = visible.getWidth();
+		int height = visible.getHeight();
+		
+		if (centerX < 0 || centerY < 0 || centerX >= width || centerY >= height) return;
+		
+		byte centerElev = elevation.getElevation(centerX, centerY);
+		
+		int parity = centerX & 1;
+		int[] dx = table.dx[parity];
+		int[] dy = table.dy[parity];
+		
+		// the center is always visible and always lets light out
+		visible.set(centerX, centerY);
+		transmits[0] = true;
+		
+		for (int i = 1; i < table.size; i++) {
+			int parentB = table.parentB[i];
+			
+			boolean lit = transmits[table.parentA[i]] || (parentB != -1 && transmits[parentB]);
+			
+			if (!lit) {
+				transmits[i] = false;
+				continue;
+			}
+			
+			int x = centerX + dx[i];
+			int y = centerY + dy[i];
+			
+			if (x < 0 || y < 0 || x >= width || y >= height) {
+				transmits[i] = false;
+				continue;
+			}
+			
+			visible.set(x, y);
+			
+			transmits[i] = transparent[x][y] && elevation.getElevation(x, y) <= centerElev;
+		}
+	}
+	
+	/*
+	 * The precomputed list of hexes within a radius, sorted by distance, along with the
+	 * predecessors of each hex on the line from the center
+	 */
+	
+	private static class RayTable {
+		private final int radius;
+		private final int size;
+		
+		// grid offsets from the center, indexed by the parity of the center x coordinate
+		private final int[][] dx;
+		private final int[][] dy;
+		
+		private final int[] parentA;
+		private final int[] parentB;
+		
+		private RayTable(int radius) {
+			this.radius = radius;
+			
+			// enumerate hexes in cube coordinates, ring by ring
+			List<int[]> cells = new ArrayList<int[]>();
+			Map<Integer, Integer> indices = new HashMap<Integer, Integer>();
+			
+			for (int r = 0; r <= radius; r++) {
+				for (int q = -r; q <= r; q++) {
+					for (int s = -r; s <= r; s++) {
+						int t = -q - s;
+						if (Math.max(Math.abs(q), Math.max(Math.abs(s), Math.abs(t))) != r) continue;
+						
+						indices.put(key(q, s), cells.size());
+						cells.add(new int[] { q, s });
+					}
+				}
+			}
+			
+			size = cells.size();
+			dx = new int[2][size];
+			dy = new int[2][size];
+			parentA = new int[size];
+			parentB = new int[size];
+			
+			for (int i = 0; i < size; i++) {
+				int q = cells.get(i)[0];
+				int s = cells.get(i)[1];
+				
+				for (int parity = 0; parity < 2; parity++) {
+					dx[parity][i] = q;
+					dy[parity][i] = cubeToOffsetY(q, s, parity);
+				}
+				
+				int distance = Math.max(Math.abs(q), Math.max(Math.abs(s), Math.abs(q + s)));
+				
+				if (distance <= 1) {
+					parentA[i] = 0;
+					parentB[i] = -1;
+					continue;
+				}
+				
+				// find the hex one step back along the line, nudging in both directions
+				// to detect lines passing exactly along a hex edge
+				double fraction = (distance - 1) / (double)distance;
+				
+				int a = indices.get(roundCube(q * fraction + 1e-6, s * fraction + 2e-6));
+				int b = indices.get(roundCube(q * fraction - 1e-6, s * fraction - 2e-6));
+				
+				parentA[i] = a;
+				parentB[i] = (a == b) ? -1 : b;
+			}
+		}
+		
+		/*
+		 * Converts relative cube coordinates to a relative y grid offset, for columns
+		 * with odd x coordinates shifted down by half a tile
+		 */
+		
+		private static int cubeToOffsetY(int q, int s, int centerParity) {
+			int x = centerParity + q;
+			
+			return s + (x - (x & 1)) / 2 - (centerParity - (centerParity & 1)) / 2;
+		}
+		
+		private static int roundCube(double q, double s) {
+			double t = -q - s;
+			
+			long rq = Math.round(q);
+			long rs = Math.round(s);
+			long rt = Math.round(t);
+			
+			double dq = Math.abs(rq - q);
+			double ds = Math.abs(rs - s);
+			double dt = Math.abs(rt - t);
+			
+			if (dq > ds && dq > dt) {
+				rq = -rs - rt;
+			} else if (ds > dt) {
+				rs = -rq - rt;
+			}
+			
+			return key((int)rq, (int)rs);
+		}
+		
+		private static int key(int q, int s) {
+			return (q << 16) ^ (s & 0xffff);
+		}
+	}
+}
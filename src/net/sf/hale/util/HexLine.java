@@ -0,0 +1,351 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2012 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package net.sf.hale.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import net.sf.hale.Game;
+
+/**
+ * Finds the hexes crossed by a straight line and passes each of them to a {@link Visitor}.
+ * Hexes are passed as coordinates rather than points, so the only object allocated along
+ * the way is a single point used by {@link #walk(int, int, int, int, Visitor)} to convert
+ * the end points of the line to grid coordinates.  Lines read from a line table by
+ * {@link #walkBetween(int, int, int, int, Visitor)} allocate nothing, so callers that
+ * reuse their visitor can walk those lines without any allocation.
+ * <p>
+ * Lines between arbitrary screen points are walked one hex at a time by checking which
+ * side of the current hex the line leaves through.  Lines between the centers of two hexes
+ * are far more common (attacks, spells, and concealment checks), and the hexes they cross
+ * depend only on the offset between the two hexes and on whether the first hex is in an odd
+ * or even column.  For each offset up to a given radius, these lines are walked once and
+ * the relative offsets of the hexes crossed are stored in a line table.  The table for an
+ * area's visibility radius is fetched by its {@link AreaUtil}, so a table is only built the
+ * first time an area with that radius is loaded.
+ */
+
+public class HexLine {
+	/**
+	 * The maximum number of steps taken along a line between arbitrary screen points
+	 */
+	
+	public static final int MaxSteps = 24;
+	
+	/**
+	 * A callback receiving each hex crossed by a line, in order from the start of the line
+	 */
+	
+	public interface Visitor {
+		/**
+		 * Called for each hex crossed by the line
+		 * @param x the x grid coordinate of the hex
+		 * @param y the y grid coordinate of the hex
+		 * @return true to continue along the line, false to stop
+		 */
+		
+		public boolean visit(int x, int y);
+	}
+	
+	private static final Map<Integer, HexLine> lineTables = new HashMap<Integer, HexLine>();
+	
+	private final int radius;
+	private final int size;
+	
+	// the relative offsets of the hexes crossed by each line, stored as x, y pairs
+	// and indexed by the parity of the start x coordinate and the offset to the end
+	private final int[][][] lines;
+	
+	/**
+	 * Returns the line table for lines between hex centers up to the specified radius
+	 * apart.  Line tables are created the first time they are requested
+	 * @param radius the radius
+	 * @return the line table
+	 */
+	
+	public static synchronized HexLine getLineTable(int radius) {
+		HexLine table = lineTables.get(radius);
+		
+		if (table == null) {
+			table = new HexLine(radius);
+			lineTables.put(radius, table);
+		}
+		
+		return table;
+	}
+	
+	private HexLine(int radius) {
+		this.radius = radius;
+		this.size = 2 * radius + 1;
+		this.lines = new int[2][size * size][];
+		
+		LineRecorder recorder = new LineRecorder();
+		
+		// walk the lines from a start point far enough from the edges that no coordinates
+		// along the line are negative
+		for (int parity = 0; parity < 2; parity++) {
+			int startX = 2 * (radius + 1) + parity;
+			int startY = radius + 1;
+			
+			Point start = AreaUtil.convertGridToScreenAndCenter(startX, startY);
+			
+			for (int dx = -radius; dx <= radius; dx++) {
+				for (int dy = -radius; dy <= radius; dy++) {
+					if (dx == 0 && dy == 0) continue;
+					
+					Point end = AreaUtil.convertGridToScreenAndCenter(startX + dx, startY + dy);
+					
+					recorder.reset(startX, startY);
+					walk(start.x, start.y, end.x, end.y, recorder);
+					
+					lines[parity][(dx + radius) * size + dy + radius] = recorder.getOffsets();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Returns the maximum offset in each direction for lines stored in this table
+	 * @return the radius of this table
+	 */
+	
+	public int getRadius() {
+		return radius;
+	}
+	
+	/**
+	 * Passes each hex crossed by the straight line between the centers of the specified hexes
+	 * to the visitor.  The start hex is not visited and the end hex is visited last.  This
+	 * visits the same hexes as {@link #walk(int, int, int, int, Visitor)} with the centers of
+	 * the two hexes, but reads them from the line table when the hexes are within the radius
+	 * of this table.  Nothing is visited if the two hexes are the same
+	 * @param x0 the x grid coordinate of the start hex
+	 * @param y0 the y grid coordinate of the start hex
+	 * @param x1 the x grid coordinate of the end hex
+	 * @param y1 the y grid coordinate of the end hex
+	 * @param visitor the visitor for each hex
+	 * @return true if the end of the line was reached, false if the visitor stopped early
+	 */
+	
+	public boolean walkBetween(int x0, int y0, int x1, int y1, Visitor visitor) {
+		if (x0 == x1 && y0 == y1) return true;
+		
+		int dx = x1 - x0;
+		int dy = y1 - y0;
+		
+		if (Math.abs(dx) > radius || Math.abs(dy) > radius || x0 < 0 || y0 < 0) {
+			int halfTile = Game.TILE_SIZE / 2;
+			
+			return walk(screenX(x0) + halfTile, screenY(x0, y0) + halfTile,
+					screenX(x1) + halfTile, screenY(x1, y1) + halfTile, visitor);
+		}
+		
+		int[] offsets = lines[x0 & 1][(dx + radius) * size + dy + radius];
+		
+		for (int i = 0; i < offsets.length; i += 2) {
+			if (!visitor.visit(x0 + offsets[i], y0 + offsets[i + 1])) return false;
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Passes each hex crossed by the straight line between the specified screen points to
+	 * the visitor.  The hex containing the start point is not visited.  The walk ends after
+	 * visiting the hex containing the end point or after {@link #MaxSteps} steps
+	 * @param x0 the x screen coordinate of the start point
+	 * @param y0 the y screen coordinate of the start point
+	 * @param x1 the x screen coordinate of the end point
+	 * @param y1 the y screen coordinate of the end point
+	 * @param visitor the visitor for each hex
+	 * @return true if the end of the line was reached, false if the visitor stopped early
+	 */
+	
+	public static boolean walk(int x0, int y0, int x1, int y1, Visitor visitor) {
+		Point grid = new Point();
+		
+		AreaUtil.convertScreenToGrid(x0, y0, grid);
+		int previousX = grid.x;
+		int previousY = grid.y;
+		
+		AreaUtil.convertScreenToGrid(x1, y1, grid);
+		int endX = grid.x;
+		int endY = grid.y;
+		
+		int currentX = -1;
+		int currentY = -1;
+		int previousSide = -1;
+		
+		for (int i = 0; i < MaxSteps && (currentX != endX || currentY != endY); i++) {
+			previousSide = getLineIntersectSide(previousSide, screenX(previousX), screenY(previousX, previousY),
+					x0, y0, x1, y1);
+			
+			if (previousSide != -1) {
+				currentX = adjacentX(previousX, previousSide);
+				currentY = adjacentY(previousX, previousY, previousSide);
+			}
+			
+			if (!visitor.visit(currentX, currentY)) return false;
+			
+			// check to see if we have reached a tile adjacent to the end
+			if (isAdjacent(endX, endY, currentX, currentY)) {
+				return visitor.visit(endX, endY);
+			}
+			
+			previousX = currentX;
+			previousY = currentY;
+		}
+		
+		return true;
+	}
+	
+	private static int screenX(int gridX) {
+		return gridX * Game.TILE_WIDTH;
+	}
+	
+	private static int screenY(int gridX, int gridY) {
+		if (gridX % 2 == 1 || gridX % 2 == -1)
+			return gridY * Game.TILE_SIZE + Game.TILE_SIZE / 2;
+		else
+			return gridY * Game.TILE_SIZE;
+	}
+	
+	/*
+	 * Returns the coordinates of the adjacent hex in the specified direction, using the
+	 * same ordering and arithmetic as AreaUtil.getAdjacentTiles
+	 */
+	
+	private static int adjacentX(int x, int direction) {
+		switch (direction) {
+		case 1: case 2: return x + 1;
+		case 4: case 5: return x - 1;
+		default: return x;
+		}
+	}
+	
+	private static int adjacentY(int x, int y, int direction) {
+		switch (direction) {
+		case 0: return y - 1;
+		case 1: case 5: return y - ((x + 1) % 2);
+		case 2: case 4: return y + (x % 2);
+		default: return y + 1;
+		}
+	}
+	
+	private static boolean isAdjacent(int centerX, int centerY, int x, int y) {
+		for (int direction = 0; direction < 6; direction++) {
+			if (adjacentX(centerX, direction) == x && adjacentY(centerX, centerY, direction) == y) return true;
+		}
+		
+		return false;
+	}
+	
+	/*
+	 * Returns the side of the hex with the specified screen coordinates that the line from
+	 * (x3, y3) to (x4, y4) leaves through, or -1 if the line does not cross the hex.  The side
+	 * the line entered through is not checked
+	 */
+	
+	private static int getLineIntersectSide(int previousSide, int hexX, int hexY, int x3, int y3, int x4, int y4) {
+		int noCheckSide = (previousSide + 3) % 6;
+		if (previousSide == -1) noCheckSide = -1;
+		
+		int bestChoice = -1;
+		double bestVal = -100.0;
+		
+		for (int i = 0; i < 6; i++) {
+			if (i == noCheckSide) continue;
+			
+			int xi = vertexX(hexX, i);
+			int yi = vertexY(hexY, i);
+			int xj = vertexX(hexX, i + 1);
+			int yj = vertexY(hexY, i + 1);
+			
+			double uanum = (x4 - x3) * (yi - y3) - (y4 - y3) * (xi - x3);
+			double ubnum = (xj - xi) * (yi - y3) - (yj - yi) * (xi - x3);
+			double den = (y4 - y3) * (xj - xi) - (x4 - x3) * (yj - yi);
+			
+			double ua = uanum / den;
+			double ub = ubnum / den;
+			
+			if (ua >= 0.0 && ua < 1.0 && ub >= 0.0 && ub < 1.0) {
+				double curVal = ua + ub;
+				if (curVal > bestVal) {
+					bestChoice = i;
+					bestVal = curVal;
+				}
+			}
+		}
+		
+		return bestChoice;
+	}
+	
+	/*
+	 * The screen coordinates of the vertices of a hex, starting from the top left vertex
+	 * and going clockwise.  Vertex 6 is the same as vertex 0
+	 */
+	
+	private static int vertexX(int hexX, int vertex) {
+		switch (vertex) {
+		case 1: case 3: return hexX + Game.TILE_WIDTH;
+		case 2: return hexX + Game.TILE_SIZE;
+		case 5: return hexX;
+		default: return hexX + Game.TILE_SIZE / 4;
+		}
+	}
+	
+	private static int vertexY(int hexY, int vertex) {
+		switch (vertex) {
+		case 2: case 5: return hexY + Game.TILE_SIZE / 2;
+		case 3: case 4: return hexY + Game.TILE_SIZE;
+		default: return hexY;
+		}
+	}
+	
+	/*
+	 * Records the hexes crossed by a line relative to the start of the line
+	 */
+	
+	private static class LineRecorder implements Visitor {
+		private int startX, startY;
+		private int[] offsets = new int[2 * MaxSteps + 2];
+		private int length;
+		
+		private void reset(int startX, int startY) {
+			this.startX = startX;
+			this.startY = startY;
+			this.length = 0;
+		}
+		
+		private int[] getOffsets() {
+			int[] result = new int[length];
+			System.arraycopy(offsets, 0, result, 0, length);
+			return result;
+		}
+		
+		@Override public boolean visit(int x, int y) {
+			offsets[length] = x - startX;
+			offsets[length + 1] = y - startY;
+			length += 2;
+			
+			return true;
+		}
+	}
+}
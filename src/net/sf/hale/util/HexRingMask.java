@@ -0,0 +1,148 @@
+/*
+ * Hale is highly moddable tactical RPG.
+ * Copyright (C) 2012 Jared Stephen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package net.sf.hale.util;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The precomputed grid offsets of all hexes between a minimum and maximum distance
+ * from a center hex, in the order given by {@link AreaUtil#convertPolarToGrid(int, int, int, int)}:
+ * the center first if the minimum radius is zero, then each ring outwards.
+ * <p>
+ * Because odd columns are shifted down by half a tile, the offsets depend on the parity
+ * of the center x coordinate, so one set is kept for each parity.  An {@link net.sf.hale.ability.Aura}
+ * moving with its creature looks up the mask for its radii and offsets it to the new center,
+ * rather than converting each polar coordinate to the grid again.
+ */
+
+public class HexRingMask {
+	private static final Map<Long, HexRingMask> masks = new HashMap<Long, HexRingMask>();
+	
+	private final int minRadius;
+	private final int maxRadius;
+	private final int size;
+	
+	// grid offsets from the center, indexed by the parity of the center x coordinate
+	private final int[][] dx;
+	private final int[][] dy;
+	
+	/**
+	 * Returns the mask covering all hexes at least minRadius and at most maxRadius
+	 * from the center.  A minimum radius of zero or less includes the center
+	 * @param minRadius the minimum distance from the center
+	 * @param maxRadius the maximum distance from the center
+	 * @return the mask for the specified radii
+	 */
+	
+	public static synchronized HexRingMask getMask(int minRadius, int maxRadius) {
+		minRadius = Math.max(0, minRadius);
+		
+		long key = ((long)minRadius << 32) | (maxRadius & 0xffffffffl);
+		
+		HexRingMask mask = masks.get(key);
+		
+		if (mask == null) {
+			mask = new HexRingMask(minRadius, maxRadius);
+			masks.put(key, mask);
+		}
+		
+		return mask;
+	}
+	
+	private HexRingMask(int minRadius, int maxRadius) {
+		this.minRadius = minRadius;
+		this.maxRadius = maxRadius;
+		
+		int count = minRadius == 0 ? 1 : 0;
+		for (int r = Math.max(1, minRadius); r <= maxRadius; r++) {
+			count += 6 * r;
+		}
+		
+		this.size = count;
+		this.dx = new int[2][size];
+		this.dy = new int[2][size];
+		
+		for (int parity = 0; parity < 2; parity++) {
+			int index = 0;
+			
+			// the center (0, 0) or (1, 0) has offsets of zero, which the arrays already hold
+			if (minRadius == 0) index++;
+			
+			for (int r = Math.max(1, minRadius); r <= maxRadius; r++) {
+				for (int i = 0; i < r * 6; i++) {
+					Point p = AreaUtil.convertPolarToGrid(parity, 0, r, i);
+					
+					dx[parity][index] = p.x - parity;
+					dy[parity][index] = p.y;
+					index++;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Returns the minimum distance from the center of the hexes in this mask
+	 * @return the minimum radius
+	 */
+	
+	public int getMinRadius() { return minRadius; }
+	
+	/**
+	 * Returns the maximum distance from the center of the hexes in this mask
+	 * @return the maximum radius
+	 */
+	
+	public int getMaxRadius() { return maxRadius; }
+	
+	/**
+	 * Returns the number of hexes in this mask, including those that may fall
+	 * outside of a particular grid
+	 * @return the number of hexes in this mask
+	 */
+	
+	public int size() { return size; }
+	
+	/**
+	 * Adds the points of this mask centered on the specified grid point to the specified list.
+	 * Points outside of a grid of the specified size are skipped
+	 * @param centerX the x grid coordinate of the center, which must not be negative
+	 * @param centerY the y grid coordinate of the center
+	 * @param width the width of the grid
+	 * @param height the height of the grid
+	 * @param points the list to add the points to
+	 */
+	
+	public void addPoints(int centerX, int centerY, int width, int height, List<Point> points) {
+		int parity = centerX & 1;
+		int[] offsetsX = dx[parity];
+		int[] offsetsY = dy[parity];
+		
+		for (int i = 0; i < size; i++) {
+			int x = centerX + offsetsX[i];
+			int y = centerY + offsetsY[i];
+			
+			if (x < 0 || x >= width || y < 0 || y >= height) continue;
+			
+			points.add(new Point(x, y));
+		}
+	}
+}
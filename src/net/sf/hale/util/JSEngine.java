@@ -19,7 +19,12 @@
 
 package net.sf.hale.util;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.Invocable;
 import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
@@ -34,14 +39,55 @@ import javax.script.ScriptException;
  * JSEngineManager will create new JSEngines as needed if
  * multiple scripts need to be executed concurrently in separate threads.
  * 
+ * Scripts evaluated with {@link #evalCached(String, String)} are compiled once and
+ * evaluated into a scope that is kept by this engine across leases, so subsequent
+ * calls to the same script only need to switch to that scope.
+ * 
+ * Because of this, the top level code of a cached script is not run again on each
+ * call.  Top level variables keep whatever values earlier calls left in them, and
+ * since each engine keeps its own scope, two calls to the same script on different
+ * engines may see different values.  Scripts run through evalCached should therefore
+ * keep any state that must persist in the game objects passed to their functions,
+ * and should not rely on top level variables being either reset or shared.  A scope
+ * may be discarded at any time when it is evicted from the cache, in which case the
+ * top level code is evaluated again on the next call.  All scopes of every engine are
+ * discarded by {@link #discardAllScriptScopes()}.
+ * 
  * @author Jared Stephen
  *
  */
 
 public class JSEngine {
+	/**
+	 * The maximum number of persistent script scopes kept by each engine
+	 */
+	
+	public static final int MaxScriptScopes = 256;
+	
+	/**
+	 * The maximum number of compiled scripts kept by each engine
+	 */
+	
+	public static final int MaxCompiledScripts = 256;
+	
 	private boolean inUse;
 	private final ScriptEngine engine;
 	
+	// the pool this engine is returned to when released, or null for engines outside the pool
+	private JSEngineManager pool;
+	private long lastReleaseTime;
+	
+	private final Map<String, CachedScript> compiledScripts;
+	private final Map<String, ScriptScope> scriptScopes;
+	
+	// advanced to make every engine discard its persistent scopes before they are next used
+	private static int currentScopesGeneration;
+	private int scopesGeneration;
+	
+	// the scope used for scripts that are not evaluated with evalCached
+	private Bindings defaultBindings;
+	private boolean defaultBindingsModified;
+	
 	/**
 	 * Create a new JSEngine by obtaining a JavaScript engine
 	 * from the specified ScriptEngineManager
@@ -52,6 +98,54 @@ public class JSEngine {
 	
 	public JSEngine(ScriptEngineManager manager) {
 		this.engine = manager.getEngineByName("JavaScript");
+		
+		this.compiledScripts = createLRUMap(MaxCompiledScripts);
+		this.scriptScopes = createLRUMap(MaxScriptScopes);
+		
+		this.defaultBindings = engine.getBindings(ScriptContext.ENGINE_SCOPE);
+	}
+	
+	/*
+	 * Creates a map in access order that discards its least recently used entry
+	 * once it holds more than the specified number of entries
+	 */
+	
+	private static <V> Map<String, V> createLRUMap(final int maxEntries) {
+		return new LinkedHashMap<String, V>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			
+			@Override protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+	
+	/**
+	 * Causes every JSEngine to discard all of its persistent script scopes before it next
+	 * evaluates a script with {@link #evalCached(String, String)}.  This is used when objects
+	 * that scripts may have stored in top level variables are no longer valid, such as when
+	 * an area is evicted
+	 */
+	
+	public static synchronized void discardAllScriptScopes() {
+		currentScopesGeneration++;
+	}
+	
+	private static synchronized int getCurrentScopesGeneration() {
+		return currentScopesGeneration;
+	}
+	
+	/**
+	 * Returns the key used to identify the specified script in the compiled
+	 * script cache.  The key is built from the script location and a hash of
+	 * the script contents, so inline scripts sharing a location are kept apart
+	 * @param scriptLocation the resource location of the script, which may be null
+	 * @param script the script contents
+	 * @return the cache key for the script
+	 */
+	
+	public static String getScriptKey(String scriptLocation, String script) {
+		return scriptLocation + "#" + Integer.toHexString(script.hashCode()) + ":" + script.length();
 	}
 	
 	/**
@@ -70,6 +164,20 @@ public class JSEngine {
 	
 	protected synchronized boolean inUse() { return inUse; }
 	
+	/**
+	 * Sets the pool that this engine is returned to when it is released
+	 * @param pool the pool, or null if this engine is not pooled
+	 */
+	
+	synchronized void setPool(JSEngineManager pool) { this.pool = pool; }
+	
+	/**
+	 * Returns the time in milliseconds that this engine was last released
+	 * @return the time this engine was last released
+	 */
+	
+	synchronized long getLastReleaseTime() { return lastReleaseTime; }
+	
 	/**
 	 * Adds the specified key / value pair to the set of global objects
 	 * accessible to the scripting environment
@@ -80,6 +188,8 @@ public class JSEngine {
 	 */
 	
 	public void put(String key, Object value) {
+		useDefaultBindings();
+		
 		engine.put(key, value);
 	}
 	
@@ -98,9 +208,86 @@ public class JSEngine {
 	public Object eval(String script) throws ScriptException {
 		if (!inUse) throw new IllegalStateException("Script engine was already released.");
 		
+		useDefaultBindings();
+		
 		return engine.eval(script);
 	}
 	
+	/**
+	 * Makes the persistent scope for the specified script the current scope of this
+	 * engine, so that {@link #invokeFunction(String, Object...)} and {@link #hasFunction(String)}
+	 * operate on the functions defined by that script.
+	 * 
+	 * The first time a given script is seen by this engine, it is compiled and evaluated
+	 * into a new scope.  Later calls with the same key and contents simply switch to that
+	 * scope without parsing or evaluating the script again.  Note that this means top level
+	 * variables in the script keep their values between calls.
+	 * 
+	 * @param scriptKey the key identifying the script, see {@link #getScriptKey(String, String)}
+	 * @param script the JavaScript code to evaluate
+	 * @throws ScriptException if an error or errors occur in the script
+	 */
+	
+	public void evalCached(String scriptKey, String script) throws ScriptException {
+		if (!inUse) throw new IllegalStateException("Script engine was already released.");
+		
+		int generation = getCurrentScopesGeneration();
+		if (generation != scopesGeneration) {
+			scriptScopes.clear();
+			scopesGeneration = generation;
+		}
+		
+		ScriptScope scope = scriptScopes.get(scriptKey);
+		if (scope != null && scope.script.equals(script)) {
+			engine.setBindings(scope.bindings, ScriptContext.ENGINE_SCOPE);
+			return;
+		}
+		
+		Bindings bindings = engine.createBindings();
+		engine.setBindings(bindings, ScriptContext.ENGINE_SCOPE);
+		
+		CompiledScript compiled = getCompiledScript(scriptKey, script);
+		if (compiled != null) {
+			compiled.eval(bindings);
+		} else {
+			engine.eval(script);
+		}
+		
+		// only keep the scope once it has been successfully evaluated
+		scriptScopes.put(scriptKey, new ScriptScope(script, bindings));
+	}
+	
+	/*
+	 * Returns the compiled form of the specified script, compiling it if needed.  Returns null if
+	 * the underlying engine does not support compilation.  As with the script scopes, a cached
+	 * script is only used if its source matches, since different scripts may share a key
+	 */
+	
+	private CompiledScript getCompiledScript(String scriptKey, String script) throws ScriptException {
+		if (!(engine instanceof Compilable)) return null;
+		
+		CachedScript cached = compiledScripts.get(scriptKey);
+		if (cached == null || !cached.script.equals(script)) {
+			cached = new CachedScript(script, ((Compilable)engine).compile(script));
+			compiledScripts.put(scriptKey, cached);
+		}
+		
+		return cached.compiled;
+	}
+	
+	/*
+	 * Switches back to the default scope if a persistent script scope is currently active.
+	 * The default scope is cleared when the engine is released if it has been modified
+	 */
+	
+	private void useDefaultBindings() {
+		if (engine.getBindings(ScriptContext.ENGINE_SCOPE) != defaultBindings) {
+			engine.setBindings(defaultBindings, ScriptContext.ENGINE_SCOPE);
+		}
+		
+		defaultBindingsModified = true;
+	}
+	
 	/**
 	 * Invokes the specified function with the specified arguments within the script state
 	 * that has previously been created through the {@link #eval(String)} method.
@@ -142,16 +329,63 @@ public class JSEngine {
 	 * to {@link #eval(String)} or {@link #invokeFunction(String, Object...)} can be performed
 	 * until the JSEngine is again set to be in use.
 	 * 
-	 * After released, the JSEngine can now be leased out by the ScriptEngineManager
+	 * After released, the JSEngine can now be leased out by the ScriptEngineManager.
+	 * Any state created in the default scope is discarded, while the persistent scopes
+	 * created by {@link #evalCached(String, String)} are kept.
 	 */
 	
-	public synchronized void release() {
-		this.inUse = false;
+	public void release() {
+		JSEngineManager releaseTo;
+		
+		synchronized(this) {
+			if (!inUse) return;
+			
+			this.inUse = false;
+			
+			if (defaultBindingsModified) {
+				defaultBindings = engine.createBindings();
+				defaultBindingsModified = false;
+			}
+			
+			engine.setBindings(defaultBindings, ScriptContext.ENGINE_SCOPE);
+			
+			lastReleaseTime = System.currentTimeMillis();
+			releaseTo = pool;
+		}
 		
-		engine.setBindings(engine.createBindings(), ScriptContext.ENGINE_SCOPE);
+		// notify the pool outside of this engine's lock, as the pool locks engines while holding its own lock
+		if (releaseTo != null) releaseTo.engineReleased(this);
 	}
 	
 	@Override public String toString() {
 		return engine.toString() + ": " + inUse;
 	}
+	
+	/*
+	 * The compiled form of a single script, along with its source
+	 */
+	
+	private static class CachedScript {
+		private final String script;
+		private final CompiledScript compiled;
+		
+		private CachedScript(String script, CompiledScript compiled) {
+			this.script = script;
+			this.compiled = compiled;
+		}
+	}
+	
+	/*
+	 * A persistent scope holding the evaluated state of a single script
+	 */
+	
+	private static class ScriptScope {
+		private final String script;
+		private final Bindings bindings;
+		
+		private ScriptScope(String script, Bindings bindings) {
+			this.script = script;
+			this.bindings = bindings;
+		}
+	}
 }
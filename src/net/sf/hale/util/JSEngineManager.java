@@ -20,50 +20,432 @@
 package net.sf.hale.util;
 
 import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
 
 /**
- * A class for managing a pool of available JavaScript interpreters
+ * A class for managing a pool of available JavaScript interpreters.
+ * <p>
+ * The pool holds at most a fixed number of engines.  When all engines are in use,
+ * threads requesting an engine wait for one to be released, up to a timeout.  After the
+ * timeout, a temporary engine outside the pool is created, which is discarded when it is
+ * released.  At most a fixed number of temporary engines may be in use at once; once
+ * that limit is reached, threads wait without a timeout for any engine to be released.
+ * Engines that have been idle for a long time are discarded, except for the engines
+ * created by {@link #prewarm(int, Map)}.
+ * <p>
+ * Each thread is given back the first engine it obtained whenever that engine is
+ * available, so the scripts compiled and cached by that engine are reused.
+ * <p>
+ * One engine outside the pool may be reserved for the thread running the main loop
+ * (see {@link #reserveEngine(Thread)}).  That thread uses the reserved engine whenever
+ * it is not already in use and never waits for a pooled engine, so script calls made
+ * while rendering or handling input are not stalled by scripts on worker threads.
  * @author Jared
  *
  */
 
 public class JSEngineManager {
+	/**
+	 * The default maximum number of engines in the pool
+	 */
+	
+	public static final int DefaultMaxEngines = 16;
+	
+	/**
+	 * The default maximum number of temporary engines in use at once
+	 */
+	
+	public static final int DefaultMaxTemporaryEngines = 8;
+	
+	/**
+	 * The default time in milliseconds that {@link #getEngine()} waits for an engine.
+	 * This is kept well below the length of a frame
+	 */
+	
+	public static final long DefaultAcquireTimeoutMillis = 10l;
+	
+	/**
+	 * The time in milliseconds that an engine may go unused before it is discarded
+	 */
+	
+	public static final long IdleEvictionMillis = 120000l;
+	
 	private final ScriptEngineManager manager;
 	
+	private final int maxEngines;
+	private final int maxTemporaryEngines;
+	private final long acquireTimeoutMillis;
+	
+	// all engines in the pool, and the engines not currently in use, most recently released first
 	private final List<JSEngine> engines;
+	private final LinkedList<JSEngine> idleEngines;
+	
+	// the temporary engines created after a timeout that are currently in use
+	private final List<JSEngine> temporaryEngines;
+	
+	// the number of engines that are kept regardless of how long they are idle
+	private int minEngines;
+	
+	// the first engine obtained by each thread
+	private final ThreadLocal<JSEngine> threadEngines;
+	
+	// the engine kept outside the pool for the main loop thread
+	private Thread reservedThread;
+	private JSEngine reservedEngine;
+	private boolean reservedEngineInUse;
+	
+	private long numAcquires, numWaits, numTimeouts, numOverflows, numEvictions;
+	private long totalAcquireNanos, maxAcquireNanos;
+	private int peakSize, peakInUse, peakTemporary, numPermanent;
+	private long numTemporaryWaits;
 	
 	/**
-	 * Creates a new empty manager
+	 * Creates a new empty manager with the default maximum sizes and timeout
 	 */
 	
 	public JSEngineManager() {
+		this(DefaultMaxEngines, DefaultMaxTemporaryEngines, DefaultAcquireTimeoutMillis);
+	}
+	
+	/**
+	 * Creates a new empty manager
+	 * @param maxEngines the maximum number of engines in the pool
+	 * @param maxTemporaryEngines the maximum number of temporary engines in use at once
+	 * @param acquireTimeoutMillis the time in milliseconds that {@link #getEngine()}
+	 * will wait for an engine to become available before creating a temporary engine
+	 */
+	
+	public JSEngineManager(int maxEngines, int maxTemporaryEngines, long acquireTimeoutMillis) {
 		this.manager = new ScriptEngineManager();
+		this.maxEngines = Math.max(1, maxEngines);
+		this.maxTemporaryEngines = Math.max(0, maxTemporaryEngines);
+		this.acquireTimeoutMillis = acquireTimeoutMillis;
 		this.engines = new ArrayList<JSEngine>();
+		this.idleEngines = new LinkedList<JSEngine>();
+		this.temporaryEngines = new ArrayList<JSEngine>();
+		this.threadEngines = new ThreadLocal<JSEngine>();
 	}
 	
 	/**
-	 * Gets an available javascript engine.  If one is not available, a new one is
-	 * created
+	 * Gets an available javascript engine.  The engine previously used by the calling
+	 * thread is preferred if it is available.  If no engine is available and the pool is
+	 * full, waits for an engine to be released.
+	 * <p>
+	 * If no engine is released before the timeout, the engines are most likely held by
+	 * scripts that are waiting on each other.  Rather than failing the script, a temporary
+	 * engine outside the pool is created and returned in that case.  If the maximum number
+	 * of temporary engines are already in use, this waits for any engine to be released
 	 * @return the available JavaScript engine
+	 * @throws IllegalStateException if the thread is interrupted while waiting for a
+	 * temporary engine to be released
 	 */
 	
-	public synchronized JSEngine getEngine() {
-		for (JSEngine engine : engines) {
-			if (!engine.inUse()) {
-				engine.setInUse(true);
-				return engine;
+	public JSEngine getEngine() {
+		JSEngine engine = takeReservedEngine();
+		if (engine != null) return engine;
+		
+		// the reserved thread only reaches the pool for nested script calls, and never waits
+		long timeoutMillis = isReservedThread() ? 0l : acquireTimeoutMillis;
+		
+		engine = getEngine(timeoutMillis);
+		if (engine != null) return engine;
+		
+		return getTemporaryEngine(timeoutMillis);
+	}
+	
+	/*
+	 * Creates a temporary engine if fewer than the maximum are in use.  Otherwise, waits until
+	 * either a pooled engine or a temporary engine is released
+	 */
+	
+	private synchronized JSEngine getTemporaryEngine(long timeoutMillis) {
+		if (temporaryEngines.size() >= maxTemporaryEngines) {
+			numTemporaryWaits++;
+			
+			Logger.appendToWarningLog("All " + engines.size() + " pooled and " + temporaryEngines.size() +
+					" temporary script engines are in use.  Waiting for an engine to be released.");
+			
+			while (temporaryEngines.size() >= maxTemporaryEngines) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException("Interrupted while waiting for a script engine", e);
+				}
+				
+				// a released pooled engine is taken directly rather than creating a temporary one
+				if (!idleEngines.isEmpty() || engines.size() < maxEngines) return getEngine(0l);
 			}
+		} else {
+			Logger.appendToWarningLog("No script engine became available within " + timeoutMillis +
+					" ms.  Creating a temporary engine.");
 		}
 		
+		numOverflows++;
+		
 		JSEngine engine = new JSEngine(manager);
+		engine.setPool(this);
 		engine.setInUse(true);
+		temporaryEngines.add(engine);
+		peakTemporary = Math.max(peakTemporary, temporaryEngines.size());
+		
+		return engine;
+	}
+	
+	/**
+	 * Gets an available javascript engine, waiting up to the specified time for one
+	 * to be released if the pool is full
+	 * @param timeoutMillis the maximum time to wait in milliseconds.  If this is zero,
+	 * this method returns immediately
+	 * @return the available JavaScript engine, or null if no engine became available
+	 * within the timeout
+	 */
+	
+	public synchronized JSEngine getEngine(long timeoutMillis) {
+		long startTime = System.nanoTime();
+		
+		evictIdleEngines();
+		
+		JSEngine engine = takeEngine();
+		
+		if (engine == null && timeoutMillis > 0l) {
+			numWaits++;
+			
+			long endTime = startTime + timeoutMillis * 1000000l;
+			
+			while (engine == null) {
+				long remaining = endTime - System.nanoTime();
+				if (remaining <= 0l) break;
+				
+				try {
+					wait(remaining / 1000000l, (int)(remaining % 1000000l));
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+				
+				engine = takeEngine();
+			}
+		}
+		
+		if (engine == null) {
+			numTimeouts++;
+			return null;
+		}
+		
+		// adopt this engine if the thread has none yet or its previous engine was evicted
+		JSEngine threadEngine = threadEngines.get();
+		if (threadEngine == null || !engines.contains(threadEngine)) threadEngines.set(engine);
+		
+		long acquireNanos = System.nanoTime() - startTime;
+		numAcquires++;
+		totalAcquireNanos += acquireNanos;
+		maxAcquireNanos = Math.max(maxAcquireNanos, acquireNanos);
+		peakInUse = Math.max(peakInUse, engines.size() - idleEngines.size());
+		
+		return engine;
+	}
+	
+	/**
+	 * Reserves an engine outside the pool for the specified thread, which should be the
+	 * thread running the main loop.  Any previously reserved thread loses its reservation
+	 * @param thread the thread to reserve an engine for
+	 */
+	
+	public synchronized void reserveEngine(Thread thread) {
+		this.reservedThread = thread;
+	}
+	
+	private synchronized boolean isReservedThread() {
+		return Thread.currentThread() == reservedThread;
+	}
+	
+	/*
+	 * Returns the reserved engine if the calling thread is the reserved thread and the
+	 * engine is not already in use, creating it if needed.  Returns null otherwise
+	 */
+	
+	private synchronized JSEngine takeReservedEngine() {
+		if (Thread.currentThread() != reservedThread || reservedEngineInUse) return null;
+		
+		if (reservedEngine == null) {
+			reservedEngine = new JSEngine(manager);
+			reservedEngine.setPool(this);
+		}
+		
+		reservedEngineInUse = true;
+		reservedEngine.setInUse(true);
+		numAcquires++;
+		
+		return reservedEngine;
+	}
+	
+	/*
+	 * Takes an idle engine from the pool, preferring the calling thread's engine, or
+	 * creates a new one if there is room
+	 */
+	
+	private JSEngine takeEngine() {
+		JSEngine engine = null;
+		
+		JSEngine threadEngine = threadEngines.get();
+		if (threadEngine != null && idleEngines.remove(threadEngine)) {
+			engine = threadEngine;
+		} else if (!idleEngines.isEmpty()) {
+			engine = idleEngines.removeFirst();
+		} else if (engines.size() < maxEngines) {
+			engine = createEngine();
+		}
+		
+		if (engine != null) engine.setInUse(true);
+		
+		return engine;
+	}
+	
+	private JSEngine createEngine() {
+		JSEngine engine = new JSEngine(manager);
+		engine.setPool(this);
 		engines.add(engine);
+		peakSize = Math.max(peakSize, engines.size());
+		
 		return engine;
 	}
 	
+	/*
+	 * Discards the least recently used idle engines that have not been used recently
+	 */
+	
+	private void evictIdleEngines() {
+		long cutoff = System.currentTimeMillis() - IdleEvictionMillis;
+		
+		while (engines.size() > minEngines && !idleEngines.isEmpty()) {
+			JSEngine engine = idleEngines.getLast();
+			if (engine.getLastReleaseTime() > cutoff) break;
+			
+			idleEngines.removeLast();
+			engines.remove(engine);
+			engine.setPool(null);
+			numEvictions++;
+		}
+	}
+	
+	/**
+	 * Called by a pooled engine when it is released, returning it to the pool
+	 * @param engine the engine that has been released
+	 */
+	
+	synchronized void engineReleased(JSEngine engine) {
+		if (engine == reservedEngine) {
+			reservedEngineInUse = false;
+			return;
+		}
+		
+		// temporary engines are discarded, making room for another
+		if (temporaryEngines.remove(engine)) {
+			engine.setPool(null);
+			notifyAll();
+			return;
+		}
+		
+		if (!engines.contains(engine)) return;
+		
+		idleEngines.addFirst(engine);
+		notifyAll();
+	}
+	
+	/**
+	 * Creates engines until the pool holds at least the specified number of engines, and
+	 * evaluates the specified scripts in each engine in the pool, so that scripts using
+	 * those scripts do not need to compile them.  The engines in the pool up to the specified
+	 * number are never discarded for being idle.  Scripts that fail to evaluate are logged and skipped
+	 * @param numEngines the number of engines to create and keep
+	 * @param scripts the scripts to evaluate, keyed by script location
+	 */
+	
+	public void prewarm(int numEngines, Map<String, String> scripts) {
+		List<JSEngine> warmEngines = new ArrayList<JSEngine>();
+		
+		synchronized(this) {
+			minEngines = Math.min(numEngines, maxEngines);
+			
+			while (engines.size() < minEngines) {
+				JSEngine engine = createEngine();
+				idleEngines.addLast(engine);
+			}
+			
+			// lease out all idle engines so they can be warmed without holding the lock
+			while (!idleEngines.isEmpty()) {
+				JSEngine engine = idleEngines.removeFirst();
+				engine.setInUse(true);
+				warmEngines.add(engine);
+			}
+		}
+		
+		for (JSEngine engine : warmEngines) {
+			for (Map.Entry<String, String> entry : scripts.entrySet()) {
+				try {
+					engine.evalCached(JSEngine.getScriptKey(entry.getKey(), entry.getValue()), entry.getValue());
+				} catch (ScriptException e) {
+					Logger.appendToWarningLog("Error prewarming script " + entry.getKey() + ": " + e.getMessage());
+				}
+			}
+			
+			engine.release();
+		}
+	}
+	
+	/**
+	 * Returns the number of engines in the pool, not including the reserved, permanent, or
+	 * temporary engines
+	 * @return the number of pooled engines
+	 */
+	
+	public synchronized int getNumEngines() {
+		return engines.size();
+	}
+	
+	/**
+	 * Returns the number of pooled engines that are currently in use
+	 * @return the number of pooled engines in use
+	 */
+	
+	public synchronized int getNumEnginesInUse() {
+		return engines.size() - idleEngines.size();
+	}
+	
+	/**
+	 * Returns true if any pooled, temporary, or reserved engine is currently in use, meaning
+	 * a script is running on some thread.  Permanent engines are not counted
+	 * @return whether any engine is in use
+	 */
+	
+	public synchronized boolean hasEnginesInUse() {
+		return reservedEngineInUse || !temporaryEngines.isEmpty() || engines.size() > idleEngines.size();
+	}
+	
+	/**
+	 * Returns the number of temporary engines that are currently in use
+	 * @return the number of temporary engines in use
+	 */
+	
+	public synchronized int getNumTemporaryEngines() {
+		return temporaryEngines.size();
+	}
+	
+	/**
+	 * Returns a snapshot of the current pool size and usage counters
+	 * @return the pool statistics
+	 */
+	
+	public synchronized Stats getStats() {
+		return new Stats(this);
+	}
+	
 	/**
 	 * Gets a javascript engine but does not add it to the list of available engines
 	 * The returned engine will thus never be released and added back to the engine pool
@@ -71,8 +453,184 @@ public class JSEngineManager {
 	 */
 	
 	public JSEngine getPermanentEngine() {
+		synchronized(this) {
+			numPermanent++;
+		}
+		
 		JSEngine engine = new JSEngine(manager);
 		engine.setInUse(true);
 		return engine;
 	}
+	
+	/**
+	 * An immutable snapshot of the size and usage counters of a JSEngineManager
+	 * @author Jared
+	 *
+	 */
+	
+	public static class Stats {
+		private final int size, inUse, maxSize, peakSize, peakInUse, numPermanent;
+		private final int temporaryInUse, maxTemporary, peakTemporary;
+		private final long numAcquires, numWaits, numTimeouts, numOverflows, numTemporaryWaits, numEvictions;
+		private final long totalAcquireNanos, maxAcquireNanos;
+		
+		private Stats(JSEngineManager manager) {
+			size = manager.engines.size();
+			inUse = manager.engines.size() - manager.idleEngines.size();
+			maxSize = manager.maxEngines;
+			peakSize = manager.peakSize;
+			peakInUse = manager.peakInUse;
+			numPermanent = manager.numPermanent;
+			temporaryInUse = manager.temporaryEngines.size();
+			maxTemporary = manager.maxTemporaryEngines;
+			peakTemporary = manager.peakTemporary;
+			numTemporaryWaits = manager.numTemporaryWaits;
+			numAcquires = manager.numAcquires;
+			numWaits = manager.numWaits;
+			numTimeouts = manager.numTimeouts;
+			numOverflows = manager.numOverflows;
+			numEvictions = manager.numEvictions;
+			totalAcquireNanos = manager.totalAcquireNanos;
+			maxAcquireNanos = manager.maxAcquireNanos;
+		}
+		
+		/**
+		 * Returns the number of engines in the pool
+		 * @return the number of engines in the pool
+		 */
+		
+		public int getSize() { return size; }
+		
+		/**
+		 * Returns the number of pooled engines in use
+		 * @return the number of pooled engines in use
+		 */
+		
+		public int getInUse() { return inUse; }
+		
+		/**
+		 * Returns the maximum number of engines allowed in the pool
+		 * @return the maximum pool size
+		 */
+		
+		public int getMaxSize() { return maxSize; }
+		
+		/**
+		 * Returns the largest number of engines that have been in the pool at once
+		 * @return the peak pool size
+		 */
+		
+		public int getPeakSize() { return peakSize; }
+		
+		/**
+		 * Returns the largest number of pooled engines that have been in use at once
+		 * @return the peak number of engines in use
+		 */
+		
+		public int getPeakInUse() { return peakInUse; }
+		
+		/**
+		 * Returns the number of permanent engines that have been created outside the pool
+		 * @return the number of permanent engines
+		 */
+		
+		public int getNumPermanent() { return numPermanent; }
+		
+		/**
+		 * Returns the number of temporary engines currently in use
+		 * @return the number of temporary engines in use
+		 */
+		
+		public int getTemporaryInUse() { return temporaryInUse; }
+		
+		/**
+		 * Returns the maximum number of temporary engines allowed in use at once
+		 * @return the maximum number of temporary engines
+		 */
+		
+		public int getMaxTemporary() { return maxTemporary; }
+		
+		/**
+		 * Returns the largest number of temporary engines that have been in use at once
+		 * @return the peak number of temporary engines in use
+		 */
+		
+		public int getPeakTemporary() { return peakTemporary; }
+		
+		/**
+		 * Returns the number of requests that had to wait because the maximum number of
+		 * temporary engines were in use
+		 * @return the number of waits for a temporary engine
+		 */
+		
+		public long getNumTemporaryWaits() { return numTemporaryWaits; }
+		
+		/**
+		 * Returns the number of engines successfully obtained from the pool
+		 * @return the number of acquisitions
+		 */
+		
+		public long getNumAcquires() { return numAcquires; }
+		
+		/**
+		 * Returns the number of requests that had to wait for an engine to be released
+		 * @return the number of waits
+		 */
+		
+		public long getNumWaits() { return numWaits; }
+		
+		/**
+		 * Returns the number of requests that did not obtain an engine within their timeout
+		 * @return the number of timeouts
+		 */
+		
+		public long getNumTimeouts() { return numTimeouts; }
+		
+		/**
+		 * Returns the number of temporary engines created after a timeout
+		 * @return the number of temporary engines
+		 */
+		
+		public long getNumOverflows() { return numOverflows; }
+		
+		/**
+		 * Returns the number of engines discarded for being idle
+		 * @return the number of evictions
+		 */
+		
+		public long getNumEvictions() { return numEvictions; }
+		
+		/**
+		 * Returns the average time taken to obtain an engine from the pool, in microseconds
+		 * @return the average acquire latency
+		 */
+		
+		public long getAverageAcquireMicros() {
+			return numAcquires == 0l ? 0l : totalAcquireNanos / numAcquires / 1000l;
+		}
+		
+		/**
+		 * Returns the longest time taken to obtain an engine from the pool, in microseconds
+		 * @return the maximum acquire latency
+		 */
+		
+		public long getMaxAcquireMicros() { return maxAcquireNanos / 1000l; }
+		
+		@Override public String toString() {
+			StringBuilder sb = new StringBuilder();
+			sb.append("Engines in use: ").append(inUse).append(" / ").append(size);
+			sb.append(" (max ").append(maxSize).append(", peak ").append(peakSize);
+			sb.append(", peak in use ").append(peakInUse).append(")\n");
+			sb.append("Temporary engines in use: ").append(temporaryInUse).append(" (max ").append(maxTemporary);
+			sb.append(", peak ").append(peakTemporary).append(", waits at max ").append(numTemporaryWaits).append(")\n");
+			sb.append("Permanent engines: ").append(numPermanent).append("\n");
+			sb.append("Acquires: ").append(numAcquires).append(", waits: ").append(numWaits);
+			sb.append(", timeouts: ").append(numTimeouts).append(", temporary: ").append(numOverflows);
+			sb.append(", evicted: ").append(numEvictions).append("\n");
+			sb.append("Acquire latency: ").append(getAverageAcquireMicros()).append(" us average, ");
+			sb.append(getMaxAcquireMicros()).append(" us max");
+			
+			return sb.toString();
+		}
+	}
 }
@@ -45,7 +45,7 @@ public class Logger {
 	 * @param context the warning message to display
 	 */
 	
-	public static void appendToWarningLog(String context) {
+	public static synchronized void appendToWarningLog(String context) {
 		if (Game.config == null || Game.config.isWarningModeEnabled()) {
 			System.out.println(context);
 		}
@@ -64,7 +64,7 @@ public class Logger {
 	 * @param context the error message to display
 	 */
 	
-	public static void appendToErrorLog(String context) {
+	public static synchronized void appendToErrorLog(String context) {
 		if (Game.config == null || Game.config.isDebugModeEnabled()) {
 			System.err.println(context);
 		}
@@ -90,7 +90,7 @@ public class Logger {
 	 * @param exception the exception generating the stack trace to display
 	 */
 	
-	public static void appendToErrorLog(String context, Throwable exception) {
+	public static synchronized void appendToErrorLog(String context, Throwable exception) {
 		if (Game.config == null || Game.config.isDebugModeEnabled()) {
 			System.err.println(context);
 			exception.printStackTrace();
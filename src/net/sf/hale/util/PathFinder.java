@@ -20,15 +20,18 @@
 package net.sf.hale.util;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 import net.sf.hale.Game;
 import net.sf.hale.area.Area;
+import net.sf.hale.area.AreaEntityList;
 import net.sf.hale.entity.Creature;
-import net.sf.hale.entity.Entity;
 import net.sf.hale.entity.Path;
 import net.sf.hale.entity.Trap;
+import net.sf.hale.rules.Faction;
+import net.sf.hale.rules.RuleValue;
 
 /**
  * Utility functions for path finding between 2 points or between a point and a list of
@@ -42,6 +45,11 @@ public class PathFinder {
 		Normal, IgnoreParty, IgnoreCreatures;
 	}
 	
+	// the status of each point while finding the points of a flow field to recompute
+	private static final byte FLOW_UNKNOWN = 0;
+	private static final byte FLOW_VALID = 1;
+	private static final byte FLOW_CLEARED = 2;
+	
 	/**
 	 * Finds the shortest path between the specified start and end points.  Creatures are ignored
 	 * in determining the entity passabilities
@@ -85,10 +93,7 @@ public class PathFinder {
 	}
 	
 	private static Path findPath(Creature mover, Point end, List<Point> goals, Data data, EndPointStatus status) {
-		List<Creature> threateningCreatures = computeThreateningCreatures(mover, data);
-		
 		Point start = mover.getLocation().toPoint();
-		Point lowest = new Point();
 		
 		// check the goals to see if the start is already contained in them
 		for (Point goal : goals) {
@@ -98,80 +103,81 @@ public class PathFinder {
 			}
 		}
 		
-		// compute initial state of open and closed sets based on passabilitiy
-		for (int i = 0; i < data.width; i++) {
-			for (int j = 0; j < data.height; j++) {
-				if (!data.pass[i][j] || !data.entityPass[i][j])
-					data.closed[i][j] = true;
-				else
-					data.closed[i][j] = false;
-				
-				
-				data.open[i][j] = false;
-			}
+		List<Creature> threateningCreatures = computeThreateningCreatures(mover, data);
+		
+		// look up the number of those creatures threatening each point once, rather than
+		// checking each creature against each point expanded
+		data.hasThreats = !threateningCreatures.isEmpty();
+		if (data.hasThreats)
+			data.area.getThreatMap().getThreatCounts(mover, data.threatCount);
+		
+		data.startSearch();
+		
+		// mark the goal points for this search
+		for (Point goal : goals) {
+			if (checkCoordinates(goal.x, goal.y, data))
+				data.goalGeneration[data.id(goal.x, goal.y)] = data.generation;
 		}
-		data.openSet.clear();
-
-		// add the starting point to the list of points we are following
-		data.openSet.add(new Point(start.x, start.y));
-		data.open[start.x][start.y] = true;
 		
-		data.gScore[start.x][start.y] = 0;
-		data.hScore[start.x][start.y] = AreaUtil.distance(start, end);
-		data.fScore[start.x][start.y] = data.hScore[start.x][start.y] + data.gScore[start.x][start.y];
+		int startID = data.id(start.x, start.y);
+		data.gScore[startID] = 0;
+		data.fScore[startID] = AreaUtil.distance(start.x, start.y, end.x, end.y);
+		data.parent[startID] = startID;
+		data.pushOpen(startID);
 		
 		// loop as long as there is at least one point in the open set
 		// if there are no points, the entire accessible area has been traversed and there is no path
-		while (!data.openSet.isEmpty()) {
+		while (data.openSize > 0) {
 			
-			// find the point within the open set with the lowest f score, which is most likely
+			// the head of the open heap has the lowest f score, which is most likely
 			// to be along the correct path based on the simple grid distance heuristic
-			int currentIndex = PathFinder.findLowestFScore(data.openSet, data.fScore, lowest);
+			int current = data.popOpen();
+			int curX = data.x(current);
+			int curY = data.y(current);
 			
-			if (PathFinder.isEndPoint(lowest, goals, data, status)) {
+			if (PathFinder.isEndPoint(current, curX, curY, data, status)) {
 				// we are done, find the path using the parents list
-				return PathFinder.getFinalPath(data, start, lowest, threateningCreatures);
+				return PathFinder.getFinalPath(data, startID, current, threateningCreatures);
 			}
 			
-			data.openSet.remove(currentIndex);
-			data.open[lowest.x][lowest.y] = false;
-			data.closed[lowest.x][lowest.y] = true;
-			
-			byte lowestElev = data.area.getElevationGrid().getElevation(lowest.x, lowest.y);
+			byte curElev = data.area.getElevationGrid().getElevation(curX, curY);
 			
-			// get the set of possible adjacent points and compute the scores for each one
-			Point[] adjacent = AreaUtil.getAdjacentTiles(lowest);
-			for (int i = 0; i < adjacent.length; i++) {
+			// compute the scores for each of the adjacent points
+			for (int i = 0; i < 6; i++) {
+				int adjX = adjacentX(curX, i);
+				int adjY = adjacentY(curX, curY, i);
+				
 				// if the point is outside the grid boundaries
-				if (!PathFinder.checkCoordinates(adjacent[i], data)) continue;
-
-				// if the point is in the closed set (already traversed or not passable)
-				if (data.closed[adjacent[i].x][adjacent[i].y]) continue;
-
-				// if the elevation is different from the previous point elevation
-				if (data.area.getElevationGrid().getElevation(adjacent[i].x, adjacent[i].y) != lowestElev) continue;
+				if (!PathFinder.checkCoordinates(adjX, adjY, data)) continue;
 				
-				int tentativeGScore = data.gScore[lowest.x][lowest.y] + getCost(mover, data, adjacent[i], threateningCreatures);
+				int adj = data.id(adjX, adjY);
 				
-				boolean tentativeIsBetter;
-				if (!data.open[adjacent[i].x][adjacent[i].y]) {
-					data.openSet.add(adjacent[i]);
-					data.open[adjacent[i].x][adjacent[i].y] = true;
-					tentativeIsBetter = true;
-				} else if (tentativeGScore < data.gScore[adjacent[i].x][adjacent[i].y]) {
-					tentativeIsBetter = true;
-				} else {
-					tentativeIsBetter = false;
+				// if the point is already traversed or not passable
+				byte state = data.getState(adj);
+				if (state == Data.CLOSED) continue;
+				
+				if (state == Data.UNVISITED && (!data.pass[adj] || data.entityImpassable.get(adjX, adjY))) {
+					data.setState(adj, Data.CLOSED);
+					continue;
 				}
-
-				if (tentativeIsBetter) {
-					data.parent[adjacent[i].x][adjacent[i].y].x = lowest.x;
-					data.parent[adjacent[i].x][adjacent[i].y].y = lowest.y;
-
-					data.gScore[adjacent[i].x][adjacent[i].y] = tentativeGScore;
-					data.hScore[adjacent[i].x][adjacent[i].y] = AreaUtil.distance(adjacent[i], end);
-					data.fScore[adjacent[i].x][adjacent[i].y] = data.gScore[adjacent[i].x][adjacent[i].y] +
-						data.hScore[adjacent[i].x][adjacent[i].y];
+				
+				// if the elevation is different from the previous point elevation
+				if (data.area.getElevationGrid().getElevation(adjX, adjY) != curElev) continue;
+				
+				int tentativeGScore = data.gScore[current] + getCost(mover, data, adj, adjX, adjY);
+				
+				if (state == Data.UNVISITED) {
+					data.parent[adj] = current;
+					data.gScore[adj] = tentativeGScore;
+					data.fScore[adj] = tentativeGScore + AreaUtil.distance(adjX, adjY, end.x, end.y);
+					data.pushOpen(adj);
+				} else if (tentativeGScore < data.gScore[adj]) {
+					// the heuristic for a given point never changes, so the f score changes
+					// by the same amount as the g score
+					data.parent[adj] = current;
+					data.fScore[adj] += tentativeGScore - data.gScore[adj];
+					data.gScore[adj] = tentativeGScore;
+					data.decreaseKey(adj);
 				}
 			}
 		}
@@ -179,6 +185,306 @@ public class PathFinder {
 		return null;
 	}
 	
+	/**
+	 * Computes the cheapest path from the mover's position to every point in the area in
+	 * a single search, using the same movement costs as {@link #findPath(Creature, Point, List, Data)},
+	 * and stores the result in the specified field.  The entity passabilities of the data
+	 * must be set as for the single path searches.  Paths longer than the maximum path
+	 * length are not followed
+	 * @param mover the creature starting at the start point
+	 * @param data data built from the area being traversed
+	 * @param field the field to store the results in
+	 */
+	
+	public static void computeDistanceField(Creature mover, Data data, DistanceField field) {
+		Point start = mover.getLocation().toPoint();
+		int maxSteps = Game.ruleset.getValue(RuleValue.MaximumPathLength);
+		
+		field.threateningCreatures = computeThreateningCreatures(mover, data);
+		
+		data.hasThreats = !field.threateningCreatures.isEmpty();
+		if (data.hasThreats)
+			data.area.getThreatMap().getThreatCounts(mover, data.threatCount);
+		
+		Arrays.fill(field.cost, -1);
+		
+		data.startSearch();
+		
+		int startID = data.id(start.x, start.y);
+		data.gScore[startID] = 0;
+		data.fScore[startID] = 0;
+		data.parent[startID] = startID;
+		field.steps[startID] = 0;
+		data.pushOpen(startID);
+		
+		// without a heuristic, points are closed in order of increasing cost, so each point's
+		// cost and parent are final when it is closed
+		while (data.openSize > 0) {
+			int current = data.popOpen();
+			int curX = data.x(current);
+			int curY = data.y(current);
+			
+			field.cost[current] = data.gScore[current];
+			field.parent[current] = data.parent[current];
+			
+			if (field.steps[current] >= maxSteps) continue;
+			
+			byte curElev = data.area.getElevationGrid().getElevation(curX, curY);
+			
+			for (int i = 0; i < 6; i++) {
+				int adjX = adjacentX(curX, i);
+				int adjY = adjacentY(curX, curY, i);
+				
+				if (!PathFinder.checkCoordinates(adjX, adjY, data)) continue;
+				
+				int adj = data.id(adjX, adjY);
+				
+				byte state = data.getState(adj);
+				if (state == Data.CLOSED) continue;
+				
+				if (state == Data.UNVISITED && (!data.pass[adj] || data.entityImpassable.get(adjX, adjY))) {
+					data.setState(adj, Data.CLOSED);
+					continue;
+				}
+				
+				if (data.area.getElevationGrid().getElevation(adjX, adjY) != curElev) continue;
+				
+				int tentativeGScore = data.gScore[current] + getCost(mover, data, adj, adjX, adjY);
+				
+				if (state == Data.UNVISITED) {
+					data.parent[adj] = current;
+					data.gScore[adj] = tentativeGScore;
+					data.fScore[adj] = tentativeGScore;
+					field.steps[adj] = field.steps[current] + 1;
+					data.pushOpen(adj);
+				} else if (tentativeGScore < data.gScore[adj]) {
+					data.parent[adj] = current;
+					data.gScore[adj] = tentativeGScore;
+					data.fScore[adj] = tentativeGScore;
+					field.steps[adj] = field.steps[current] + 1;
+					data.decreaseKey(adj);
+				}
+			}
+		}
+		
+		field.impassable.copy(data.entityImpassable);
+		field.mover = mover;
+		field.startX = start.x;
+		field.startY = start.y;
+	}
+	
+	/**
+	 * Brings the specified flow field up to date for the specified mover.  The movement cost,
+	 * entity passability, and end point status of each point is compared with the values the
+	 * field was computed from.  The points that changed, along with every point whose path
+	 * passes through them, are cleared and then recomputed by a search outward from the
+	 * remaining valid points.  The first update for a field computes it from its goals.
+	 * If the entity passabilities, threats, and traps are the same as for the previous update
+	 * and no end point has changed, the field is left as it is without checking each point.
+	 * The entity passabilities of the data must be set as for the single path searches.
+	 * Paths longer than the maximum path length are not followed
+	 * @param mover the creature that will follow the field
+	 * @param data data built from the area being traversed
+	 * @param field the field to update
+	 */
+	
+	public static void updateFlowField(Creature mover, Data data, FlowField field) {
+		int maxSteps = Game.ruleset.getValue(RuleValue.MaximumPathLength);
+		int size = data.width * data.height;
+		
+		List<Creature> lastThreateningCreatures = field.threateningCreatures;
+		field.threateningCreatures = computeThreateningCreatures(mover, data);
+		
+		data.hasThreats = !field.threateningCreatures.isEmpty();
+		
+		boolean inputsChanged = updateFlowFieldInputs(mover, data, field, lastThreateningCreatures);
+		if (!inputsChanged && !endPointsChanged(data, field)) return;
+		
+		if (data.hasThreats)
+			data.area.getThreatMap().getThreatCounts(mover, data.threatCount);
+		
+		if (data.flowState == null) {
+			data.flowState = new byte[size];
+			data.flowChanged = new int[size];
+		}
+		
+		byte[] state = data.flowState;
+		int[] changed = data.flowChanged;
+		int numChanged = 0;
+		
+		Arrays.fill(state, FLOW_UNKNOWN);
+		
+		// find the points whose movement cost or passability has changed.  If none of the
+		// inputs have changed, only the end points need to be checked
+		if (inputsChanged) {
+			for (int x = 0; x < data.width; x++) {
+				for (int y = 0; y < data.height; y++) {
+					int id = data.id(x, y);
+					
+					boolean blocked = !data.pass[id] || data.entityImpassable.get(x, y);
+					int entryCost = blocked ? 0 : getCost(mover, data, id, x, y);
+					
+					if (!field.computed || entryCost != field.entryCost[id] || blocked != field.impassable.get(x, y)) {
+						field.entryCost[id] = entryCost;
+						field.impassable.set(x, y, blocked);
+						state[id] = FLOW_CLEARED;
+					}
+				}
+			}
+		}
+		
+		for (Point goal : field.goals) {
+			if (!checkCoordinates(goal.x, goal.y, data)) continue;
+			
+			boolean endPoint = isFlowFieldEndPoint(goal, data, field);
+			
+			if (!field.computed || endPoint != field.endPoints.get(goal.x, goal.y)) {
+				field.endPoints.set(goal.x, goal.y, endPoint);
+				state[data.id(goal.x, goal.y)] = FLOW_CLEARED;
+			}
+		}
+		
+		// clear the changed points and all points with paths through them
+		for (int id = 0; id < size; id++) {
+			if (state[id] != FLOW_UNKNOWN || field.cost[id] == -1) continue;
+			
+			int cur = id;
+			while (state[cur] == FLOW_UNKNOWN && field.next[cur] != cur) {
+				cur = field.next[cur];
+			}
+			
+			byte result = state[cur] == FLOW_CLEARED ? FLOW_CLEARED : FLOW_VALID;
+			
+			cur = id;
+			while (state[cur] == FLOW_UNKNOWN) {
+				state[cur] = result;
+				cur = field.next[cur];
+			}
+		}
+		
+		for (int id = 0; id < size; id++) {
+			if (state[id] == FLOW_CLEARED) {
+				field.cost[id] = -1;
+				changed[numChanged] = id;
+				numChanged++;
+			}
+		}
+		
+		field.computed = true;
+		
+		data.startSearch();
+		
+		// restart the search from the valid points bordering the cleared points, and from
+		// the cleared end points
+		for (int i = 0; i < numChanged; i++) {
+			int id = changed[i];
+			int curX = data.x(id);
+			int curY = data.y(id);
+			
+			if (field.endPoints.get(curX, curY)) {
+				data.gScore[id] = 0;
+				data.fScore[id] = 0;
+				data.parent[id] = id;
+				field.steps[id] = 0;
+				data.pushOpen(id);
+				continue;
+			}
+			
+			for (int j = 0; j < 6; j++) {
+				int adjX = adjacentX(curX, j);
+				int adjY = adjacentY(curX, curY, j);
+				
+				if (!PathFinder.checkCoordinates(adjX, adjY, data)) continue;
+				
+				int adj = data.id(adjX, adjY);
+				
+				if (field.cost[adj] == -1 || data.getState(adj) != Data.UNVISITED) continue;
+				
+				data.gScore[adj] = field.cost[adj];
+				data.fScore[adj] = field.cost[adj];
+				data.parent[adj] = field.next[adj];
+				data.pushOpen(adj);
+			}
+		}
+		
+		// points are closed in order of increasing cost, so each point's cost and next
+		// point are final when it is closed.  Moving from a point into the current point
+		// costs the entry cost of the current point
+		while (data.openSize > 0) {
+			int current = data.popOpen();
+			int curX = data.x(current);
+			int curY = data.y(current);
+			
+			field.cost[current] = data.gScore[current];
+			field.next[current] = data.parent[current];
+			
+			if (field.steps[current] >= maxSteps) continue;
+			
+			int tentativeGScore = data.gScore[current] + field.entryCost[current];
+			byte curElev = data.area.getElevationGrid().getElevation(curX, curY);
+			
+			for (int i = 0; i < 6; i++) {
+				int adjX = adjacentX(curX, i);
+				int adjY = adjacentY(curX, curY, i);
+				
+				if (!PathFinder.checkCoordinates(adjX, adjY, data)) continue;
+				
+				int adj = data.id(adjX, adjY);
+				
+				if (field.impassable.get(adjX, adjY)) continue;
+				
+				if (data.area.getElevationGrid().getElevation(adjX, adjY) != curElev) continue;
+				
+				byte adjState = data.getState(adj);
+				
+				if (adjState == Data.OPEN) {
+					if (tentativeGScore >= data.gScore[adj]) continue;
+					
+					data.parent[adj] = current;
+					data.gScore[adj] = tentativeGScore;
+					data.fScore[adj] = tentativeGScore;
+					field.steps[adj] = field.steps[current] + 1;
+					data.decreaseKey(adj);
+				} else if (adjState == Data.UNVISITED) {
+					if (field.cost[adj] != -1 && tentativeGScore >= field.cost[adj]) continue;
+					
+					data.parent[adj] = current;
+					data.gScore[adj] = tentativeGScore;
+					data.fScore[adj] = tentativeGScore;
+					field.steps[adj] = field.steps[current] + 1;
+					data.pushOpen(adj);
+				}
+			}
+		}
+	}
+	
+	/*
+	 * Returns the x coordinate of the adjacent tile in the specified direction,
+	 * using the same ordering as AreaUtil.getAdjacentTiles
+	 */
+	
+	private static final int adjacentX(int x, int direction) {
+		switch (direction) {
+		case 1: case 2: return x + 1;
+		case 4: case 5: return x - 1;
+		default: return x;
+		}
+	}
+	
+	/*
+	 * Returns the y coordinate of the adjacent tile in the specified direction,
+	 * using the same ordering as AreaUtil.getAdjacentTiles
+	 */
+	
+	private static final int adjacentY(int x, int y, int direction) {
+		switch (direction) {
+		case 0: return y - 1;
+		case 1: case 5: return y - ((x + 1) % 2);
+		case 2: case 4: return y + (x % 2);
+		default: return y + 1;
+		}
+	}
+	
 	/*
 	 * Returns the list of all creatures that can potentially threaten AoOs against the mover, assuming
 	 * the mover were to move into an appropriate position
@@ -191,15 +497,11 @@ public class PathFinder {
 		if (!Game.isInTurnMode()) return creatures;
 
 		synchronized(data.area.getEntities()) {
-			for (Entity entity : data.area.getEntities()) {
-				if (entity == mover) continue;
-				
-				if (! (entity instanceof Creature)) continue;
+			for (Creature creature : data.area.getEntities().getCreaturesSet()) {
+				if (creature == mover) continue;
 				
-				Creature creature = (Creature)entity;
-
 				if (!creature.canTakeMoveAoOIgnoringLocation(mover)) continue;
-
+				
 				creatures.add(creature);
 			}
 		}
@@ -207,22 +509,111 @@ public class PathFinder {
 		return creatures;
 	}
 	
+	/*
+	 * Records the state that the entry costs and passabilities of the flow field are computed
+	 * from, and returns true if it differs from the state recorded by the previous update.
+	 * Threat counts are compared by version, along with the creatures able to take attacks of
+	 * opportunity against the mover
+	 */
+	
+	private static boolean updateFlowFieldInputs(Creature mover, Data data, FlowField field,
+			List<Creature> lastThreateningCreatures) {
+		boolean changed = !field.computed;
+		
+		if (!field.entityImpassable.equals(data.entityImpassable)) {
+			field.entityImpassable.copy(data.entityImpassable);
+			changed = true;
+		}
+		
+		int threatVersion = data.hasThreats ? data.area.getThreatMap().getVersion() : -1;
+		Faction threatFaction = data.hasThreats ? mover.getFaction() : null;
+		
+		if (threatVersion != field.threatVersion || threatFaction != field.threatFaction ||
+				!field.threateningCreatures.equals(lastThreateningCreatures)) {
+			field.threatVersion = threatVersion;
+			field.threatFaction = threatFaction;
+			changed = true;
+		}
+		
+		if (updateTrapPoints(mover, data, field)) changed = true;
+		
+		return changed;
+	}
+	
+	/*
+	 * Records the points that cost extra for the mover to move into due to spotted hostile
+	 * traps, as in getCost, and returns true if they differ from the points recorded by the
+	 * previous update
+	 */
+	
+	private static boolean updateTrapPoints(Creature mover, Data data, FlowField field) {
+		boolean changed = false;
+		int count = 0;
+		
+		if (mover.isPlayerFaction()) {
+			AreaEntityList entities = data.area.getEntities();
+			
+			synchronized(entities) {
+				for (Trap trap : entities.getTrapsSet()) {
+					int x = trap.getLocation().getX();
+					int y = trap.getLocation().getY();
+					
+					if (!checkCoordinates(x, y, data) || data.area.getTrapAtGridPoint(x, y) != trap) continue;
+					
+					if (!trap.isSpotted() || !trap.getFaction().isHostile(mover)) continue;
+					
+					if (count == field.trapPoints.length)
+						field.trapPoints = Arrays.copyOf(field.trapPoints, count * 2);
+					
+					int id = data.id(x, y);
+					if (count >= field.numTrapPoints || field.trapPoints[count] != id) changed = true;
+					
+					field.trapPoints[count] = id;
+					count++;
+				}
+			}
+		}
+		
+		if (count != field.numTrapPoints) changed = true;
+		
+		field.numTrapPoints = count;
+		
+		return changed;
+	}
+	
+	/*
+	 * Returns true if any goal of the flow field has started or stopped being a valid end point
+	 */
+	
+	private static boolean endPointsChanged(Data data, FlowField field) {
+		for (Point goal : field.goals) {
+			if (!checkCoordinates(goal.x, goal.y, data)) continue;
+			
+			if (isFlowFieldEndPoint(goal, data, field) != field.endPoints.get(goal.x, goal.y)) return true;
+		}
+		
+		return false;
+	}
+	
+	private static boolean isFlowFieldEndPoint(Point goal, Data data, FlowField field) {
+		return !field.impassable.get(goal.x, goal.y) &&
+			canEndAt(goal.x, goal.y, data, field.ignoreParty ? EndPointStatus.IgnoreParty : EndPointStatus.Normal);
+	}
+	
 	/*
 	 * Gets the cost for moving into a given position.  Non-threatened tiles and tiles
 	 * without traps are preferred
 	 */
 	
-	private static final int getCost(Creature mover, Data data, Point position, List<Creature> threateningCreatures) {
+	private static final int getCost(Creature mover, Data data, int id, int x, int y) {
 		int cost = 1;
 		
 		// add cost for threatening creatures
-		for (Creature creature : threateningCreatures) {
-			if (creature.threatensPointInCurrentArea(position.x, position.y)) cost++;
-		}
+		if (data.hasThreats) cost += data.threatCount[id];
 		
 		// add cost for traps but only for player characters
 		if (mover.isPlayerFaction()) {
-			Trap trap = data.area.getTrapAtGridPoint(position);
+			Trap trap = data.area.getTrapAtGridPoint(x, y);
 			if (trap != null && trap.isSpotted() && trap.getFaction().isHostile(mover)) {
 				cost += 2;
 			}
@@ -231,28 +622,32 @@ public class PathFinder {
 		return cost;
 	}
 	
-	private static final boolean isEndPoint(Point check, List<Point> goals, Data data, EndPointStatus status) {
-		for (Point p : goals) {
-			if (check.x == p.x && check.y == p.y) {
-				Creature c = data.area.getCreatureAtGridPoint(check);
-				
-				if (c == null) return true;
-				
-				switch (status) {
-				case IgnoreCreatures:
-					return true;
-				case IgnoreParty:
-					for (Creature partyMember : Game.curCampaign.party) {
-						if (partyMember == c) return true;
-					}
-				default:
-					// fall through is intentional
-					return false;
-				}
+	private static final boolean isEndPoint(int id, int x, int y, Data data, EndPointStatus status) {
+		if (data.goalGeneration[id] != data.generation) return false;
+		
+		return canEndAt(x, y, data, status);
+	}
+	
+	/*
+	 * Returns true if a path may end at the specified point, based on the creatures occupying it
+	 */
+	
+	private static final boolean canEndAt(int x, int y, Data data, EndPointStatus status) {
+		Creature c = data.area.getCreatureAtGridPoint(x, y);
+		
+		if (c == null) return true;
+		
+		switch (status) {
+		case IgnoreCreatures:
+			return true;
+		case IgnoreParty:
+			for (Creature partyMember : Game.curCampaign.party) {
+				if (partyMember == c) return true;
 			}
+		default:
+			// fall through is intentional
+			return false;
 		}
-		
-		return false;
 	}
 	
 	/*
@@ -260,8 +655,8 @@ public class PathFinder {
 	 * area we are pathfinding in
 	 */
 	
-	private static final boolean checkCoordinates(Point p, Data data) {
-		return (p.x >= 0 && p.x < data.width && p.y >= 0 && p.y < data.height);
+	private static final boolean checkCoordinates(int x, int y, Data data) {
+		return (x >= 0 && x < data.width && y >= 0 && y < data.height);
 	}
 	
 	/*
@@ -269,79 +664,55 @@ public class PathFinder {
 	 * start to end points
 	 */
 	
-	private static final Path getFinalPath(Data data, Point start, Point end, List<Creature> threateningCreatures) {
+	private static final Path getFinalPath(Data data, int start, int end, List<Creature> threateningCreatures) {
 		List<Creature> attacksOfOpportunity = new ArrayList<Creature>();
 		
 		List<Point> path = new ArrayList<Point>();
-		Point cur = end;
-		
-		path.add(cur);
+		int cur = end;
 		
-		while (cur.x != start.x || cur.y != start.y) {
-			Point next = data.parent[cur.x][cur.y];
-			path.add(new Point(next));
-			cur = next;
+		while (cur != start) {
+			path.add(new Point(data.x(cur), data.y(cur)));
+			cur = data.parent[cur];
 			
 			// we check for threatening here, that way we don't check the first point
 			// which is the goal point.  AoOs are provoked when moving out of a tile,
-			// and the mover won't move out of the goal tile
+			// and the mover won't move out of the goal tile.  The starting position
+			// is checked but not added to the path
+			if (!data.hasThreats || data.threatCount[cur] == 0) continue;
+			
+			int curX = data.x(cur);
+			int curY = data.y(cur);
 			for (Creature creature : threateningCreatures) {
-				if (creature.threatensPointInCurrentArea(cur.x, cur.y)) {
+				if (creature.threatensPointInCurrentArea(curX, curY)) {
 					attacksOfOpportunity.add(creature);
 				}
 			}
 		}
 		
-		// remove the last point, which is the starting position where the parent
-		// is already located
-		path.remove(path.size() - 1);
-		
-		if (path.size() > Game.ruleset.getValue("MaximumPathLength"))
+		if (path.size() > Game.ruleset.getValue(RuleValue.MaximumPathLength))
 			return null;
 		
 		return new Path(data.area, path, attacksOfOpportunity);
 	}
 	
-	/*
-	 * Finds the point with the smallest fScore within the openSet
-	 */
-	
-	private static final int findLowestFScore(List<Point> open, int[][] fScore, Point lowest) {
-		int i = open.size() - 1;
-		
-		// Start at the end of the list and work backwards.  This prioritizes points that were
-		// added to the open set more recently (and thus are likely to be closer to the end)
-		// in the event of a tie.
-		
-		lowest.x = open.get(i).x;
-		lowest.y = open.get(i).y;
-		int curLowestFScore = fScore[lowest.x][lowest.y];
-		int curLowestIndex = i;
-		
-		for (i = open.size() - 2; i >= 0; i--) {
-			int x = open.get(i).x;
-			int y = open.get(i).y;
-			
-			if (fScore[x][y] <= curLowestFScore) {
-				curLowestFScore = fScore[x][y];
-				lowest.x = x;
-				lowest.y = y;
-				curLowestIndex = i;
-			}
-		}
-		
-		return curLowestIndex;
-	}
-	
 	/**
 	 * The data set for a given area, used for pathfinding.  It is reusable but not
 	 * synchronized.  The data set should be updated from the area (for changes in passability)
-	 * each time prior to being used
+	 * each time prior to being used.
+	 * <p>
+	 * Each cell is addressed by a packed int id.  Scores and parents are held in flat arrays,
+	 * and the open set is an indexed binary heap over those ids.  Cell states are stamped with
+	 * the generation of the search that last touched them, so starting a new search does not
+	 * require clearing the arrays.
 	 * @author Jared Stephen
 	 *
 	 */
 	
 	public static class Data {
+		private static final byte UNVISITED = 0;
+		private static final byte OPEN = 1;
+		private static final byte CLOSED = 2;
+		
 		/**
 		 * Creates the data set for use with pathfinding for the specified Area.  This
 		 * object is reusable but not synchronized, so multiple pathing attempts must not modify
@@ -357,55 +728,196 @@ public class PathFinder {
 			width = passability.length;
 			height = passability[0].length;
 			
-			pass = new boolean[width][height];
+			int size = width * height;
+			
+			pass = new boolean[size];
+			
+			gScore = new int[size];
+			fScore = new int[size];
+			parent = new int[size];
+			state = new byte[size];
+			stateGeneration = new int[size];
+			goalGeneration = new int[size];
 			
-			gScore = new int[width][height];
-			hScore = new int[width][height];
-			fScore = new int[width][height];
-			closed = new boolean[width][height];
-			open = new boolean[width][height];
-			parent = new Point[width][height];
+			openHeap = new int[size];
+			heapIndex = new int[size];
 			
-			openSet = new ArrayList<Point>(100);
+			entityImpassable = new BitGrid(width, height);
+			threatCount = new int[size];
 			
 			for (int i = 0; i < width; i++) {
 				for (int j = 0; j < height; j++) {
-					pass[i][j] = passability[i][j];
-					
-					closed[i][j] = !pass[i][j];
-					open[i][j] = false;
-					parent[i][j] = new Point();
+					pass[id(i, j)] = passability[i][j];
 				}
 			}
 		}
 		
 		/**
 		 * Sets the entity passabilities to the specified matrix, which should be
-		 * determined from the area being traversed.  This must be set each time
-		 * for the Data prior to it being used.
+		 * determined from the area being traversed.  This or {@link #getEntityPassabilities()}
+		 * must be used to set the passabilities each time for the Data prior to it being used.
 		 * @param entityPass
 		 */
 		
 		public void setEntityPassabilities(boolean[][] entityPass) {
-			this.entityPass = entityPass;
+			for (int i = 0; i < width; i++) {
+				for (int j = 0; j < height; j++) {
+					entityImpassable.set(i, j, !entityPass[i][j]);
+				}
+			}
+		}
+		
+		/**
+		 * Returns the grid of points that are impassable due to entities.  The grid should
+		 * be filled in from the area being traversed each time for the Data prior to it
+		 * being used, for example with {@link net.sf.hale.area.AreaEntityList#getEntityPassabilities(Creature, BitGrid)}
+		 * @return the grid of points impassable due to entities
+		 */
+		
+		public BitGrid getEntityPassabilities() {
+			return entityImpassable;
+		}
+		
+		private int id(int x, int y) { return x * height + y; }
+		private int x(int id) { return id / height; }
+		private int y(int id) { return id % height; }
+		
+		/*
+		 * Begins a new search by advancing the generation, which implicitly marks
+		 * every cell as unvisited
+		 */
+		
+		private void startSearch() {
+			generation++;
+			
+			if (generation == 0) {
+				// the stamps have wrapped around, so they must be explicitly cleared once
+				Arrays.fill(stateGeneration, 0);
+				Arrays.fill(goalGeneration, 0);
+				generation = 1;
+			}
+			
+			openSize = 0;
+		}
+		
+		private byte getState(int id) {
+			return stateGeneration[id] == generation ? state[id] : UNVISITED;
+		}
+		
+		private void setState(int id, byte value) {
+			state[id] = value;
+			stateGeneration[id] = generation;
+		}
+		
+		/*
+		 * Returns true if the first cell should be expanded before the second.  Ties in f score
+		 * are broken in favor of the cell further along its path, which is most likely
+		 * to be closer to the end
+		 */
+		
+		private boolean isBefore(int a, int b) {
+			if (fScore[a] != fScore[b]) return fScore[a] < fScore[b];
+			
+			return gScore[a] > gScore[b];
+		}
+		
+		private void pushOpen(int id) {
+			setState(id, OPEN);
+			
+			heapIndex[id] = openSize;
+			openHeap[openSize] = id;
+			openSize++;
+			
+			siftUp(heapIndex[id]);
+		}
+		
+		private int popOpen() {
+			int lowest = openHeap[0];
+			
+			openSize--;
+			if (openSize > 0) {
+				openHeap[0] = openHeap[openSize];
+				heapIndex[openHeap[0]] = 0;
+				siftDown(0);
+			}
+			
+			setState(lowest, CLOSED);
+			
+			return lowest;
+		}
+		
+		private void decreaseKey(int id) {
+			siftUp(heapIndex[id]);
+		}
+		
+		private void siftUp(int index) {
+			int id = openHeap[index];
+			
+			while (index > 0) {
+				int parentIndex = (index - 1) >> 1;
+				int parentID = openHeap[parentIndex];
+				
+				if (!isBefore(id, parentID)) break;
+				
+				openHeap[index] = parentID;
+				heapIndex[parentID] = index;
+				index = parentIndex;
+			}
+			
+			openHeap[index] = id;
+			heapIndex[id] = index;
+		}
+		
+		private void siftDown(int index) {
+			int id = openHeap[index];
+			
+			while (true) {
+				int child = 2 * index + 1;
+				if (child >= openSize) break;
+				
+				if (child + 1 < openSize && isBefore(openHeap[child + 1], openHeap[child]))
+					child++;
+				
+				int childID = openHeap[child];
+				if (!isBefore(childID, id)) break;
+				
+				openHeap[index] = childID;
+				heapIndex[childID] = index;
+				index = child;
+			}
+			
+			openHeap[index] = id;
+			heapIndex[id] = index;
 		}
 		
 		private Area area;
 		
-		private boolean[][] entityPass;
+		private final BitGrid entityImpassable;
+		
+		// the number of creatures threatening the mover at each cell, valid if hasThreats is set
+		private final int[] threatCount;
+		private boolean hasThreats;
 		
 		private final int width;
 		private final int height;
 		
-		private final boolean[][] pass;
+		private final boolean[] pass;
+		
+		private final int[] gScore;
+		private final int[] fScore;
+		private final int[] parent;
+		private final byte[] state;
+		
+		private int generation;
+		private final int[] stateGeneration;
+		private final int[] goalGeneration;
 		
-		private final int[][] gScore;
-		private final int[][] hScore;
-		private final int[][] fScore;
-		private final boolean[][] closed;
-		private final boolean[][] open;
-		private final Point[][] parent;
+		private final int[] openHeap;
+		private final int[] heapIndex;
+		private int openSize;
 		
-		private final List<Point> openSet;
+		// scratch space for updating flow fields, allocated on the first update
+		private byte[] flowState;
+		private int[] flowChanged;
 	}
 }
@@ -19,10 +19,12 @@
 
 package net.sf.hale.util;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.OutputStreamWriter;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
@@ -32,9 +34,10 @@ import java.util.List;
 import java.util.zip.GZIPOutputStream;
 
 import net.sf.hale.Game;
-import net.sf.hale.loading.JSONOrderedObject;
+import net.sf.hale.loading.BinarySaveSink;
+import net.sf.hale.loading.JSONSaveSink;
 import net.sf.hale.loading.LoadGameException;
-import net.sf.hale.loading.SaveWriter;
+import net.sf.hale.loading.SaveSink;
 import net.sf.hale.resource.ResourceType;
 
 /**
@@ -202,23 +205,31 @@ public class SaveGameUtil {
 	/**
 	 * The current state of the game (as contained in the Game.curCampaign object)
 	 * is saved to the specified file in a compressed format.  A header containing
-	 * some basic information is also saved to the file.
+	 * some basic information is also saved to the file.  The game data is streamed
+	 * to the file as it is saved, either as JSON or in the binary format, depending on
+	 * {@link net.sf.hale.Config#isBinarySaveFormatEnabled()}
 	 * @param file the file to save to
 	 * @throws IOException any exception thrown by the OutputStream used to write the file
 	 */
 	
 	public static void saveGame(File file) throws IOException {
-		JSONOrderedObject data = Game.curCampaign.getSaveGameData();
-		
 		FileOutputStream fos = new FileOutputStream(file);
 		GZIPOutputStream gz = new GZIPOutputStream(fos);
 		
-		SaveFileHeader header = new SaveFileHeader(Game.curCampaign);
-		SaveFileHeader.write(header, gz);
-		
-		PrintWriter writer = new PrintWriter(gz);
-		SaveWriter.writeJSON(data, writer);
-		
-		writer.close();
+		try {
+			SaveFileHeader header = new SaveFileHeader(Game.curCampaign);
+			SaveFileHeader.write(header, gz);
+			
+			SaveSink out;
+			if (Game.config.isBinarySaveFormatEnabled())
+				out = new BinarySaveSink(new BufferedOutputStream(gz));
+			else
+				out = new JSONSaveSink(new BufferedWriter(new OutputStreamWriter(gz)));
+			
+			out.value(Game.curCampaign.getSaveGameData());
+			out.flush();
+		} finally {
+			gz.close();
+		}
 	}
 }
@@ -99,6 +99,16 @@ public class SimpleJSONParser {
 		initialize(reader, id);
 	}
 	
+	/**
+	 * Creates a new JSONParser wrapping the specified already parsed object
+	 * @param object the parsed object
+	 * @param id the ID of the resource the object was parsed from
+	 */
+	
+	public SimpleJSONParser(JSONObject object, String id) {
+		result = new SimpleJSONObject(object, id);
+	}
+	
 	private void initialize(Reader reader, String id) {
 		JSONParser parser = new JSONParser(JSONParser.MODE_PERMISSIVE);
 
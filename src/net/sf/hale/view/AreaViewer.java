@@ -29,6 +29,7 @@ import net.sf.hale.entity.PC;
 import net.sf.hale.entity.Entity;
 import net.sf.hale.interfacelock.InterfaceLock;
 import net.sf.hale.util.AreaUtil;
+import net.sf.hale.util.BitGrid;
 import net.sf.hale.util.Point;
 import net.sf.hale.widgets.EntityMouseover;
 import net.sf.hale.widgets.OverHeadFadeAway;
@@ -478,16 +479,16 @@ public class AreaViewer extends Widget implements AreaTileGrid.AreaRenderer {
 	 * @param visibility the visibility matrix to be drawn
 	 */
 	
-	private void drawVisibility(boolean[][] visibility, AnimationState as, Point topLeft, Point bottomRight) {
-		boolean[][] explored = area.getExplored();
+	private void drawVisibility(BitGrid visibility, AnimationState as, Point topLeft, Point bottomRight) {
+		BitGrid explored = area.getExplored();
 		
 		for (int x = topLeft.x; x <= bottomRight.x; x++) {
 			for (int y = topLeft.y; y <= bottomRight.y; y++) {
 				Point screenPoint = AreaUtil.convertGridToScreen(x, y);
 				
-				if (!explored[x][y]) {
+				if (!explored.get(x, y)) {
 					hexFilledBlack.draw(as, screenPoint.x, screenPoint.y);
-				} else if (!visibility[x][y]) {
+				} else if (!visibility.get(x, y)) {
 					hexFilledGrey.draw(as, screenPoint.x, screenPoint.y);
 				}
 			}
@@ -496,13 +497,13 @@ public class AreaViewer extends Widget implements AreaTileGrid.AreaRenderer {
 	}
 	
 	private void drawCreatureVisibility(Creature creature, AnimationState as, Point topLeft, Point bottomRight) {
-		boolean[][] explored = area.getExplored();
+		BitGrid explored = area.getExplored();
 		
 		for (int x = topLeft.x; x <= bottomRight.x; x++) {
 			for (int y = topLeft.y; y <= bottomRight.y; y++) {
 				Point screenPoint = AreaUtil.convertGridToScreen(x, y);
 				
-				if (!explored[x][y]) {
+				if (!explored.get(x, y)) {
 					hexFilledBlack.draw(as, screenPoint.x, screenPoint.y);
 				} else if (!creature.hasVisibilityInCurrentArea(x, y)) {
 					hexFilledGrey.draw(as, screenPoint.x, screenPoint.y);
@@ -32,6 +32,7 @@ import net.sf.hale.entity.PC;
 import net.sf.hale.entity.Weapon;
 import net.sf.hale.rules.DamageType;
 import net.sf.hale.rules.Role;
+import net.sf.hale.rules.RuleString;
 import net.sf.hale.rules.XP;
 import net.sf.hale.widgets.BasePortraitViewer;
 import net.sf.hale.widgets.StatFillBar;
@@ -146,7 +147,7 @@ public class CharacterSheet extends ScrollPane {
 		sb.append("<table>");
 		int numResistances = 0;
 		for (DamageType damageType : Game.ruleset.getAllDamageTypes()) {
-			if (damageType.getName().equals(Game.ruleset.getString("PhysicalDamageType"))) continue;
+			if (damageType.getName().equals(Game.ruleset.getString(RuleString.PhysicalDamageType))) continue;
 			
 			int reduction = parent.stats.getDamageReduction(damageType);
 			int immunity = parent.stats.getDamageImmunity(damageType);
@@ -36,6 +36,7 @@ import net.sf.hale.icon.IconFactory;
 import net.sf.hale.rules.BaseWeapon;
 import net.sf.hale.rules.Currency;
 import net.sf.hale.rules.Recipe;
+import net.sf.hale.rules.RuleString;
 import net.sf.hale.rules.Skill;
 import net.sf.hale.rules.Weight;
 import net.sf.hale.widgets.IconViewer;
@@ -432,7 +433,7 @@ public class ItemDetailsWindow extends GameSubWindow implements EntityListener {
 		case Armor: case Gloves: case Boots: case Helmet:
 			Armor armor = (Armor)item;
 			
-			if (!armor.getTemplate().getArmorType().getName().equals(Game.ruleset.getString("DefaultArmorType"))) {
+			if (!armor.getTemplate().getArmorType().getName().equals(Game.ruleset.getString(RuleString.DefaultArmorType))) {
 				sb.append("<span style=\"font-family: medium-blue\">");
 				sb.append(armor.getTemplate().getArmorType().getName());
 				sb.append("</span> ");
@@ -42,6 +42,7 @@ import net.sf.hale.entity.Weapon;
 import net.sf.hale.entity.WeaponTemplate;
 import net.sf.hale.rules.Currency;
 import net.sf.hale.rules.Merchant;
+import net.sf.hale.rules.RuleValue;
 import net.sf.hale.widgets.ItemIconHover;
 import net.sf.hale.widgets.ItemIconViewer;
 import net.sf.hale.widgets.RightClickMenu;
@@ -386,7 +387,7 @@ public class ItemListViewer extends Widget implements ItemIconViewer.Listener, D
 	
 	private void addContainerButtons(Item item, int quantity, RightClickMenu menu, Container container) {
 		if (item instanceof EquippableItem && 
-			creature.timer.canPerformAction(Game.ruleset.getValue("PickUpAndWieldItemCost"))) {
+			creature.timer.canPerformAction(Game.ruleset.getValue(RuleValue.PickUpAndWieldItemCost))) {
 			
 			EquippableItem eItem = (EquippableItem)item;
 			
@@ -411,7 +412,7 @@ public class ItemListViewer extends Widget implements ItemIconViewer.Listener, D
 			}
 		}
 		
-		if (creature.timer.canPerformAction(Game.ruleset.getValue("PickUpItemCost"))) {
+		if (creature.timer.canPerformAction(Game.ruleset.getValue(RuleValue.PickUpItemCost))) {
 			Button button = new Button("Take");
 			button.addCallback(creature.inventory.getTakeCallback(item, 1, container));
 			menu.addButton(button);
@@ -504,7 +505,7 @@ public class ItemListViewer extends Widget implements ItemIconViewer.Listener, D
 			menu.addButton(button);
 		}
 
-		if ((creature.timer.canPerformAction(Game.ruleset.getValue("GiveItemCost")) ||
+		if ((creature.timer.canPerformAction(Game.ruleset.getValue(RuleValue.GiveItemCost)) ||
 				!Game.isInTurnMode()) && Game.curCampaign.party.size() > 1) {
 			Button button = new Button("Give >>");
 			button.addCallback(creature.inventory.getGiveCallback(item, 1));
@@ -516,7 +517,7 @@ public class ItemListViewer extends Widget implements ItemIconViewer.Listener, D
 				menu.addButton(button);
 			}
 		}
-		if (!item.getTemplate().isQuest() && creature.timer.canPerformAction(Game.ruleset.getValue("DropItemCost"))) {
+		if (!item.getTemplate().isQuest() && creature.timer.canPerformAction(Game.ruleset.getValue(RuleValue.DropItemCost))) {
 			Button button = new Button("Drop");
 			button.addCallback(creature.inventory.getDropCallback(item, 1));
 			menu.addButton(button);
@@ -26,6 +26,7 @@ import net.sf.hale.entity.Creature;
 import net.sf.hale.entity.Entity;
 import net.sf.hale.entity.Location;
 import net.sf.hale.entity.Trap;
+import net.sf.hale.util.BitGrid;
 import net.sf.hale.util.Point;
 
 import org.lwjgl.opengl.GL11;
@@ -216,12 +217,12 @@ public class MiniMapWindow extends GameSubWindow {
 			GL11.glTranslatef(getInnerX() - tileQuarter, getInnerY() - tileHalf, 0.0f);
 			
 			boolean[][] pass = area.getPassability();
-			boolean[][] explored = area.getExplored();
-			boolean[][] visible = area.getVisibility();
+			BitGrid explored = area.getExplored();
+			BitGrid visible = area.getVisibility();
 			
-			for (int y = 0; y < explored[0].length; y++) {
-				for (int x = 0; x < explored.length; x++) {
-					if (!explored[x][y]) continue;
+			for (int y = 0; y < explored.getHeight(); y++) {
+				for (int x = 0; x < explored.getWidth(); x++) {
+					if (!explored.get(x, y)) continue;
 					
 					int screenX = x * tileWidth;
 					int screenY = y * tileSize;
@@ -248,7 +249,7 @@ public class MiniMapWindow extends GameSubWindow {
 						trap.draw(as, screenX, screenY);
 					
 					// only draw creatures for visible tiles
-					if (!visible[x][y]) continue;
+					if (!visible.get(x, y)) continue;
 					
 					Creature creature = area.getCreatureAtGridPoint(x, y);
 					if (creature != null) {
@@ -28,6 +28,7 @@ import net.sf.hale.entity.EquippableItemTemplate;
 import net.sf.hale.entity.ItemTemplate;
 import net.sf.hale.icon.Icon;
 import net.sf.hale.rules.Recipe;
+import net.sf.hale.rules.RuleValue;
 import net.sf.hale.rules.Skill;
 import net.sf.hale.widgets.ExpandableWidget;
 import net.sf.hale.widgets.IconViewer;
@@ -208,7 +209,7 @@ public class RecipeSetViewer extends Widget {
 			super.update();
 			
 			// hide recipes where we are no where close to the skill requirement
-			setVisible(currentSkillBestRanks >= recipe.getSkillRankRequirement() - Game.ruleset.getValue("RecipeVisibleSkillThreshold"));
+			setVisible(currentSkillBestRanks >= recipe.getSkillRankRequirement() - Game.ruleset.getValue(RuleValue.RecipeVisibleSkillThreshold));
 			
 			if (showCraftButton) {
 				craft.setEnabled(recipe.canCraft() && currentSkillBestRanks >= recipe.getSkillRankRequirement());
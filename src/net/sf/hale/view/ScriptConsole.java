@@ -22,6 +22,7 @@ package net.sf.hale.view;
 import java.util.LinkedList;
 
 import net.sf.hale.Game;
+import net.sf.hale.resource.ResourceManager;
 import net.sf.hale.util.JSEngine;
 
 import de.matthiasmann.twl.EditField;
@@ -71,6 +72,8 @@ public class ScriptConsole extends GameSubWindow {
 		
 		printLastException = new ScriptPrintLastException();
 		printHelp = new ScriptPrintHelp();
+		printScriptStats = new ScriptPrintScriptStats();
+		printResourceStats = new ScriptPrintResourceStats();
 		
 		// set up the widgets
 		editField = new ScriptEntryField(new DefaultEditFieldModel());
@@ -115,6 +118,8 @@ public class ScriptConsole extends GameSubWindow {
 		jsEngine.put("view", Game.mainViewer);
 		jsEngine.put("printLastException", printLastException);
 		jsEngine.put("help", printHelp);
+		jsEngine.put("printScriptStats", printScriptStats);
+		jsEngine.put("printResourceStats", printResourceStats);
 	}
 	
 	private void executeScript(String text) {
@@ -518,6 +523,8 @@ public class ScriptConsole extends GameSubWindow {
 	
 	private final ScriptPrintLastException printLastException;
 	private final ScriptPrintHelp printHelp;
+	private final ScriptPrintScriptStats printScriptStats;
+	private final ScriptPrintResourceStats printResourceStats;
 	
 	private class ScriptPrintLastException {
 		@Override public String toString() {
@@ -545,6 +552,8 @@ public class ScriptConsole extends GameSubWindow {
 			startAppend("green");
 			appendString("<p>&nbsp;&nbsp;&nbsp;help</p>");
 			appendString("<p>&nbsp;&nbsp;&nbsp;printLastException</p>");
+			appendString("<p>&nbsp;&nbsp;&nbsp;printScriptStats</p>");
+			appendString("<p>&nbsp;&nbsp;&nbsp;printResourceStats</p>");
 			appendString("<p>&nbsp;&nbsp;&nbsp;game</p>");
 			appendString("<p>&nbsp;&nbsp;&nbsp;view</p>");
 			appendString("<p>&nbsp;&nbsp;&nbsp;runtime</p>");
@@ -553,4 +562,39 @@ public class ScriptConsole extends GameSubWindow {
 			return "";
 		}
 	}
+	
+	private class ScriptPrintScriptStats {
+		@Override public String toString() {
+			
+			for (String line : Game.scriptEngineManager.getStats().toString().split("\n")) {
+				appendText("purple", line);
+			}
+			
+			if (Game.scriptExecutor != null)
+				appendText("purple", Game.scriptExecutor.getStatus());
+			
+			return "";
+		}
+	}
+	
+	private class ScriptPrintResourceStats {
+		@Override public String toString() {
+			
+			appendText("purple", ResourceManager.getStatus());
+			
+			for (String line : Game.textureLoader.getStats().split("\n")) {
+				appendText("purple", line);
+			}
+			
+			if (Game.curCampaign != null) {
+				for (String line : Game.curCampaign.getAreaCache().getStats().split("\n")) {
+					appendText("purple", line);
+				}
+				
+				appendText("purple", Game.curCampaign.getAreaPreloader().getStats());
+			}
+			
+			return "";
+		}
+	}
 }
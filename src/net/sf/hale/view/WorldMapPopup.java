@@ -58,6 +58,13 @@ public class WorldMapPopup extends PopupWindow {
 		content.add(close);
 		
 		createLocationsList();
+		
+		// begin loading the areas the party is most likely to travel to
+		WorldMapLocation origin = null;
+		if (transition != null)
+			origin = Game.curCampaign.getWorldMapLocation(transition.getWorldMapLocation());
+		
+		Game.curCampaign.getAreaPreloader().preloadWorldMapDestinations(origin);
 	}
 	
 	/**